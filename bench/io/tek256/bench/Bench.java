@@ -0,0 +1,111 @@
+package io.tek256.bench;
+
+import java.lang.management.ManagementFactory;
+
+import io.tek256.core.TimingBuffer;
+
+/**
+ * USAGE: Bench.run("name", (count) -> { setup for count; return () -> { the work }; });
+ *
+ * NOTES: Minimal benchmark harness, every workload is built once per entity
+ * 		  count, warmed up so the JIT settles, then timed one operation per
+ * 		  sample into a `TimingBuffer`. Results are printed as p50 / p95 /
+ * 		  p99 per operation, p50 per entity & bytes allocated per operation,
+ * 		  so the scaling across counts can be read straight off the output.
+ * 		  Configured with system properties:
+ * 		  	bench.counts  entity counts (default 100,1000,10000,100000)
+ * 		  	bench.warmup  warmup time per count in ms (default 1000)
+ * 		  	bench.samples timed operations per count (default 100)
+ */
+public class Bench {
+	//nanoseconds per millisecond, for reporting
+	private static final double MILLIS = 1000000.0;
+	
+	//results are written here so the JIT can't drop the work
+	public static volatile float sink;
+	
+	//the entity counts every workload is run at
+	private static final int[] COUNTS = counts(System.getProperty("bench.counts", "100,1000,10000,100000"));
+	
+	private static final long WARMUP = Long.getLong("bench.warmup", 1000L) * 1000000L;
+	private static final int SAMPLES = Integer.getInteger("bench.samples", 100);
+	
+	/**
+	 * A workload, built fresh for each entity count
+	 */
+	public interface Workload {
+		/** Set up the workload for an entity count
+		 * 
+		 * @param count the amount of entities
+		 * @return a single operation of the workload
+		 */
+		public Runnable create(int count) throws Exception;
+	}
+	
+	/** Run a workload at every entity count & print the results
+	 * 
+	 * @param name the name of the workload
+	 * @param workload the workload
+	 */
+	public static void run(String name, Workload workload){
+		for(int count : COUNTS){
+			Runnable op;
+			try{
+				op = workload.create(count);
+			}catch(Exception e){
+				System.out.println(name+" ["+count+"] setup failed: "+e);
+				continue;
+			}
+			
+			//let the JIT settle
+			long end = System.nanoTime() + WARMUP;
+			while(System.nanoTime() < end)
+				op.run();
+			
+			TimingBuffer timings = new TimingBuffer(SAMPLES);
+			long allocated = allocated();
+			for(int i=0;i<SAMPLES;i++){
+				long start = System.nanoTime();
+				op.run();
+				timings.add(System.nanoTime() - start);
+			}
+			allocated = (allocated() - allocated) / SAMPLES;
+			
+			System.out.println(String.format("%-28s %7d  p50:%9.3fms p95:%9.3fms p99:%9.3fms  %8.1fns/entity %10dB/op",
+					name, count, timings.percentile(0.50) / MILLIS, timings.percentile(0.95) / MILLIS,
+					timings.percentile(0.99) / MILLIS, timings.percentile(0.50) / (double)count, allocated));
+		}
+	}
+	
+	/** Keep a result alive
+	 * 
+	 * @param value the result
+	 */
+	public static void consume(float value){
+		sink += value;
+	}
+	
+	/** Get the bytes allocated by this thread so far (HotSpot only)
+	 * 
+	 * @return the bytes allocated, or 0 when the JVM can't tell
+	 */
+	private static long allocated(){
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+	
+	/** Parse the entity counts
+	 * 
+	 * @param list comma separated counts
+	 * @return the counts
+	 */
+	private static int[] counts(String list){
+		String[] split = list.split(",");
+		int[] counts = new int[split.length];
+		for(int i=0;i<split.length;i++)
+			counts[i] = Integer.parseInt(split[i].trim());
+		return counts;
+	}
+}
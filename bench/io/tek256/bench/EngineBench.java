@@ -0,0 +1,367 @@
+package io.tek256.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import io.tek256.core.collision.Broadphase;
+import io.tek256.core.collision.GridBroadphase;
+import io.tek256.core.collision.Narrowphase;
+import io.tek256.core.collision.SweepBroadphase;
+import io.tek256.core.collision.TreeBroadphase;
+import io.tek256.core.runtime.GameObject;
+import io.tek256.core.runtime.Renderable;
+import io.tek256.core.runtime.Transform;
+import io.tek256.core.runtime.TransformStore;
+import io.tek256.editor.EditorSpace;
+import io.tek256.render.Animation;
+import io.tek256.render.Texture;
+import io.tek256.render.TextureSheet;
+
+/**
+ * USAGE: javac -cp "lib/*" -d out $(find src bench -name "*.java")
+ * 		  java -cp "out:lib/*" io.tek256.bench.EngineBench [name filter]
+ *
+ * NOTES: Benchmarks of the engine's hot paths, each one scaled by entity
+ * 		  count (see `Bench` for the settings). Everything runs headless,
+ * 		  so the asset workloads only cover the JSON side of loading: the
+ * 		  textures are stand ins (`new Texture(path, width, height)`) and the
+ * 		  level lists no textures, since decoding & uploading need GL.
+ */
+public class EngineBench {
+	public static void main(String[] args) throws Exception {
+		String filter = (args.length > 0) ? args[0] : "";
+		
+		if("transform.updateMatrix".contains(filter))
+			Bench.run("transform.updateMatrix", EngineBench::updateMatrix);
+		if("store.updateMatrices".contains(filter))
+			Bench.run("store.updateMatrices", EngineBench::updateMatrices);
+		if("matrix4f.chain".contains(filter))
+			Bench.run("matrix4f.chain", EngineBench::matrixChain);
+		if("broadphase.update".contains(filter))
+			Bench.run("broadphase.update", EngineBench::gridBroadphase);
+		if("broadphase.bullets".contains(filter))
+			Bench.run("broadphase.bullets", EngineBench::bullets);
+		if("treeBroadphase.update".contains(filter))
+			Bench.run("treeBroadphase.update", EngineBench::treeBroadphase);
+		if("sweepBroadphase.update".contains(filter))
+			Bench.run("sweepBroadphase.update", EngineBench::sweepBroadphase);
+		if("narrowphase.solve".contains(filter))
+			Bench.run("narrowphase.solve", EngineBench::narrowphase);
+		if("animation.update".contains(filter))
+			Bench.run("animation.update", EngineBench::animations);
+		if("renderable.getIndex".contains(filter))
+			Bench.run("renderable.getIndex", EngineBench::getIndex);
+		if("textureSheet.load".contains(filter))
+			Bench.run("textureSheet.load", EngineBench::textureSheet);
+		if("editorSpace.load".contains(filter))
+			Bench.run("editorSpace.load", EngineBench::editorSpace);
+	}
+	
+	/** Rotate & rebuild the matrix of every transform one at a time
+	 * 
+	 * @param count the amount of transforms
+	 * @return the operation
+	 */
+	private static Runnable updateMatrix(int count){
+		GameObject[] objects = new GameObject[count];
+		TransformStore store = new TransformStore(count);
+		
+		Random random = new Random(1);
+		for(int i=0;i<count;i++){
+			objects[i] = new GameObject(new Vector3f(random.nextFloat() * 1000f, random.nextFloat() * 1000f, 0), null);
+			objects[i].setSize(16, 16);
+			store.attach(objects[i]);
+		}
+		
+		return () -> {
+			for(int i=0;i<count;i++){
+				objects[i].setAngle(objects[i].getAngle() + 0.01f);
+				objects[i].updateMatrix();
+			}
+			Bench.consume(objects[count - 1].getAngle());
+		};
+	}
+	
+	/** Rotate every transform & rebuild the dirty matrices in one pass over the store
+	 * 
+	 * @param count the amount of transforms
+	 * @return the operation
+	 */
+	private static Runnable updateMatrices(int count){
+		GameObject[] objects = new GameObject[count];
+		TransformStore store = new TransformStore(count);
+		
+		for(int i=0;i<count;i++){
+			objects[i] = new GameObject(new Vector3f(i, i, 0), null);
+			objects[i].setSize(16, 16);
+			store.attach(objects[i]);
+		}
+		
+		return () -> {
+			for(int i=0;i<count;i++)
+				objects[i].setAngle(objects[i].getAngle() + 0.01f);
+			store.updateMatrices();
+			Bench.consume(objects[0].getAngle());
+		};
+	}
+	
+	/** Build a model matrix the old way (translate, rotateZ, scale) & multiply it by a view
+	 * 
+	 * @param count the amount of matrices
+	 * @return the operation
+	 */
+	private static Runnable matrixChain(int count){
+		Matrix4f[] mats = new Matrix4f[count];
+		for(int i=0;i<count;i++)
+			mats[i] = new Matrix4f();
+		
+		Matrix4f view = new Matrix4f().translate(-100f, -50f, 0f);
+		
+		return () -> {
+			for(int i=0;i<count;i++){
+				mats[i].identity().translate(i, i * 0.5f, 0).rotateZ(i * 0.001f).scale(16f, 16f, 1f);
+				view.mul(mats[i], mats[i]);
+			}
+			Bench.consume(mats[count - 1].m30);
+		};
+	}
+	
+	/** Step a grid broadphase full of moving boxes
+	 * 
+	 * @param count the amount of boxes
+	 * @return the operation
+	 */
+	private static Runnable gridBroadphase(int count){
+		int side = side(count);
+		return broadphase(count, side, new GridBroadphase(side, side));
+	}
+	
+	/** Step a grid broadphase where most boxes are bullets, which only collide with the rest
+	 * 
+	 * @param count the amount of boxes
+	 * @return the operation
+	 */
+	private static Runnable bullets(int count){
+		int side = side(count);
+		GridBroadphase grid = new GridBroadphase(side, side);
+		Runnable step = broadphase(count, side, grid);
+		
+		//9 in 10 boxes are bullets
+		for(int i=0;i<count;i++){
+			if(i % 10 == 0)
+				continue;
+			
+			grid.get(i).setCategory(2);
+			grid.get(i).setMask(Transform.DEFAULT_CATEGORY);
+		}
+		return step;
+	}
+	
+	/** Step a tree broadphase full of moving boxes
+	 * 
+	 * @param count the amount of boxes
+	 * @return the operation
+	 */
+	private static Runnable treeBroadphase(int count){
+		return broadphase(count, side(count), new TreeBroadphase());
+	}
+	
+	/** Step a sweep & prune broadphase full of moving boxes
+	 * 
+	 * @param count the amount of boxes
+	 * @return the operation
+	 */
+	private static Runnable sweepBroadphase(int count){
+		return broadphase(count, side(count), new SweepBroadphase());
+	}
+	
+	/** Get the size of the world for an amount of boxes, keeping the density the same across counts
+	 * 
+	 * @param count the amount of boxes
+	 * @return the width & height of the world
+	 */
+	private static int side(int count){
+		return Math.max(256, ((int)Math.ceil(Math.sqrt(count)) * 32 + 63) / 64 * 64);
+	}
+	
+	/** Fill a broadphase with moving boxes & step it
+	 * 
+	 * @param count the amount of boxes
+	 * @param side the width & height of the world
+	 * @param broadphase the broadphase to fill
+	 * @return the operation
+	 */
+	private static Runnable broadphase(int count, int side, Broadphase broadphase){
+		GameObject[] objects = new GameObject[count];
+		Random random = new Random(1);
+		for(int i=0;i<count;i++){
+			objects[i] = new GameObject(new Vector3f(8 + random.nextFloat() * (side - 16),
+					8 + random.nextFloat() * (side - 16), 0), null);
+			objects[i].setSize(8, 8);
+			objects[i].setVelocity((random.nextFloat() - 0.5f) * 0.1f, (random.nextFloat() - 0.5f) * 0.1f);
+			broadphase.add(objects[i]);
+		}
+		
+		int[] steps = { 0 };
+		return () -> {
+			broadphase.update(16);
+			Bench.consume(broadphase.getPairCount());
+			
+			//turn every box around now & then, so they stay spread out
+			//instead of piling up against the bounds
+			if(++steps[0] % 64 == 0)
+				for(int i=0;i<count;i++)
+					objects[i].setVelocity(-objects[i].getVelocityX(), -objects[i].getVelocityY());
+		};
+	}
+	
+	/** Step a grid broadphase & resolve its contacts, with boxes crowded enough to keep bumping
+	 * 
+	 * @param count the amount of boxes
+	 * @return the operation
+	 */
+	private static Runnable narrowphase(int count){
+		int side = side(count);
+		GridBroadphase broadphase = new GridBroadphase(side, side);
+		Narrowphase narrowphase = new Narrowphase();
+		
+		GameObject[] objects = new GameObject[count];
+		float[] velocities = new float[count * 2];
+		Random random = new Random(1);
+		for(int i=0;i<count;i++){
+			objects[i] = new GameObject(new Vector3f(8 + random.nextFloat() * (side - 16),
+					8 + random.nextFloat() * (side - 16), 0), null);
+			objects[i].setSize(16, 16);
+			velocities[i * 2] = (random.nextFloat() - 0.5f) * 0.1f;
+			velocities[i * 2 + 1] = (random.nextFloat() - 0.5f) * 0.1f;
+			broadphase.add(objects[i]);
+		}
+		
+		int[] steps = { 0 };
+		return () -> {
+			//contacts eat the velocities, so hand them out again now & then (turned around)
+			if(steps[0]++ % 64 == 0)
+				for(int i=0;i<count;i++){
+					velocities[i * 2] = -velocities[i * 2];
+					velocities[i * 2 + 1] = -velocities[i * 2 + 1];
+					objects[i].setVelocity(velocities[i * 2], velocities[i * 2 + 1]);
+				}
+			
+			broadphase.update(16);
+			narrowphase.solve(broadphase);
+			Bench.consume(narrowphase.getContactCount());
+		};
+	}
+	
+	/** Step many playing animations
+	 * 
+	 * @param count the amount of animations
+	 * @return the operation
+	 */
+	private static Runnable animations(int count){
+		Animation[] animations = new Animation[count];
+		for(int i=0;i<count;i++){
+			animations[i] = new Animation(null, "anim"+i, 100f, new int[]{ 0, 1, 2, 3, 4, 5 });
+			animations[i].play();
+		}
+		
+		return () -> {
+			for(int i=0;i<count;i++)
+				animations[i].update(16f);
+			Bench.consume(animations[count - 1].getFrameTimer());
+		};
+	}
+	
+	/** Look animations up by name on renderables with a handful of animations each
+	 * 
+	 * @param count the amount of lookups
+	 * @return the operation
+	 */
+	private static Runnable getIndex(int count){
+		Animation[] animations = new Animation[8];
+		String[] names = { "Idle", "Walk", "Run", "Jump", "Fall", "Attack", "Hurt", "Die" };
+		for(int i=0;i<animations.length;i++)
+			animations[i] = new Animation(null, names[i], 100f, new int[]{ 0 });
+		
+		Renderable renderable = new Renderable(animations);
+		
+		//the lookups mix cases like game code does
+		String[] lookups = new String[count];
+		for(int i=0;i<count;i++)
+			lookups[i] = (i % 2 == 0) ? names[i % names.length].toLowerCase() : names[i % names.length];
+		
+		return () -> {
+			int sum = 0;
+			for(int i=0;i<count;i++)
+				sum += renderable.getIndex(lookups[i]);
+			Bench.consume(sum);
+		};
+	}
+	
+	/** Load a texture sheet JSON with a mapping per entity
+	 * 
+	 * @param count the amount of sub textures & mappings
+	 * @return the operation
+	 */
+	private static Runnable textureSheet(int count) throws IOException {
+		//a stand in texture big enough for every sub texture
+		int across = Math.min(count, 1024);
+		int down = (count + across - 1) / across;
+		String texturePath = "bench/sheet"+count+".png";
+		new Texture(texturePath, across * 8, down * 8);
+		
+		StringBuilder json = new StringBuilder();
+		json.append("{\"name\":\"bench").append(count).append("\",\"path\":\"").append(texturePath)
+			.append("\",\"width\":8,\"height\":8,\"mappings\":[");
+		for(int i=0;i<count;i++)
+			json.append((i == 0) ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"sub").append(i).append("\"}");
+		json.append("],\"animations\":[");
+		for(int i=0;i<Math.max(1, count / 8);i++)
+			json.append((i == 0) ? "" : ",").append("{\"name\":\"anim").append(i)
+				.append("\",\"frameLength\":100.0,\"frames\":\"0,1,2,3,4,5\"}");
+		json.append("]}");
+		
+		String path = write("sheet", json);
+		return () -> Bench.consume(new TextureSheet(path).getPerWidth());
+	}
+	
+	/** Load a level JSON with a level object per entity
+	 * 
+	 * @param count the amount of level objects
+	 * @return the operation
+	 */
+	private static Runnable editorSpace(int count) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"textures\":[],\"textureSheets\":[],\"gameObjects\":[],\"levelObjects\":[");
+		for(int i=0;i<count;i++)
+			json.append((i == 0) ? "" : ",").append("{\"position\":\"").append(i % 512 * 16).append(",")
+				.append(i / 512 * 16).append(",0\",\"size\":\"16,16\"}");
+		json.append("]}");
+		
+		String path = write("level", json);
+		EditorSpace space = new EditorSpace(512 * 16, 512 * 16);
+		
+		return () -> {
+			space.load(path);
+			Bench.consume(space.getWidth());
+		};
+	}
+	
+	/** Write generated JSON to a temporary file
+	 * 
+	 * @param prefix the name of the file
+	 * @param json the JSON
+	 * @return the path of the file
+	 */
+	private static String write(String prefix, StringBuilder json) throws IOException {
+		File file = File.createTempFile(prefix, ".json");
+		file.deleteOnExit();
+		Files.write(file.toPath(), json.toString().getBytes("UTF-8"));
+		return file.getPath();
+	}
+}
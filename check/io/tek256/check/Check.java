@@ -0,0 +1,86 @@
+package io.tek256.check;
+
+/**
+ * USAGE: Check.run("name", () -> { the setup; Check.expect(condition, "what went wrong"); }) -> Check.exit()
+ *
+ * NOTES: Minimal headless check harness, since there's no test tree. Checks
+ * 		  run one after the other, each failed expectation is counted & the
+ * 		  first few are printed under the check's name (an exception fails
+ * 		  the check too), and `exit()` ends the JVM with the amount of failed
+ * 		  checks as the status, so a script can tell if anything broke.
+ */
+public class Check {
+	//most failures printed per check
+	private static final int PRINTED = 5;
+	
+	//failures of the running check
+	private static int failures = 0;
+	
+	//amount of checks run & failed
+	private static int checks = 0, failed = 0;
+	
+	/**
+	 * The body of a check
+	 */
+	public interface Body {
+		/**
+		 * Run the check, calling `Check.expect()` for everything it checks
+		 */
+		public void run() throws Exception;
+	}
+	
+	/** Run a check & print if it passed
+	 *
+	 * @param name the name of the check
+	 * @param body the check
+	 */
+	public static void run(String name, Body body){
+		failures = 0;
+		checks++;
+		
+		long start = System.nanoTime();
+		try{
+			body.run();
+		}catch(Exception e){
+			failures++;
+			System.out.println("  threw "+e);
+		}
+		long time = (System.nanoTime() - start) / 1000000L;
+		
+		if(failures > 0)
+			failed++;
+		System.out.println(String.format("%-32s %s (%dms)", name, (failures == 0) ? "ok" : "FAILED x"+failures, time));
+	}
+	
+	/** Expect something to be true in the running check
+	 *
+	 * @param condition what should be true
+	 * @param message what went wrong when it isn't
+	 */
+	public static void expect(boolean condition, String message){
+		if(condition)
+			return;
+		
+		if(failures++ < PRINTED)
+			System.out.println("  "+message);
+	}
+	
+	/** Expect 2 floats to be (about) the same in the running check
+	 *
+	 * @param expected the expected value
+	 * @param actual the value
+	 * @param tolerance how far off is still fine
+	 * @param message what's being compared
+	 */
+	public static void near(float expected, float actual, float tolerance, String message){
+		expect(Math.abs(expected - actual) <= tolerance, message+": expected "+expected+" got "+actual);
+	}
+	
+	/**
+	 * Print the summary & end the JVM (the status is the amount of failed checks)
+	 */
+	public static void exit(){
+		System.out.println(checks+" checks, "+failed+" failed");
+		System.exit(failed);
+	}
+}
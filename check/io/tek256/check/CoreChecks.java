@@ -0,0 +1,564 @@
+package io.tek256.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joml.Matrix3x2f;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import io.tek256.core.CullGrid;
+import io.tek256.core.RenderQueue;
+import io.tek256.core.RenderSnapshot;
+import io.tek256.core.Scene;
+import io.tek256.core.SnapshotBuffer;
+import io.tek256.core.runtime.GameObject;
+import io.tek256.core.runtime.LevelObject;
+import io.tek256.core.runtime.Renderable;
+import io.tek256.core.runtime.Transform;
+import io.tek256.core.runtime.TransformStore;
+import io.tek256.core.trace.ChromeTrace;
+import io.tek256.render.Camera;
+import io.tek256.render.Texture;
+
+/**
+ * USAGE: run by `EngineChecks` (same name filter)
+ *
+ * NOTES: Headless checks of the GL free parts of the core (the scene's
+ * 		  bookkeeping, storage, sorting & the thread handoffs). Scenes are
+ * 		  made headless & sprites have no texture, so nothing needs a window.
+ */
+public class CoreChecks {
+	/** Run the core checks
+	 *
+	 * @param filter only the checks with this in their name
+	 */
+	static void run(String filter){
+		for(boolean parallel : new boolean[]{ false, true }){
+			String name = "scene.deferred."+(parallel ? "parallel" : "serial");
+			if(name.contains(filter))
+				Check.run(name, () -> deferred(parallel));
+		}
+		
+		if("scene.interpolate".contains(filter))
+			Check.run("scene.interpolate", CoreChecks::interpolate);
+		if("scene.bookkeeping".contains(filter))
+			Check.run("scene.bookkeeping", CoreChecks::bookkeeping);
+		if("cullgrid.fuzz".contains(filter))
+			Check.run("cullgrid.fuzz", CoreChecks::cullFuzz);
+		if("store.pool".contains(filter))
+			Check.run("store.pool", CoreChecks::storePool);
+		if("queue.sort".contains(filter))
+			Check.run("queue.sort", CoreChecks::queueSort);
+		if("snapshot.handoff".contains(filter))
+			Check.run("snapshot.handoff", CoreChecks::handoff);
+		if("trace.escape".contains(filter))
+			Check.run("trace.escape", CoreChecks::traceEscape);
+	}
+	
+	/** Defer work from game objects' input, checking it runs before their update (serial or parallel)
+	 *
+	 * @param parallel if the scene updates in parallel
+	 */
+	private static void deferred(boolean parallel){
+		Scene scene = new Scene(true);
+		scene.setParallel(parallel);
+		
+		//enough game objects for the parallel update to split them
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		for(int i=0;i<Scene.PARALLEL_CHUNK * 3;i++){
+			boolean first = (i == 0);
+			scene.add(new GameObject(new Vector3f(i, i, 0), new Renderable((Texture)null)){
+				@Override
+				public void input(long delta){
+					if(first)
+						scene.defer(() -> log.add("deferred"));
+				}
+				
+				@Override
+				public void Update(long delta){
+					if(first)
+						log.add("update");
+				}
+			});
+		}
+		
+		for(int step=0;step<3;step++){
+			log.clear();
+			scene.input(16);
+			expect(log.size() == 1 && log.get(0).equals("deferred"), "step "+step+": input's deferred work didn't run after input "+log);
+			
+			scene.update(16);
+			expect(log.size() == 2 && log.get(1).equals("update"), "step "+step+": "+log+" after update");
+		}
+	}
+	
+	/**
+	 * Step a moving sprite & check frames blend it from the start of the step by alpha
+	 */
+	private static void interpolate(){
+		Scene scene = new Scene(true);
+		GameObject object = new GameObject(new Vector3f(0, 0, 0), new Renderable((Texture)null)){
+			@Override
+			public void Update(long delta){
+				move(10, 0);
+			}
+		};
+		object.setSize(16, 16);
+		scene.add(object);
+		
+		RenderSnapshot snapshot = new RenderSnapshot();
+		Matrix3x2f mat = new Matrix3x2f();
+		
+		for(int step=0;step<3;step++){
+			scene.beginStep();
+			scene.input(16);
+			scene.update(16);
+			scene.snapshot(16, snapshot);
+			expect(snapshot.size() == 1, "step "+step+": the sprite wasn't snapshotted");
+			
+			//the frames between this step & the next walk from the old position to the new one
+			float from = step * 10;
+			for(float alpha : new float[]{ 0f, 0.25f, 0.5f, 1f })
+				Check.near(from + 10 * alpha, snapshot.getMat(0, alpha, mat).m20, 1e-4f, "step "+step+" alpha "+alpha);
+			Check.near(from + 10, snapshot.getMat(0, mat).m20, 1e-4f, "step "+step+" unblended");
+		}
+		
+		//a teleport that's settled doesn't slide
+		scene.beginStep();
+		object.setPosition(60, 0);
+		object.settle();
+		scene.snapshot(16, snapshot);
+		expect(snapshot.size() == 1, "the teleported sprite wasn't snapshotted");
+		Check.near(60, snapshot.getMat(0, 0f, mat).m20, 1e-4f, "settled teleport");
+	}
+	
+	/**
+	 * Add & remove game & level objects at random, checking every list the scene swap-removes
+	 * from (the buckets, the parallel list & the culling grid) still holds exactly what's in it
+	 */
+	private static void bookkeeping(){
+		Random random = new Random(9);
+		Scene scene = new Scene(true);
+		RenderSnapshot snapshot = new RenderSnapshot();
+		
+		//enough game objects for the parallel update to split them
+		List<Counted> objects = new ArrayList<>();
+		List<Transform> all = new ArrayList<>();
+		for(int i=0;i<Scene.PARALLEL_CHUNK * 4;i++){
+			Vector2f size = new Vector2f(4 + random.nextInt(40), 4 + random.nextInt(40));
+			Vector3f position = new Vector3f(random.nextFloat() * 3000, random.nextFloat() * 3000, 0);
+			
+			if(i % 3 == 0){
+				all.add(new LevelObject(position, size, new Renderable((Texture)null)));
+			}else{
+				Counted object = new Counted(position);
+				object.setSize(size);
+				objects.add(object);
+				all.add(object);
+			}
+		}
+		
+		Set<Transform> in = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(int round=0;round<40;round++){
+			//churn the scene, removals & re-adds land anywhere in the lists
+			for(int k=0;k<200;k++){
+				Transform transform = all.get(random.nextInt(all.size()));
+				if(in.remove(transform)){
+					scene.remove(transform);
+					expect(transform.getStore() != scene.getTransformStore(), "a removed object is still in the scene's store");
+				}else{
+					scene.add(transform);
+					in.add(transform);
+				}
+			}
+			
+			expect(scene.getTransformStore().size() == in.size(), "round "+round+": the store holds "+scene.getTransformStore().size()+" of "+in.size());
+			
+			//every game object in the scene steps exactly once, whichever list walks them
+			scene.setParallel(round % 2 == 1);
+			for(Counted object : objects)
+				object.inputs = object.updates = 0;
+			scene.input(16);
+			scene.update(16);
+			for(Counted object : objects){
+				int expected = in.contains(object) ? 1 : 0;
+				expect(object.inputs == expected && object.updates == expected, "round "+round+": an object "
+						+(expected == 1 ? "in" : "out of")+" the scene had "+object.inputs+" inputs & "+object.updates+" updates");
+			}
+			
+			//the culling grid sees exactly the objects in the scene
+			scene.snapshot(16, snapshot);
+			float left = scene.getCamera().getLeft(), right = scene.getCamera().getRight();
+			float bottom = scene.getCamera().getBottom(), top = scene.getCamera().getTop();
+			int visible = 0;
+			for(Transform transform : in){
+				if(!(transform.getRight() < left || transform.getLeft() > right
+						|| transform.getTop() < bottom || transform.getBottom() > top))
+					visible++;
+			}
+			expect(scene.getVisibleCount() == visible && snapshot.size() == visible, "round "+round+": "
+					+scene.getVisibleCount()+" visible & "+snapshot.size()+" snapshotted, expected "+visible);
+			expect(scene.getVisibleCount() + scene.getCulledCount() == in.size(), "round "+round+": visible & culled don't add up to the scene");
+		}
+	}
+	
+	/**
+	 * Insert, remove, move & clear entries at random, checking queries against a brute force
+	 * search (with few slots, so cells share slots & their back links get shuffled)
+	 */
+	private static void cullFuzz(){
+		for(int slotCount : new int[]{ 16, CullGrid.DEFAULT_SLOTS }){
+			Random random = new Random(1);
+			CullGrid grid = new CullGrid(CullGrid.DEFAULT_CELL_SIZE, slotCount);
+			List<CullGrid.Entry> in = new ArrayList<>(), out = new ArrayList<>();
+			
+			for(int i=0;i<3000;i++){
+				GameObject object = new GameObject(new Vector3f(random.nextFloat() * 4000, random.nextFloat() * 4000, 0), null);
+				//a few large ones span many cells
+				object.setSize(1 + random.nextFloat() * (i % 100 == 0 ? 1000 : 40), 1 + random.nextFloat() * 40);
+				if(i % 7 == 0)
+					object.setAngle(random.nextFloat());
+				
+				CullGrid.Entry entry = new CullGrid.Entry(object, null, RenderQueue.OBJECT);
+				grid.insert(entry);
+				in.add(entry);
+			}
+			
+			ArrayList<CullGrid.Entry> result = new ArrayList<>();
+			for(int round=0;round<300;round++){
+				for(int k=0;k<30;k++){
+					int op = random.nextInt(3);
+					if(op == 0 && !in.isEmpty()){
+						CullGrid.Entry entry = in.remove(random.nextInt(in.size()));
+						grid.remove(entry);
+						out.add(entry);
+					}else if(op == 1 && !out.isEmpty()){
+						CullGrid.Entry entry = out.remove(random.nextInt(out.size()));
+						grid.insert(entry);
+						in.add(entry);
+					}else if(!in.isEmpty()){
+						CullGrid.Entry entry = in.get(random.nextInt(in.size()));
+						entry.transform.setPosition(random.nextFloat() * 4000, random.nextFloat() * 4000);
+						grid.update(entry);
+					}
+				}
+				
+				if(round == 150){
+					grid.clear();
+					for(CullGrid.Entry entry : in)
+						grid.insert(entry);
+				}
+				
+				float left = random.nextFloat() * 4000, bottom = random.nextFloat() * 4000;
+				float right = left + random.nextFloat() * 800, top = bottom + random.nextFloat() * 800;
+				result.clear();
+				grid.query(left, bottom, right, top, result);
+				
+				Set<CullGrid.Entry> found = new HashSet<>(result);
+				expect(found.size() == result.size(), slotCount+" slots, round "+round+": an entry was found twice");
+				
+				int expected = 0;
+				for(CullGrid.Entry entry : in){
+					Transform transform = entry.transform;
+					
+					//rotated objects are culled by their bounding circle
+					float l = transform.getLeft(), r = transform.getRight(), b = transform.getBottom(), t = transform.getTop();
+					if(transform.getAngle() != 0){
+						float radius = (float)Math.sqrt(transform.getWidth() * transform.getWidth()
+								+ transform.getHeight() * transform.getHeight()) * 0.5f;
+						l = transform.getX() - radius;
+						r = transform.getX() + radius;
+						b = transform.getY() - radius;
+						t = transform.getY() + radius;
+					}
+					
+					if(!(r < left || l > right || t < bottom || b > top)){
+						expected++;
+						expect(found.contains(entry), slotCount+" slots, round "+round+": an overlapping entry wasn't found");
+					}
+				}
+				
+				for(CullGrid.Entry entry : out)
+					expect(!found.contains(entry), slotCount+" slots, round "+round+": a removed entry was found");
+				expect(expected == result.size(), slotCount+" slots, round "+round+": found "+result.size()+" expected "+expected);
+			}
+		}
+	}
+	
+	/**
+	 * Move transforms in & out of a store, checking their state survives & pooled stores come back empty
+	 */
+	private static void storePool(){
+		Random random = new Random(5);
+		TransformStore store = new TransformStore(4);
+		
+		List<GameObject> objects = new ArrayList<>();
+		List<float[]> states = new ArrayList<>();
+		for(int i=0;i<600;i++){
+			GameObject object = new GameObject(new Vector3f(random.nextFloat() * 100, random.nextFloat() * 100, i), null);
+			object.setSize(1 + random.nextInt(30), 1 + random.nextInt(30));
+			object.setAngle(random.nextFloat());
+			object.setVelocity(random.nextFloat(), -random.nextFloat());
+			objects.add(object);
+			states.add(state(object));
+		}
+		
+		//attach, detach & re-attach at random (detaching swaps the last slot into the gap)
+		for(int round=0;round<20;round++){
+			for(int i=0;i<objects.size();i++){
+				GameObject object = objects.get(random.nextInt(objects.size()));
+				if(object.getStore() == store)
+					store.detach(object);
+				else
+					store.attach(object);
+			}
+			
+			int attached = 0;
+			for(int i=0;i<objects.size();i++){
+				GameObject object = objects.get(i);
+				
+				//the slot a transform thinks it's in has to point back at it
+				expect(object.getStore().get(object.getSlot()) == object, "round "+round+": object "+i+"'s slot belongs to another transform");
+				expect(Arrays.equals(states.get(i), state(object)), "round "+round+": object "+i+" changed moving between stores");
+				
+				if(object.getStore() == store)
+					attached++;
+			}
+			expect(store.size() == attached, "round "+round+": the store holds "+store.size()+" of "+attached);
+		}
+		
+		//attaching hands the private stores back to the pool, new transforms reuse them zeroed
+		for(GameObject object : objects)
+			store.attach(object);
+		for(int i=0;i<100;i++){
+			GameObject fresh = new GameObject((Renderable)null);
+			expect(Arrays.equals(new float[8], state(fresh)), "a recycled store kept old state");
+			expect(fresh.getStepX() == 0 && fresh.getStepY() == 0, "a recycled store kept an old step position");
+			expect(fresh.getMat(new Matrix3x2f()).equals(new Matrix3x2f()), "a recycled store's matrix isn't identity");
+		}
+	}
+	
+	/**
+	 * Radix sort random queues & check they come out the same as a comparison sort of the keys
+	 * (unsigned, layers from 64 up set the sign bit), with few distinct values so passes get skipped
+	 */
+	private static void queueSort(){
+		Random random = new Random(4);
+		RenderQueue queue = new RenderQueue(16);
+		
+		//the layers around the sign bit, depths & states are picked from a few so digits repeat
+		int[] layers = { 0, 1, 63, 64, 65, 100, RenderQueue.MAX_LAYER };
+		float[] depths = { -1f, -0.5f, 0f, 0.001f, 0.5f, 1f };
+		
+		for(int round=0;round<200;round++){
+			//some rounds keep one field the same, so only the other passes run, & some
+			//keep every sprite the same but one, so a pass runs for a single odd digit
+			int fixed = random.nextInt(5);
+			int size = random.nextInt(3000);
+			int odd = (size == 0) ? -1 : random.nextInt(size);
+			
+			queue.clear();
+			for(int i=0;i<size;i++){
+				Renderable renderable = new Renderable((Texture)null);
+				boolean same = (fixed == 4 && i != odd);
+				renderable.setLayer((fixed == 1 || same) ? 3 : layers[random.nextInt(layers.length)]);
+				
+				float z = (fixed == 2 || same) ? 0f : depths[random.nextInt(depths.length)];
+				int kind = (fixed == 3 || same) ? RenderQueue.OBJECT : random.nextInt(2);
+				int state = same ? 7 : (fixed == 0) ? random.nextInt(5) : random.nextInt(300);
+				
+				queue.add(new GameObject(new Vector3f(0, 0, z), null), renderable, kind, state);
+			}
+			
+			//flipping the sign bit makes the signed sort order the keys unsigned
+			long[] expected = new long[size];
+			for(int i=0;i<size;i++)
+				expected[i] = queue.getKey(i) ^ Long.MIN_VALUE;
+			Arrays.sort(expected);
+			
+			queue.sort();
+			
+			int wrong = 0;
+			while(wrong < size && queue.getKey(wrong) == (expected[wrong] ^ Long.MIN_VALUE))
+				wrong++;
+			expect(wrong == size, "round "+round+": key "+wrong+" of "+size+" out of order");
+			
+			//the top layers draw last
+			int layer = 1;
+			while(layer < size && queue.getRenderable(layer - 1).getLayer() <= queue.getRenderable(layer).getLayer())
+				layer++;
+			expect(layer >= size, "round "+round+": a layer drew after a higher one at "+layer);
+		}
+	}
+	
+	/**
+	 * Publish numbered snapshots from one thread while another acquires them, checking the
+	 * reader never sees a snapshot that's half written or older than the last one published
+	 */
+	private static void handoff(){
+		final int publishes = 100000, sprites = 32;
+		
+		SnapshotBuffer buffer = new SnapshotBuffer();
+		Camera camera = new Camera();
+		
+		//the last snapshot `publish()` returned for
+		AtomicInteger published = new AtomicInteger(0);
+		
+		//every sprite of snapshot n has n in its depth & position, so a torn one shows
+		Thread writer = new Thread(() -> {
+			Matrix3x2f mat = new Matrix3x2f();
+			Vector2f repeat = new Vector2f(1, 1);
+			for(int n=1;n<=publishes;n++){
+				RenderSnapshot snapshot = buffer.getBack();
+				snapshot.begin(camera);
+				for(int i=0;i<sprites;i++){
+					mat.m20 = n;
+					snapshot.add(null, null, mat, n, n, n, repeat, false, false, RenderQueue.OBJECT);
+				}
+				buffer.publish();
+				published.set(n);
+			}
+		}, "snapshot writer");
+		writer.start();
+		
+		Matrix3x2f mat = new Matrix3x2f();
+		int last = 0, torn = 0, stale = 0, backwards = 0, reads = 0;
+		while(last < publishes){
+			//once the writer is done, the next read has to be its last snapshot
+			boolean done = !writer.isAlive();
+			int latest = published.get();
+			RenderSnapshot snapshot = buffer.acquire();
+			reads++;
+			
+			//nothing published yet
+			int n = (snapshot.size() == 0) ? 0 : (int)snapshot.getZ(0);
+			if(n != 0 && snapshot.size() != sprites)
+				torn++;
+			for(int i=0;i<snapshot.size();i++){
+				if(snapshot.getZ(i) != n || snapshot.getMat(i, mat).m20 != n)
+					torn++;
+			}
+			
+			if(n < latest)
+				stale++;
+			if(n < last)
+				backwards++;
+			last = Math.max(last, n);
+			
+			if(done)
+				break;
+		}
+		
+		try{
+			writer.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		
+		expect(torn == 0, torn+" torn sprites in "+reads+" reads");
+		expect(stale == 0, stale+" of "+reads+" reads were older than the last publish");
+		expect(backwards == 0, backwards+" of "+reads+" reads went back to an older snapshot");
+	}
+	
+	/**
+	 * Record spans with quotes, backslashes & control characters, checking the trace is valid JSON that reads them back
+	 */
+	private static void traceEscape(){
+		String[] details = { "plain", "a \"quoted\" C:\\path", "line\nbreak\ttab\r", "\u0000\u0001\u001f end" };
+		
+		File file;
+		try{
+			file = File.createTempFile("trace", ".json");
+		}catch(IOException e){
+			expect(false, "couldn't make a temp file: "+e);
+			return;
+		}
+		file.deleteOnExit();
+		
+		expect(ChromeTrace.start(file.getPath()), "the trace didn't start");
+		for(String detail : details)
+			ChromeTrace.record("span\n"+detail, "check", 0, 1000, detail);
+		ChromeTrace.stop();
+		
+		String text;
+		try{
+			text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		}catch(IOException e){
+			expect(false, "couldn't read the trace: "+e);
+			return;
+		}
+		
+		//only the line breaks between events can be raw
+		for(int i=0;i<text.length();i++){
+			char c = text.charAt(i);
+			if(c < 0x20 && c != '\n'){
+				expect(false, "raw control character "+(int)c+" in the trace");
+				break;
+			}
+		}
+		expect(text.split("\n").length == details.length + 2, "a span broke over lines");
+		
+		JsonArray events = new Gson().fromJson(text, JsonArray.class);
+		expect(events.size() == details.length, events.size()+" spans read back of "+details.length);
+		for(int i=0;i<Math.min(events.size(), details.length);i++){
+			String detail = events.get(i).getAsJsonObject().getAsJsonObject("args").get("detail").getAsString();
+			String name = events.get(i).getAsJsonObject().get("name").getAsString();
+			expect(detail.equals(details[i]) && name.equals("span\n"+details[i]), "span "+i+" read back as "+name+" / "+detail);
+		}
+	}
+	
+	/** Get the state of a transform to compare
+	 *
+	 * @param transform the transform
+	 * @return position, size, angle & velocity
+	 */
+	private static float[] state(Transform transform){
+		return new float[]{ transform.getX(), transform.getY(), transform.getZ(), transform.getWidth(), transform.getHeight(),
+				transform.getAngle(), transform.getVelocityX(), transform.getVelocityY() };
+	}
+	
+	/** Shorthand for `Check.expect()`
+	 *
+	 * @param condition what should be true
+	 * @param message what went wrong when it isn't
+	 */
+	private static void expect(boolean condition, String message){
+		Check.expect(condition, message);
+	}
+	
+	/**
+	 * A game object counting its input & update calls
+	 */
+	private static class Counted extends GameObject {
+		int inputs = 0, updates = 0;
+		
+		Counted(Vector3f position){
+			super(position, new Renderable((Texture)null));
+		}
+		
+		@Override
+		public void input(long delta){
+			inputs++;
+		}
+		
+		@Override
+		public void Update(long delta){
+			updates++;
+		}
+	}
+}
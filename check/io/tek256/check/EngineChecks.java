@@ -0,0 +1,774 @@
+package io.tek256.check;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import io.tek256.core.Scene;
+import io.tek256.core.collision.Broadphase;
+import io.tek256.core.collision.ContactCache;
+import io.tek256.core.collision.ContinuousCollision;
+import io.tek256.core.collision.GridBroadphase;
+import io.tek256.core.collision.Narrowphase;
+import io.tek256.core.collision.RayHit;
+import io.tek256.core.collision.RayHits;
+import io.tek256.core.collision.SweepBroadphase;
+import io.tek256.core.collision.TileMap;
+import io.tek256.core.collision.TreeBroadphase;
+import io.tek256.core.runtime.GameObject;
+import io.tek256.core.runtime.LevelObject;
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: javac -cp "lib/*" -d out $(find src check -name "*.java")
+ * 		  java -cp "out:lib/*" io.tek256.check.EngineChecks [name filter]
+ *
+ * NOTES: Headless checks of the collision code, mostly against brute force
+ * 		  over random scenes (fixed seeds, so a failure always reproduces).
+ * 		  Every broadphase check runs on all the broadphases. The rest of the
+ * 		  core is checked by `CoreChecks`, run from here too.
+ */
+public class EngineChecks {
+	//size of the world the random scenes live in
+	private static final float WORLD = 1600;
+	
+	public static void main(String[] args){
+		String filter = (args.length > 0) ? args[0] : "";
+		
+		for(String name : new String[]{ "grid", "tree", "sweep" }){
+			if(("broadphase.pairs."+name).contains(filter))
+				Check.run("broadphase.pairs."+name, () -> pairs(broadphase(name)));
+			if(("broadphase.remove."+name).contains(filter))
+				Check.run("broadphase.remove."+name, () -> remove(broadphase(name)));
+			if(("broadphase.casts."+name).contains(filter))
+				Check.run("broadphase.casts."+name, () -> casts(broadphase(name)));
+			if(("broadphase.filter."+name).contains(filter))
+				Check.run("broadphase.filter."+name, () -> filter(broadphase(name)));
+			if(("contacts.events."+name).contains(filter))
+				Check.run("contacts.events."+name, () -> events(broadphase(name)));
+			if(("contacts.resolve."+name).contains(filter))
+				Check.run("contacts.resolve."+name, () -> resolve(broadphase(name), broadphase(name), broadphase(name)));
+			if(("ccd.tunnel."+name).contains(filter))
+				Check.run("ccd.tunnel."+name, () -> tunnel(broadphase(name), broadphase(name), broadphase(name)));
+		}
+		
+		if("tiles.stops".contains(filter))
+			Check.run("tiles.stops", EngineChecks::stops);
+		if("tiles.fuzz".contains(filter))
+			Check.run("tiles.fuzz", EngineChecks::fuzz);
+		if("tiles.bake".contains(filter))
+			Check.run("tiles.bake", EngineChecks::bake);
+		
+		CoreChecks.run(filter);
+		
+		Check.exit();
+	}
+	
+	/** Make a broadphase by name
+	 *
+	 * @param name grid, tree or sweep
+	 * @return the broadphase
+	 */
+	private static Broadphase broadphase(String name){
+		switch(name){
+		case "grid":
+			return new GridBroadphase(WORLD, WORLD);
+		case "tree":
+			return new TreeBroadphase();
+		default:
+			return new SweepBroadphase();
+		}
+	}
+	
+	/** Step a broadphase full of moving boxes (with some added & removed every step), comparing its pairs to brute force
+	 *
+	 * @param broadphase the broadphase
+	 */
+	private static void pairs(Broadphase broadphase){
+		Random random = new Random(5);
+		List<GameObject> objects = new ArrayList<>();
+		for(int i=0;i<2000;i++)
+			objects.add(box(random, broadphase, (i % 100 == 0) ? 300 : 12));
+		
+		for(int step=0;step<20;step++){
+			for(int i=0;i<20;i++)
+				broadphase.remove(objects.remove(random.nextInt(objects.size())));
+			for(int i=0;i<20;i++)
+				objects.add(box(random, broadphase, 8));
+			
+			broadphase.update(16);
+			expectPairs(broadphase, "step "+step);
+		}
+	}
+	
+	/** Step a crowded broadphase while changing boxes' categories & masks, comparing its pairs to brute force
+	 *
+	 * @param broadphase the broadphase
+	 */
+	private static void filter(Broadphase broadphase){
+		Random random = new Random(11);
+		List<GameObject> objects = new ArrayList<>();
+		for(int i=0;i<2000;i++){
+			GameObject object = box(random, broadphase, 40);
+			category(random, object);
+			objects.add(object);
+		}
+		
+		for(int step=0;step<20;step++){
+			//some boxes change what they are & what they hit between steps
+			for(int i=0;i<100;i++)
+				category(random, objects.get(random.nextInt(objects.size())));
+			
+			broadphase.update(16);
+			expectPairs(broadphase, "step "+step);
+		}
+		
+		//nothing left to hit
+		for(GameObject object : objects)
+			object.setMask(0);
+		broadphase.update(16);
+		expect(broadphase.getPairCount() == 0, broadphase.getPairCount()+" pairs with every mask empty");
+	}
+	
+	/** Give a box a random category (1 of 4) & mask (mostly everything, else a few categories)
+	 *
+	 * @param random the random
+	 * @param object the box
+	 */
+	private static void category(Random random, GameObject object){
+		object.setCategory(1 << random.nextInt(4));
+		object.setMask((random.nextInt(3) == 0) ? Transform.ALL_CATEGORIES : random.nextInt(16));
+	}
+	
+	/** Remove boxes between steps, then query & cast, comparing against brute force over the boxes left
+	 *
+	 * @param broadphase the broadphase
+	 */
+	private static void remove(Broadphase broadphase){
+		Random random = new Random(9);
+		List<GameObject> objects = new ArrayList<>();
+		for(int i=0;i<1000;i++)
+			objects.add(box(random, broadphase, 16));
+		broadphase.update(16);
+		
+		//take out a whole patch of boxes, so the last boxes get moved into their places
+		Set<Transform> removed = new HashSet<>();
+		for(int i=objects.size() - 1;i>=0;i--){
+			GameObject object = objects.get(i);
+			if(object.getX() < WORLD / 2 && object.getY() < WORLD / 2){
+				broadphase.remove(object);
+				removed.add(objects.remove(i));
+			}
+		}
+		expect(broadphase.getCount() == objects.size(), "count after removal");
+		
+		List<Transform> results = new ArrayList<>();
+		RayHit hit = new RayHit();
+		for(int q=0;q<200;q++){
+			float left = random.nextFloat() * WORLD, bottom = random.nextFloat() * WORLD;
+			float right = left + random.nextFloat() * 300, top = bottom + random.nextFloat() * 300;
+			
+			results.clear();
+			broadphase.query(left, bottom, right, top, results);
+			
+			int expected = 0;
+			for(GameObject object : objects)
+				if(object.getLeft() <= right && left <= object.getRight() && object.getBottom() <= top && bottom <= object.getTop())
+					expected++;
+			expect(results.size() == expected, "query "+q+": "+results.size()+" boxes, brute force finds "+expected);
+			
+			for(Transform result : results){
+				expect(result != null, "query "+q+" returned null");
+				expect(!removed.contains(result), "query "+q+" returned a removed box");
+				if(result != null)
+					expect(result.getLeft() <= right && left <= result.getRight() && result.getBottom() <= top && bottom <= result.getTop(),
+							"query "+q+" returned a box outside the rectangle");
+			}
+			
+			//a ray from the same corner
+			float angle = random.nextFloat() * (float)Math.PI * 2f;
+			float dirX = (float)Math.cos(angle), dirY = (float)Math.sin(angle);
+			boolean found = broadphase.raycast(left, bottom, dirX, dirY, 600, hit);
+			float nearest = nearest(objects, left, bottom, dirX, dirY, 600);
+			expect(found == (nearest >= 0), "ray "+q+": hit "+found+", brute force "+(nearest >= 0));
+			if(found){
+				expect(hit.transform != null && !removed.contains(hit.transform), "ray "+q+" hit a removed or missing box");
+				Check.near(nearest, hit.distance, 0.001f, "ray "+q+" distance");
+			}
+		}
+		
+		//boxes added after the removals show up before the next step
+		GameObject late = box(random, broadphase, 16);
+		results.clear();
+		broadphase.query(late.getLeft(), late.getBottom(), late.getRight(), late.getTop(), results);
+		expect(results.contains(late), "box added between steps isn't queried");
+		
+		//& the next step's pairs are right again
+		objects.add(late);
+		broadphase.update(16);
+		expectPairs(broadphase, "after removal");
+	}
+	
+	/** Fire rays & box casts (first hit & every hit, with layer masks) through a scene, comparing against brute force
+	 *
+	 * @param broadphase the broadphase
+	 */
+	private static void casts(Broadphase broadphase){
+		Random random = new Random(7);
+		List<GameObject> objects = new ArrayList<>();
+		for(int i=0;i<2000;i++){
+			GameObject object = box(random, broadphase, 20);
+			
+			//some long ones sticking out of the world, so the grid's edge cells get crowded
+			if(i % 50 == 0){
+				object.setSize(300, object.getHeight());
+				object.setPosition(random.nextBoolean() ? 0 : WORLD, object.getY());
+			}
+			object.setCategory(1 << random.nextInt(3));
+			objects.add(object);
+		}
+		broadphase.findPairs();
+		
+		RayHit hit = new RayHit();
+		RayHits hits = new RayHits(2);
+		for(int c=0;c<3000;c++){
+			float x = random.nextFloat() * (WORLD + 200) - 100, y = random.nextFloat() * (WORLD + 200) - 100;
+			float angle = random.nextFloat() * (float)Math.PI * 2f;
+			float dirX = (float)Math.cos(angle), dirY = (float)Math.sin(angle);
+			
+			//straight along the axes now & then
+			if(c % 7 == 0){
+				dirX = 0;
+				dirY = 1;
+			}
+			
+			//every other one is a ray
+			float halfW = (c % 2 == 0) ? 0 : random.nextFloat() * 30, halfH = (c % 2 == 0) ? 0 : random.nextFloat() * 30;
+			int layers = (c % 3 == 0) ? Transform.ALL_CATEGORIES : 1 << random.nextInt(3);
+			float distance = random.nextFloat() * 900;
+			
+			boolean found = broadphase.boxCast(x, y, halfW, halfH, dirX, dirY, distance, layers, hit);
+			int amount = broadphase.boxCast(x, y, halfW, halfH, dirX, dirY, distance, layers, hits);
+			
+			float nearest = -1;
+			int expected = 0;
+			for(GameObject object : objects){
+				if((object.getCategory() & layers) == 0)
+					continue;
+				
+				float t = slab(x, y, dirX, dirY, object.getLeft() - halfW, object.getBottom() - halfH,
+						object.getRight() + halfW, object.getTop() + halfH);
+				if(t < 0 || t > distance)
+					continue;
+				
+				expected++;
+				if(nearest < 0 || t < nearest)
+					nearest = t;
+			}
+			
+			expect(found == (nearest >= 0), "cast "+c+": hit "+found+", brute force "+(nearest >= 0));
+			if(found && nearest >= 0){
+				Check.near(nearest, hit.distance, 0.01f, "cast "+c+" distance");
+				expect((hit.transform.getCategory() & layers) != 0, "cast "+c+" hit a box outside its layers");
+			}
+			
+			expect(amount == expected, "cast "+c+": "+amount+" hits, brute force finds "+expected);
+			Set<Transform> unique = new HashSet<>();
+			for(int i=0;i<amount;i++){
+				unique.add(hits.getTransform(i));
+				if(i > 0)
+					expect(hits.getDistance(i - 1) <= hits.getDistance(i), "cast "+c+" hits aren't nearest first");
+			}
+			expect(unique.size() == amount, "cast "+c+" hit a box twice");
+			if(amount > 0 && nearest >= 0)
+				Check.near(nearest, hits.getDistance(0), 0.01f, "cast "+c+" nearest of every hit");
+		}
+	}
+	
+	/** Compare a broadphase's pairs with brute force (exactly once each, lower index first)
+	 *
+	 * @param broadphase the broadphase, after its step
+	 * @param when what to call the step in failures
+	 */
+	static void expectPairs(Broadphase broadphase, String when){
+		int count = broadphase.getCount();
+		IdentityHashMap<Transform, Integer> index = new IdentityHashMap<>();
+		for(int i=0;i<count;i++)
+			index.put(broadphase.get(i), i);
+		
+		Set<Long> seen = new HashSet<>();
+		for(int p=0;p<broadphase.getPairCount();p++){
+			Transform a = broadphase.getPairA(p), b = broadphase.getPairB(p);
+			int ia = index.get(a), ib = index.get(b);
+			expect(ia < ib, when+": pair "+p+" isn't lower index first");
+			expect(seen.add((long)Math.min(ia, ib) << 32 | Math.max(ia, ib)), when+": pair "+p+" reported twice");
+			expect(overlaps(a, b) && a.collidesWith(b), when+": pair "+p+" doesn't overlap");
+		}
+		
+		int expected = 0;
+		for(int i=0;i<count;i++)
+			for(int j=i + 1;j<count;j++)
+				if(overlaps(broadphase.get(i), broadphase.get(j)) && broadphase.get(i).collidesWith(broadphase.get(j)))
+					expected++;
+		expect(expected == broadphase.getPairCount(), when+": "+broadphase.getPairCount()+" pairs, brute force finds "+expected);
+	}
+	
+	/** Rest boxes on a floor, run 2 boxes into each other & overlap a turned box, checking where the narrowphase leaves them
+	 *
+	 * @param resting the broadphase for the resting boxes
+	 * @param headOn the broadphase for the boxes running into each other
+	 * @param turned the broadphase for the turned box
+	 */
+	private static void resolve(Broadphase resting, Broadphase headOn, Broadphase turned){
+		Narrowphase narrowphase = new Narrowphase();
+		
+		//floor top at 60, 2 10x10 boxes falling onto it
+		resting.add(new LevelObject(new Vector3f(256, 50, 0), new Vector2f(400, 20), null));
+		GameObject bottom = new GameObject(new Vector3f(256, 100, 0), null), top = new GameObject(new Vector3f(256, 130, 0), null);
+		bottom.setSize(10, 10);
+		top.setSize(10, 10);
+		resting.add(bottom);
+		resting.add(top);
+		for(int step=0;step<200;step++){
+			bottom.setVelocityY(bottom.getVelocityY() - 0.001f);
+			top.setVelocityY(top.getVelocityY() - 0.001f);
+			resting.update(16);
+			narrowphase.solve(resting);
+		}
+		Check.near(65, bottom.getY(), Narrowphase.SLOP * 2, "bottom box resting");
+		Check.near(75, top.getY(), Narrowphase.SLOP * 4, "top box resting");
+		Check.near(0, bottom.getVelocityY(), 1e-4f, "bottom box's speed resting");
+		expect(narrowphase.getContactCount() == 2, narrowphase.getContactCount()+" contacts resting");
+		
+		GameObject left = new GameObject(new Vector3f(100, 100, 0), null), right = new GameObject(new Vector3f(120, 100, 0), null);
+		left.setSize(10, 10);
+		right.setSize(10, 10);
+		left.setVelocity(0.1f, 0);
+		right.setVelocity(-0.1f, 0);
+		headOn.add(left);
+		headOn.add(right);
+		for(int step=0;step<10;step++){
+			headOn.update(16);
+			narrowphase.solve(headOn);
+		}
+		Check.near(0, left.getVelocityX(), 1e-4f, "left box's speed after running into the right");
+		Check.near(0, right.getVelocityX(), 1e-4f, "right box's speed after running into the left");
+		expect(left.getRight() - right.getLeft() <= Narrowphase.SLOP + 1e-4f, "boxes still overlap after running into each other");
+		
+		//a 20x20 box turned 45 degrees reaches 14.14 to the right, overlapping a box starting 8 further on by 6.14
+		GameObject diamond = new GameObject(new Vector3f(100, 100, 0), null), box = new GameObject(new Vector3f(118, 100, 0), null);
+		diamond.setSize(20, 20);
+		diamond.setAngle((float)Math.PI / 4);
+		box.setSize(20, 20);
+		turned.add(diamond);
+		turned.add(box);
+		turned.findPairs();
+		expect(narrowphase.collide(turned) == 1, "no contact with a turned box");
+		Check.near(10 * (float)Math.sqrt(2) - 8, narrowphase.getDepth(0), 1e-3f, "depth into a turned box");
+		Check.near(1, Math.abs(narrowphase.getNormalX(0)), 1e-4f, "normal against a turned box");
+		
+		//in the turned box's bounds, but past its corner
+		box.setPosition(126, 100);
+		turned.findPairs();
+		expect(narrowphase.collide(turned) == 0, "contact past a turned box's corner");
+	}
+	
+	/** Fire small, fast boxes at thin walls, checking continuous collision stops them where plain steps tunnel through
+	 *
+	 * @param plain the broadphase stepped normally
+	 * @param swept the broadphase stepped with continuous collision
+	 * @param wall the broadphase with a wall to slide along
+	 */
+	private static void tunnel(Broadphase plain, Broadphase swept, Broadphase wall){
+		ContinuousCollision continuous = new ContinuousCollision();
+		Narrowphase narrowphase = new Narrowphase();
+		
+		//a 2 high platform (top at 101) & a 4x4 box moving 32 down a step
+		GameObject[] boxes = new GameObject[2];
+		Broadphase[] broadphases = { plain, swept };
+		for(int i=0;i<2;i++){
+			broadphases[i].add(new LevelObject(new Vector3f(256, 100, 0), new Vector2f(400, 2), null));
+			boxes[i] = new GameObject(new Vector3f(250, 300, 0), null);
+			boxes[i].setSize(4, 4);
+			boxes[i].setVelocity(0.5f, -2f);
+			broadphases[i].add(boxes[i]);
+		}
+		for(int step=0;step<20;step++){
+			plain.update(16);
+			narrowphase.solve(plain);
+			continuous.step(swept, 16);
+			narrowphase.solve(swept);
+		}
+		expect(boxes[0].getY() < 99, "the plain step didn't tunnel (the check needs it to)");
+		Check.near(103, boxes[1].getY(), Narrowphase.SLOP * 2, "swept box stopping on the platform");
+		Check.near(0, boxes[1].getVelocityY(), 1e-4f, "swept box's speed on the platform");
+		
+		//a 2 wide wall (left at 499) & a box moving 48 right a step, sliding a little up
+		wall.add(new LevelObject(new Vector3f(500, 500, 0), new Vector2f(2, 400), null));
+		GameObject box = new GameObject(new Vector3f(300, 400, 0), null);
+		box.setSize(4, 4);
+		box.setVelocity(3f, 0.1f);
+		wall.add(box);
+		for(int step=0;step<10;step++){
+			continuous.step(wall, 16);
+			narrowphase.solve(wall);
+		}
+		Check.near(497, box.getX(), Narrowphase.SLOP * 2, "swept box stopping at the wall");
+		Check.near(416, box.getY(), 1e-3f, "swept box sliding along the wall");
+	}
+	
+	/** Rest a stack of boxes on a floor, then take boxes away & bounce one off, checking the contact events & cache
+	 *
+	 * @param broadphase the broadphase
+	 */
+	private static void events(Broadphase broadphase){
+		Narrowphase narrowphase = new Narrowphase();
+		ContactCache cache = narrowphase.getCache();
+		Recorder.enters = Recorder.exits = 0;
+		
+		//in front of the stack, so removing it moves the stack's indices around
+		Recorder filler = new Recorder(WORLD - 100, WORLD - 100);
+		broadphase.add(filler);
+		
+		List<Recorder> stack = new ArrayList<>();
+		for(int i=0;i<5;i++){
+			Recorder box = new Recorder(256, 55 + i * 10);
+			broadphase.add(box);
+			stack.add(box);
+		}
+		LevelObject floor = new LevelObject(new Vector3f(256, 40, 0), new Vector2f(400, 20), null);
+		broadphase.add(floor);
+		
+		float before = 0;
+		for(int step=0;step<200;step++){
+			if(step == 100){
+				broadphase.remove(filler);
+				before = impulse(narrowphase);
+			}
+			step(broadphase, narrowphase, stack);
+			
+			if(step == 100)
+				Check.near(before, impulse(narrowphase), 1e-4f, "impulse after the indices moved");
+		}
+		
+		//4 pairs of boxes & the bottom box on the floor (which doesn't record), nothing re-entered when the indices moved
+		expect(Recorder.enters == 9, Recorder.enters+" enters resting the stack");
+		expect(Recorder.exits == 0, Recorder.exits+" exits resting the stack");
+		expect(cache.getCount() == 5, cache.getCount()+" cached pairs in the stack");
+		expect(cache.isTouching(stack.get(0), floor) && cache.isTouching(floor, stack.get(0)), "bottom box isn't on the floor");
+		expect(!cache.isTouching(stack.get(0), stack.get(2)), "boxes apart are touching");
+		
+		//a removed box exits (both sides)
+		broadphase.remove(stack.remove(4));
+		step(broadphase, narrowphase, stack);
+		expect(Recorder.exits == 2, Recorder.exits+" exits after removing the top box");
+		expect(cache.getCount() == 4, cache.getCount()+" cached pairs after removing the top box");
+		
+		//the top box hops off & lands again (maybe bouncing a few times)
+		Recorder top = stack.get(3);
+		top.setVelocityY(0.05f);
+		boolean apart = false;
+		for(int step=0;step<400;step++){
+			step(broadphase, narrowphase, stack);
+			apart |= !cache.isTouching(top, stack.get(2));
+		}
+		expect(apart, "the top box never left");
+		expect(cache.isTouching(top, stack.get(2)), "the top box didn't land");
+		expect(Recorder.exits > 2, "no exit when the top box left");
+		
+		//3 pairs of boxes & the bottom box on the floor still touching
+		expect(Recorder.enters - Recorder.exits == 7, Recorder.enters+" enters & "+Recorder.exits+" exits after a hop");
+	}
+	
+	/** Step boxes with gravity, checking every box's idea of what it touches against the cache
+	 *
+	 * @param broadphase the broadphase
+	 * @param narrowphase the narrowphase
+	 * @param boxes the boxes
+	 */
+	private static void step(Broadphase broadphase, Narrowphase narrowphase, List<Recorder> boxes){
+		for(Recorder box : boxes)
+			box.setVelocityY(box.getVelocityY() - 0.0005f);
+		broadphase.update(16);
+		narrowphase.solve(broadphase);
+		
+		int touching = 0;
+		for(Recorder box : boxes){
+			for(Transform other : box.touching){
+				expect(narrowphase.getCache().isTouching(box, other), "a box touches what the cache doesn't");
+				
+				//each pair between 2 recorders counted from both sides
+				touching += (other instanceof Recorder) ? 1 : 2;
+			}
+		}
+		expect(touching == narrowphase.getCache().getCount() * 2, "the events & the cache disagree on the amount of pairs");
+	}
+	
+	/** Get the total impulse of the last step's contacts
+	 *
+	 * @param narrowphase the narrowphase
+	 * @return the sum of the impulses
+	 */
+	private static float impulse(Narrowphase narrowphase){
+		float impulse = 0;
+		for(int c=0;c<narrowphase.getContactCount();c++)
+			impulse += narrowphase.getImpulse(c);
+		return impulse;
+	}
+	
+	/** Bake a floor & a wall into a tile map, then check where boxes moved into them stop
+	 */
+	private static void stops(){
+		TileMap map = new TileMap(16);
+		
+		//a floor (tiles -200..800 along x, 0 at their middle) & a wall from x 392 to 408 on it
+		for(int i=-12;i<50;i++)
+			expect(map.add(new LevelObject(new Vector3f(i * 16, 0, 0), new Vector2f(16, 16), null)), "floor tile "+i+" wasn't baked");
+		for(int i=1;i<10;i++)
+			map.add(new LevelObject(new Vector3f(400, i * 16, 0), new Vector2f(16, 16), null));
+		expect(map.getSolidCount() == 71, map.getSolidCount()+" solid tiles");
+		
+		//off the grid, so not baked
+		expect(!map.add(new LevelObject(new Vector3f(5, 5, 0), new Vector2f(16, 16), null)), "a misaligned object was baked");
+		
+		//far away, so the map grows
+		map.add(new LevelObject(new Vector3f(100000, 100000, 0), new Vector2f(16, 16), null));
+		expect(map.isSolid(100000f, 100000f) && map.isSolid(0f, 0f) && !map.isSolid(0f, 9f), "solid tiles after growing");
+		
+		//falls onto the floor while sliding into the wall
+		GameObject box = new GameObject(new Vector3f(100, 100, 0), null);
+		box.setSize(10, 10);
+		int sides = 0;
+		for(int step=0;step<100;step++){
+			box.setVelocity(0.2f, box.getVelocityY() - 0.01f);
+			sides = map.move(box, 16);
+		}
+		Check.near(13, box.getY(), TileMap.EPSILON, "resting on the floor");
+		Check.near(387, box.getX(), TileMap.EPSILON, "pushing on the wall");
+		expect(sides == (TileMap.BOTTOM | TileMap.RIGHT), "sides "+sides+" pushing into the corner");
+		
+		//crosses 50 tiles in a step, without tunneling
+		GameObject bullet = new GameObject(new Vector3f(0, 300, 0), null);
+		bullet.setSize(4, 4);
+		bullet.setVelocity(0, -50);
+		sides = map.move(bullet, 16);
+		Check.near(10, bullet.getY(), TileMap.EPSILON, "bullet stopping on the floor");
+		expect(sides == TileMap.BOTTOM, "sides "+sides+" stopping a bullet");
+	}
+	
+	/** Bake & remove overlapping objects, checking removing one only clears the tiles nothing else covers
+	 */
+	private static void bake(){
+		TileMap map = new TileMap(16, 0, 0);
+		
+		//a floor 4 tiles wide & a 2x2 block on top of its left half
+		LevelObject floor = new LevelObject(new Vector3f(32, 8, 0), new Vector2f(64, 16), null);
+		LevelObject block = new LevelObject(new Vector3f(16, 16, 0), new Vector2f(32, 32), null);
+		expect(map.add(floor) && map.add(block), "floor & block weren't baked");
+		expect(!map.add(block), "the block was baked twice");
+		expect(map.getSolidCount() == 6, map.getSolidCount()+" solid tiles with the block on the floor");
+		
+		//collides with nothing, so it's decor
+		LevelObject decor = new LevelObject(new Vector3f(48, 8, 0), new Vector2f(32, 16), null);
+		decor.setMask(0);
+		expect(!map.add(decor), "decor was baked");
+		
+		//growing the map keeps what covers what
+		LevelObject far = new LevelObject(new Vector3f(-1024 + 8, 1024 + 8, 0), new Vector2f(16, 16), null);
+		expect(map.add(far), "far tile wasn't baked");
+		
+		//the block goes, the floor under it stays (even after the block moved)
+		block.setPosition(500, 500);
+		expect(map.remove(block), "the block wasn't removed");
+		expect(!map.remove(block), "the block was removed twice");
+		expect(!map.remove(decor), "decor was removed");
+		for(int x=0;x<4;x++){
+			expect(map.isSolid(x, 0), "floor tile "+x+" cleared with the block");
+			expect(!map.isSolid(x, 1), "block tile "+x+" left behind");
+		}
+		expect(map.getSolidCount() == 5, map.getSolidCount()+" solid tiles after removing the block");
+		
+		expect(map.remove(floor) && map.remove(far), "floor & far tile weren't removed");
+		expect(map.getSolidCount() == 0, map.getSolidCount()+" solid tiles after removing everything");
+		
+		//a scene clears what it baked, even with the snapping switched off since
+		Scene scene = new Scene(true);
+		scene.setSnapping(Scene.SnapState.ALL);
+		LevelObject wall = new LevelObject(new Vector3f(32, 32, 0), new Vector2f(64, 64), null);
+		scene.add(wall);
+		expect(scene.getTiles().getSolidCount() == 16, scene.getTiles().getSolidCount()+" solid tiles in the scene");
+		scene.setSnapping(Scene.SnapState.NONE);
+		scene.remove(wall);
+		expect(scene.getTiles().getSolidCount() == 0, "ghost tiles left after switching the snapping off");
+	}
+	
+	/** Move boxes around a random tile map (some of them fast), checking none ever ends up in a tile
+	 */
+	private static void fuzz(){
+		Random random = new Random(3);
+		TileMap map = new TileMap(16, 0, 0);
+		for(int i=0;i<3000;i++)
+			map.setSolid(random.nextInt(100), random.nextInt(100), true);
+		
+		List<GameObject> objects = new ArrayList<>();
+		for(int i=0;i<500;i++){
+			GameObject object;
+			do{
+				object = new GameObject(new Vector3f(random.nextFloat() * WORLD, random.nextFloat() * WORLD, 0), null);
+				object.setSize(4 + random.nextFloat() * 20, 4 + random.nextFloat() * 20);
+			}while(map.overlaps(object.getLeft(), object.getBottom(), object.getRight(), object.getTop()));
+			objects.add(object);
+		}
+		
+		for(int step=0;step<200;step++){
+			for(GameObject object : objects){
+				if(random.nextInt(10) == 0){
+					float speed = (random.nextInt(5) == 0) ? 20 : 1;
+					object.setVelocity((random.nextFloat() - 0.5f) * speed, (random.nextFloat() - 0.5f) * speed);
+				}
+				map.move(object, 16);
+				
+				//test the tiles around the box, with some slack for boxes resting on an edge
+				int lowX = (int)Math.floor(object.getLeft() / 16) - 1, highX = (int)Math.floor(object.getRight() / 16) + 1;
+				int lowY = (int)Math.floor(object.getBottom() / 16) - 1, highY = (int)Math.floor(object.getTop() / 16) + 1;
+				for(int x=lowX;x<=highX;x++){
+					for(int y=lowY;y<=highY;y++){
+						boolean inside = object.getRight() > x * 16 + 0.01f && object.getLeft() < x * 16 + 16 - 0.01f &&
+								object.getTop() > y * 16 + 0.01f && object.getBottom() < y * 16 + 16 - 0.01f;
+						expect(!(inside && map.isSolid(x, y)), "step "+step+": a box ended up in tile "+x+", "+y);
+					}
+				}
+			}
+		}
+	}
+	
+	/** Add a box at a random spot with a random velocity
+	 *
+	 * @param random the random
+	 * @param broadphase the broadphase to add it to
+	 * @param size the largest size of the box
+	 * @return the box
+	 */
+	static GameObject box(Random random, Broadphase broadphase, float size){
+		GameObject object = new GameObject(new Vector3f(100 + random.nextFloat() * (WORLD - 200),
+				100 + random.nextFloat() * (WORLD - 200), 0), null);
+		object.setSize(1 + random.nextFloat() * size, 1 + random.nextFloat() * size);
+		object.setVelocity((random.nextFloat() - 0.5f) * 0.3f, (random.nextFloat() - 0.5f) * 0.3f);
+		broadphase.add(object);
+		return object;
+	}
+	
+	/** Get if 2 boxes overlap (touching counts)
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @return if they overlap
+	 */
+	static boolean overlaps(Transform a, Transform b){
+		return a.getLeft() <= b.getRight() && b.getLeft() <= a.getRight() && a.getBottom() <= b.getTop() && b.getBottom() <= a.getTop();
+	}
+	
+	/** Get the distance to the nearest box along a ray, by testing every box
+	 *
+	 * @param boxes the boxes
+	 * @param x the x the ray starts at
+	 * @param y the y the ray starts at
+	 * @param dirX the x of the (unit) direction
+	 * @param dirY the y of the (unit) direction
+	 * @param distance how far the ray goes
+	 * @return the distance, or -1 when nothing is hit
+	 */
+	static float nearest(List<? extends Transform> boxes, float x, float y, float dirX, float dirY, float distance){
+		float nearest = -1;
+		for(Transform box : boxes){
+			float t = slab(x, y, dirX, dirY, box.getLeft(), box.getBottom(), box.getRight(), box.getTop());
+			if(t >= 0 && t <= distance && (nearest < 0 || t < nearest))
+				nearest = t;
+		}
+		return nearest;
+	}
+	
+	/** Get where a ray enters a box (0 when it starts inside), in doubles
+	 *
+	 * @param x the x the ray starts at
+	 * @param y the y the ray starts at
+	 * @param dirX the x of the direction
+	 * @param dirY the y of the direction
+	 * @param minX the left of the box
+	 * @param minY the bottom of the box
+	 * @param maxX the right of the box
+	 * @param maxY the top of the box
+	 * @return the distance, or -1 on a miss
+	 */
+	static float slab(float x, float y, float dirX, float dirY, float minX, float minY, float maxX, float maxY){
+		double near = Double.NEGATIVE_INFINITY, far = Double.POSITIVE_INFINITY;
+		
+		if(dirX != 0){
+			double t1 = (minX - x) / (double)dirX, t2 = (maxX - x) / (double)dirX;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}else if(x < minX || x > maxX){
+			return -1;
+		}
+		
+		if(dirY != 0){
+			double t1 = (minY - y) / (double)dirY, t2 = (maxY - y) / (double)dirY;
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}else if(y < minY || y > maxY){
+			return -1;
+		}
+		
+		if(near > far || far < 0)
+			return -1;
+		return (float)Math.max(0, near);
+	}
+	
+	/**
+	 * A 10x10 box that checks its collision events come in order (enter, stay..., exit) & counts them
+	 */
+	private static class Recorder extends GameObject {
+		//events of every recorder
+		private static int enters = 0, exits = 0;
+		
+		//what the box is touching, going by its events
+		private final Set<Transform> touching = new HashSet<>();
+		
+		private Recorder(float x, float y){
+			super(new Vector3f(x, y, 0), null);
+			setSize(10, 10);
+		}
+		
+		@Override
+		public void onCollisionEnter(Transform other){
+			expect(touching.add(other), "entered something it was already touching");
+			enters++;
+		}
+		
+		@Override
+		public void onCollisionStay(Transform other){
+			expect(touching.contains(other), "stayed on something it never entered");
+		}
+		
+		@Override
+		public void onCollisionExit(Transform other){
+			expect(touching.remove(other), "exited something it wasn't touching");
+			exits++;
+		}
+	}
+	
+	/** Shorthand for `Check.expect()`
+	 *
+	 * @param condition what should be true
+	 * @param message what went wrong when it isn't
+	 */
+	private static void expect(boolean condition, String message){
+		Check.expect(condition, message);
+	}
+}
@@ -0,0 +1,57 @@
+#version 330
+
+// About the file:
+// The instanced vertex shader is the same idea as the default shader,
+// but everything that was a per object uniform (MODEL_MAT, TEXTURE_OFFSET,
+// TEXTURE_REPEAT, FLIP_X, FLIP_Y, SUB_TEXTURE) is read from per instance
+// attributes instead, so a whole texture bucket is drawn in one call.
+
+uniform mat4 PROJECTION_MAT; //projection is the rendering style for the camera
+uniform mat4 VIEW_MAT; //view is the camera position, rotation, and scale
+
+uniform vec2 SUB_SIZE; //the sub size of the texture
+uniform vec2 TEXTURE_SIZE; //the size of the whole texture
+
+//vertex attribs
+layout(location = 0) in vec3 IN_POSITION; //the vertex position
+layout(location = 1) in vec2 IN_TEXCOORD; //the texture coordinate
+
+//instance attribs
+layout(location = 2) in vec4 IN_MODEL; //the rotation & scale of the model (m00, m01, m10, m11)
+layout(location = 3) in vec4 IN_TRANSLATION; //the position of the model (x, y, z, unused)
+layout(location = 4) in vec4 IN_TEXTURE; //the offset of the sub texture (xy) & the texture repeat (zw)
+layout(location = 5) in vec4 IN_FLAGS; //flip x, flip y, sub texture, unused
+
+//the texture coord needs to be passed to the fragment shader
+out vec2 OUT_TEXCOORD;
+
+void main(){
+	//model position = 2D model transform * vertex position
+	vec4 mvpos = vec4(IN_MODEL.x * IN_POSITION.x + IN_MODEL.z * IN_POSITION.y + IN_TRANSLATION.x,
+					  IN_MODEL.y * IN_POSITION.x + IN_MODEL.w * IN_POSITION.y + IN_TRANSLATION.y,
+					  IN_TRANSLATION.z, 1.0);
+	
+	//output the vertex position as a product of the projection, view, and model vertex position
+	gl_Position = PROJECTION_MAT * VIEW_MAT * mvpos;
+	
+	//modifiable texture coordinates
+	vec2 MOD_TEXCOORD = IN_TEXCOORD;
+	
+	//flip x texcoord if requested
+	if(IN_FLAGS.x > 0.5){
+		MOD_TEXCOORD.x = 1 - MOD_TEXCOORD.x;
+	}
+	
+	//flip the y texcoord if requested
+	if(IN_FLAGS.y > 0.5){
+		MOD_TEXCOORD.y = 1 - MOD_TEXCOORD.y;
+	}
+	
+	//if the texture is a sub texture, we need to update the texture coord
+	if(IN_FLAGS.z > 0.5){
+		OUT_TEXCOORD = ((IN_TEXTURE.xy / TEXTURE_SIZE) + (SUB_SIZE / TEXTURE_SIZE) * MOD_TEXCOORD);
+	}else{ //if the texture isn't a sub texture
+		//modify by the repeating amount and pass it along
+		OUT_TEXCOORD = MOD_TEXCOORD / IN_TEXTURE.zw;
+	}
+}
@@ -0,0 +1,327 @@
+package io.tek256.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Renderable;
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: insert(entry) once -> update(entry) when it moves -> query(view, result)
+ *
+ * NOTES: Spatial hash of the scene's renderable objects used for view culling.
+ * 		  The world is split into square cells which hash into a fixed table of
+ * 		  slots, so there are no level bounds to set up. An object is listed in
+ * 		  every slot its bounds cover, and a query only walks the slots under
+ * 		  the view, so the cost follows what's visible rather than the size of
+ * 		  the level. Hash collisions only add candidates, which the exact bounds
+ * 		  test throws out. Each slot is a packed array & an entry remembers its
+ * 		  place in every slot it's in, so removing it swaps the slot's last
+ * 		  entry into the gap without searching the slot.
+ */
+public class CullGrid {
+	//default size of a cell in world units
+	public static final float DEFAULT_CELL_SIZE = 64f;
+	
+	//default amount of slots in the table (power of 2)
+	public static final int DEFAULT_SLOTS = 4096;
+	
+	private float cellSize;
+	
+	//starting size of a slot's arrays & an entry's links
+	private static final int INITIAL_SIZE = 4;
+	
+	//the hashed cells, a packed array of entries each (null until used)
+	private Entry[][] slots;
+	private int mask;
+	
+	//which of its links each entry in a slot is (see `Entry.linkSlots`)
+	private int[][] links;
+	
+	//amount of entries in each slot
+	private int[] sizes;
+	
+	//query stamp, so objects over several cells are only listed once
+	private int stamp = 0;
+	
+	//insert stamp of each slot, so an entry is only listed once in a slot
+	private int[] slotStamps;
+	private int insertStamp = 0;
+	
+	public CullGrid(){
+		this(DEFAULT_CELL_SIZE, DEFAULT_SLOTS);
+	}
+	
+	public CullGrid(float cellSize, int slotCount){
+		this.cellSize = cellSize;
+		
+		//round the slot count up to a power of 2 for masking
+		int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+		mask = size - 1;
+		
+		slots = new Entry[size][];
+		links = new int[size][];
+		sizes = new int[size];
+		slotStamps = new int[size];
+	}
+	
+	/** Add an entry to the cells its bounds cover
+	 *
+	 * @param entry the entry to add
+	 */
+	public void insert(Entry entry){
+		bounds(entry);
+		
+		entry.minX = cell(entry.left);
+		entry.minY = cell(entry.bottom);
+		entry.maxX = cell(entry.right);
+		entry.maxY = cell(entry.top);
+		
+		insertStamp++;
+		entry.linkCount = 0;
+		for(int x = entry.minX; x <= entry.maxX; x++){
+			for(int y = entry.minY; y <= entry.maxY; y++){
+				int slot = slot(x, y);
+				
+				//a collision can hash two of the entry's cells into one slot
+				if(slotStamps[slot] == insertStamp)
+					continue;
+				slotStamps[slot] = insertStamp;
+				
+				link(entry, slot);
+			}
+		}
+		
+		entry.indexed = true;
+	}
+	
+	/** Take an entry out of the cells it was in
+	 *
+	 * @param entry the entry to remove
+	 */
+	public void remove(Entry entry){
+		if(!entry.indexed)
+			return;
+		
+		for(int k=0;k<entry.linkCount;k++){
+			int slot = entry.linkSlots[k], index = entry.linkIndices[k];
+			Entry[] list = slots[slot];
+			int[] link = links[slot];
+			
+			//order in a slot doesn't matter, so move the last entry into the gap
+			int last = --sizes[slot];
+			if(index != last){
+				Entry swap = list[last];
+				list[index] = swap;
+				link[index] = link[last];
+				swap.linkIndices[link[index]] = index;
+			}
+			list[last] = null;
+		}
+		
+		entry.linkCount = 0;
+		entry.indexed = false;
+	}
+	
+	/** Update the bounds of an entry, only moving it if its cells changed
+	 *
+	 * @param entry the entry to update
+	 */
+	public void update(Entry entry){
+		bounds(entry);
+		
+		//still covering the same cells, nothing to move
+		if(entry.indexed && cell(entry.left) == entry.minX && cell(entry.bottom) == entry.minY
+				&& cell(entry.right) == entry.maxX && cell(entry.top) == entry.maxY)
+			return;
+		
+		remove(entry);
+		insert(entry);
+	}
+	
+	/** Find every entry that overlaps an area
+	 *
+	 * @param left left of the area
+	 * @param bottom bottom of the area
+	 * @param right right of the area
+	 * @param top top of the area
+	 * @param result list the overlapping entries are added to
+	 */
+	public void query(float left, float bottom, float right, float top, ArrayList<Entry> result){
+		stamp++;
+		
+		int minX = cell(left), minY = cell(bottom);
+		int maxX = cell(right), maxY = cell(top);
+		
+		for(int x = minX; x <= maxX; x++){
+			for(int y = minY; y <= maxY; y++){
+				int slot = slot(x, y);
+				Entry[] list = slots[slot];
+				
+				for(int i=0;i<sizes[slot];i++){
+					Entry entry = list[i];
+					
+					//already checked this query
+					if(entry.stamp == stamp)
+						continue;
+					entry.stamp = stamp;
+					
+					//exact bounds test (slots can hold other cells)
+					if(entry.right < left || entry.left > right
+							|| entry.top < bottom || entry.bottom > top)
+						continue;
+					
+					result.add(entry);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Empty every cell
+	 */
+	public void clear(){
+		for(int slot=0;slot<slots.length;slot++){
+			for(int i=0;i<sizes[slot];i++){
+				slots[slot][i].indexed = false;
+				slots[slot][i].linkCount = 0;
+				slots[slot][i] = null;
+			}
+			sizes[slot] = 0;
+		}
+	}
+	
+	/** Get the size of a cell in world units
+	 *
+	 * @return the size of a cell in world units
+	 */
+	public float getCellSize(){
+		return cellSize;
+	}
+	
+	/** Get the cell of a world coordinate
+	 *
+	 * @param value the world coordinate
+	 * @return the cell coordinate
+	 */
+	private int cell(float value){
+		return (int)Math.floor(value / cellSize);
+	}
+	
+	/** List an entry in a slot, remembering where for removing it
+	 *
+	 * @param entry the entry
+	 * @param slot the slot
+	 */
+	private void link(Entry entry, int slot){
+		int size = sizes[slot];
+		if(slots[slot] == null){
+			slots[slot] = new Entry[INITIAL_SIZE];
+			links[slot] = new int[INITIAL_SIZE];
+		}else if(size == slots[slot].length){
+			slots[slot] = Arrays.copyOf(slots[slot], size * 2);
+			links[slot] = Arrays.copyOf(links[slot], size * 2);
+		}
+		
+		int k = entry.linkCount++;
+		if(k == entry.linkSlots.length){
+			entry.linkSlots = Arrays.copyOf(entry.linkSlots, k * 2);
+			entry.linkIndices = Arrays.copyOf(entry.linkIndices, k * 2);
+		}
+		
+		slots[slot][size] = entry;
+		links[slot][size] = k;
+		entry.linkSlots[k] = slot;
+		entry.linkIndices[k] = size;
+		sizes[slot] = size + 1;
+	}
+	
+	/** Hash a cell into a slot
+	 *
+	 * @param x cell x
+	 * @param y cell y
+	 * @return the slot index
+	 */
+	private int slot(int x, int y){
+		return ((x * 73856093) ^ (y * 19349663)) & mask;
+	}
+	
+	/** Update the cached world bounds of an entry
+	 *  Note: rotated objects use their half diagonal so every angle fits
+	 *
+	 * @param entry the entry to update
+	 */
+	private void bounds(Entry entry){
+		Transform transform = entry.transform;
+		
+		entry.x = transform.getX();
+		entry.y = transform.getY();
+		entry.width = transform.getWidth();
+		entry.height = transform.getHeight();
+		entry.angle = transform.getAngle();
+		
+		if(transform.getAngle() == 0){
+			entry.left = transform.getLeft();
+			entry.right = transform.getRight();
+			entry.bottom = transform.getBottom();
+			entry.top = transform.getTop();
+		}else{
+			float w = transform.getWidth(), h = transform.getHeight();
+			float radius = (float)Math.sqrt(w * w + h * h) * 0.5f;
+			
+			entry.left = transform.getX() - radius;
+			entry.right = transform.getX() + radius;
+			entry.bottom = transform.getY() - radius;
+			entry.top = transform.getY() + radius;
+		}
+	}
+	
+	/**
+	 * A renderable object listed in the grid
+	 */
+	public static class Entry {
+		public Transform transform;
+		public Renderable renderable;
+		
+		//`RenderQueue.LEVEL` or `RenderQueue.OBJECT`
+		public int kind;
+		
+		//the render bucket the object is in
+		public RenderBucket bucket;
+		
+		//position in the bucket's list & the scene's game object list (for swap-removes)
+		int index = -1, dynamicIndex = -1;
+		
+		//cached world bounds
+		private float left, right, bottom, top;
+		
+		//the transform's state the bounds were taken from
+		private float x, y, width, height, angle;
+		
+		//covered cells
+		private int minX, minY, maxX, maxY;
+		
+		//the slots the entry is listed in & its place in each
+		private int[] linkSlots = new int[INITIAL_SIZE], linkIndices = new int[INITIAL_SIZE];
+		private int linkCount = 0;
+		
+		private int stamp = 0;
+		private boolean indexed = false;
+		
+		public Entry(Transform transform, Renderable renderable, int kind){
+			this.transform = transform;
+			this.renderable = renderable;
+			this.kind = kind;
+		}
+		
+		/** Get if the transform moved, resized or turned since its bounds were taken
+		 *  Note: separate from the transform's dirty flag, which `updateMatrix()` clears
+		 * 
+		 * @return if the entry's bounds are out of date
+		 */
+		boolean isMoved(){
+			return transform.getX() != x || transform.getY() != y || transform.getWidth() != width
+					|| transform.getHeight() != height || transform.getAngle() != angle;
+		}
+	}
+}
@@ -1,21 +1,54 @@
 package io.tek256.core;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 import io.tek256.GamePreferences;
 import io.tek256.core.audio.Audio;
 import io.tek256.core.input.*;
+import io.tek256.core.trace.ChromeTrace;
+import io.tek256.core.trace.EngineEvents.*;
 import io.tek256.render.Texture;
 
 public class GameEngine {
 	public static final boolean DEBUG = false;
 	
-	//static second variable, 1000ms / 1 second
-	private static final long SECOND = 1000;
+	//static second variable, 1000000000ns / 1 second
+	private static final long NANO_SECOND = 1000000000L;
+	
+	//nanoseconds per millisecond, deltas are still handed out in milliseconds
+	private static final long NANO_MILLI = 1000000L;
+	
+	//time left in a frame that's waited out by yielding rather than sleeping
+	private static final long SLEEP_MARGIN = 2 * NANO_MILLI;
 	
 	public static boolean autoSavePreferences = false;
 	
+	//run the simulation on its own thread, the GL thread only draws snapshots
+	//Note: set before creating the engine, `GameInterface.render()` then runs
+	//on the GL thread and shouldn't touch game state. Input events are still
+	//polled on the GL thread, but the keyboard, mouse & joysticks are latched
+	//once per simulation step, so clicks are seen by exactly one step (a tap
+	//between 2 steps included)
+	public static boolean threaded = false;
+	
+	//run without a window, GL context, audio device or input devices
+	//(servers, bots, batch simulation), set before creating the engine
+	//Note: only `input()` & `update()` are called, and exiting returns from
+	//the constructor instead of ending the process
+	public static boolean headless = false;
+	
+	//headless only: step the simulation back to back, as fast as possible,
+	//instead of in real time
+	public static boolean fastForward = false;
+	
+	//show the profiler's p95 phase timings in the window title, refreshed
+	//every second (there's no text rendering to draw them in the frame)
+	public static boolean showProfile = false;
+	
 	private static GameEngine instance = null;
 	
-	private boolean running = false;
+	private volatile boolean running = false;
 	
 	//runtime variables
 	public int target_fps = 60;
@@ -23,9 +56,29 @@ public class GameEngine {
 	public int target_ups = 60;
 	private int ups_check = target_ups;
 	
-	private int updates = 0, frames = 0;
+	//max updates in a single frame when catching up
+	public int max_updates = 5;
+	
+	//updates are counted from the simulation thread in threaded mode
+	private AtomicInteger updates = new AtomicInteger();
+	private int frames = 0;
 	private int fps = 0, ups = 0;
 	
+	//how far the frame is between the last & next update (0 - 1)
+	private float alpha = 0;
+	
+	//total simulation steps since the engine started
+	private volatile long ticks = 0;
+	
+	//real length of the recent frames
+	private TimingBuffer frameTimes = new TimingBuffer();
+	
+	//timings of each phase of the frame
+	private Profiler profiler = new Profiler();
+	
+	//the window's title before any readout was added to it
+	private String title;
+	
 	//the game preferences
 	private GamePreferences gamePreferences;
 	
@@ -41,6 +94,13 @@ public class GameEngine {
 	//the game's audio
 	private Audio audio;
 	
+	//threaded mode: the simulation thread & the snapshots it hands over
+	private Thread simulation;
+	private SnapshotBuffer snapshots;
+	
+	//threaded mode: what ended the simulation thread, rethrown on the GL thread
+	private volatile Throwable failure;
+	
 	public GameEngine(GamePreferences gamePreferences, GameInterface gameInterface){
 		//set the game preferences variable
 		this.gamePreferences = gamePreferences;
@@ -50,23 +110,26 @@ public class GameEngine {
 
 		instance = this;
 		
-		//create the window from game preferences
-		window = new Window(gamePreferences.x, gamePreferences.y, gamePreferences.width, gamePreferences.height, 
-				"Test Window", gamePreferences.fullscreen,	gamePreferences.refreshRate, gamePreferences.vsync);
-		
-		//connect the window to this instance for functionality
-		window.connect(this);
-
-		//setup the audio manager
-		audio = new Audio();
-		
-		//setup the keyboard
-		new Keyboard();
-		//setup the mouse
-		new Mouse();
+		if(!headless){
+			//create the window from game preferences
+			window = new Window(gamePreferences.x, gamePreferences.y, gamePreferences.width, gamePreferences.height, 
+					"Test Window", gamePreferences.fullscreen,	gamePreferences.refreshRate, gamePreferences.vsync);
+			
+			//connect the window to this instance for functionality
+			window.connect(this);
+			title = window.getTitle();
+	
+			//setup the audio manager
+			audio = new Audio();
+			
+			//setup the keyboard
+			new Keyboard();
+			//setup the mouse
+			new Mouse();
+		}
 		
 		//setup the default scene
-		scene = new Scene();
+		scene = new Scene(headless);
 		
 		//set the scene for the game interface
 		gameInterface.connect(scene);
@@ -82,37 +145,50 @@ public class GameEngine {
 		//make sure the game starts running
 		running = true;
 		
+		//the headless & threaded modes have their own loops
+		if(headless){
+			headlessLoop();
+			//close out the game
+			exit();
+			return;
+		}else if(threaded){
+			threadedLoop();
+			//close out the game
+			exit();
+			return;
+		}
+		
 		//update the check counters
 		fps_check = target_fps;
 		ups_check = target_ups;
 		
-		//calculate the time lines
-		long update_frame = SECOND / target_ups;
-		long render_frame = SECOND / target_fps;
+		//calculate the time lines (nanoseconds)
+		long update_frame = NANO_SECOND / target_ups;
+		long render_frame = NANO_SECOND / target_fps;
 		
 		//loop frame variables
 		long delta = 0; //time between frames
-		long accumulation = 0; //time left
-		long last = 0; //last loop time
+		long accumulation = 0; //simulation time not stepped yet
+		long last = System.nanoTime(); //last loop time
 		long current = 0; //current loop time
 		
 		//the timer runs on a 1 second timer to update FPS & UPS
-		long timer = 0;
-		
-		//allow the loop to run
-		running = true;
+		long timer = NANO_SECOND;
 		
 		//loop the thread
 		while(running){
+			FrameEvent frame = FrameEvent.open();
+			
 			//update the current time
-			current = System.currentTimeMillis();
+			current = System.nanoTime();
 			//update the delta
 			delta = current - last;
 			
 			//update the last variable with the current update time
 			last = current;
 			
-			//true last update = last - delta
+			//keep track of the frame's real length
+			frameTimes.add(delta);
 			
 			//update the timer
 			timer -= delta;
@@ -120,7 +196,7 @@ public class GameEngine {
 			//if the target updates per second has changed
 			if(ups_check != target_ups){
 				//recalculate the time frame for updates
-				update_frame = SECOND / target_ups;
+				update_frame = NANO_SECOND / target_ups;
 				//reset the check variable
 				ups_check = target_ups;
 			}
@@ -128,55 +204,335 @@ public class GameEngine {
 			//if the target frames per second has changed
 			if(fps_check != target_fps){
 				//recalculate the time for frames
-				render_frame = SECOND / target_fps;
+				render_frame = NANO_SECOND / target_fps;
 				//reset the check variable
 				fps_check = target_fps;
 			}
 			
-			//update the accumulator with render time frame (new frame in time)
-			accumulation += render_frame;
+			//update the accumulator with the real time that passed
+			accumulation += delta;
 			
-			//if time left in the frame to update, do so
-			if(accumulation >= update_frame){
+			//step the simulation until it has caught up, but only so far
+			//so a long stall can't spiral into more & more updates
+			int steps = 0;
+			while(accumulation >= update_frame && steps < max_updates){
+				//frames blend from where everything is before the step
+				scene.beginStep();
+				
 				//call for input to be polled
-				input(update_frame);
+				input(update_frame / NANO_MILLI);
 				
 				//call for the game to update
-				update(update_frame);
+				update(update_frame / NANO_MILLI);
 				
 				//add to the amount of updates in this second
-				updates++;
+				updates.incrementAndGet();
+				steps++;
 				
 				//update the accumulation timer 
 				accumulation -= update_frame;
 			}
 			
+			//drop whatever couldn't be caught up, keeping the partial step
+			if(accumulation >= update_frame)
+				accumulation %= update_frame;
+			
+			//how far between the last update & the next the frame is
+			alpha = (float)accumulation / update_frame;
+			
 			//render the frame
-			render(render_frame);
+			render(render_frame / NANO_MILLI, alpha);
 				
 			//update frame counter
 			frames++;
 			
 			//if the timer is ready to be reset
-			if(timer <= 0){
-				//show the last second's stats
-				fps = frames;
-				ups = updates;
+			if(timer <= 0)
+				timer = stats(timer);
+			
+			frame.updates = steps;
+			frame.finish();
+			
+			//wait out the rest of the frame instead of spinning
+			sync(current + render_frame);
+		}
+		//close out the game
+		exit();
+	}
+	
+	/**
+	 * Run the render side of the threaded mode, the simulation runs on its own thread
+	 */
+	private void threadedLoop(){
+		//the snapshots handed from the simulation to this thread
+		snapshots = new SnapshotBuffer();
+		
+		//start the simulation
+		simulation = new Thread(() -> {
+			try{
+				simulate();
+			}catch(Throwable t){
+				//stop the GL thread too, it'd otherwise draw the last snapshot forever
+				failure = t;
+				running = false;
+			}
+		}, "simulation");
+		simulation.setDaemon(true);
+		simulation.start();
+		
+		fps_check = target_fps;
+		long render_frame = NANO_SECOND / target_fps;
+		
+		long delta = 0; //time between frames
+		long last = System.nanoTime(); //last loop time
+		long current = 0; //current loop time
+		
+		//the timer runs on a 1 second timer to update FPS & UPS
+		long timer = NANO_SECOND;
+		
+		while(running){
+			FrameEvent frame = FrameEvent.open();
+			
+			//update the current time
+			current = System.nanoTime();
+			delta = current - last;
+			last = current;
+			
+			//keep track of the frame's real length
+			frameTimes.add(delta);
+			timer -= delta;
+			
+			//if the target frames per second has changed
+			if(fps_check != target_fps){
+				render_frame = NANO_SECOND / target_fps;
+				fps_check = target_fps;
+			}
+			
+			//glfw events have to be polled on this thread
+			pollEvents();
+			
+			//get the newest snapshot, this never waits on the simulation
+			RenderSnapshot snapshot = snapshots.acquire();
+			
+			//how far past the snapshot's update the frame is
+			float step = NANO_SECOND / (float)target_ups;
+			alpha = Math.min(1f, Math.max(0f, (current - snapshot.getTime()) / step));
+			
+			//draw the snapshot
+			render(snapshot, render_frame / NANO_MILLI, alpha);
+			frames++;
+			
+			//if the timer is ready to be reset
+			if(timer <= 0)
+				timer = stats(timer);
+			
+			frame.finish();
+			
+			//wait out the rest of the frame instead of spinning
+			sync(current + render_frame);
+		}
+		
+		//let the simulation finish its step
+		try{
+			simulation.join();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		
+		//crash the same way the single threaded mode would
+		if(failure instanceof RuntimeException)
+			throw (RuntimeException)failure;
+		else if(failure instanceof Error)
+			throw (Error)failure;
+		else if(failure != null)
+			throw new RuntimeException("The simulation thread failed", failure);
+	}
+	
+	/**
+	 * Run the simulation side of the threaded mode
+	 */
+	private void simulate(){
+		long update_frame = NANO_SECOND / target_ups;
+		
+		long delta = 0; //time between loops
+		long accumulation = 0; //simulation time not stepped yet
+		long last = System.nanoTime(); //last loop time
+		long current = 0; //current loop time
+		
+		while(running){
+			current = System.nanoTime();
+			delta = current - last;
+			last = current;
+			
+			//if the target updates per second has changed
+			if(ups_check != target_ups){
+				update_frame = NANO_SECOND / target_ups;
+				ups_check = target_ups;
+			}
+			
+			accumulation += delta;
+			
+			//step the simulation until it has caught up (up to the cap)
+			int steps = 0;
+			while(accumulation >= update_frame && steps < max_updates){
+				//frames blend from where everything is before the step
+				scene.beginStep();
 				
-				//reset the counters
-				updates = 0;
-				frames = 0;
+				//the input events were polled on the GL thread, latch them for this step
+				if(window.isRenderAllowed()){
+					Keyboard.update();
+					Mouse.update();
+					Joystick.latchAll();
+					
+					scene.input(update_frame / NANO_MILLI);
+					gameInterface.input(update_frame / NANO_MILLI);
+				}
 				
-				//reset the timer
-				timer = SECOND;
+				update(update_frame / NANO_MILLI);
 				
-				//only output the stats if we're debugging
-				if(DEBUG)
-					System.out.println(fps+":"+ups);
+				updates.incrementAndGet();
+				steps++;
+				
+				accumulation -= update_frame;
+			}
+			
+			//drop whatever couldn't be caught up, keeping the partial step
+			if(accumulation >= update_frame)
+				accumulation %= update_frame;
+			
+			//publish the new state for the render thread
+			if(steps > 0){
+				scene.snapshot(steps * update_frame / NANO_MILLI, snapshots.getBack());
+				snapshots.publish();
 			}
+			
+			//wait for the next step
+			sync(current + update_frame - accumulation);
 		}
-		//close out the game
-		exit();
+	}
+	
+	/**
+	 * Run the simulation without a window, either in real time or as fast as possible
+	 */
+	private void headlessLoop(){
+		ups_check = target_ups;
+		long update_frame = NANO_SECOND / target_ups;
+		
+		long delta = 0; //time between loops
+		long accumulation = 0; //simulation time not stepped yet
+		long last = System.nanoTime(); //last loop time
+		long current = 0; //current loop time
+		
+		//the timer runs on a 1 second timer to update UPS
+		long timer = NANO_SECOND;
+		
+		while(running){
+			current = System.nanoTime();
+			delta = current - last;
+			last = current;
+			
+			timer -= delta;
+			
+			//if the target updates per second has changed
+			if(ups_check != target_ups){
+				update_frame = NANO_SECOND / target_ups;
+				ups_check = target_ups;
+			}
+			
+			if(fastForward){
+				//one fixed step per loop, no waiting
+				step(update_frame / NANO_MILLI);
+			}else{
+				accumulation += delta;
+				
+				//step the simulation until it has caught up (up to the cap)
+				int steps = 0;
+				while(accumulation >= update_frame && steps < max_updates){
+					step(update_frame / NANO_MILLI);
+					steps++;
+					accumulation -= update_frame;
+				}
+				
+				//drop whatever couldn't be caught up, keeping the partial step
+				if(accumulation >= update_frame)
+					accumulation %= update_frame;
+			}
+			
+			//if the timer is ready to be reset
+			if(timer <= 0)
+				timer = stats(timer);
+			
+			//wait for the next step
+			if(!fastForward)
+				sync(current + update_frame - accumulation);
+		}
+	}
+	
+	/** Run a single headless simulation step
+	 * 
+	 * @param delta the fixed step in milliseconds
+	 */
+	private void step(long delta){
+		scene.beginStep();
+		
+		//there are no input devices, but bots can still drive the game
+		scene.input(delta);
+		gameInterface.input(delta);
+		
+		update(delta);
+		updates.incrementAndGet();
+	}
+	
+	/** Roll over the per second stats
+	 * 
+	 * @param timer the time left on the stats timer
+	 * @return the reset timer
+	 */
+	private long stats(long timer){
+		//show the last second's stats
+		fps = frames;
+		ups = updates.getAndSet(0);
+		
+		//reset the counter
+		frames = 0;
+		
+		//only output the stats if we're debugging
+		if(DEBUG && headless)
+			System.out.println("ups:"+ups+" ticks:"+ticks);
+		else if(DEBUG)
+			System.out.println(fps+":"+ups+" draws:"+scene.getSpriteBatch().getDrawCalls()
+					+" sprites/draw:"+scene.getSpriteBatch().getSpritesPerDraw()
+					+" frame ms "+frameTimes.summary());
+		
+		if(DEBUG)
+			System.out.print(profiler.summary());
+		
+		//the on screen readout
+		if(showProfile && !headless)
+			window.setTitle(title+" | "+profiler.readout(0.95));
+		
+		//reset the timer
+		timer += NANO_SECOND;
+		return (timer <= 0) ? NANO_SECOND : timer;
+	}
+	
+	/** Sleep until a point in time, with a short yield loop at the end
+	 *  since sleeps can overshoot by a millisecond or more
+	 * 
+	 * @param deadline the `System.nanoTime()` to wait until
+	 */
+	private void sync(long deadline){
+		long remaining = deadline - System.nanoTime();
+		
+		//sleep in coarse steps while there's plenty of time left
+		while(remaining > SLEEP_MARGIN){
+			LockSupport.parkNanos(remaining - SLEEP_MARGIN);
+			remaining = deadline - System.nanoTime();
+		}
+		
+		//give up the core for the last stretch
+		while(deadline - System.nanoTime() > 0)
+			Thread.yield();
 	}
 	
 	/** Update input based on the time since the last input update
@@ -186,9 +542,24 @@ public class GameEngine {
 	private void input(long delta){
 		//if rendering isn't allowed, input isn't going
 		//to change anything
-		if(!window.isRenderAllowed())
+		if(!pollInput())
 			return;
 		
+		//call for any input methods to be used
+		scene.input(delta);
+		gameInterface.input(delta);
+	}
+	
+	/** Poll the window events & update the input classes
+	 * 
+	 * @return if input is allowed (the window can render)
+	 */
+	private boolean pollInput(){
+		if(!window.isRenderAllowed())
+			return false;
+		
+		profiler.begin(Profiler.INPUT);
+		
 		//have glfw poll events
 		window.pollEvents();
 		
@@ -197,9 +568,27 @@ public class GameEngine {
 		Mouse.update();
 		Joystick.updateAll();
 		
-		//call for any input methods to be used
-		scene.input(delta);
-		gameInterface.input(delta);
+		profiler.end(Profiler.INPUT);
+		return true;
+	}
+	
+	/**
+	 * Poll the window events & joysticks without updating the input classes,
+	 * the threaded mode's simulation latches them once per step
+	 */
+	private void pollEvents(){
+		if(!window.isRenderAllowed())
+			return;
+		
+		profiler.begin(Profiler.INPUT);
+		
+		//have glfw poll events
+		window.pollEvents();
+		
+		//joysticks can only be read from this thread
+		Joystick.pollAll();
+		
+		profiler.end(Profiler.INPUT);
 	}
 	
 	/** Update everything based on the time since the last update
@@ -207,30 +596,88 @@ public class GameEngine {
 	 * @param delta time between last update
 	 */
 	private void update(long delta){
+		UpdateEvent event = UpdateEvent.open();
+		
+		//count the simulation steps
+		ticks++;
+		
 		//update the scene
+		profiler.begin(Profiler.SCENE_UPDATE);
 		scene.update(delta);
+		profiler.end(Profiler.SCENE_UPDATE);
+		
 		//update the game
+		profiler.begin(Profiler.GAME_UPDATE);
 		gameInterface.update(delta);
+		profiler.end(Profiler.GAME_UPDATE);
+		
+		event.tick = ticks;
+		event.finish();
 	}
 	
 	/** Render everything based on the tiem since the last frame
 	 * 
 	 * @param delta time between the last frame
+	 * @param alpha how far the frame is between the last & next update (0 - 1)
 	 */
-	private void render(long delta){
+	private void render(long delta, float alpha){
 		//if rendering is disabled, just don't render 
 		if(!window.isRenderAllowed())
 			return;
 		
+		RenderEvent event = RenderEvent.open();
+		
 		//clear the color
 		window.clearColorAndDepth();
 		
 		//render the frame
-		scene.render(delta);
-		gameInterface.render(delta);
+		profiler.begin(Profiler.SCENE_RENDER);
+		scene.render(delta, alpha);
+		profiler.end(Profiler.SCENE_RENDER);
+		
+		profiler.begin(Profiler.GAME_RENDER);
+		gameInterface.render(delta, alpha);
+		profiler.end(Profiler.GAME_RENDER);
+		
+		//show new frame
+		profiler.begin(Profiler.SWAP);
+		window.swapBuffers();
+		profiler.end(Profiler.SWAP);
+		
+		event.finish();
+	}
+	
+	/** Render a snapshot published by the simulation thread
+	 * 
+	 * @param snapshot the snapshot to draw
+	 * @param delta time between the last frame
+	 * @param alpha how far the frame is past the snapshot's update (0 - 1)
+	 */
+	private void render(RenderSnapshot snapshot, long delta, float alpha){
+		//if rendering is disabled, just don't render 
+		if(!window.isRenderAllowed())
+			return;
+		
+		RenderEvent event = RenderEvent.open();
+		
+		//clear the color
+		window.clearColorAndDepth();
+		
+		//draw the scene as of the snapshot
+		profiler.begin(Profiler.SCENE_RENDER);
+		scene.render(snapshot, alpha);
+		profiler.end(Profiler.SCENE_RENDER);
+		
+		profiler.begin(Profiler.GAME_RENDER);
+		gameInterface.render(delta, alpha);
+		profiler.end(Profiler.GAME_RENDER);
 		
 		//show new frame
+		profiler.begin(Profiler.SWAP);
 		window.swapBuffers();
+		profiler.end(Profiler.SWAP);
+		
+		event.finish();
 	}
 
 	public void exit(){
@@ -240,6 +687,17 @@ public class GameEngine {
 			return;
 		}
 		
+		//there's no window, audio or input to clean up, and the caller
+		//might want to run another simulation, so just end the game
+		if(headless){
+			gameInterface.end();
+			scene.destroy(true);
+			
+			//close out the trace file (if any)
+			ChromeTrace.stop();
+			return;
+		}
+		
 		if(autoSavePreferences){
 			//update the game preferences with the window attributes
 			gamePreferences.fullscreen = window.isFullscreen();
@@ -272,6 +730,9 @@ public class GameEngine {
 		
 		audio.destroy();
 		
+		//close out the trace file (if any)
+		ChromeTrace.stop();
+		
 		//terminate glfw
 		Window.exit();
 		//exit java
@@ -295,6 +756,38 @@ public class GameEngine {
 	}
 	
 	
+	/** Get how far the current frame is between the last & next update
+	 * 
+	 * @return the interpolation alpha (0 - 1)
+	 */
+	public float getAlpha(){
+		return alpha;
+	}
+	
+	/** Get the real length of the recent frames (percentiles for pacing)
+	 * 
+	 * @return the frame timings
+	 */
+	public TimingBuffer getFrameTimes(){
+		return frameTimes;
+	}
+	
+	/** Get the per phase timings of the recent frames
+	 * 
+	 * @return the profiler
+	 */
+	public Profiler getProfiler(){
+		return profiler;
+	}
+	
+	/** Get the amount of simulation steps since the engine started
+	 * 
+	 * @return the amount of simulation steps
+	 */
+	public long getTicks(){
+		return ticks;
+	}
+	
 	/** Get the default game preferences set
 	 * 
 	 * @return the default game preferences set
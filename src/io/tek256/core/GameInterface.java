@@ -9,5 +9,14 @@ public interface GameInterface {
 	public void update(long delta);
 	public void render(long delta);
 	
+	/** Render with the interpolation alpha of the fixed step loop
+	 * 
+	 * @param delta time between the last frame
+	 * @param alpha how far the frame is between the last & next update (0 - 1)
+	 */
+	public default void render(long delta, float alpha){
+		render(delta);
+	}
+	
 	public void end();
 }
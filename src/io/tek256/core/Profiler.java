@@ -0,0 +1,176 @@
+package io.tek256.core;
+
+/**
+ * USAGE: begin(phase) -> the work -> end(phase), then percentile(phase, 0.95) / summary()
+ *
+ * NOTES: Per phase frame profiler. Every phase of the engine's loop (input
+ * 		  polling, scene & game update, scene & game render, buffer swap) is
+ * 		  timed with `System.nanoTime()` into its own `TimingBuffer`, so a
+ * 		  hitch can be pinned on a phase without an external profiler.
+ * 		  In threaded mode the update phases are written by the simulation
+ * 		  thread and the render phases by the GL thread, each phase only
+ * 		  ever has one writer. Reading another thread's phase is fine for a
+ * 		  readout, but the numbers might be a sample behind.
+ */
+public class Profiler {
+	//the phases of a frame
+	public static final int INPUT = 0, SCENE_UPDATE = 1, GAME_UPDATE = 2,
+			SCENE_RENDER = 3, GAME_RENDER = 4, SWAP = 5;
+	
+	//amount of phases
+	public static final int PHASES = 6;
+	
+	//the names of the phases, for readouts
+	private static final String[] NAMES = {
+		"input", "scene update", "game update", "scene render", "game render", "swap"
+	};
+	
+	//short names of the phases, for the one line readout
+	private static final String[] SHORT_NAMES = {
+		"in", "su", "gu", "sr", "gr", "swap"
+	};
+	
+	//nanoseconds per millisecond, for reporting
+	private static final double MILLIS = 1000000.0;
+	
+	//the timings of each phase
+	private final TimingBuffer[] timings;
+	
+	//when each running phase started
+	private final long[] starts;
+	
+	//if phases are being timed
+	private volatile boolean enabled = true;
+	
+	public Profiler(){
+		this(TimingBuffer.DEFAULT_SIZE);
+	}
+	
+	public Profiler(int capacity){
+		timings = new TimingBuffer[PHASES];
+		for(int i=0;i<PHASES;i++)
+			timings[i] = new TimingBuffer(capacity);
+		
+		starts = new long[PHASES];
+	}
+	
+	/** Start timing a phase
+	 * 
+	 * @param phase the phase to time
+	 */
+	public void begin(int phase){
+		if(enabled)
+			starts[phase] = System.nanoTime();
+	}
+	
+	/** Stop timing a phase & keep the timing
+	 * 
+	 * @param phase the phase being timed
+	 */
+	public void end(int phase){
+		//skip phases that started before the profiler was enabled
+		if(enabled && starts[phase] != 0)
+			timings[phase].add(System.nanoTime() - starts[phase]);
+	}
+	
+	/** Get the timings of a phase
+	 * 
+	 * @param phase the phase
+	 * @return the timings of the phase
+	 */
+	public TimingBuffer get(int phase){
+		return timings[phase];
+	}
+	
+	/** Get a percentile of a phase's timings
+	 * 
+	 * @param phase the phase
+	 * @param percentile the percentile to get (0 - 1)
+	 * @return the timing at the percentile in nanoseconds
+	 */
+	public long percentile(int phase, double percentile){
+		return timings[phase].percentile(percentile);
+	}
+	
+	/** Get the longest timing of a phase
+	 * 
+	 * @param phase the phase
+	 * @return the longest timing in nanoseconds
+	 */
+	public long getMax(int phase){
+		return timings[phase].getMax();
+	}
+	
+	/** Get the name of a phase
+	 * 
+	 * @param phase the phase
+	 * @return the name of the phase
+	 */
+	public static String getName(int phase){
+		return NAMES[phase];
+	}
+	
+	/** Get if phases are being timed
+	 * 
+	 * @return if phases are being timed
+	 */
+	public boolean isEnabled(){
+		return enabled;
+	}
+	
+	/** Set if phases are being timed
+	 * 
+	 * @param enabled if phases should be timed
+	 */
+	public void setEnabled(boolean enabled){
+		this.enabled = enabled;
+		
+		//forget the phases that were running
+		if(!enabled)
+			for(int i=0;i<PHASES;i++)
+				starts[i] = 0;
+	}
+	
+	/**
+	 * Forget every timing
+	 */
+	public void clear(){
+		for(int i=0;i<PHASES;i++)
+			timings[i].clear();
+	}
+	
+	/** Get a summary of every phase (p50 / p95 / p99 / max in milliseconds), one per line
+	 * 
+	 * @return the summary
+	 */
+	public String summary(){
+		StringBuilder builder = new StringBuilder();
+		for(int i=0;i<PHASES;i++){
+			//skip the phases that never ran (headless rendering etc.)
+			if(timings[i].getCount() == 0)
+				continue;
+			
+			builder.append(String.format("%-13s", NAMES[i])).append(timings[i].summary()).append('\n');
+		}
+		return builder.toString();
+	}
+	
+	/** Get a one line readout of a percentile of every phase in milliseconds
+	 * 
+	 * @param percentile the percentile to show (0 - 1)
+	 * @return the readout
+	 */
+	public String readout(double percentile){
+		StringBuilder builder = new StringBuilder();
+		builder.append('p').append(Math.round(percentile * 100));
+		
+		for(int i=0;i<PHASES;i++){
+			if(timings[i].getCount() == 0)
+				continue;
+			
+			builder.append(' ').append(SHORT_NAMES[i]).append(':')
+				.append(String.format("%.2f", timings[i].percentile(percentile) / MILLIS));
+		}
+		return builder.toString();
+	}
+}
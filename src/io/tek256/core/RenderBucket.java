@@ -0,0 +1,93 @@
+package io.tek256.core;
+
+import java.util.ArrayList;
+
+import io.tek256.core.runtime.GameObject;
+import io.tek256.core.runtime.LevelObject;
+import io.tek256.render.Shader;
+import io.tek256.render.Texture;
+
+/**
+ * NOTES: A render bucket is the persistent list of every object that
+ * 		  draws with the same shader & (sheet) texture. Buckets are only
+ * 		  touched when an object is added, removed, or its renderable
+ * 		  switches to another sheet, never rebuilt per frame.
+ */
+public class RenderBucket {
+	//the key of the bucket
+	private Shader shader;
+	private Texture texture;
+	
+	//position of the bucket in the scene's bucket list
+	private int index = 0;
+	
+	//the objects drawn with the shader & texture
+	public ArrayList<GameObject> gameObjects;
+	public ArrayList<LevelObject> levelObjects;
+	
+	public RenderBucket(Shader shader, Texture texture){
+		this.shader = shader;
+		this.texture = texture;
+		
+		gameObjects = new ArrayList<>();
+		levelObjects = new ArrayList<>();
+	}
+	
+	/** Check if the bucket is for the shader & texture
+	 * 
+	 * @param shader the shader to check
+	 * @param texture the (sheet) texture to check
+	 * @return if the bucket is for the shader & texture
+	 */
+	public boolean matches(Shader shader, Texture texture){
+		return this.shader == shader && this.texture == texture;
+	}
+	
+	/** Get the shader of the bucket
+	 * 
+	 * @return the shader of the bucket
+	 */
+	public Shader getShader(){
+		return shader;
+	}
+	
+	/** Get the (sheet) texture of the bucket
+	 * 
+	 * @return the (sheet) texture of the bucket
+	 */
+	public Texture getTexture(){
+		return texture;
+	}
+	
+	/** Get the position of the bucket in the scene's bucket list
+	 * 
+	 * @return the position of the bucket
+	 */
+	public int getIndex(){
+		return index;
+	}
+	
+	/** Set the position of the bucket in the scene's bucket list
+	 * 
+	 * @param index the position of the bucket
+	 */
+	void setIndex(int index){
+		this.index = index;
+	}
+	
+	/** Get if the bucket has no objects
+	 * 
+	 * @return if the bucket has no objects
+	 */
+	public boolean isEmpty(){
+		return gameObjects.isEmpty() && levelObjects.isEmpty();
+	}
+	
+	/**
+	 * Remove every object from the bucket
+	 */
+	public void clear(){
+		gameObjects.clear();
+		levelObjects.clear();
+	}
+}
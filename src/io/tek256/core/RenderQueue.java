@@ -0,0 +1,241 @@
+package io.tek256.core;
+
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Renderable;
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: clear() -> add(...) for each sprite -> sort() -> walk 0..size()
+ *
+ * NOTES: Each queued sprite gets a 64 bit sort key, from most to least
+ * 		  significant bits:
+ * 			layer (7) | kind (1) | depth (16) | state (16) | index (24)
+ * 		  Layer & kind keep the level under the game objects, depth keeps
+ * 		  translucent sprites back to front, and state (the render bucket,
+ * 		  buckets are grouped by shader then texture) groups whatever
+ * 		  is left so shader / texture switches are kept to a minimum.
+ * 		  The keys are sorted with an LSD radix sort over primitive arrays
+ * 		  that are only ever grown, so a steady frame allocates nothing.
+ */
+public class RenderQueue {
+	//the kind of object queued, level objects draw before game objects
+	public static final int LEVEL = 0, OBJECT = 1;
+	
+	//max layer a renderable can use
+	public static final int MAX_LAYER = 127;
+	
+	//bit layout of the key
+	private static final int INDEX_BITS = 24;
+	private static final int STATE_SHIFT = INDEX_BITS;
+	private static final int DEPTH_SHIFT = STATE_SHIFT + 16;
+	private static final int KIND_SHIFT = DEPTH_SHIFT + 16;
+	private static final int LAYER_SHIFT = KIND_SHIFT + 1;
+	
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	
+	//radix sort: 8 bit digits over everything above the index bits
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+	private static final int PASSES = (64 - INDEX_BITS) / RADIX_BITS;
+	
+	//the keys & the sort's scratch space
+	private long[] keys, temp;
+	
+	//the queued sprites (indexed by the key's index bits)
+	private Transform[] transforms;
+	private Renderable[] renderables;
+	
+	//digit counts for the radix sort
+	private int[] counts;
+	
+	//amount of sprites queued
+	private int size = 0;
+	
+	public RenderQueue(){
+		this(1024);
+	}
+	
+	public RenderQueue(int capacity){
+		keys = new long[capacity];
+		temp = new long[capacity];
+		
+		transforms = new Transform[capacity];
+		renderables = new Renderable[capacity];
+		
+		counts = new int[RADIX];
+	}
+	
+	/**
+	 * Empty the queue (keeps the arrays)
+	 */
+	public void clear(){
+		//drop the references so removed objects can be collected
+		for(int i=0;i<size;i++){
+			transforms[i] = null;
+			renderables[i] = null;
+		}
+		size = 0;
+	}
+	
+	/** Add a sprite to the queue
+	 *
+	 * @param transform the object being drawn
+	 * @param renderable the renderable of the object
+	 * @param kind `LEVEL` or `OBJECT`
+	 * @param state the render bucket index of the object
+	 */
+	public void add(Transform transform, Renderable renderable, int kind, int state){
+		if(size == keys.length)
+			grow();
+		
+		transforms[size] = transform;
+		renderables[size] = renderable;
+		
+		keys[size] = key(renderable.getLayer(), kind, transform.getZ(), state, size);
+		size++;
+	}
+	
+	/** Pack the sort key of a sprite
+	 *
+	 * @param layer the layer of the renderable
+	 * @param kind `LEVEL` or `OBJECT`
+	 * @param z the depth of the transform
+	 * @param state the render bucket index
+	 * @param index the index in the queue
+	 * @return the sort key
+	 */
+	public static long key(int layer, int kind, float z, int state, int index){
+		//clamp the layer into its bits
+		layer = (layer < 0) ? 0 : (layer > MAX_LAYER) ? MAX_LAYER : layer;
+		
+		return ((long)layer << LAYER_SHIFT)
+				| ((long)(kind & 1) << KIND_SHIFT)
+				| ((long)depth(z) << DEPTH_SHIFT)
+				| ((long)(state & 0xFFFF) << STATE_SHIFT)
+				| (index & INDEX_MASK);
+	}
+	
+	/** Quantize a depth to 16 bits
+	 *  Note: the camera's clip range is -1 to 1, higher z is drawn later (in front)
+	 *
+	 * @param z the depth of the transform
+	 * @return the quantized depth
+	 */
+	public static int depth(float z){
+		//move the clip range to 0 - 1
+		float normal = (z + 1f) * 0.5f;
+		
+		if(normal <= 0f)
+			return 0;
+		if(normal >= 1f)
+			return 0xFFFF;
+		return (int)(normal * 0xFFFF);
+	}
+	
+	/**
+	 * Sort the queued sprites by their keys
+	 */
+	public void sort(){
+		//nothing to order
+		if(size < 2)
+			return;
+		
+		long[] src = keys;
+		long[] dst = temp;
+		
+		for(int pass=0;pass<PASSES;pass++){
+			int shift = INDEX_BITS + pass * RADIX_BITS;
+			
+			//count the digits
+			for(int i=0;i<RADIX;i++)
+				counts[i] = 0;
+			for(int i=0;i<size;i++)
+				counts[(int)(src[i] >>> shift) & (RADIX - 1)]++;
+			
+			//if every key shares the digit, this pass wouldn't move anything
+			if(counts[(int)(src[0] >>> shift) & (RADIX - 1)] == size)
+				continue;
+			
+			//turn the counts into offsets
+			int total = 0;
+			for(int i=0;i<RADIX;i++){
+				int count = counts[i];
+				counts[i] = total;
+				total += count;
+			}
+			
+			//scatter the keys (stable)
+			for(int i=0;i<size;i++){
+				long key = src[i];
+				dst[counts[(int)(key >>> shift) & (RADIX - 1)]++] = key;
+			}
+			
+			//swap the buffers
+			long[] swap = src;
+			src = dst;
+			dst = swap;
+		}
+		
+		//keep the sorted keys in `keys`
+		keys = src;
+		temp = dst;
+	}
+	
+	/** Get the amount of sprites queued
+	 *
+	 * @return the amount of sprites queued
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/** Get the key at a position in the (sorted) queue
+	 *
+	 * @param i position in the queue
+	 * @return the key
+	 */
+	public long getKey(int i){
+		return keys[i];
+	}
+	
+	/** Get the object at a position in the (sorted) queue
+	 *
+	 * @param i position in the queue
+	 * @return the object
+	 */
+	public Transform getTransform(int i){
+		return transforms[(int)(keys[i] & INDEX_MASK)];
+	}
+	
+	/** Get the renderable at a position in the (sorted) queue
+	 *
+	 * @param i position in the queue
+	 * @return the renderable
+	 */
+	public Renderable getRenderable(int i){
+		return renderables[(int)(keys[i] & INDEX_MASK)];
+	}
+	
+	/** Get the kind of object at a position in the (sorted) queue
+	 *
+	 * @param i position in the queue
+	 * @return `LEVEL` or `OBJECT`
+	 */
+	public int getKind(int i){
+		return (int)(keys[i] >>> KIND_SHIFT) & 1;
+	}
+	
+	/**
+	 * Double the size of the arrays
+	 */
+	private void grow(){
+		int capacity = keys.length * 2;
+		
+		keys = Arrays.copyOf(keys, capacity);
+		temp = new long[capacity];
+		
+		transforms = Arrays.copyOf(transforms, capacity);
+		renderables = Arrays.copyOf(renderables, capacity);
+	}
+}
@@ -0,0 +1,262 @@
+package io.tek256.core;
+
+import java.util.Arrays;
+
+import org.joml.Matrix3x2f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+
+import io.tek256.render.Camera;
+import io.tek256.render.Shader;
+import io.tek256.render.Texture;
+
+/**
+ * USAGE: begin(camera) -> add(...) for each sorted sprite -> hand to the render thread
+ *
+ * NOTES: Everything the render thread needs to draw a frame, copied out of
+ * 		  the scene so the simulation can keep changing the objects while the
+ * 		  frame is drawn. Sprites are stored already sorted, in flat arrays
+ * 		  that are only ever grown, so building a snapshot every tick
+ * 		  allocates nothing once the arrays are big enough. Each sprite also
+ * 		  keeps its position at the start of the step, `getMat(i, alpha, dest)`
+ * 		  blends from it so frames between steps move smoothly.
+ */
+public class RenderSnapshot {
+	//floats per matrix (m00, m01, m10, m11, m20, m21)
+	private static final int MAT_SIZE = 6;
+	
+	//flag bits of a sprite
+	private static final int FLIP_X = 1, FLIP_Y = 2, OBJECT = 4;
+	
+	//the camera at the time of the snapshot
+	private Matrix4f view, projection;
+	
+	//when the snapshot was taken (`System.nanoTime()`)
+	private long time = 0;
+	
+	//per sprite state
+	private Shader[] shaders;
+	private Texture[] textures;
+	private float[] mats, depths, repeats;
+	
+	//position at the start of the step (x, y)
+	private float[] steps;
+	private byte[] flags;
+	
+	//amount of sprites in the snapshot
+	private int size = 0;
+	
+	public RenderSnapshot(){
+		this(1024);
+	}
+	
+	public RenderSnapshot(int capacity){
+		view = new Matrix4f();
+		projection = new Matrix4f();
+		
+		shaders = new Shader[capacity];
+		textures = new Texture[capacity];
+		mats = new float[capacity * MAT_SIZE];
+		steps = new float[capacity * 2];
+		depths = new float[capacity];
+		repeats = new float[capacity * 2];
+		flags = new byte[capacity];
+	}
+	
+	/** Empty the snapshot & copy the camera
+	 *
+	 * @param camera the camera to draw from
+	 */
+	public void begin(Camera camera){
+		//drop the references so removed textures can be collected
+		for(int i=0;i<size;i++){
+			shaders[i] = null;
+			textures[i] = null;
+		}
+		size = 0;
+		
+		view.set(camera.getView());
+		projection.set(camera.getProjection());
+		
+		time = System.nanoTime();
+	}
+	
+	/** Add a sprite to the snapshot
+	 *
+	 * @param shader the shader of the sprite
+	 * @param texture the texture (or sub texture) of the sprite
+	 * @param mat the 2D model matrix of the sprite
+	 * @param stepX the x position of the sprite at the start of the step
+	 * @param stepY the y position of the sprite at the start of the step
+	 * @param z the depth of the sprite
+	 * @param repeat the texture repeat of the sprite
+	 * @param flipX if the texture is flipped horizontally
+	 * @param flipY if the texture is flipped vertically
+	 * @param kind `RenderQueue.LEVEL` or `RenderQueue.OBJECT`
+	 */
+	public void add(Shader shader, Texture texture, Matrix3x2f mat, float stepX, float stepY,
+			float z, Vector2f repeat, boolean flipX, boolean flipY, int kind){
+		if(size == flags.length)
+			grow();
+		
+		shaders[size] = shader;
+		textures[size] = texture;
+		
+		int m = size * MAT_SIZE;
+		mats[m] = mat.m00;
+		mats[m + 1] = mat.m01;
+		mats[m + 2] = mat.m10;
+		mats[m + 3] = mat.m11;
+		mats[m + 4] = mat.m20;
+		mats[m + 5] = mat.m21;
+		
+		steps[size * 2] = stepX;
+		steps[size * 2 + 1] = stepY;
+		
+		depths[size] = z;
+		
+		repeats[size * 2] = repeat.x;
+		repeats[size * 2 + 1] = repeat.y;
+		
+		flags[size] = (byte)((flipX ? FLIP_X : 0) | (flipY ? FLIP_Y : 0)
+				| (kind == RenderQueue.OBJECT ? OBJECT : 0));
+		
+		size++;
+	}
+	
+	/** Get the amount of sprites in the snapshot
+	 *
+	 * @return the amount of sprites
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/** Get the shader of a sprite
+	 *
+	 * @param i the sprite
+	 * @return the shader of the sprite
+	 */
+	public Shader getShader(int i){
+		return shaders[i];
+	}
+	
+	/** Get the texture of a sprite
+	 *
+	 * @param i the sprite
+	 * @return the texture (or sub texture) of the sprite
+	 */
+	public Texture getTexture(int i){
+		return textures[i];
+	}
+	
+	/** Get the model matrix of a sprite
+	 *
+	 * @param i the sprite
+	 * @param dest the matrix to write into
+	 * @return dest
+	 */
+	public Matrix3x2f getMat(int i, Matrix3x2f dest){
+		int m = i * MAT_SIZE;
+		return dest.set(mats[m], mats[m + 1], mats[m + 2], mats[m + 3], mats[m + 4], mats[m + 5]);
+	}
+	
+	/** Get the model matrix of a sprite, its position blended from the start of the step
+	 *
+	 * @param i the sprite
+	 * @param alpha how far between the start & end of the step (0 - 1)
+	 * @param dest the matrix to write into
+	 * @return dest
+	 */
+	public Matrix3x2f getMat(int i, float alpha, Matrix3x2f dest){
+		int m = i * MAT_SIZE;
+		float x = steps[i * 2], y = steps[i * 2 + 1];
+		return dest.set(mats[m], mats[m + 1], mats[m + 2], mats[m + 3],
+				x + (mats[m + 4] - x) * alpha, y + (mats[m + 5] - y) * alpha);
+	}
+	
+	/** Get the depth of a sprite
+	 *
+	 * @param i the sprite
+	 * @return the depth of the sprite
+	 */
+	public float getZ(int i){
+		return depths[i];
+	}
+	
+	/** Get the texture repeat of a sprite
+	 *
+	 * @param i the sprite
+	 * @param dest the vector to write into
+	 * @return dest
+	 */
+	public Vector2f getRepeat(int i, Vector2f dest){
+		return dest.set(repeats[i * 2], repeats[i * 2 + 1]);
+	}
+	
+	/** Get if a sprite is flipped horizontally
+	 *
+	 * @param i the sprite
+	 * @return if the sprite is flipped horizontally
+	 */
+	public boolean isFlipX(int i){
+		return (flags[i] & FLIP_X) != 0;
+	}
+	
+	/** Get if a sprite is flipped vertically
+	 *
+	 * @param i the sprite
+	 * @return if the sprite is flipped vertically
+	 */
+	public boolean isFlipY(int i){
+		return (flags[i] & FLIP_Y) != 0;
+	}
+	
+	/** Get the kind of a sprite
+	 *
+	 * @param i the sprite
+	 * @return `RenderQueue.LEVEL` or `RenderQueue.OBJECT`
+	 */
+	public int getKind(int i){
+		return ((flags[i] & OBJECT) != 0) ? RenderQueue.OBJECT : RenderQueue.LEVEL;
+	}
+	
+	/** Get the camera's view at the time of the snapshot
+	 *
+	 * @return the view matrix
+	 */
+	public Matrix4f getView(){
+		return view;
+	}
+	
+	/** Get the camera's projection at the time of the snapshot
+	 *
+	 * @return the projection matrix
+	 */
+	public Matrix4f getProjection(){
+		return projection;
+	}
+	
+	/** Get when the snapshot was taken
+	 *
+	 * @return the `System.nanoTime()` of the snapshot
+	 */
+	public long getTime(){
+		return time;
+	}
+	
+	/**
+	 * Double the size of the arrays
+	 */
+	private void grow(){
+		int capacity = flags.length * 2;
+		
+		shaders = Arrays.copyOf(shaders, capacity);
+		textures = Arrays.copyOf(textures, capacity);
+		mats = Arrays.copyOf(mats, capacity * MAT_SIZE);
+		steps = Arrays.copyOf(steps, capacity * 2);
+		depths = Arrays.copyOf(depths, capacity);
+		repeats = Arrays.copyOf(repeats, capacity * 2);
+		flags = Arrays.copyOf(flags, capacity);
+	}
+}
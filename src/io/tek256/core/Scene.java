@@ -2,11 +2,15 @@ package io.tek256.core;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.function.Consumer;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import org.joml.Matrix3x2f;
 import org.joml.Vector2f;
 
+import io.tek256.core.collision.TileMap;
 import io.tek256.core.runtime.*;
 import io.tek256.render.*;
 
@@ -20,19 +24,70 @@ public class Scene {
 	
 	//current state for snapping
 	public SnapState snapping = SnapState.NONE;
+	
+	//if game objects should be drawn with hardware instancing
+	private boolean instancing = false;
+	
+	//if the scene runs without GL (simulation only)
+	private boolean headless = false;
+	
+	//smallest amount of game objects a parallel task handles on its own
+	public static final int PARALLEL_CHUNK = 256;
+	
+	//if game objects are updated in parallel (see `setParallel()`)
+	private boolean parallel = false;
+	
+	//the pool parallel updates run on
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	
+	//cross object effects queued during an update, applied after it
+	private ConcurrentLinkedQueue<Runnable> deferred;
 
 	private float tileSize = 16f;
 	
-	//texture mapped lists of the objects
-	private HashMap<Texture, ArrayList<GameObject>> gameObjects;
-	private HashMap<Texture, ArrayList<LevelObject>> levelObjects;
+	//solid tiles of the snapped level objects (see `getTiles()`)
+	private TileMap tiles;
+	
+	//persistent render buckets, kept grouped by shader
+	private ArrayList<RenderBucket> buckets;
+	
+	//the grid entry (and bucket) of each renderable object
+	private IdentityHashMap<Transform, CullGrid.Entry> entries;
+	
+	//entries of the game objects, which move and need re-gridding
+	private ArrayList<CullGrid.Entry> dynamic;
 	
-	//shader mapped lists of the objects
-	private HashMap<Shader, ArrayList<GameObject>> shaderGameObjects;
-	private HashMap<Shader, ArrayList<LevelObject>> shaderLevelObjects;
+	//spatial index for view culling
+	private CullGrid grid;
 	
-	//free objects (no shader / texture)
-	private ArrayList<Transform> transforms;
+	//entries overlapping the camera this frame (reused every frame)
+	private ArrayList<CullGrid.Entry> visible;
+	
+	//how far the frame is between the last & next update (0 - 1)
+	private float alpha = 0;
+	
+	//culling counts of the last frame
+	private int visibleCount = 0, culledCount = 0;
+	
+	//objects that switched sheets this frame (reused every frame)
+	private ArrayList<CullGrid.Entry> moved;
+	
+	//the sorted draw order of the frame
+	private RenderQueue queue;
+	
+	//packed state of every transform in the scene
+	//Note: free objects (no shader / texture) only live in the store
+	private TransformStore store;
+	
+	//scratch matrix the sprites are read into while snapshotting
+	private Matrix3x2f mat;
+	
+	//scratch state the snapshot is read into while drawing (render thread)
+	private Matrix3x2f drawMat;
+	private Vector2f drawRepeat;
+	
+	//the snapshot used when the scene is rendered in one go
+	private RenderSnapshot frame;
 	
 	//the scene's camera
 	private Camera camera;
@@ -40,24 +95,59 @@ public class Scene {
 	//the primary quad to be rendered
 	private Quad quad;
 	
+	//the batch every sprite is drawn through
+	private SpriteBatch batch;
+	
+	//the instanced path for moving game objects
+	private SpriteInstancer instancer;
+	
 	public Scene(){
-		//setup the texture based lists for the objects
-		gameObjects = new HashMap<>();
-		levelObjects = new HashMap<>();
+		this(false);
+	}
+	
+	/** Create a scene
+	 * 
+	 * @param headless if the scene shouldn't touch GL (no batch, instancer or shaders)
+	 */
+	public Scene(boolean headless){
+		this.headless = headless;
 		
-		//setup the shader based lists for objects
-		shaderGameObjects = new HashMap<>();
-		shaderLevelObjects = new HashMap<>();
+		//setup the render buckets
+		buckets = new ArrayList<>();
+		entries = new IdentityHashMap<>();
+		moved = new ArrayList<>();
+		deferred = new ConcurrentLinkedQueue<>();
 		
-		//setup the no-render list
-		transforms = new ArrayList<Transform>();
+		//setup the culling grid
+		grid = new CullGrid();
+		dynamic = new ArrayList<>();
+		tiles = new TileMap(tileSize);
+		visible = new ArrayList<>();
+		queue = new RenderQueue();
+		
+		//setup the transform storage
+		store = new TransformStore();
+		mat = new Matrix3x2f();
+		drawMat = new Matrix3x2f();
+		drawRepeat = new Vector2f();
+		frame = new RenderSnapshot();
 		
-		//setup the default quad of 1x1 becuse we'll scale everything by size
-		quad = new Quad(1f,1f);
-
 		//create the scene's camera
 		camera = new Camera();
 		
+		//a headless scene only simulates, there's nothing to draw with
+		if(headless)
+			return;
+		
+		//setup the default quad of 1x1 becuse we'll scale everything by size
+		quad = new Quad(1f,1f);
+		
+		//setup the sprite batch
+		batch = new SpriteBatch();
+		
+		//setup the instancer on top of the unit quad
+		instancer = new SpriteInstancer(quad);
+		
 		//load all o the default shaders
 		Shader.loadAll("res/shaders/");
 	}
@@ -67,15 +157,25 @@ public class Scene {
 	 * @param delta time since last input call
 	 */
 	public void input(long delta){
-		//for each gameobject list
-		for(ArrayList<GameObject> gameObjects : this.gameObjects.values()){
-			//for each game object in the list
-			for(GameObject gameObject : gameObjects){
+		//split the game objects over the pool
+		if(parallel && dynamic.size() >= PARALLEL_CHUNK * 2){
+			pool.invoke(new ObjectTask(dynamic, 0, dynamic.size(), chunk(), delta, true));
+			applyDeferred();
+			return;
+		}
+		
+		//for each bucket
+		for(int i=0;i<buckets.size();i++){
+			ArrayList<GameObject> gameObjects = buckets.get(i).gameObjects;
+			//for each game object in the bucket
+			for(int j=0;j<gameObjects.size();j++){
 				//update the input
-				gameObject.input(delta);
+				gameObjects.get(j).input(delta);
 			}
 		}
 		
+		//the serial input keeps the same contract as the parallel one
+		applyDeferred();
 	}
 	
 	/** Call the scene's gameObjects' update calls
@@ -83,241 +183,275 @@ public class Scene {
 	 * @param delta time since last update call
 	 */
 	public void update(long delta){
-		//for each gameObject list
-		for(ArrayList<GameObject> gameObjects : this.gameObjects.values()){
-			//for each gameObject in the list
-			for(GameObject gameObject : gameObjects){
+		//split the game objects over the pool
+		if(parallel && dynamic.size() >= PARALLEL_CHUNK * 2){
+			pool.invoke(new ObjectTask(dynamic, 0, dynamic.size(), chunk(), delta, false));
+			applyDeferred();
+			return;
+		}
+		
+		//for each bucket
+		for(int i=0;i<buckets.size();i++){
+			ArrayList<GameObject> gameObjects = buckets.get(i).gameObjects;
+			//for each gameObject in the bucket
+			for(int j=0;j<gameObjects.size();j++){
 				//update the gameObject
-				gameObject.update(delta);
+				gameObjects.get(j).update(delta);
 			}
 		}
+		
+		//the serial update keeps the same contract as the parallel one
+		applyDeferred();
 	}
 	
-	public void render(long delta){
-		//check each list 
-		Consumer<ArrayList<GameObject>> gameObjectIteration = (arraylist) -> {
-			arraylist.forEach((gameObject) -> { //and for each game object in the list
-				//if the position has changed more than 0.05f units
-				if(gameObject.getPosChange() != 0.05f){
-					//update the model view matrix
-					gameObject.updateMatrix();
-				}
-				//update the renderable as well
-				gameObject.renderable.update(delta);
-			});
-		};
-		
-		//for each level object, update the renderable
-		Consumer<ArrayList<LevelObject>> levelObjectIteration = (arraylist) -> {
-			arraylist.forEach((levelObject) -> levelObject.renderable.update(delta));
-		};
-		
-		//we only have to update 1 side of a list, since both are complete
-		//lists of the game objects
-		gameObjects.values().forEach(gameObjectIteration);
-		levelObjects.values().forEach(levelObjectIteration);
+	/** Queue a cross object effect (spawning, removing, touching another object)
+	 *  to run once every game object has updated
+	 *  Note: safe to call from any thread, this is the only way a game object
+	 *  should reach outside itself during a parallel update
+	 * 
+	 * @param action the effect to apply
+	 */
+	public void defer(Runnable action){
+		deferred.add(action);
+	}
+	
+	/**
+	 * Run the queued cross object effects, in the order they were queued
+	 */
+	private void applyDeferred(){
+		Runnable action;
+		while((action = deferred.poll()) != null)
+			action.run();
+	}
+	
+	/** Get the amount of game objects a parallel task handles before splitting
+	 * 
+	 * @return the chunk size
+	 */
+	private int chunk(){
+		//a few chunks per worker, so uneven objects still balance out
+		return Math.max(PARALLEL_CHUNK, dynamic.size() / (pool.getParallelism() * 4));
+	}
+	
+	/**
+	 * Input or update a range of game objects, splitting it in half until it's one chunk
+	 */
+	private static class ObjectTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
 		
-		//render the level
-		renderLevel();
+		private final ArrayList<CullGrid.Entry> objects;
+		private final int start, end, chunk;
+		private final long delta;
+		private final boolean input;
 		
-		//render the game objects
-		renderObjects();
+		ObjectTask(ArrayList<CullGrid.Entry> objects, int start, int end, int chunk, long delta, boolean input){
+			this.objects = objects;
+			this.start = start;
+			this.end = end;
+			this.chunk = chunk;
+			this.delta = delta;
+			this.input = input;
+		}
 		
-		//apply post processing effects
-		postEffects();
+		@Override
+		protected void compute(){
+			//split until the range is small enough to run here
+			if(end - start > chunk){
+				int middle = (start + end) >>> 1;
+				invokeAll(new ObjectTask(objects, start, middle, chunk, delta, input),
+						new ObjectTask(objects, middle, end, chunk, delta, input));
+				return;
+			}
+			
+			for(int i=start;i<end;i++){
+				GameObject gameObject = (GameObject)objects.get(i).transform;
+				if(input)
+					gameObject.input(delta);
+				else
+					gameObject.update(delta);
+			}
+		}
 	}
-
-	public void load(String jsonPath){
+	
+	/** Render the scene for a frame of the fixed step loop
+	 * 
+	 * @param delta time since the last frame
+	 * @param alpha how far the frame is between the last & next update (0 - 1)
+	 */
+	public void render(long delta, float alpha){
+		//nothing to draw with
+		if(headless)
+			return;
 		
+		//build the frame's snapshot & draw it straight away
+		snapshot(delta, frame);
+		render(frame, alpha);
+	}
+	
+	/** Render the scene as of the last update (no interpolation)
+	 * 
+	 * @param delta time since the last frame
+	 */
+	public void render(long delta){
+		render(delta, 1f);
 	}
 	
 	/**
-	 * sort each level object then render it
+	 * Mark the start of a simulation step, the frames until the next step blend
+	 * each sprite from where it is now to where the step leaves it
+	 * Note: `GameEngine` calls this before every step, call it when stepping the scene yourself
 	 */
-	private void renderLevel(){
-		//in the render process we sort objects by shader, then by texture
-		for(Shader shader : shaderLevelObjects.keySet()){
-			//get the objects listed for the shader
-			ArrayList<LevelObject> shaderList = shaderLevelObjects.get(shader);
-			
-			//Mapping of textures & game objects that use this shader
-			HashMap<Texture, ArrayList<LevelObject>> toRender = new HashMap<Texture, ArrayList<LevelObject>>();
-			
-			//go through each object in the shader's object list
-			for(LevelObject levelObject : shaderList){
-				//get the texture of the object
-				Texture texture = levelObject.renderable.getTexture();
-				//escape any children (sub textures)
-				if(texture.isSubTexture())
-					texture = texture.getSheet().getTexture();
-				
-				//if the texture isn't mapped, add it to the map
-				if(!toRender.containsKey(texture)){
-					//create the list of objects with the same texture
-					ArrayList<LevelObject> textureList = new ArrayList<LevelObject>();
-					//add the object to the list
-					textureList.add(levelObject);
-					//add the new list
-					toRender.put(texture, textureList);
-				}else{
-					//if the list already exists, add the object to it
-					toRender.get(texture).add(levelObject);
-				}
-			}
+	public void beginStep(){
+		store.beginStep();
+	}
+	
+	/** Cull, animate & sort the scene into a snapshot the render thread can draw
+	 *  Note: this is the simulation side of rendering, nothing here touches GL
+	 * 
+	 * @param delta time since the last snapshot
+	 * @param snapshot the snapshot to fill
+	 */
+	public void snapshot(long delta, RenderSnapshot snapshot){
+		//move the game objects that changed to their new cells (if any), going by their
+		//own state rather than the dirty flag, an explicit `updateMatrix()` clears that
+		for(int i=0;i<dynamic.size();i++){
+			CullGrid.Entry entry = dynamic.get(i);
+			
+			if(entry.isMoved())
+				grid.update(entry);
+		}
+		
+		//rebuild only the matrices that changed, objects that didn't move cost nothing
+		store.updateMatrices();
+		
+		//find every object overlapping the camera's view
+		visible.clear();
+		grid.query(camera.getLeft(), camera.getBottom(), camera.getRight(), camera.getTop(), visible);
+		
+		//update the culling counts
+		visibleCount = visible.size();
+		culledCount = entries.size() - visibleCount;
+		
+		//queue every visible sprite with its sort key
+		queue.clear();
+		for(int i=0;i<visible.size();i++){
+			CullGrid.Entry entry = visible.get(i);
+			Renderable renderable = entry.renderable;
 			
-			//bind the shader that's been sorted
-			shader.bind();
+			//only visible objects are animated
+			renderable.update(delta);
 			
-			//setup the camera variables
-			shader.set("PROJECTION_MAT", camera.getProjection());
-			shader.set("VIEW_MAT", camera.getView());
+			//if the renderable switched sheets, it needs a new bucket
+			if(renderable.getSheetTexture() != entry.bucket.getTexture())
+				moved.add(entry);
 			
-			//Go through each texture that uses the shader
-			for(Texture texture : toRender.keySet()){
-				//make sure the texture is bound
-				texture.bind();
-				
-				//get the list of objects using the texture
-				ArrayList<LevelObject> objects = toRender.get(texture);
-								
-				//if the texture is a sheet, or sub texture
-				if(texture.isSheet() || texture.isSubTexture()){
-					//setup the size variables in the shader
-					shader.set("TEXTURE_SIZE", texture.getSheet().getTexture().getSize());;
-					shader.set("SUB_SIZE", texture.getSheet().getSubSize());
-				}
-				
-				//for each object that uses the texture
-				for(LevelObject levelObject : objects){
-					//get the reference of the object's renderable
-					Renderable renderable = levelObject.renderable;
-					//get the texture
-					Texture tex = renderable.getTexture();
-					
-					//if the texture is a sub texture
-					if(tex.isSubTexture()){
-						//tell the shader that the texture is a sub texture
-						shader.set("SUB_TEXTURE", 1);
-						//tell the sahder the texture offset
-						shader.set("TEXTURE_OFFSET", tex.getOffset());
-					}else{
-						shader.set("SUB_TEXTURE", 0);
-						shader.set("TEXTURE_OFFSET", Vector2f.ZERO);
-					}
-					
-					//set the model matrix
-					shader.set("MODEL_MAT", levelObject.getMat());
-					
-					//set the texture repeat
-					shader.set("TEXTURE_REPEAT", renderable.getTextureRepeat());
-					
-					//render the quad
-					quad.render();
-				}
-				//unbind the texture
-				Texture.unbind();
+			//the bucket index is the shader & texture part of the key
+			queue.add(entry.transform, renderable, entry.kind, entry.bucket.getIndex());
+		}
+		
+		//re-bucket anything that switched sheets
+		if(!moved.isEmpty()){
+			for(int i=0;i<moved.size();i++){
+				CullGrid.Entry entry = moved.get(i);
+				unbucket(entry);
+				bucket(entry);
 			}
-			//unbind the shader
-			Shader.unbind();
-			
-			//empty out the list
-			toRender.clear();
+			moved.clear();
+		}
+		
+		//order by layer, depth, then shader & texture
+		queue.sort();
+		
+		//copy the sorted sprites out of the scene
+		snapshot.begin(camera);
+		for(int i=0;i<queue.size();i++){
+			Transform transform = queue.getTransform(i);
+			Renderable renderable = queue.getRenderable(i);
+			
+			snapshot.add(renderable.getShader(), renderable.getTexture(), transform.getMat(mat),
+					transform.getStepX(), transform.getStepY(), transform.getZ(), renderable.getTextureRepeat(),
+					renderable.isFlipX(), renderable.isFlipY(), queue.getKind(i));
 		}
 	}
 	
-	private void renderObjects(){
-		//in the render process we sort objects by shader, then by texture
-		for(Shader shader : shaderGameObjects.keySet()){
-			//get the objects listed for the shader
-			ArrayList<GameObject> shaderList = shaderGameObjects.get(shader);
-			
-			//Mapping of textures & game objects that use this shader
-			HashMap<Texture, ArrayList<GameObject>> toRender = new HashMap<Texture, ArrayList<GameObject>>();
-			
-			//go through each object in the shader's object list
-			for(GameObject gameObject : shaderList){
-				//get the texture of the object
-				Texture texture = gameObject.renderable.getTexture();
-				//escape any children (sub textures)
-				if(texture.isSubTexture())
-					texture = texture.getSheet().getTexture();
-				
-				//if the texture isn't mapped, add it to the map
-				if(!toRender.containsKey(texture)){
-					//create the list of objects with the same texture
-					ArrayList<GameObject> textureList = new ArrayList<GameObject>();
-					//add the object to the list
-					textureList.add(gameObject);
-					//add the new list
-					toRender.put(texture, textureList);
-				}else{
-					//if the list already exists, add the object to it
-					toRender.get(texture).add(gameObject);
-				}
-			}
-			
-			//bind the shader that's been sorted
-			shader.bind();
-			
-			//setup the camera variables
-			shader.set("PROJECTION_MAT", camera.getProjection());
-			shader.set("VIEW_MAT", camera.getView());
-			
-			//Go through each texture that uses the shader
-			for(Texture texture : toRender.keySet()){
-				//make sure the texture is bound
-				texture.bind();
-				
-				//get the list of objects using the texture
-				ArrayList<GameObject> objects = toRender.get(texture);
+	/** Draw a snapshot of the scene
+	 *  Note: this is the GL side of rendering, it only reads the snapshot
+	 * 
+	 * @param snapshot the snapshot to draw
+	 */
+	public void render(RenderSnapshot snapshot){
+		render(snapshot, 1f);
+	}
+	
+	/** Draw a snapshot of the scene, blending the sprites from the start of the step
+	 *  Note: this is the GL side of rendering, it only reads the snapshot
+	 * 
+	 * @param snapshot the snapshot to draw
+	 * @param alpha how far the frame is between the snapshot's last update & the next (0 - 1)
+	 */
+	public void render(RenderSnapshot snapshot, float alpha){
+		this.alpha = alpha;
+		
+		//nothing to draw with
+		if(headless)
+			return;
+		
+		//start counting the frame's draw calls
+		batch.resetStats();
+		instancer.resetStats();
+		
+		//render the level & the game objects
+		renderQueue(snapshot, alpha);
+		
+		//apply post processing effects
+		postEffects();
+	}
+
+	public void load(String jsonPath){
+		
+	}
+	
+	/** render the sorted snapshot, only switching shaders when the key does
+	 * 
+	 * @param snapshot the snapshot to draw
+	 * @param alpha how far between the start & end of the step (0 - 1)
+	 */
+	private void renderQueue(RenderSnapshot snapshot, float alpha){
+		//game objects using the default shader can use the instanced variant
+		Shader instanced = (instancing) ? Shader.get(SpriteInstancer.SHADER) : null;
+		Shader defaultShader = Shader.get("default");
+		
+		//the shader currently drawing & the path drawing it
+		Shader current = null;
+		SpriteRenderer renderer = batch;
+		
+		for(int i=0;i<snapshot.size();i++){
+			//get the shader of the sprite
+			Shader shader = snapshot.getShader(i);
+			
+			//pick the path for the sprite
+			SpriteRenderer next = (instanced != null && shader == defaultShader 
+					&& snapshot.getKind(i) == RenderQueue.OBJECT) ? instancer : batch;
+			
+			//start drawing when the shader or path changes
+			if(shader != current || next != renderer){
+				//finish the last shader
+				renderer.end();
 				
-				//if the texture is a sheet, or sub texture
-				if(texture.isSheet() || texture.isSubTexture()){
-					//setup the size variables in the shader
-					shader.set("TEXTURE_SIZE", texture.getSheet().getTexture().getSize());
-					shader.set("SUB_SIZE", texture.getSheet().getSubSize());
-					
-					shader.set("SUB_TEXTURE", 1);
-				}else{
-					shader.set("SUB_TEXTURE", 0);
-					shader.set("TEXTURE_OFFSET", Vector2f.ZERO);
-				}
+				current = shader;
+				renderer = next;
 				
-				//for each object that uses the texture
-				for(GameObject gameObject : objects){
-					//get the reference of the object's renderable
-					Renderable renderable = gameObject.renderable;
-					
-					shader.set("FLIP_X", renderable.isFlipX() ? 1 : 0);
-					shader.set("FLIP_Y", renderable.isFlipY() ? 1 : 0);
-					
-					//get the texture
-					Texture tex = renderable.getTexture();
-					
-					//if the texture is a sub texture
-					if(tex.isSubTexture()){
-						//tell the shader the texture offset
-						shader.set("TEXTURE_OFFSET", tex.getOffset());
-					}
-
-					//set the texture repeat
-					shader.set("TEXTURE_REPEAT", renderable.getTextureRepeat());
-					
-					//set the model matrix
-					shader.set("MODEL_MAT", gameObject.getMat());
-					
-					//render the quad
-					quad.render();
-				}
-				//unbind the texture
-				Texture.unbind();
+				renderer.begin((renderer == instancer) ? instanced : shader,
+						snapshot.getProjection(), snapshot.getView());
 			}
-			//unbind the shader
-			Shader.unbind();
 			
-			//empty out the list
-			toRender.clear();
+			//add the object to the batch
+			renderer.draw(snapshot.getTexture(i), snapshot.getMat(i, alpha, drawMat), snapshot.getZ(i),
+					snapshot.getRepeat(i, drawRepeat), snapshot.isFlipX(i), snapshot.isFlipY(i));
 		}
+		
+		//draw what's left and unbind the shader
+		renderer.end();
 	}
 	
 	//TODO implement post effects: framebuffer usage
@@ -327,14 +461,18 @@ public class Scene {
 
 	/** Add a transform to the scene
 	 * 
-	 * 	Process: Check for type -> Add to Texture's Render List -> Add to Shader's Render List
-	 * 	If no renderable, add to no-render list
+	 * 	Process: Check for type -> Add to the (Shader, Texture) Render Bucket
+	 * 	If no renderable, it's only kept in the scene's transform store
 	 * 
 	 * @param transform transform to be added to the scene
 	 */
 	public void add(Transform transform){
-		//reference texture for adding to correct list
-		Texture src =  null;
+		//already in the scene, every object in the scene lives in its store
+		if(transform.getStore() == store)
+			return;
+		
+		//pack the object's state in with the rest of the scene
+		store.attach(transform);
 		
 		if(transform instanceof GameObject){ //If the transform is a `GameObject`
 			//cast the transform to `GameObject` for functionality
@@ -346,56 +484,26 @@ public class Scene {
 				float newY = transform.getY() - (transform.getY() % tileSize);
 				
 				transform.setPosition(newX, newY);
+				//it starts on the tile, not sliding onto it
+				transform.settle();
 			}
 			
-			//if the gameobject isn't renderable, then we'll want to
-			//add it to a no-render list and just back out
-			if(gameObject.renderable == null){
-				//add the gameobject to the no-render list
-				transforms.add(gameObject);
-				//back out of the call
+			//if the gameobject isn't renderable, then it's only
+			//kept in the store, so just back out
+			if(gameObject.renderable == null)
 				return;
-			}
 			
-			//get the texture from the renderable
-			src = gameObject.renderable.getTexture();
-			
-			//if the source is a sub texture, use the sheet's texture for sorting
-			if(src.isSubTexture()){
-				//this just insures that we're using 1 image sorting instead of sub image
-				src = src.getSheet().getTexture();
-			}
-			
-			//if the gameObject map already contains the texture
-			if(gameObjects.containsKey(src)){
-				//add the object to the list for it!
-				gameObjects.get(src).add(gameObject);
-			}else{
-				//if not, then make a new list
-				ArrayList<GameObject> list = new ArrayList<GameObject>();
-				//add the object to the list
-				list.add(gameObject);
-				
-				//and add the list to the map
-				gameObjects.put(src, list);
-			}
-			
-			//the shader of the gameObject
-			Shader shader = gameObject.renderable.getShader();
-			
-			//if the shader list already contains a list for the shader
-			if(shaderGameObjects.containsKey(shader)){
-				//add the game object to the list in the map
-				shaderGameObjects.get(shader).add(gameObject);
-			}else{
-				//otherwise, make a list
-				ArrayList<GameObject> list = new ArrayList<GameObject>();
-				//add the object to it
-				list.add(gameObject);
-				
-				//and add the list to the map
-				shaderGameObjects.put(shader, list);
-			}
+			//make sure the matrix matches any snapping
+			if(gameObject.isDirty())
+				gameObject.updateMatrix();
+			
+			//place the object in its render bucket & the culling grid
+			CullGrid.Entry entry = new CullGrid.Entry(gameObject, gameObject.renderable, RenderQueue.OBJECT);
+			entries.put(gameObject, entry);
+			entry.dynamicIndex = dynamic.size();
+			dynamic.add(entry);
+			grid.insert(entry);
+			bucket(entry);
 		}else if(transform instanceof LevelObject){ //If the transform is a `LevelObject` 
 			//cast the transform to a `LevelObject` for functionality
 			
@@ -406,146 +514,202 @@ public class Scene {
 				float newY = transform.getY() - (transform.getY() % tileSize);
 				
 				transform.setPosition(newX, newY);
+				//it starts on the tile, not sliding onto it
+				transform.settle();
+				
+				//snapped level geometry collides through the tile map
+				tiles.add(transform);
 			}
 			
 			LevelObject levelObject = (LevelObject)transform;
 			
-			//if the level object isn't renderable, add it to a no-render
-			//list and exit the call
-			if(levelObject.renderable == null){
-				//add to a no-render list
-				transforms.add(levelObject);
-				//back out of the call
+			//if the level object isn't renderable, it's only kept in
+			//the store, so exit the call
+			if(levelObject.renderable == null)
 				return;
-			}
-			
-			//the texture of the object
-			src = levelObject.renderable.getTexture();
-			
-			//if the texture is a sub texture, use the parent for sorting's sake
-			if(src.isSubTexture())
-				src = src.getSheet().getTexture();
 			
-			//if the levelObjects already contain the texture, then add it to the list
-			if(levelObjects.containsKey(src)){
-				levelObjects.get(src).add(levelObject);
-			}else{
-				//make a new list
-				ArrayList<LevelObject> list = new ArrayList<LevelObject>();
-				//add the object to it
-				list.add(levelObject);
-				
-				//and place it in the map
-				levelObjects.put(src, list);
-			}
-
-			//shader of the levelObject
-			Shader shader = levelObject.renderable.getShader();
+			//make sure the matrix matches any snapping
+			if(levelObject.isDirty())
+				levelObject.updateMatrix();
 			
-			//check to see if there is a list of objects using the same shader
-			if(shaderLevelObjects.containsKey(shader)){
-				//add the level object to the list of objects
-				shaderLevelObjects.get(shader).add(levelObject);
-			}else{
-				//since there isn't a list already made, make one
-				ArrayList<LevelObject> list = new ArrayList<LevelObject>();
-				//add the object to the list
-				list.add(levelObject);
-				
-				//put the list in the map
-				shaderLevelObjects.put(shader, list);
-			}
-			
-		}else{
-			//we only directly handle gameobjects and levelobjects for now, so
-			//we'll add any other abstraction of transform to a generic list
-			//and won't render anything for it. (good for script objects)
-			transforms.add(transform);
+			//place the object in its render bucket & the culling grid
+			CullGrid.Entry entry = new CullGrid.Entry(levelObject, levelObject.renderable, RenderQueue.LEVEL);
+			entries.put(levelObject, entry);
+			grid.insert(entry);
+			bucket(entry);
 		}
+		
+		//we only directly handle gameobjects and levelobjects for now, so
+		//any other abstraction of transform is only kept in the store
+		//and won't render anything. (good for script objects)
 	}
 
 	public void add(Transform...transforms){
+		//make room for the whole wave up front
+		store.ensureCapacity(store.size() + transforms.length);
+		
+		for(Transform transform : transforms)
+			add(transform);
+	}
+	
+	/** Add a group of transforms to the scene (wave spawns)
+	 * 
+	 * @param transforms transforms to be added to the scene
+	 */
+	public void add(Collection<? extends Transform> transforms){
+		//make room for the whole wave up front
+		store.ensureCapacity(store.size() + transforms.size());
+		dynamic.ensureCapacity(dynamic.size() + transforms.size());
+		
 		for(Transform transform : transforms)
 			add(transform);
 	}
 	
 	/** Remove a transform from the scene
 	 * 
-	 *  Process: Check for type -> Remove from Texture's Render List -> Remove from Shader's Render List
-	 *  If no renderable, remove from the no-render list
+	 *  Process: Check for type -> Remove from the object's Render Bucket
+	 *  If no renderable, it's only removed from the store
+	 *  Note: every list keeps the object's index, so removal is a swap-remove
 	 * 
 	 * @param transform the object to be removed from the scene
 	 */
 	public void remove(Transform transform){
-		//s & t will be used for shader & texture references respectively
-		//both references are used to sort & arrange objects
-		Shader s = null;
-		Texture t = null;
-		
-		if(transform instanceof GameObject){
-			//cast the transform to gameobject
-			GameObject g = (GameObject)transform;
-			
-			if(g.renderable != null){
-				//setup the comparable (texture & shader) references
-				t = g.renderable.getTexture();
-				
-				//escape any sub textures for comparing
-				if(t.isSubTexture()){
-					t = t.getSheet().getTexture();
-				}
-				
-				//get the shader of the object for reference
-				s = g.renderable.getShader();
-				
-				//check if the texture is indexed
-				if(gameObjects.containsKey(t)){
-					//remove the gameobject from the texture's render list
-					gameObjects.get(t).remove(g);
-				}
-				
-				//check if the shader is indexed
-				if(shaderGameObjects.containsKey(s)){
-					//remove the gameobject from the shader's render list
-					shaderGameObjects.get(s).remove(g);
-				}
-			}else{
-				//if there is no renderable its in the no-render list
-				if(transforms.contains(transform))
-					transforms.remove(transform);
+		//not in the scene
+		if(transform.getStore() != store)
+			return;
+		
+		//give the object its own storage back
+		store.detach(transform);
+		
+		//clear snapped level geometry from the tile map (whatever the snapping is now, the map
+		//remembers what it baked)
+		if(transform instanceof LevelObject)
+			tiles.remove(transform);
+		
+		//if the object isn't renderable, it was only in the store
+		CullGrid.Entry entry = entries.remove(transform);
+		if(entry == null)
+			return;
+		
+		//take the object out of its bucket & the culling grid
+		unbucket(entry);
+		grid.remove(entry);
+		
+		//move the last game object into the freed spot
+		if(entry.kind == RenderQueue.OBJECT){
+			int last = dynamic.size() - 1;
+			if(entry.dynamicIndex != last){
+				CullGrid.Entry swap = dynamic.get(last);
+				dynamic.set(entry.dynamicIndex, swap);
+				swap.dynamicIndex = entry.dynamicIndex;
 			}
-		}else if(transform instanceof LevelObject){
-			//cast the transform to levelobject 
-			LevelObject l = (LevelObject)transform;
-			//if the object isn't renderable, then take it out of the no-render list
-			if(l.renderable != null){
-				//setup comparable references
-				t = l.renderable.getTexture();
-				s = l.renderable.getShader();
-				
-				//check if the texture is indexed
-				if(levelObjects.containsKey(t)){
-					levelObjects.get(t).remove(l);
-				}
-				
-				//check if the shader is indexed
-				if(shaderLevelObjects.containsKey(s)){
-					//remove the object from the indexed shader list
-					shaderLevelObjects.get(s).remove(l);
-				}
-				
-			}else{
-				//if its not renderable, its stored in the no-render list
-				if(transforms.contains(transform))
-					transforms.remove(transform);
+			dynamic.remove(last);
+			entry.dynamicIndex = -1;
+		}
+	}
+	
+	/** Remove a group of transforms from the scene
+	 * 
+	 * @param transforms the objects to be removed from the scene
+	 */
+	public void removeAll(Collection<? extends Transform> transforms){
+		for(Transform transform : transforms)
+			remove(transform);
+	}
+	
+	/** Update a level object's matrix & place in the culling grid after moving it
+	 *  Note: level objects are treated as static, only dirty game objects
+	 *  are updated every frame
+	 * 
+	 * @param transform the object that moved
+	 */
+	public void refresh(Transform transform){
+		if(transform.isDirty())
+			transform.updateMatrix();
+		
+		CullGrid.Entry entry = entries.get(transform);
+		if(entry != null)
+			grid.update(entry);
+	}
+	
+	/** Place a renderable object in the bucket for its shader & sheet texture
+	 * 
+	 * @param entry the grid entry of the object
+	 */
+	private void bucket(CullGrid.Entry entry){
+		Renderable renderable = entry.renderable;
+		
+		//the bucket key
+		Shader shader = renderable.getShader();
+		Texture texture = renderable.getSheetTexture();
+		
+		//find the bucket, and the last bucket with the same shader
+		RenderBucket bucket = null;
+		int lastShader = -1;
+		for(int i=0;i<buckets.size();i++){
+			RenderBucket check = buckets.get(i);
+			if(check.matches(shader, texture)){
+				bucket = check;
+				break;
 			}
-			
-		}else{ //we haven't defined what abstraction this would be, so we handle
-			//it as such.
-			//remove the transform from the no-render list
-			if(transforms.contains(transform))
-				transforms.remove(transform);
+			if(check.getShader() == shader)
+				lastShader = i;
+		}
+		
+		//if there isn't a bucket yet, make one next to the shader's other buckets
+		if(bucket == null){
+			bucket = new RenderBucket(shader, texture);
+			int index = (lastShader == -1) ? buckets.size() : lastShader + 1;
+			buckets.add(index, bucket);
+			
+			//renumber the buckets that shifted
+			for(int i=index;i<buckets.size();i++)
+				buckets.get(i).setIndex(i);
+		}
+		
+		//add the object to the bucket, keeping its index for removal
+		if(entry.kind == RenderQueue.OBJECT){
+			entry.index = bucket.gameObjects.size();
+			bucket.gameObjects.add((GameObject)entry.transform);
+		}else{
+			entry.index = bucket.levelObjects.size();
+			bucket.levelObjects.add((LevelObject)entry.transform);
+		}
+		
+		entry.bucket = bucket;
+	}
+	
+	/** Take a renderable object out of its bucket
+	 * 
+	 * @param entry the grid entry of the object
+	 */
+	private void unbucket(CullGrid.Entry entry){
+		RenderBucket bucket = entry.bucket;
+		if(bucket == null)
+			return;
+		
+		if(entry.kind == RenderQueue.OBJECT)
+			swapRemove(bucket.gameObjects, entry.index);
+		else
+			swapRemove(bucket.levelObjects, entry.index);
+		
+		entry.bucket = null;
+		entry.index = -1;
+	}
+	
+	/** Remove an object from a bucket list by moving the last object into its place
+	 * 
+	 * @param list the bucket list
+	 * @param index the index of the object to remove
+	 */
+	private <T extends Transform> void swapRemove(ArrayList<T> list, int index){
+		int last = list.size() - 1;
+		if(index != last){
+			T swap = list.get(last);
+			list.set(index, swap);
+			entries.get(swap).index = index;
 		}
+		list.remove(last);
 	}
 	
 	
@@ -565,6 +729,61 @@ public class Scene {
 		return snapping;
 	}
 	
+	/** Set if game objects are updated in parallel
+	 *  Note: during a parallel `input()` / `update()` a game object may only
+	 *  change itself. Anything touching another object or the scene (adding,
+	 *  removing, collisions) has to go through `defer()`, which is applied on
+	 *  the calling thread once every object is done. Scenes with fewer than
+	 *  `PARALLEL_CHUNK * 2` game objects still update serially.
+	 * 
+	 * @param parallel if game objects should be updated in parallel
+	 */
+	public void setParallel(boolean parallel){
+		this.parallel = parallel;
+	}
+	
+	/** Get if game objects are updated in parallel
+	 * 
+	 * @return if game objects are updated in parallel
+	 */
+	public boolean isParallel(){
+		return parallel;
+	}
+	
+	/** Set the pool parallel updates run on (the common pool by default)
+	 * 
+	 * @param pool the pool to update on
+	 */
+	public void setPool(ForkJoinPool pool){
+		this.pool = pool;
+	}
+	
+	/** Get the pool parallel updates run on
+	 * 
+	 * @return the pool
+	 */
+	public ForkJoinPool getPool(){
+		return pool;
+	}
+	
+	/** Set if game objects should be drawn with hardware instancing
+	 *  Note: Only objects using the `default` shader are instanced,
+	 *  anything else still goes through the sprite batch
+	 * 
+	 * @param instancing if game objects should be instanced
+	 */
+	public void setInstancing(boolean instancing){
+		this.instancing = instancing;
+	}
+	
+	/** Get if game objects are drawn with hardware instancing
+	 * 
+	 * @return if game objects are drawn with hardware instancing
+	 */
+	public boolean isInstancing(){
+		return instancing;
+	}
+	
 	/** There are 2 main operations of this call.
 	 *  1: To reset the scene for a new level
 	 *  	-destroy shaders = false (load time)
@@ -576,74 +795,125 @@ public class Scene {
 	 * @param destroyShaders if we should destroy the shaders as well
 	 */
 	public void destroy(boolean destroyShaders){
-		//setup the lambda to clear for us
-		/*
-		 * this function is the same as defining 
-		 * void clear(ArrayList<?> list){
-		 * 	list.clear();
-		 * }
-		 * 
-		 * but the purpose for this lambda is to keep it
-		 * inline and within scope.
-		 * There's not really any other use for submap cleaning
-		 * outside of this function
-		 */
-		Consumer<? super ArrayList<?>> clear = (list)->{ 
-				list.clear(); //clear the list passed into it
-		};
-		
-		//clear out the texture arrays
-		gameObjects.values().forEach(clear);
-		levelObjects.values().forEach(clear);
-		
-		//clear out the texture maps
-		gameObjects.clear();
-		levelObjects.clear();
-		
-		//clear out the shader arrays (transforms)
-		shaderGameObjects.values().forEach(clear);
-		shaderLevelObjects.values().forEach(clear);
-		
-		if(destroyShaders){
-			shaderGameObjects.clear();
-			shaderLevelObjects.clear();
+		//clear out the render buckets
+		buckets.forEach((bucket) -> bucket.clear());
+		entries.clear();
+		queue.clear();
+		deferred.clear();
+		
+		//clear out the culling grid
+		grid.clear();
+		dynamic.clear();
+		visible.clear();
+		tiles.clear();
+		
+		if(destroyShaders && !headless){
+			//the buckets are keyed by the shaders, so they go too
+			buckets.clear();
 			
 			//get the collection of shaders
 			Collection<Shader> shaders = Shader.getShaders();
 			
-			//list of shaders to remove
-			ArrayList<Shader> toRemove = new ArrayList<Shader>();
+			//list of shaders destroyed
+			ArrayList<Shader> destroyed = new ArrayList<Shader>();
 
 			//go through each shader
 			for(Shader shader : shaders){
 				//filter out duplicates
-				if(!toRemove.contains(shader)){
+				if(!destroyed.contains(shader)){
 					//destroy the shader itself
 					shader.destroy();
-					//add the shader to be removed
-					toRemove.add(shader);
+					//add the shader to the destroyed list
+					destroyed.add(shader);
 				}
 			}
 			
-			//remove all of the entries affected
-			shaderGameObjects.keySet().removeAll(toRemove);
-			shaderLevelObjects.keySet().removeAll(toRemove);
-			
 			//update the global shader store
 			Shader.updateCheck();
+			
+			//release the batch buffers
+			batch.destroy();
+			instancer.destroy();
 		}
 		
-		//clear out the no-render list
-		transforms.clear();
+		//hand every object its own storage back
+		store.detachAll();
+	}
+	
+	/** Get if the scene runs without GL (simulation only)
+	 * 
+	 * @return if the scene is headless
+	 */
+	public boolean isHeadless(){
+		return headless;
 	}
 	
 	public Camera getCamera(){
 		return camera;
 	}
 	
+	/** Get the solid tiles of the scene's snapped level objects
+	 *  Note: only filled while snapping is on, move game objects with `tiles.move()`
+	 *  or `tiles.step(broadphase, delta)` & leave the level objects out of the broadphase
+	 * 
+	 * @return the tile map
+	 */
+	public TileMap getTiles(){
+		return tiles;
+	}
+	
+	/** Get how far the last frame was between the last & next update
+	 *  Note: sprites are already blended by it, it's for anything game code draws itself
+	 * 
+	 * @return the interpolation alpha (0 - 1)
+	 */
+	public float getAlpha(){
+		return alpha;
+	}
+	
+	/** Get the amount of objects drawn in the last frame
+	 * 
+	 * @return the amount of objects inside the camera's view
+	 */
+	public int getVisibleCount(){
+		return visibleCount;
+	}
+	
+	/** Get the amount of objects culled in the last frame
+	 * 
+	 * @return the amount of objects outside the camera's view
+	 */
+	public int getCulledCount(){
+		return culledCount;
+	}
+	
+	/** Get the packed transform storage of the scene
+	 * 
+	 * @return the transform storage
+	 */
+	public TransformStore getTransformStore(){
+		return store;
+	}
+	
+	/** Get the sprite batch (draw call stats)
+	 * 
+	 * @return the sprite batch
+	 */
+	public SpriteBatch getSpriteBatch(){
+		return batch;
+	}
+	
+	/** Get the sprite instancer (draw call stats)
+	 * 
+	 * @return the sprite instancer
+	 */
+	public SpriteInstancer getSpriteInstancer(){
+		return instancer;
+	}
+	
 	public void outputGameObjects(){
-		for(Shader shader : shaderGameObjects.keySet()){
-			for(GameObject gameObject : shaderGameObjects.get(shader)){
+		for(RenderBucket bucket : buckets){
+			for(GameObject gameObject : bucket.gameObjects){
 				System.out.println(gameObject.renderable.getTexture().getPath());
 			}
 		}
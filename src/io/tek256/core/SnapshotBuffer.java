@@ -0,0 +1,64 @@
+package io.tek256.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * USAGE: simulation: getBack() -> fill it -> publish()
+ * 		  render: acquire() -> draw it
+ *
+ * NOTES: Lock free triple buffer of render snapshots. The simulation owns the
+ * 		  back snapshot, the render thread owns the front snapshot, and the
+ * 		  middle one is swapped between them through a single atomic int
+ * 		  (snapshot index | fresh bit). Neither side ever waits on the other:
+ * 		  the simulation can publish as often as it likes, and the render
+ * 		  thread always gets the newest finished snapshot (or keeps drawing
+ * 		  the last one when nothing new came in).
+ */
+public class SnapshotBuffer {
+	//bit set on the middle index when it holds an unread snapshot
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+	
+	private final RenderSnapshot[] snapshots;
+	
+	//the snapshot being written (simulation thread only)
+	private int back = 0;
+	
+	//the snapshot being drawn (render thread only)
+	private int front = 1;
+	
+	//the snapshot in between
+	private final AtomicInteger middle = new AtomicInteger(2);
+	
+	public SnapshotBuffer(){
+		snapshots = new RenderSnapshot[]{
+			new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()
+		};
+	}
+	
+	/** Get the snapshot to write the next frame into (simulation thread)
+	 *
+	 * @return the back snapshot
+	 */
+	public RenderSnapshot getBack(){
+		return snapshots[back];
+	}
+	
+	/**
+	 * Hand the back snapshot over to the render thread (simulation thread)
+	 */
+	public void publish(){
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+	
+	/** Get the newest published snapshot (render thread)
+	 *
+	 * @return the snapshot to draw
+	 */
+	public RenderSnapshot acquire(){
+		//only swap when there's something new
+		if((middle.get() & FRESH) != 0)
+			front = middle.getAndSet(front) & INDEX;
+		return snapshots[front];
+	}
+}
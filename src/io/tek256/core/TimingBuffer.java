@@ -0,0 +1,125 @@
+package io.tek256.core;
+
+import java.util.Arrays;
+
+/**
+ * USAGE: add(nanos) every frame -> percentile(0.95) / getMax() when reporting
+ *
+ * NOTES: Fixed size ring buffer of timings in nanoseconds. Once it's full the
+ * 		  oldest timing is overwritten, so the stats always cover the last
+ * 		  `capacity` samples. Percentiles sort a scratch copy that's allocated
+ * 		  once, so nothing is allocated after construction. Every method is
+ * 		  synchronized, one thread can add timings while another reports them
+ * 		  (the sort & the writes share the arrays).
+ */
+public class TimingBuffer {
+	//default amount of samples kept
+	public static final int DEFAULT_SIZE = 240;
+	
+	//nanoseconds per millisecond, for reporting
+	private static final double MILLIS = 1000000.0;
+	
+	//the samples & the sort's scratch space
+	private long[] samples, sorted;
+	
+	//next write position & amount of samples written (up to the capacity)
+	private int head = 0, count = 0;
+	
+	//if the sorted copy is out of date
+	private boolean dirty = false;
+	
+	public TimingBuffer(){
+		this(DEFAULT_SIZE);
+	}
+	
+	public TimingBuffer(int capacity){
+		samples = new long[capacity];
+		sorted = new long[capacity];
+	}
+	
+	/** Add a timing, overwriting the oldest one when full
+	 *
+	 * @param nanos the timing in nanoseconds
+	 */
+	public synchronized void add(long nanos){
+		samples[head] = nanos;
+		head = (head + 1) % samples.length;
+		
+		if(count < samples.length)
+			count++;
+		
+		dirty = true;
+	}
+	
+	/** Get a percentile of the timings
+	 *
+	 * @param percentile the percentile to get (0 - 1)
+	 * @return the timing at the percentile in nanoseconds (0 if empty)
+	 */
+	public synchronized long percentile(double percentile){
+		if(count == 0)
+			return 0;
+		
+		//only sort when new timings came in
+		if(dirty){
+			System.arraycopy(samples, 0, sorted, 0, count);
+			Arrays.sort(sorted, 0, count);
+			dirty = false;
+		}
+		
+		//nearest rank
+		int rank = (int)Math.ceil(percentile * count) - 1;
+		rank = (rank < 0) ? 0 : (rank >= count) ? count - 1 : rank;
+		
+		return sorted[rank];
+	}
+	
+	/** Get the longest timing
+	 *
+	 * @return the longest timing in nanoseconds
+	 */
+	public synchronized long getMax(){
+		long max = 0;
+		for(int i=0;i<count;i++)
+			if(samples[i] > max)
+				max = samples[i];
+		return max;
+	}
+	
+	/** Get the most recent timing
+	 *
+	 * @return the most recent timing in nanoseconds
+	 */
+	public synchronized long getLast(){
+		if(count == 0)
+			return 0;
+		return samples[(head - 1 + samples.length) % samples.length];
+	}
+	
+	/** Get the amount of timings kept
+	 *
+	 * @return the amount of timings kept
+	 */
+	public synchronized int getCount(){
+		return count;
+	}
+	
+	/**
+	 * Forget every timing
+	 */
+	public synchronized void clear(){
+		head = 0;
+		count = 0;
+		dirty = false;
+	}
+	
+	/** Get a summary of the timings (p50 / p95 / p99 / max in milliseconds)
+	 *
+	 * @return the summary
+	 */
+	public synchronized String summary(){
+		return String.format("p50:%.2f p95:%.2f p99:%.2f max:%.2f",
+				percentile(0.50) / MILLIS, percentile(0.95) / MILLIS,
+				percentile(0.99) / MILLIS, getMax() / MILLIS);
+	}
+}
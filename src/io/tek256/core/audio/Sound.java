@@ -11,6 +11,7 @@ import org.lwjgl.BufferUtils;
 import org.lwjgl.stb.STBVorbisInfo;
 
 import io.tek256.Util;
+import io.tek256.core.trace.EngineEvents.SoundDecodeEvent;
 
 import static org.lwjgl.openal.AL10.*;
 import static org.lwjgl.stb.STBVorbis.*;
@@ -27,6 +28,8 @@ public class Sound {
 	}
 	
 	private void load(){
+		SoundDecodeEvent event = SoundDecodeEvent.open();
+		
 		//create an openal buffer for the sound
 		id = alGenBuffers();
 		
@@ -71,6 +74,10 @@ public class Sound {
 		}catch(IOException e){
 			e.printStackTrace();
 		}
+		
+		event.path = path;
+		event.samples = length;
+		event.finish();
 	}
 	
 	/** Get the rate the sound plays sample per second
@@ -1,278 +1,203 @@
 package io.tek256.core.collision;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import io.tek256.core.runtime.Transform;
 
-public class Broadphase {
-	public static final int CELL_WIDTH  = 64;
-	public static final int CELL_HEIGHT = 64;
-	
-	public Cell[] cells;
-	
-	private float width,height;
-	
-	//amount of cells per axis
-	private int perWidth,perHeight;
-	
-	private ArrayList<AABB> boxes;
-	
-	public Broadphase(float width, float height){
-		this.width  = width;
-		this.height = height;
-		
-		perWidth    = Math.round(width) / CELL_WIDTH;
-		perHeight   = Math.round(height) / CELL_HEIGHT;
-		
-		boxes = new ArrayList<AABB>();
-		
-		cells = new Cell[perWidth * perHeight];
-		for(int i=0; i<cells.length; i++){
-			cells[i] = new Cell(i % perWidth, i / perWidth);
-		}
-	}
-	
-	public void add(Transform transform){
-		for(AABB box : boxes)
-			if(box.transform == transform)
-				return;
-		
-		AABB box = new AABB(transform);
-		
-		boxes.add(box);
-		
-		int left  = Math.round(box.getLeft())  / CELL_WIDTH;
-		int right = Math.round(box.getRight()) / CELL_HEIGHT;
-		
-		int bottom = Math.round(box.getBottom()) / CELL_HEIGHT;
-		int top    = Math.round(box.getTop())    / CELL_HEIGHT;
-		
-		System.out.println(left +","+bottom+" : "+right+","+top);
-		
-		for(int x = left; x < right; x++){
-			for(int y = bottom; y < top; y++){
-				cells[x + perWidth * y].add(box);
-			}
-		}
-	}
-	
-	public void update(long delta){
-		ArrayList<AABB> changes = new ArrayList<>();
-		
-		for(AABB box : boxes){
-			if(box.transform.getVelocityX() != 0 ||
-					box.transform.getVelocityY() != 0){
-				box.transform.updatePosition(delta);
-				clamp(box);
-				changes.add(box);
-			}
-		}
-		
-		changes.forEach((box)->{
-			updateBox(box);
-		});
-		
-		for(Cell cell : cells){
-			cell.update();
-		}
+/**
+ * USAGE: add(transform) -> update(delta) every step -> pairs / query() / raycast()
+ *
+ * NOTES: Common interface of the broadphases, pick the one that fits the level:
+ * 		  `GridBroadphase` for many similar sized objects in a bounded world,
+ * 		  `TreeBroadphase` when sizes vary wildly (huge platforms next to tiny
+ * 		  bullets), `SweepBroadphase` when most things barely move between
+ * 		  steps. Boxes are packed, so indices move when boxes are removed.
+ * 		  Pairs & queries see the boxes as of the last step, and every
+ * 		  overlapping pair is reported exactly once per step with the lower
+ * 		  indexed box as `A`, as long as the boxes care about each other
+ * 		  (`Transform.collidesWith()`: each one's category is in the other's
+ * 		  mask). Queries ignore categories & masks.
+ */
+public interface Broadphase {
+	/** Add a box to the broadphase
+	 * 
+	 * @param transform the transform the box follows
+	 */
+	public void add(Transform transform);
+	
+	/** Remove a box from the broadphase
+	 *  Note: pairs of the last step are invalid after a removal
+	 * 
+	 * @param transform the transform to remove
+	 */
+	public void remove(Transform transform);
+	
+	/** Move every box by its velocity & find the overlapping pairs
+	 * 
+	 * @param delta time since the last step
+	 */
+	public void update(long delta);
+	
+	/**
+	 * Find the overlapping pairs without moving anything (after moving boxes by hand)
+	 */
+	public void findPairs();
+	
+	/** Get the amount of overlapping pairs found in the last step
+	 * 
+	 * @return the amount of pairs
+	 */
+	public int getPairCount();
+	
+	/** Get the first box of a pair (the lower indexed one)
+	 * 
+	 * @param pair the pair
+	 * @return the first box's transform
+	 */
+	public Transform getPairA(int pair);
+	
+	/** Get the second box of a pair
+	 * 
+	 * @param pair the pair
+	 * @return the second box's transform
+	 */
+	public Transform getPairB(int pair);
+	
+	/** Get the index of the first box of a pair
+	 * 
+	 * @param pair the pair
+	 * @return the first box's index
+	 */
+	public int getPairIndexA(int pair);
+	
+	/** Get the index of the second box of a pair
+	 * 
+	 * @param pair the pair
+	 * @return the second box's index
+	 */
+	public int getPairIndexB(int pair);
+	
+	/** Find every box overlapping a rectangle
+	 * 
+	 * @param left the left of the rectangle
+	 * @param bottom the bottom of the rectangle
+	 * @param right the right of the rectangle
+	 * @param top the top of the rectangle
+	 * @param results the list the boxes are added to
+	 * @return the amount of boxes found
+	 */
+	public int query(float left, float bottom, float right, float top, List<Transform> results);
+	
+	/** Find the first box along a ray
+	 * 
+	 * @param x the x of the ray's origin
+	 * @param y the y of the ray's origin
+	 * @param dirX the x of the ray's direction
+	 * @param dirY the y of the ray's direction
+	 * @param distance how far the ray goes
+	 * @param hit filled with the nearest hit (if any)
+	 * @return if anything was hit
+	 */
+	public default boolean raycast(float x, float y, float dirX, float dirY, float distance, RayHit hit){
+		return cast(x, y, 0, 0, dirX, dirY, distance, Transform.ALL_CATEGORIES, hit, null);
 	}
 	
-	public void updateBox(AABB box){
-		int left  = Math.round(box.getLeft())  / CELL_WIDTH;
-		int right = Math.round(box.getRight()) / CELL_HEIGHT;
-		
-		int bottom = Math.round(box.getBottom()) / CELL_HEIGHT;
-		int top    = Math.round(box.getTop())    / CELL_HEIGHT;
-		
-		for(int x = left; x < right; x++){
-			for(int y = bottom; y < top; y++){
-				cells[x + perWidth * y].add(box);
-			}
-		}
+	/** Find the first box of some categories along a ray
+	 * 
+	 * @param x the x of the ray's origin
+	 * @param y the y of the ray's origin
+	 * @param dirX the x of the ray's direction
+	 * @param dirY the y of the ray's direction
+	 * @param distance how far the ray goes
+	 * @param layers the categories that can be hit (see `Transform.setCategory()`)
+	 * @param hit filled with the nearest hit (if any)
+	 * @return if anything was hit
+	 */
+	public default boolean raycast(float x, float y, float dirX, float dirY, float distance, int layers, RayHit hit){
+		return cast(x, y, 0, 0, dirX, dirY, distance, layers, hit, null);
 	}
 	
-	public void clamp(AABB box){
-		float offsetx = 0;
-		float offsety = 0;
-		
-		if(box.getLeft() < 0){
-			offsetx = -box.getLeft();
-		}else if(box.getRight() >= getWidth()){
-			offsetx = getWidth() - box.getRight();
-		}
-		
-		if(box.getBottom() < 0){
-			offsety = -box.getBottom();
-		}else if(box.getTop() >= getHeight()){
-			offsety = getHeight() - box.getTop();
-		}
-		
-		if(offsetx != 0 || offsety != 0){
-			box.transform.move(offsetx, offsety);
-		}
+	/** Find every box of some categories along a ray
+	 * 
+	 * @param x the x of the ray's origin
+	 * @param y the y of the ray's origin
+	 * @param dirX the x of the ray's direction
+	 * @param dirY the y of the ray's direction
+	 * @param distance how far the ray goes
+	 * @param layers the categories that can be hit (see `Transform.setCategory()`)
+	 * @param hits cleared & filled with every hit, nearest first
+	 * @return the amount of hits
+	 */
+	public default int raycast(float x, float y, float dirX, float dirY, float distance, int layers, RayHits hits){
+		cast(x, y, 0, 0, dirX, dirY, distance, layers, null, hits);
+		return hits.size();
 	}
 	
-	public float getWidth(){
-		return width;
+	/** Find the first box of some categories a moving box runs into
+	 * 
+	 * @param x the x of the moving box's middle
+	 * @param y the y of the moving box's middle
+	 * @param halfW half the width of the moving box
+	 * @param halfH half the height of the moving box
+	 * @param dirX the x of the direction it moves
+	 * @param dirY the y of the direction it moves
+	 * @param distance how far it moves
+	 * @param layers the categories that can be hit (see `Transform.setCategory()`)
+	 * @param hit filled with the nearest hit (if any), the hit point is the moving box's middle
+	 * @return if anything was hit
+	 */
+	public default boolean boxCast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHit hit){
+		return cast(x, y, halfW, halfH, dirX, dirY, distance, layers, hit, null);
 	}
 	
-	public float getHeight(){
-		return height;
+	/** Find every box of some categories a moving box runs into
+	 * 
+	 * @param x the x of the moving box's middle
+	 * @param y the y of the moving box's middle
+	 * @param halfW half the width of the moving box
+	 * @param halfH half the height of the moving box
+	 * @param dirX the x of the direction it moves
+	 * @param dirY the y of the direction it moves
+	 * @param distance how far it moves
+	 * @param layers the categories that can be hit (see `Transform.setCategory()`)
+	 * @param hits cleared & filled with every hit, nearest first
+	 * @return the amount of hits
+	 */
+	public default int boxCast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHits hits){
+		cast(x, y, halfW, halfH, dirX, dirY, distance, layers, null, hits);
+		return hits.size();
 	}
 	
-	public int getPerWidth(){
-		return perWidth;
-	}
-	
-	public int getPerHeight(){
-		return perHeight;
-	}
-	
-	public void outputCells(){
-		StringBuilder map = new StringBuilder();
-		for(int y=0;y<perHeight;y++){
-			StringBuilder row = new StringBuilder();
-			for(int x=0;x<perWidth;x++){
-				row.append(cells[x + (perWidth * y)].contents.size());
-			}
-			row.append("\n");
-			map.append(row);
-		}
-		System.out.println(map);
-	}
-	
-	public static class Cell {
-		public ArrayList<AABB> contents;
-		
-		private float x,y,left,right,bottom,top;
-		
-		public Cell(int x, int y){
-			this.x = x * Broadphase.CELL_WIDTH;
-			this.y = y * Broadphase.CELL_HEIGHT;
-			
-			left   = x - (Broadphase.CELL_WIDTH  / 2f);
-			right  = x + (Broadphase.CELL_WIDTH  / 2f);
-			
-			bottom = y - (Broadphase.CELL_HEIGHT / 2f);
-			top    = y + (Broadphase.CELL_HEIGHT / 2f);
-			
-			contents = new ArrayList<>();
-		}
-		
-		public void update(){
-			clean();
-			
-			contents.forEach((a)->{
-				contents.forEach((b)->{
-					if(a != b){
-						System.out.println("test");
-						if(intersects(a, b)){
-							solve(a, b);
-						}
-					}
-				});
-			});
-		}
-		
-		public void add(AABB aabb){
-			if(!contents.contains(aabb)){
-				contents.add(aabb);
-			}
-		}
-		
-		public void clean(){
-			ArrayList<AABB> toRemove = new ArrayList<>();
-			
-			for(AABB aabb : contents){
-				if(!withinBounds(aabb))
-					toRemove.add(aabb);
-			}
-			
-			contents.removeAll(toRemove);
-		}
-		
-		public boolean intersects(AABB a, AABB b){
-			if(Math.abs(a.getX() - b.getX()) > ((a.getWidth() / 2f) + (b.getWidth() / 2f)))
-				return false;
-			if(Math.abs(a.getY() - b.getY()) > ((a.getHeight() / 2f) + (b.getHeight() / 2f)))
-				return false;
-			return true;
-		}
-		
-		public void solve(AABB a, AABB b){
-			System.out.println("SOLVING");
-		}
-		
-		public boolean withinBounds(AABB box){
-			if(Math.abs(x - box.getX()) > ((Broadphase.CELL_WIDTH / 2f) + (box.getWidth() / 2f)))
-				return false;
-			if(Math.abs(y - box.getY()) > ((Broadphase.CELL_HEIGHT / 2f) + (box.getHeight() / 2f)))
-				return false;
-			return true;
-		}
-		
-		public float getX(){
-			return x;
-		}
-		
-		public float getY(){
-			return y;
-		}
-		
-		public float getLeft(){
-			return left;
-		}
-		
-		public float getRight(){
-			return right;
-		}
-		
-		public float getBottom(){
-			return bottom;
-		}
-		
-		public float getTop(){
-			return top;
-		}
-	}
-	
-	public static class AABB{
-		public Transform transform;
-		
-		public AABB(Transform transform){
-			this.transform = transform;
-		}
-		
-		public float getX(){
-			return transform.getX();
-		}
-		
-		public float getY(){
-			return transform.getY();
-		}
-		
-		public float getLeft(){
-			return transform.getLeft();
-		}
-		
-		public float getRight(){
-			return transform.getRight();
-		}
-		
-		public float getBottom(){
-			return transform.getBottom();
-		}
-		
-		public float getTop(){
-			return transform.getTop();
-		}
-		
-		public float getWidth(){
-			return transform.getWidth();
-		}
-		
-		public float getHeight(){
-			return transform.getHeight();
-		}
-	}
+	/** Cast a box (or a ray, with no size) through the broadphase
+	 *  Note: `raycast()` & `boxCast()` are the friendlier way in
+	 * 
+	 * @param x the x of the cast's origin
+	 * @param y the y of the cast's origin
+	 * @param halfW half the width of the cast box (0 for a ray)
+	 * @param halfH half the height of the cast box (0 for a ray)
+	 * @param dirX the x of the cast's direction
+	 * @param dirY the y of the cast's direction
+	 * @param distance how far the cast goes
+	 * @param layers the categories that can be hit
+	 * @param hit filled with the nearest hit (or null)
+	 * @param hits cleared & filled with every hit nearest first (or null to stop at the first)
+	 * @return if anything was hit
+	 */
+	public boolean cast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHit hit, RayHits hits);
+	
+	/** Get the amount of boxes
+	 * 
+	 * @return the amount of boxes
+	 */
+	public int getCount();
+	
+	/** Get a box's transform
+	 * 
+	 * @param index the box
+	 * @return the box's transform
+	 */
+	public Transform get(int index);
 }
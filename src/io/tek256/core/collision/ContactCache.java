@@ -0,0 +1,219 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: owned by `Narrowphase`: begin() -> touch(a, b) per contact -> warm() / store() -> dispatch()
+ *
+ * NOTES: Remembers the touching pairs from one step to the next, so contacts
+ * 		  get enter, stay & exit events and the solver can start from last
+ * 		  step's impulse. Pairs are keyed by both transforms' instance ids
+ * 		  packed into a long (lower id first), so the key doesn't care about
+ * 		  broadphase indices or which side is `A`. Entries are packed arrays
+ * 		  found through a `LongIntMap` of key to entry index (shared with the
+ * 		  sweep broadphase's pairs), so nothing is allocated per step. An entry that isn't touched in a step fires its exit & is
+ * 		  dropped in `dispatch()`.
+ */
+public class ContactCache {
+	//how closely a contact's normal has to match last step's to reuse its impulse (cosine of the angle)
+	public static final float MATCH = 0.99f;
+	
+	//packed instance ids of each entry's transforms
+	private long[] keys;
+	
+	//the transforms of each entry, as `A` & `B` of its last contact
+	private Transform[] first, second;
+	
+	//normal (from `first` to `second`) & accumulated impulse of each entry's last contact
+	private float[] normalX, normalY, impulse;
+	
+	//the step each entry was last touched & first touched in
+	private int[] stamps, since;
+	private int count = 0;
+	
+	//entry index of each key
+	private LongIntMap indices;
+	
+	//the current step
+	private int stamp = 0;
+	
+	public ContactCache(){
+		int capacity = 64;
+		keys = new long[capacity];
+		first = new Transform[capacity];
+		second = new Transform[capacity];
+		normalX = new float[capacity];
+		normalY = new float[capacity];
+		impulse = new float[capacity];
+		stamps = new int[capacity];
+		since = new int[capacity];
+		
+		indices = new LongIntMap(capacity);
+	}
+	
+	/**
+	 * Start a step, every entry counts as untouched until `touch()`ed
+	 */
+	void begin(){
+		stamp++;
+	}
+	
+	/** Find the entry of a touching pair (adding it when they just started touching)
+	 *
+	 * @param a the first transform
+	 * @param b the second transform
+	 * @return the entry
+	 */
+	int touch(Transform a, Transform b){
+		long key = key(a, b);
+		
+		//a new entry goes on the end
+		int entry = indices.putIfAbsent(key, count);
+		if(entry == LongIntMap.NONE){
+			if(count == keys.length)
+				grow(count * 2);
+			
+			entry = count++;
+			keys[entry] = key;
+			normalX[entry] = 0;
+			normalY[entry] = 0;
+			impulse[entry] = 0;
+			since[entry] = stamp;
+		}else if(first[entry] != a){
+			//the other way round this step, keep the normal pointing from `a` to `b`
+			normalX[entry] = -normalX[entry];
+			normalY[entry] = -normalY[entry];
+		}
+		
+		first[entry] = a;
+		second[entry] = b;
+		stamps[entry] = stamp;
+		return entry;
+	}
+	
+	/** Get the impulse to start an entry's contact from, if its normal still matches last step's
+	 *
+	 * @param entry the entry (touched this step)
+	 * @param normalX the x of the contact's normal (from the entry's `A` to `B`)
+	 * @param normalY the y of the contact's normal
+	 * @return last step's impulse, or 0 for a new or changed contact
+	 */
+	float warm(int entry, float normalX, float normalY){
+		return (this.normalX[entry] * normalX + this.normalY[entry] * normalY >= MATCH) ? impulse[entry] : 0f;
+	}
+	
+	/** Keep the result of an entry's contact for the next step
+	 *
+	 * @param entry the entry (touched this step)
+	 * @param normalX the x of the contact's normal (from the entry's `A` to `B`)
+	 * @param normalY the y of the contact's normal
+	 * @param impulse the accumulated impulse of the contact
+	 */
+	void store(int entry, float normalX, float normalY, float impulse){
+		this.normalX[entry] = normalX;
+		this.normalY[entry] = normalY;
+		this.impulse[entry] = impulse;
+	}
+	
+	/**
+	 * Fire the enter & stay events of the touched entries, then the exit events of the rest (dropping them)
+	 */
+	void dispatch(){
+		//backwards, so the entry swapped into a dropped one's place was already handled
+		for(int i=count - 1;i>=0;i--){
+			Transform a = first[i], b = second[i];
+			
+			if(stamps[i] != stamp){
+				remove(i);
+				a.onCollisionExit(b);
+				b.onCollisionExit(a);
+			}else if(since[i] == stamp){
+				a.onCollisionEnter(b);
+				b.onCollisionEnter(a);
+			}else{
+				a.onCollisionStay(b);
+				b.onCollisionStay(a);
+			}
+		}
+	}
+	
+	/**
+	 * Forget every entry without firing their exits (when the level goes away)
+	 */
+	public void clear(){
+		Arrays.fill(first, 0, count, null);
+		Arrays.fill(second, 0, count, null);
+		indices.clear();
+		count = 0;
+	}
+	
+	/** Get the amount of touching pairs being remembered
+	 *
+	 * @return the amount of entries
+	 */
+	public int getCount(){
+		return count;
+	}
+	
+	/** Get if 2 transforms were touching in the last step
+	 *
+	 * @param a a transform
+	 * @param b the other transform
+	 * @return if they were touching
+	 */
+	public boolean isTouching(Transform a, Transform b){
+		int entry = indices.get(key(a, b));
+		return entry != LongIntMap.NONE && stamps[entry] == stamp;
+	}
+	
+	/** Remove an entry, the last entry is moved into its place
+	 *
+	 * @param entry the entry
+	 */
+	private void remove(int entry){
+		indices.remove(keys[entry]);
+		
+		int last = --count;
+		if(entry != last){
+			keys[entry] = keys[last];
+			first[entry] = first[last];
+			second[entry] = second[last];
+			normalX[entry] = normalX[last];
+			normalY[entry] = normalY[last];
+			impulse[entry] = impulse[last];
+			stamps[entry] = stamps[last];
+			since[entry] = since[last];
+			indices.put(keys[entry], entry);
+		}
+		first[last] = null;
+		second[last] = null;
+	}
+	
+	/** Get the key of a pair of transforms, the same whichever way round they're given
+	 *
+	 * @param a a transform
+	 * @param b the other transform
+	 * @return the packed instance ids
+	 */
+	private long key(Transform a, Transform b){
+		int idA = a.getInstanceId(), idB = b.getInstanceId();
+		return (idA < idB) ? ((long)idA << 32) | (idB & 0xFFFFFFFFL) : ((long)idB << 32) | (idA & 0xFFFFFFFFL);
+	}
+	
+	/** Grow the entry arrays
+	 *
+	 * @param capacity the new amount of entries
+	 */
+	private void grow(int capacity){
+		keys = Arrays.copyOf(keys, capacity);
+		first = Arrays.copyOf(first, capacity);
+		second = Arrays.copyOf(second, capacity);
+		normalX = Arrays.copyOf(normalX, capacity);
+		normalY = Arrays.copyOf(normalY, capacity);
+		impulse = Arrays.copyOf(impulse, capacity);
+		stamps = Arrays.copyOf(stamps, capacity);
+		since = Arrays.copyOf(since, capacity);
+	}
+}
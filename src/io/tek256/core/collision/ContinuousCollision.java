@@ -0,0 +1,267 @@
+package io.tek256.core.collision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: ccd.step(broadphase, delta) (instead of broadphase.update(delta)) -> narrowphase.solve(broadphase)
+ *
+ * NOTES: Moves the boxes of a broadphase without letting fast ones tunnel
+ * 		  through thin things. Boxes that move less than their own size in a
+ * 		  step can't skip over anything, so they just move. Faster boxes are
+ * 		  swept instead: the broadphase is queried with the bounds covering
+ * 		  the whole move, & the earliest time of impact against the boxes it
+ * 		  collides with (moving along their own velocity) stops the move
+ * 		  there. Hitting something that can't be pushed (`getInverseMass()`
+ * 		  of 0) slides along it for the rest of the step, up to `MAX_SWEEPS`
+ * 		  times, while hitting something that can be pushed stops the move
+ * 		  just inside it & leaves the bounce to the narrowphase. Every sweep
+ * 		  sees the boxes as they were at the start of the step, and only the
+ * 		  fast boxes pay for it, so the step itself never has to shrink.
+ */
+public class ContinuousCollision {
+	//most sweeps (a move & slides) a box gets per step
+	public static final int MAX_SWEEPS = 4;
+	
+	//gap left between a swept box & what it hit, so the next sweep doesn't start inside it
+	public static final float SKIN = 0.01f;
+	
+	//candidates of the current sweep
+	private ArrayList<Transform> candidates;
+	
+	//fast boxes of the step & where their sweeps ended
+	private int[] fast;
+	private float[] endX, endY, endVelX, endVelY;
+	private int fastCount = 0;
+	
+	//scratch result of `sweep()`
+	private float hitTime, hitX, hitY;
+	
+	//amount of fast boxes swept & sweeps that hit something in the last step
+	private int swept = 0, hits = 0;
+	
+	public ContinuousCollision(){
+		candidates = new ArrayList<>();
+		
+		int capacity = 64;
+		fast = new int[capacity];
+		endX = new float[capacity];
+		endY = new float[capacity];
+		endVelX = new float[capacity];
+		endVelY = new float[capacity];
+	}
+	
+	/** Move every box of a broadphase by its velocity, sweeping the fast ones, & find the pairs
+	 *
+	 * @param broadphase the broadphase
+	 * @param delta time since the last step
+	 */
+	public void step(Broadphase broadphase, long delta){
+		fastCount = 0;
+		hits = 0;
+		
+		//sweep the fast boxes while everything is still where it started
+		int count = broadphase.getCount();
+		for(int i=0;i<count;i++){
+			Transform transform = broadphase.get(i);
+			float dx = transform.getVelocityX() * delta, dy = transform.getVelocityY() * delta;
+			if(Math.abs(dx) <= transform.getWidth() && Math.abs(dy) <= transform.getHeight())
+				continue;
+			
+			if(fastCount == fast.length)
+				grow(fastCount * 2);
+			
+			fast[fastCount] = i;
+			sweep(broadphase, transform, delta, fastCount);
+			fastCount++;
+		}
+		swept = fastCount;
+		
+		//move everything, then pull the fast boxes back to where their sweeps ended
+		for(int i=0;i<count;i++){
+			Transform transform = broadphase.get(i);
+			if(transform.getVelocityX() != 0 || transform.getVelocityY() != 0)
+				transform.updatePosition(delta);
+		}
+		
+		for(int i=0;i<fastCount;i++){
+			Transform transform = broadphase.get(fast[i]);
+			transform.translate(endX[i] - transform.getX(), endY[i] - transform.getY());
+			transform.setVelocity(endVelX[i], endVelY[i]);
+		}
+		
+		broadphase.findPairs();
+	}
+	
+	/** Get the amount of boxes that were swept in the last step
+	 *
+	 * @return the amount of fast boxes
+	 */
+	public int getSweptCount(){
+		return swept;
+	}
+	
+	/** Get the amount of sweeps that hit something in the last step
+	 *
+	 * @return the amount of hits
+	 */
+	public int getHitCount(){
+		return hits;
+	}
+	
+	/** Sweep a fast box through its step, keeping where it ends up
+	 *
+	 * @param broadphase the broadphase
+	 * @param transform the box
+	 * @param delta time of the step
+	 * @param slot where to keep the result
+	 */
+	private void sweep(Broadphase broadphase, Transform transform, long delta, int slot){
+		float x = transform.getX(), y = transform.getY();
+		float halfW = transform.getWidth() / 2f, halfH = transform.getHeight() / 2f;
+		float velX = transform.getVelocityX(), velY = transform.getVelocityY();
+		
+		//how much of the step has been used
+		float elapsed = 0;
+		
+		for(int s=0;s<MAX_SWEEPS && elapsed < 1f;s++){
+			float remaining = 1f - elapsed;
+			float dx = velX * delta * remaining, dy = velY * delta * remaining;
+			if(dx == 0 && dy == 0)
+				break;
+			
+			//everything the move could touch (as of the start of the step)
+			candidates.clear();
+			broadphase.query(Math.min(x, x + dx) - halfW, Math.min(y, y + dy) - halfH,
+					Math.max(x, x + dx) + halfW, Math.max(y, y + dy) + halfH, candidates);
+			
+			Transform first = null;
+			float time = 1f, normalX = 0, normalY = 0;
+			for(int c=0;c<candidates.size();c++){
+				Transform other = candidates.get(c);
+				if(other == transform || !transform.collidesWith(other))
+					continue;
+				
+				//where the other box is after the part of the step already used
+				float otherDX = other.getVelocityX() * delta, otherDY = other.getVelocityY() * delta;
+				float ox = other.getX() + otherDX * elapsed, oy = other.getY() + otherDY * elapsed;
+				float reachW = other.getWidth() / 2f + halfW, reachH = other.getHeight() / 2f + halfH;
+				
+				//move relative to the other box
+				if(!sweep(x, y, dx - otherDX * remaining, dy - otherDY * remaining,
+						ox - reachW, oy - reachH, ox + reachW, oy + reachH))
+					continue;
+				
+				if(hitTime < time || first == null){
+					first = other;
+					time = hitTime;
+					normalX = hitX;
+					normalY = hitY;
+				}
+			}
+			
+			if(first == null){
+				x += dx;
+				y += dy;
+				break;
+			}
+			hits++;
+			
+			x += dx * time;
+			y += dy * time;
+			elapsed += remaining * time;
+			
+			//something that can be pushed takes it from here, so stop just inside it
+			//for the narrowphase to see the contact
+			if(first.getInverseMass() != 0){
+				x -= normalX * SKIN;
+				y -= normalY * SKIN;
+				break;
+			}
+			
+			//stop just short of what can't be pushed
+			x += normalX * SKIN;
+			y += normalY * SKIN;
+			
+			//slide along what can't be pushed
+			float into = velX * normalX + velY * normalY;
+			if(into < 0){
+				velX -= into * normalX;
+				velY -= into * normalY;
+			}
+		}
+		
+		endX[slot] = x;
+		endY[slot] = y;
+		endVelX[slot] = velX;
+		endVelY[slot] = velY;
+	}
+	
+	/** Sweep a point against a box (the other box grown by the moving one), written into the `hit` fields
+	 *
+	 * @param x the x of the point
+	 * @param y the y of the point
+	 * @param dx how far the point moves on x
+	 * @param dy how far the point moves on y
+	 * @param minX the left of the box
+	 * @param minY the bottom of the box
+	 * @param maxX the right of the box
+	 * @param maxY the top of the box
+	 * @return if the point enters the box during the move (starting inside doesn't count)
+	 */
+	private boolean sweep(float x, float y, float dx, float dy, float minX, float minY, float maxX, float maxY){
+		float nearX, farX, nearY, farY;
+		
+		if(dx == 0){
+			if(x < minX || x > maxX)
+				return false;
+			nearX = Float.NEGATIVE_INFINITY;
+			farX = Float.POSITIVE_INFINITY;
+		}else{
+			float t1 = (minX - x) / dx, t2 = (maxX - x) / dx;
+			nearX = Math.min(t1, t2);
+			farX = Math.max(t1, t2);
+		}
+		
+		if(dy == 0){
+			if(y < minY || y > maxY)
+				return false;
+			nearY = Float.NEGATIVE_INFINITY;
+			farY = Float.POSITIVE_INFINITY;
+		}else{
+			float t1 = (minY - y) / dy, t2 = (maxY - y) / dy;
+			nearY = Math.min(t1, t2);
+			farY = Math.max(t1, t2);
+		}
+		
+		float near = Math.max(nearX, nearY), far = Math.min(farX, farY);
+		
+		//already inside (the narrowphase's job), missed, or too far
+		if(near < 0 || near > far || near > 1f)
+			return false;
+		
+		hitTime = near;
+		if(nearX > nearY){
+			hitX = (dx > 0) ? -1f : 1f;
+			hitY = 0;
+		}else{
+			hitX = 0;
+			hitY = (dy > 0) ? -1f : 1f;
+		}
+		return true;
+	}
+	
+	/** Grow the fast box arrays
+	 *
+	 * @param capacity the new amount of fast boxes
+	 */
+	private void grow(int capacity){
+		fast = Arrays.copyOf(fast, capacity);
+		endX = Arrays.copyOf(endX, capacity);
+		endY = Arrays.copyOf(endY, capacity);
+		endVelX = Arrays.copyOf(endVelX, capacity);
+		endVelY = Arrays.copyOf(endVelY, capacity);
+	}
+}
@@ -0,0 +1,636 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import io.tek256.core.runtime.Transform;
+import io.tek256.core.trace.EngineEvents.BroadphaseEvent;
+
+/**
+ * USAGE: add(transform) -> update(delta) every step -> getPairCount() / getPairA(i) / getPairB(i)
+ *
+ * NOTES: Uniform grid broadphase. Every step the boxes are moved by their
+ * 		  velocity, then the grid is rebuilt from scratch with a counting
+ * 		  sort: count the boxes per cell, prefix sum the counts into cell
+ * 		  offsets, then drop each box's index into its cells. Cell membership
+ * 		  is only ever primitive int arrays, so a step allocates nothing once
+ * 		  the arrays have grown to fit. A pair of boxes sharing several cells
+ * 		  is only tested in the cell holding the lowest corner of both cell
+ * 		  ranges, so every overlapping pair is reported exactly once, with
+ * 		  the lower indexed box as `A`. Boxes only pair up when each one's
+ * 		  category is in the other's mask, & cells whose categories & masks
+ * 		  don't meet at all are skipped outright. Casts walk the cells along
+ * 		  the cast (DDA) & only test the boxes in the cells the cast box
+ * 		  covers, each box once. Adding or removing boxes between steps marks
+ * 		  the cells stale, and they're refilled from the kept bounds before
+ * 		  the next query or cast, so those never see moved indices.
+ */
+public class GridBroadphase implements Broadphase {
+	public static final int CELL_WIDTH  = 64;
+	public static final int CELL_HEIGHT = 64;
+	
+	private float width,height;
+	
+	//amount of cells per axis
+	private int perWidth,perHeight;
+	
+	//the boxes, packed
+	private Transform[] transforms;
+	private int count = 0;
+	
+	//the index of each transform, for constant time duplicate checks & removal
+	private IdentityHashMap<Transform, Integer> lookup;
+	
+	//bounds of each box as of the last step
+	private float[] minX, minY, maxX, maxY;
+	
+	//cell range of each box as of the last step
+	private int[] cellMinX, cellMinY, cellMaxX, cellMaxY;
+	
+	//offset of each cell's boxes in `cellItems` (one extra for the end)
+	private int[] cellStart;
+	
+	//write position of each cell while filling
+	private int[] cellCursor;
+	
+	//box indices, grouped by cell
+	private int[] cellItems;
+	
+	//if boxes were added or removed since the cells were last filled
+	private boolean stale = false;
+	
+	//collision category & mask of each box as of the last step
+	private int[] categories, masks;
+	
+	//every category & every mask of the boxes in each cell
+	private int[] cellCategories, cellMasks;
+	
+	//the grid's bounds grown to cover boxes sticking out of it (they live in the edge cells)
+	private float extentMinX, extentMinY, extentMaxX, extentMaxY;
+	
+	//the last cast each box was tested in
+	private int[] castStamps;
+	private int castStamp = 0;
+	
+	//overlapping pairs of the last step, 2 box indices per pair
+	private int[] pairs;
+	private int pairCount = 0;
+	
+	public GridBroadphase(float width, float height){
+		this.width  = width;
+		this.height = height;
+		
+		perWidth    = Math.max(1, (int)Math.ceil(width  / CELL_WIDTH));
+		perHeight   = Math.max(1, (int)Math.ceil(height / CELL_HEIGHT));
+		
+		lookup = new IdentityHashMap<>();
+		
+		int capacity = 64;
+		transforms = new Transform[capacity];
+		minX = new float[capacity];
+		minY = new float[capacity];
+		maxX = new float[capacity];
+		maxY = new float[capacity];
+		cellMinX = new int[capacity];
+		cellMinY = new int[capacity];
+		cellMaxX = new int[capacity];
+		cellMaxY = new int[capacity];
+		categories = new int[capacity];
+		masks = new int[capacity];
+		castStamps = new int[capacity];
+		
+		int cells = perWidth * perHeight;
+		cellStart = new int[cells + 1];
+		cellCursor = new int[cells];
+		cellCategories = new int[cells];
+		cellMasks = new int[cells];
+		cellItems = new int[capacity * 4];
+		
+		pairs = new int[capacity * 2];
+	}
+	
+	/** Add a box to the broadphase, queries & casts see it right away (where it is now)
+	 *
+	 * @param transform the transform the box follows
+	 */
+	@Override
+	public void add(Transform transform){
+		//already tracked
+		if(lookup.containsKey(transform))
+			return;
+		
+		if(count == transforms.length)
+			grow(count * 2);
+		
+		lookup.put(transform, count);
+		transforms[count] = transform;
+		snapshot(count++);
+		stale = true;
+	}
+	
+	/** Remove a box from the broadphase, the last box is moved into its place
+	 *  Note: pairs of the last step are invalid after a removal
+	 *
+	 * @param transform the transform to remove
+	 */
+	@Override
+	public void remove(Transform transform){
+		Integer index = lookup.remove(transform);
+		if(index == null)
+			return;
+		
+		int last = --count;
+		if(index != last){
+			transforms[index] = transforms[last];
+			minX[index] = minX[last];
+			minY[index] = minY[last];
+			maxX[index] = maxX[last];
+			maxY[index] = maxY[last];
+			cellMinX[index] = cellMinX[last];
+			cellMinY[index] = cellMinY[last];
+			cellMaxX[index] = cellMaxX[last];
+			cellMaxY[index] = cellMaxY[last];
+			categories[index] = categories[last];
+			masks[index] = masks[last];
+			castStamps[index] = castStamps[last];
+			lookup.put(transforms[index], index);
+		}
+		transforms[last] = null;
+		pairCount = 0;
+		
+		//the cells still hold the old indices, refilled before the next query or cast
+		stale = true;
+	}
+	
+	/** Move every box by its velocity & find the overlapping pairs
+	 *
+	 * @param delta time since the last step
+	 */
+	@Override
+	public void update(long delta){
+		BroadphaseEvent event = BroadphaseEvent.open();
+		
+		move(delta);
+		findPairs();
+		
+		event.boxes = count;
+		event.pairs = pairCount;
+		event.finish();
+	}
+	
+	/** Move every box by its velocity, keeping it inside the bounds
+	 *
+	 * @param delta time since the last step
+	 */
+	public void move(long delta){
+		for(int i=0;i<count;i++){
+			Transform transform = transforms[i];
+			if(transform.getVelocityX() != 0 || transform.getVelocityY() != 0){
+				transform.updatePosition(delta);
+				clamp(transform);
+			}
+		}
+	}
+	
+	/**
+	 * Rebuild the grid from the boxes' current bounds & find the overlapping pairs
+	 */
+	@Override
+	public void findPairs(){
+		int cells = perWidth * perHeight;
+		
+		for(int i=0;i<count;i++)
+			snapshot(i);
+		fill();
+		
+		//test every pair sharing a cell
+		pairCount = 0;
+		for(int cell=0;cell<cells;cell++){
+			int start = cellStart[cell];
+			int end = cellStart[cell + 1];
+			
+			//nothing to pair up, or nothing in the cell cares about anything else in it
+			if(end - start < 2 || (cellCategories[cell] & cellMasks[cell]) == 0)
+				continue;
+			
+			int cx = cell % perWidth;
+			int cy = cell / perWidth;
+			
+			for(int i=start;i<end;i++){
+				int a = cellItems[i];
+				
+				//cares about nothing in the cell
+				if((masks[a] & cellCategories[cell]) == 0)
+					continue;
+				
+				for(int j=i+1;j<end;j++){
+					int b = cellItems[j];
+					
+					//only the first cell both boxes share reports the pair
+					if(Math.max(cellMinX[a], cellMinX[b]) != cx || Math.max(cellMinY[a], cellMinY[b]) != cy)
+						continue;
+					
+					if(minX[a] > maxX[b] || minX[b] > maxX[a] || minY[a] > maxY[b] || minY[b] > maxY[a])
+						continue;
+					
+					if(interested(a, b))
+						addPair(a, b);
+				}
+			}
+		}
+	}
+	
+	/** Read a box's bounds, category, mask & cell range from its transform
+	 *
+	 * @param i the box
+	 */
+	private void snapshot(int i){
+		Transform transform = transforms[i];
+		
+		minX[i] = transform.getLeft();
+		minY[i] = transform.getBottom();
+		maxX[i] = transform.getRight();
+		maxY[i] = transform.getTop();
+		categories[i] = transform.getCategory();
+		masks[i] = transform.getMask();
+		
+		cellMinX[i] = cellX(minX[i]);
+		cellMinY[i] = cellY(minY[i]);
+		cellMaxX[i] = cellX(maxX[i]);
+		cellMaxY[i] = cellY(maxY[i]);
+	}
+	
+	/**
+	 * Fill the cells from the boxes' snapshots (counting sort, boxes in index order within each cell)
+	 */
+	private void fill(){
+		int cells = perWidth * perHeight;
+		
+		//count the boxes (& their categories & masks) in each cell
+		Arrays.fill(cellStart, 0);
+		Arrays.fill(cellCategories, 0);
+		Arrays.fill(cellMasks, 0);
+		extentMinX = extentMinY = 0;
+		extentMaxX = width;
+		extentMaxY = height;
+		for(int i=0;i<count;i++){
+			extentMinX = Math.min(extentMinX, minX[i]);
+			extentMinY = Math.min(extentMinY, minY[i]);
+			extentMaxX = Math.max(extentMaxX, maxX[i]);
+			extentMaxY = Math.max(extentMaxY, maxY[i]);
+			
+			for(int y=cellMinY[i];y<=cellMaxY[i];y++){
+				for(int x=cellMinX[i];x<=cellMaxX[i];x++){
+					int cell = x + perWidth * y;
+					cellStart[cell + 1]++;
+					cellCategories[cell] |= categories[i];
+					cellMasks[cell] |= masks[i];
+				}
+			}
+		}
+		
+		//turn the counts into offsets
+		for(int i=1;i<=cells;i++)
+			cellStart[i] += cellStart[i - 1];
+		
+		int total = cellStart[cells];
+		if(total > cellItems.length)
+			cellItems = new int[Math.max(total, cellItems.length * 2)];
+		
+		//drop each box into its cells, in box order
+		System.arraycopy(cellStart, 0, cellCursor, 0, cells);
+		for(int i=0;i<count;i++){
+			for(int y=cellMinY[i];y<=cellMaxY[i];y++)
+				for(int x=cellMinX[i];x<=cellMaxX[i];x++)
+					cellItems[cellCursor[x + perWidth * y]++] = i;
+		}
+		stale = false;
+	}
+	
+	@Override
+	public int query(float left, float bottom, float right, float top, List<Transform> results){
+		if(stale)
+			fill();
+		
+		int qx0 = cellX(left), qy0 = cellY(bottom);
+		int qx1 = cellX(right), qy1 = cellY(top);
+		
+		int found = 0;
+		for(int cy=qy0;cy<=qy1;cy++){
+			for(int cx=qx0;cx<=qx1;cx++){
+				int cell = cx + perWidth * cy;
+				for(int i=cellStart[cell];i<cellStart[cell + 1];i++){
+					int box = cellItems[i];
+					
+					//only the first cell the box & the rectangle share reports it
+					if(Math.max(cellMinX[box], qx0) != cx || Math.max(cellMinY[box], qy0) != cy)
+						continue;
+					
+					if(minX[box] > right || left > maxX[box] || minY[box] > top || bottom > maxY[box])
+						continue;
+					
+					results.add(transforms[box]);
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+	
+	@Override
+	public boolean cast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHit hit, RayHits hits){
+		if(hits != null)
+			hits.clear();
+		
+		if(stale)
+			fill();
+		
+		float length = (float)Math.sqrt(dirX * dirX + dirY * dirY);
+		if(length == 0)
+			return false;
+		
+		dirX /= length;
+		dirY /= length;
+		float invX = 1f / dirX, invY = 1f / dirY;
+		
+		//clip the cast to the grid & anything sticking out of it (grown by the cast box)
+		float enter = RayHit.cast(x, y, invX, invY, distance, extentMinX - halfW, extentMinY - halfH,
+				extentMaxX + halfW, extentMaxY + halfH);
+		if(enter < 0)
+			return false;
+		
+		//walk the cells along the middle of the cast (DDA)
+		int cx = (int)Math.floor((x + dirX * enter) / CELL_WIDTH), cy = (int)Math.floor((y + dirY * enter) / CELL_HEIGHT);
+		int stepX = (dirX > 0) ? 1 : -1, stepY = (dirY > 0) ? 1 : -1;
+		
+		//how far along the cast the next cell edge on each axis is
+		float nextX = (dirX == 0) ? Float.POSITIVE_INFINITY :
+			((cx + ((dirX > 0) ? 1 : 0)) * CELL_WIDTH - x) * invX;
+		float nextY = (dirY == 0) ? Float.POSITIVE_INFINITY :
+			((cy + ((dirY > 0) ? 1 : 0)) * CELL_HEIGHT - y) * invY;
+		float deltaX = Math.abs(CELL_WIDTH * invX), deltaY = Math.abs(CELL_HEIGHT * invY);
+		
+		//each box is only tested once per cast, however many cells it's in
+		castStamp++;
+		
+		int best = -1;
+		float nearest = distance, from = enter;
+		while(true){
+			float exit = Math.min(Math.min(nextX, nextY), distance);
+			
+			//what the cast box covers on this stretch of the walk
+			float x0 = x + dirX * from, x1 = x + dirX * exit;
+			float y0 = y + dirY * from, y1 = y + dirY * exit;
+			float left = Math.min(x0, x1) - halfW, right = Math.max(x0, x1) + halfW;
+			float bottom = Math.min(y0, y1) - halfH, top = Math.max(y0, y1) + halfH;
+			
+			//left everything there is to hit, out the far side (the first stretch can round to just short of the near side)
+			if((dirX < 0 && right < extentMinX) || (dirX > 0 && left > extentMaxX) ||
+					(dirY < 0 && top < extentMinY) || (dirY > 0 && bottom > extentMaxY))
+				break;
+			
+			//the cells covered (the ray's own cell for a ray), edge cells hold what sticks out
+			int lowX = (int)Math.floor(left / CELL_WIDTH);
+			int highX = Math.max((int)Math.ceil(right / CELL_WIDTH) - 1, lowX);
+			int lowY = (int)Math.floor(bottom / CELL_HEIGHT);
+			int highY = Math.max((int)Math.ceil(top / CELL_HEIGHT) - 1, lowY);
+			lowX = Math.max(Math.min(lowX, perWidth - 1), 0);
+			highX = Math.max(Math.min(highX, perWidth - 1), 0);
+			lowY = Math.max(Math.min(lowY, perHeight - 1), 0);
+			highY = Math.max(Math.min(highY, perHeight - 1), 0);
+			
+			for(int ty=lowY;ty<=highY;ty++){
+				for(int tx=lowX;tx<=highX;tx++){
+					int cell = tx + perWidth * ty;
+					for(int i=cellStart[cell];i<cellStart[cell + 1];i++){
+						int box = cellItems[i];
+						if(castStamps[box] == castStamp || (categories[box] & layers) == 0)
+							continue;
+						castStamps[box] = castStamp;
+						
+						float t = RayHit.cast(x, y, invX, invY, nearest,
+								minX[box] - halfW, minY[box] - halfH, maxX[box] + halfW, maxY[box] + halfH);
+						if(t < 0)
+							continue;
+						
+						if(hits != null)
+							hits.add(transforms[box], x, y, dirX, dirY, t,
+									minX[box] - halfW, minY[box] - halfH, maxX[box] + halfW, maxY[box] + halfH);
+						
+						if(best == -1 || t < nearest){
+							best = box;
+							if(hits == null)
+								nearest = t;
+						}
+					}
+				}
+			}
+			
+			//anything hit further on would've been found on this stretch already
+			if((hits == null && best != -1 && nearest <= exit) || exit >= distance)
+				break;
+			
+			from = exit;
+			if(nextX < nextY){
+				cx += stepX;
+				nextX += deltaX;
+			}else{
+				cy += stepY;
+				nextY += deltaY;
+			}
+		}
+		
+		if(best == -1)
+			return false;
+		
+		if(hits != null)
+			hits.sort();
+		
+		if(hit != null){
+			if(hits != null)
+				hits.get(0, hit);
+			else
+				hit.set(transforms[best], x, y, dirX, dirY, nearest,
+						minX[best] - halfW, minY[best] - halfH, maxX[best] + halfW, maxY[best] + halfH);
+		}
+		return true;
+	}
+	
+	/** Keep a box inside the broadphase's bounds
+	 *
+	 * @param transform the box's transform
+	 */
+	public void clamp(Transform transform){
+		float offsetx = 0;
+		float offsety = 0;
+		
+		if(transform.getLeft() < 0){
+			offsetx = -transform.getLeft();
+		}else if(transform.getRight() >= getWidth()){
+			offsetx = getWidth() - transform.getRight();
+		}
+		
+		if(transform.getBottom() < 0){
+			offsety = -transform.getBottom();
+		}else if(transform.getTop() >= getHeight()){
+			offsety = getHeight() - transform.getTop();
+		}
+		
+		if(offsetx != 0 || offsety != 0){
+			transform.move(offsetx, offsety);
+		}
+	}
+	
+	/** Get the amount of overlapping pairs found in the last step
+	 *
+	 * @return the amount of pairs
+	 */
+	@Override
+	public int getPairCount(){
+		return pairCount;
+	}
+	
+	/** Get the first box of a pair (the lower indexed one)
+	 *
+	 * @param pair the pair
+	 * @return the first box's transform
+	 */
+	@Override
+	public Transform getPairA(int pair){
+		return transforms[pairs[pair * 2]];
+	}
+	
+	/** Get the second box of a pair
+	 *
+	 * @param pair the pair
+	 * @return the second box's transform
+	 */
+	@Override
+	public Transform getPairB(int pair){
+		return transforms[pairs[pair * 2 + 1]];
+	}
+	
+	@Override
+	public int getPairIndexA(int pair){
+		return pairs[pair * 2];
+	}
+	
+	@Override
+	public int getPairIndexB(int pair){
+		return pairs[pair * 2 + 1];
+	}
+	
+	/** Get the amount of boxes
+	 *
+	 * @return the amount of boxes
+	 */
+	@Override
+	public int getCount(){
+		return count;
+	}
+	
+	/** Get a box's transform
+	 *
+	 * @param index the box
+	 * @return the box's transform
+	 */
+	@Override
+	public Transform get(int index){
+		return transforms[index];
+	}
+	
+	public float getWidth(){
+		return width;
+	}
+	
+	public float getHeight(){
+		return height;
+	}
+	
+	public int getPerWidth(){
+		return perWidth;
+	}
+	
+	public int getPerHeight(){
+		return perHeight;
+	}
+	
+	public void outputCells(){
+		StringBuilder map = new StringBuilder();
+		for(int y=0;y<perHeight;y++){
+			StringBuilder row = new StringBuilder();
+			for(int x=0;x<perWidth;x++){
+				int cell = x + (perWidth * y);
+				row.append(cellStart[cell + 1] - cellStart[cell]);
+			}
+			row.append("\n");
+			map.append(row);
+		}
+		System.out.println(map);
+	}
+	
+	/** Get the cell column of a position, clamped to the grid
+	 *
+	 * @param x the position
+	 * @return the column
+	 */
+	private int cellX(float x){
+		int cell = (int)Math.floor(x / CELL_WIDTH);
+		return (cell < 0) ? 0 : (cell >= perWidth) ? perWidth - 1 : cell;
+	}
+	
+	/** Get the cell row of a position, clamped to the grid
+	 *
+	 * @param y the position
+	 * @return the row
+	 */
+	private int cellY(float y){
+		int cell = (int)Math.floor(y / CELL_HEIGHT);
+		return (cell < 0) ? 0 : (cell >= perHeight) ? perHeight - 1 : cell;
+	}
+	
+	/** Get if 2 boxes care about each other (each one's category is in the other's mask)
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @return if they can collide
+	 */
+	private boolean interested(int a, int b){
+		return (categories[a] & masks[b]) != 0 && (categories[b] & masks[a]) != 0;
+	}
+	
+	/** Keep an overlapping pair
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 */
+	private void addPair(int a, int b){
+		if(pairCount * 2 == pairs.length)
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		
+		pairs[pairCount * 2] = a;
+		pairs[pairCount * 2 + 1] = b;
+		pairCount++;
+	}
+	
+	/** Grow the per box arrays
+	 *
+	 * @param capacity the new amount of boxes
+	 */
+	private void grow(int capacity){
+		transforms = Arrays.copyOf(transforms, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		cellMinX = Arrays.copyOf(cellMinX, capacity);
+		cellMinY = Arrays.copyOf(cellMinY, capacity);
+		cellMaxX = Arrays.copyOf(cellMaxX, capacity);
+		cellMaxY = Arrays.copyOf(cellMaxY, capacity);
+		categories = Arrays.copyOf(categories, capacity);
+		masks = Arrays.copyOf(masks, capacity);
+		castStamps = Arrays.copyOf(castStamps, capacity);
+	}
+}
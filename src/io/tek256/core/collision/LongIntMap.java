@@ -0,0 +1,185 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+
+/**
+ * USAGE: putIfAbsent(key, index) / get(key) -> remove(key) -> put(key, index) for whatever moved into its place
+ *
+ * NOTES: Open addressed map from packed long keys (pairs of ids) to indices
+ * 		  into the owner's packed arrays, for the collision classes that keep
+ * 		  pairs from step to step (the sweep broadphase's pairs & the contact
+ * 		  cache). Linear probing, kept at most half full, and removal shifts
+ * 		  the following keys back instead of leaving tombstones, so lookups
+ * 		  never slow down however much the pairs churn. Values are stored +1
+ * 		  so an empty slot is 0 & `clear()` is a single fill. Nothing is
+ * 		  allocated unless the map grows.
+ */
+final class LongIntMap {
+	//what's returned for a key that isn't in the map
+	static final int NONE = -1;
+	
+	//the keys & their values + 1 (0 is an empty slot)
+	private long[] keys;
+	private int[] values;
+	
+	//amount of keys in the map
+	private int size = 0;
+	
+	/** Make a map
+	 *
+	 * @param capacity the amount of keys to hold before growing
+	 */
+	LongIntMap(int capacity){
+		int slots = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+		keys = new long[slots];
+		values = new int[slots];
+	}
+	
+	/** Get the value of a key
+	 *
+	 * @param key the key
+	 * @return the value, `NONE` if the key isn't in the map
+	 */
+	int get(long key){
+		return values[slot(key)] - 1;
+	}
+	
+	/** Add a key if it isn't in the map yet
+	 *
+	 * @param key the key
+	 * @param value the value to add it with
+	 * @return the value already in the map, `NONE` if the key was added
+	 */
+	int putIfAbsent(long key, int value){
+		//keep the map at most half full
+		if((size + 1) * 2 > values.length)
+			rehash(values.length * 2);
+		
+		int slot = slot(key);
+		if(values[slot] != 0)
+			return values[slot] - 1;
+		
+		keys[slot] = key;
+		values[slot] = value + 1;
+		size++;
+		return NONE;
+	}
+	
+	/** Set the value of a key, adding it if it isn't in the map
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	void put(long key, int value){
+		if((size + 1) * 2 > values.length)
+			rehash(values.length * 2);
+		
+		int slot = slot(key);
+		if(values[slot] == 0){
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value + 1;
+	}
+	
+	/** Remove a key
+	 *
+	 * @param key the key
+	 * @return the value it had, `NONE` if the key wasn't in the map
+	 */
+	int remove(long key){
+		int slot = slot(key);
+		int value = values[slot] - 1;
+		if(value != NONE){
+			clearSlot(slot);
+			size--;
+		}
+		return value;
+	}
+	
+	/**
+	 * Remove every key (keeps the arrays)
+	 */
+	void clear(){
+		Arrays.fill(values, 0);
+		size = 0;
+	}
+	
+	/** Get the amount of keys in the map
+	 *
+	 * @return the amount of keys
+	 */
+	int size(){
+		return size;
+	}
+	
+	/** Get the slot of a key, or the empty slot it would go in
+	 *
+	 * @param key the key
+	 * @return the slot
+	 */
+	private int slot(long key){
+		int mask = values.length - 1;
+		int slot = hash(key) & mask;
+		
+		while(values[slot] != 0 && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	/** Get the hash of a key
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static int hash(long key){
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+	
+	/** Empty a slot, shifting back the keys after it that would become unreachable
+	 *
+	 * @param slot the slot
+	 */
+	private void clearSlot(int slot){
+		int mask = values.length - 1;
+		int i = slot, j = slot;
+		
+		while(true){
+			j = (j + 1) & mask;
+			if(values[j] == 0)
+				break;
+			
+			int home = hash(keys[j]) & mask;
+			
+			//leave it when its home is between the gap & itself
+			if((i <= j) ? (i < home && home <= j) : (i < home || home <= j))
+				continue;
+			
+			keys[i] = keys[j];
+			values[i] = values[j];
+			i = j;
+		}
+		values[i] = 0;
+	}
+	
+	/** Move every key into a bigger table
+	 *
+	 * @param capacity the new amount of slots (a power of 2)
+	 */
+	private void rehash(int capacity){
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		
+		keys = new long[capacity];
+		values = new int[capacity];
+		
+		for(int i=0;i<oldValues.length;i++){
+			if(oldValues[i] == 0)
+				continue;
+			
+			int slot = slot(oldKeys[i]);
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+}
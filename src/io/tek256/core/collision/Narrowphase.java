@@ -0,0 +1,528 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: broadphase.update(delta) -> narrowphase.solve(broadphase) every step
+ *
+ * NOTES: Turns the broadphase's pairs into contacts (normal, depth & point),
+ * 		  pushes the boxes apart & stops them moving into each other, then
+ * 		  calls `collidedWith()` on both sides of every contact once, along
+ * 		  with the enter / stay / exit events of the `ContactCache`. Boxes
+ * 		  are axis aligned unless one of them has an angle, then the contact
+ * 		  comes from the separating axes of both boxes (the broadphase still
+ * 		  only sees the unrotated bounds). The solver works on copies of the
+ * 		  touched boxes in flat arrays for a fixed amount of iterations & only
+ * 		  writes them back at the end, so nothing is allocated per step. How
+ * 		  far a box is pushed comes from `Transform.getInverseMass()`, level
+ * 		  objects are never pushed. Velocity impulses are accumulated per
+ * 		  contact (never below 0, so boxes are never pulled together), and
+ * 		  a contact that was already there last step with the same normal
+ * 		  starts from last step's impulse (warm starting), so resting stacks
+ * 		  settle in far fewer iterations.
+ */
+public class Narrowphase {
+	//default amount of solver iterations
+	public static final int DEFAULT_ITERATIONS = 4;
+	
+	//penetration left alone, so resting boxes don't jitter
+	public static final float SLOP = 0.01f;
+	
+	//how much of the remaining penetration each iteration fixes
+	public static final float CORRECTION = 0.8f;
+	
+	private int iterations = DEFAULT_ITERATIONS;
+	
+	//how much of the closing velocity bounces back (0 - 1)
+	private float restitution = 0f;
+	
+	//if contacts start from last step's impulse
+	private boolean warmStarting = true;
+	
+	//touching pairs across steps
+	private ContactCache cache;
+	
+	//contacts of the last step
+	private Transform[] contactA, contactB;
+	private int[] bodyA, bodyB;
+	private float[] normalX, normalY, depth, pointX, pointY;
+	private int contactCount = 0;
+	
+	//cache entry, accumulated impulse & separating velocity to reach of each contact
+	private int[] entries;
+	private float[] impulse, target;
+	
+	//solver copies of the touched boxes, by broadphase index
+	private float[] x, y, halfW, halfH, cos, sin, velX, velY, invMass, moveX, moveY;
+	private Transform[] bodies;
+	
+	//the step each box was last copied in, so the copies never need clearing
+	private int[] stamps;
+	private int stamp = 0;
+	
+	//the touched boxes of this step
+	private int[] touched;
+	private int touchedCount = 0;
+	
+	//scratch result of `collide()`
+	private float hitX, hitY, hitDepth, hitPointX, hitPointY;
+	
+	public Narrowphase(){
+		int capacity = 64;
+		contactA = new Transform[capacity];
+		contactB = new Transform[capacity];
+		bodyA = new int[capacity];
+		bodyB = new int[capacity];
+		normalX = new float[capacity];
+		normalY = new float[capacity];
+		depth = new float[capacity];
+		pointX = new float[capacity];
+		pointY = new float[capacity];
+		entries = new int[capacity];
+		impulse = new float[capacity];
+		target = new float[capacity];
+		
+		cache = new ContactCache();
+		growBodies(capacity);
+	}
+	
+	/** Find the contacts of a broadphase's pairs, resolve them & let both sides know (firing the contact events)
+	 *
+	 * @param broadphase the broadphase, after its step
+	 */
+	public void solve(Broadphase broadphase){
+		collide(broadphase);
+		resolve();
+		dispatch();
+	}
+	
+	/** Find the contacts of a broadphase's pairs
+	 *
+	 * @param broadphase the broadphase, after its step
+	 * @return the amount of contacts
+	 */
+	public int collide(Broadphase broadphase){
+		//forget the last step's references
+		for(int i=0;i<contactCount;i++){
+			contactA[i] = null;
+			contactB[i] = null;
+		}
+		for(int i=0;i<touchedCount;i++)
+			bodies[touched[i]] = null;
+		contactCount = 0;
+		touchedCount = 0;
+		
+		if(broadphase.getCount() > stamps.length)
+			growBodies(Math.max(broadphase.getCount(), stamps.length * 2));
+		stamp++;
+		cache.begin();
+		
+		int pairs = broadphase.getPairCount();
+		for(int i=0;i<pairs;i++){
+			int a = broadphase.getPairIndexA(i), b = broadphase.getPairIndexB(i);
+			load(a, broadphase.getPairA(i));
+			load(b, broadphase.getPairB(i));
+			
+			if(!collide(a, b))
+				continue;
+			
+			if(contactCount == depth.length)
+				growContacts(contactCount * 2);
+			
+			int c = contactCount++;
+			contactA[c] = bodies[a];
+			contactB[c] = bodies[b];
+			bodyA[c] = a;
+			bodyB[c] = b;
+			normalX[c] = hitX;
+			normalY[c] = hitY;
+			depth[c] = hitDepth;
+			pointX[c] = hitPointX;
+			pointY[c] = hitPointY;
+			entries[c] = cache.touch(bodies[a], bodies[b]);
+		}
+		return contactCount;
+	}
+	
+	/**
+	 * Push the boxes of the contacts apart & remove their closing velocity
+	 */
+	public void resolve(){
+		//aim for the bounce off the velocities coming in, then start from last step's impulse
+		for(int c=0;c<contactCount;c++){
+			int a = bodyA[c], b = bodyB[c];
+			float nx = normalX[c], ny = normalY[c];
+			
+			float closing = (velX[b] - velX[a]) * nx + (velY[b] - velY[a]) * ny;
+			target[c] = (closing < 0) ? -restitution * closing : 0f;
+			
+			impulse[c] = (warmStarting && invMass[a] + invMass[b] != 0) ? cache.warm(entries[c], nx, ny) : 0f;
+			if(impulse[c] != 0){
+				velX[a] -= nx * impulse[c] * invMass[a];
+				velY[a] -= ny * impulse[c] * invMass[a];
+				velX[b] += nx * impulse[c] * invMass[b];
+				velY[b] += ny * impulse[c] * invMass[b];
+			}
+		}
+		
+		for(int iteration=0;iteration<iterations;iteration++){
+			for(int c=0;c<contactCount;c++){
+				int a = bodyA[c], b = bodyB[c];
+				float inverse = invMass[a] + invMass[b];
+				if(inverse == 0)
+					continue;
+				
+				float nx = normalX[c], ny = normalY[c];
+				
+				//what's left of the penetration after the pushes so far
+				float left = depth[c] - ((moveX[b] - moveX[a]) * nx + (moveY[b] - moveY[a]) * ny);
+				if(left > SLOP){
+					float push = (left - SLOP) * CORRECTION / inverse;
+					moveX[a] -= nx * push * invMass[a];
+					moveY[a] -= ny * push * invMass[a];
+					moveX[b] += nx * push * invMass[b];
+					moveY[b] += ny * push * invMass[b];
+				}
+				
+				//only stop boxes moving into each other, never pull them together (in total)
+				float closing = (velX[b] - velX[a]) * nx + (velY[b] - velY[a]) * ny;
+				float total = Math.max(impulse[c] + (target[c] - closing) / inverse, 0f);
+				float change = total - impulse[c];
+				if(change != 0){
+					impulse[c] = total;
+					velX[a] -= nx * change * invMass[a];
+					velY[a] -= ny * change * invMass[a];
+					velX[b] += nx * change * invMass[b];
+					velY[b] += ny * change * invMass[b];
+				}
+			}
+		}
+		
+		//keep the impulses for the next step
+		for(int c=0;c<contactCount;c++)
+			cache.store(entries[c], normalX[c], normalY[c], impulse[c]);
+		
+		//write the results back to the boxes that can move
+		for(int i=0;i<touchedCount;i++){
+			int body = touched[i];
+			if(invMass[body] == 0)
+				continue;
+			
+			Transform transform = bodies[body];
+			if(moveX[body] != 0 || moveY[body] != 0)
+				transform.translate(moveX[body], moveY[body]);
+			transform.setVelocity(velX[body], velY[body]);
+		}
+	}
+	
+	/**
+	 * Call `collidedWith()` on both sides of every contact, then fire the enter / stay / exit events
+	 */
+	public void dispatch(){
+		for(int c=0;c<contactCount;c++){
+			contactA[c].collidedWith(contactB[c]);
+			contactB[c].collidedWith(contactA[c]);
+		}
+		cache.dispatch();
+	}
+	
+	/** Set the amount of solver iterations
+	 *
+	 * @param iterations the amount of iterations
+	 */
+	public void setIterations(int iterations){
+		this.iterations = Math.max(1, iterations);
+	}
+	
+	/** Get the amount of solver iterations
+	 *
+	 * @return the amount of iterations
+	 */
+	public int getIterations(){
+		return iterations;
+	}
+	
+	/** Set how bouncy contacts are
+	 *
+	 * @param restitution how much of the closing velocity bounces back (0 - 1)
+	 */
+	public void setRestitution(float restitution){
+		this.restitution = restitution;
+	}
+	
+	/** Get how bouncy contacts are
+	 *
+	 * @return how much of the closing velocity bounces back (0 - 1)
+	 */
+	public float getRestitution(){
+		return restitution;
+	}
+	
+	/** Set if contacts start from last step's impulse
+	 *
+	 * @param warmStarting if contacts are warm started
+	 */
+	public void setWarmStarting(boolean warmStarting){
+		this.warmStarting = warmStarting;
+	}
+	
+	/** Get if contacts start from last step's impulse
+	 *
+	 * @return if contacts are warm started
+	 */
+	public boolean isWarmStarting(){
+		return warmStarting;
+	}
+	
+	/** Get the touching pairs remembered across steps
+	 *
+	 * @return the contact cache
+	 */
+	public ContactCache getCache(){
+		return cache;
+	}
+	
+	/** Get the amount of contacts of the last step
+	 *
+	 * @return the amount of contacts
+	 */
+	public int getContactCount(){
+		return contactCount;
+	}
+	
+	/** Get the first box of a contact
+	 *
+	 * @param contact the contact
+	 * @return the first box's transform
+	 */
+	public Transform getContactA(int contact){
+		return contactA[contact];
+	}
+	
+	/** Get the second box of a contact
+	 *
+	 * @param contact the contact
+	 * @return the second box's transform
+	 */
+	public Transform getContactB(int contact){
+		return contactB[contact];
+	}
+	
+	/** Get the x of a contact's normal (pointing from A to B)
+	 *
+	 * @param contact the contact
+	 * @return the x of the normal
+	 */
+	public float getNormalX(int contact){
+		return normalX[contact];
+	}
+	
+	/** Get the y of a contact's normal (pointing from A to B)
+	 *
+	 * @param contact the contact
+	 * @return the y of the normal
+	 */
+	public float getNormalY(int contact){
+		return normalY[contact];
+	}
+	
+	/** Get how far the boxes of a contact overlapped along its normal
+	 *
+	 * @param contact the contact
+	 * @return the penetration depth
+	 */
+	public float getDepth(int contact){
+		return depth[contact];
+	}
+	
+	/** Get the impulse that stopped the boxes of a contact moving into each other
+	 *
+	 * @param contact the contact
+	 * @return the accumulated impulse along the normal
+	 */
+	public float getImpulse(int contact){
+		return impulse[contact];
+	}
+	
+	/** Get the x of a contact's point (the middle of the overlap)
+	 *
+	 * @param contact the contact
+	 * @return the x of the point
+	 */
+	public float getPointX(int contact){
+		return pointX[contact];
+	}
+	
+	/** Get the y of a contact's point (the middle of the overlap)
+	 *
+	 * @param contact the contact
+	 * @return the y of the point
+	 */
+	public float getPointY(int contact){
+		return pointY[contact];
+	}
+	
+	/** Copy a box into the solver, once per step
+	 *
+	 * @param body the box's broadphase index
+	 * @param transform the box's transform
+	 */
+	private void load(int body, Transform transform){
+		if(stamps[body] == stamp)
+			return;
+		stamps[body] = stamp;
+		
+		bodies[body] = transform;
+		touched[touchedCount++] = body;
+		
+		x[body] = transform.getX();
+		y[body] = transform.getY();
+		halfW[body] = transform.getWidth() / 2f;
+		halfH[body] = transform.getHeight() / 2f;
+		
+		float angle = transform.getAngle();
+		sin[body] = (angle == 0) ? 0f : (float)Math.sin(angle);
+		cos[body] = (angle == 0) ? 1f : (float)Math.cos(angle);
+		
+		velX[body] = transform.getVelocityX();
+		velY[body] = transform.getVelocityY();
+		invMass[body] = transform.getInverseMass();
+		moveX[body] = 0;
+		moveY[body] = 0;
+	}
+	
+	/** Find the contact of 2 boxes, written into the `hit` fields
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @return if the boxes touch
+	 */
+	private boolean collide(int a, int b){
+		float dx = x[b] - x[a], dy = y[b] - y[a];
+		
+		if(sin[a] == 0 && sin[b] == 0){
+			float overlapX = halfW[a] + halfW[b] - Math.abs(dx);
+			float overlapY = halfH[a] + halfH[b] - Math.abs(dy);
+			if(overlapX < 0 || overlapY < 0)
+				return false;
+			
+			//push out along the shallower axis
+			if(overlapX < overlapY){
+				hitX = (dx < 0) ? -1f : 1f;
+				hitY = 0;
+				hitDepth = overlapX;
+			}else{
+				hitX = 0;
+				hitY = (dy < 0) ? -1f : 1f;
+				hitDepth = overlapY;
+			}
+			
+			//middle of the overlap
+			hitPointX = (Math.max(x[a] - halfW[a], x[b] - halfW[b]) + Math.min(x[a] + halfW[a], x[b] + halfW[b])) / 2f;
+			hitPointY = (Math.max(y[a] - halfH[a], y[b] - halfH[b]) + Math.min(y[a] + halfH[a], y[b] + halfH[b])) / 2f;
+			return true;
+		}
+		
+		//separating axes, the 2 edge directions of each box
+		hitDepth = Float.MAX_VALUE;
+		if(!axis(a, b, dx, dy, cos[a], sin[a]) || !axis(a, b, dx, dy, -sin[a], cos[a]) ||
+				!axis(a, b, dx, dy, cos[b], sin[b]) || !axis(a, b, dx, dy, -sin[b], cos[b]))
+			return false;
+		
+		//halfway between the 2 surfaces along the normal
+		float reachA = extent(a, hitX, hitY);
+		hitPointX = x[a] + hitX * (reachA - hitDepth / 2f);
+		hitPointY = y[a] + hitY * (reachA - hitDepth / 2f);
+		return true;
+	}
+	
+	/** Test an axis of 2 rotated boxes, keeping it in the `hit` fields when it's the shallowest so far
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @param dx the x from A to B
+	 * @param dy the y from A to B
+	 * @param axisX the x of the (unit) axis
+	 * @param axisY the y of the (unit) axis
+	 * @return if the boxes overlap on the axis
+	 */
+	private boolean axis(int a, int b, float dx, float dy, float axisX, float axisY){
+		float distance = dx * axisX + dy * axisY;
+		float overlap = extent(a, axisX, axisY) + extent(b, axisX, axisY) - Math.abs(distance);
+		if(overlap < 0)
+			return false;
+		
+		if(overlap < hitDepth){
+			float sign = (distance < 0) ? -1f : 1f;
+			hitX = axisX * sign;
+			hitY = axisY * sign;
+			hitDepth = overlap;
+		}
+		return true;
+	}
+	
+	/** Get how far a box reaches from its middle along an axis
+	 *
+	 * @param body the box
+	 * @param axisX the x of the (unit) axis
+	 * @param axisY the y of the (unit) axis
+	 * @return the box's half length on the axis
+	 */
+	private float extent(int body, float axisX, float axisY){
+		return halfW[body] * Math.abs(cos[body] * axisX + sin[body] * axisY)
+				+ halfH[body] * Math.abs(-sin[body] * axisX + cos[body] * axisY);
+	}
+	
+	/** Grow the contact arrays
+	 *
+	 * @param capacity the new amount of contacts
+	 */
+	private void growContacts(int capacity){
+		contactA = Arrays.copyOf(contactA, capacity);
+		contactB = Arrays.copyOf(contactB, capacity);
+		bodyA = Arrays.copyOf(bodyA, capacity);
+		bodyB = Arrays.copyOf(bodyB, capacity);
+		normalX = Arrays.copyOf(normalX, capacity);
+		normalY = Arrays.copyOf(normalY, capacity);
+		depth = Arrays.copyOf(depth, capacity);
+		pointX = Arrays.copyOf(pointX, capacity);
+		pointY = Arrays.copyOf(pointY, capacity);
+		entries = Arrays.copyOf(entries, capacity);
+		impulse = Arrays.copyOf(impulse, capacity);
+		target = Arrays.copyOf(target, capacity);
+	}
+	
+	/** Grow the solver's box arrays
+	 *
+	 * @param capacity the new amount of boxes
+	 */
+	private void growBodies(int capacity){
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		halfW = grow(halfW, capacity);
+		halfH = grow(halfH, capacity);
+		cos = grow(cos, capacity);
+		sin = grow(sin, capacity);
+		velX = grow(velX, capacity);
+		velY = grow(velY, capacity);
+		invMass = grow(invMass, capacity);
+		moveX = grow(moveX, capacity);
+		moveY = grow(moveY, capacity);
+		
+		bodies = (bodies == null) ? new Transform[capacity] : Arrays.copyOf(bodies, capacity);
+		stamps = (stamps == null) ? new int[capacity] : Arrays.copyOf(stamps, capacity);
+		touched = (touched == null) ? new int[capacity] : Arrays.copyOf(touched, capacity);
+	}
+	
+	/** Grow a float array (or make it)
+	 *
+	 * @param array the array, or null
+	 * @param capacity the new length
+	 * @return the grown array
+	 */
+	private static float[] grow(float[] array, int capacity){
+		return (array == null) ? new float[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
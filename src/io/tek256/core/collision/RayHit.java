@@ -0,0 +1,98 @@
+package io.tek256.core.collision;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: hit = new RayHit() -> broadphase.raycast(..., hit) -> hit.transform / hit.distance
+ *
+ * NOTES: Result of a raycast, meant to be reused so casting allocates nothing.
+ */
+public class RayHit {
+	//what was hit
+	public Transform transform;
+	
+	//how far along the ray the hit is
+	public float distance;
+	
+	//where the hit is
+	public float x, y;
+	
+	//the normal of the face that was hit
+	public float normalX, normalY;
+	
+	/**
+	 * Forget the last hit
+	 */
+	public void clear(){
+		transform = null;
+		distance = 0;
+		x = y = 0;
+		normalX = normalY = 0;
+	}
+	
+	/** Cast a ray against a box (slab test)
+	 * 
+	 * @param x the x of the ray's origin
+	 * @param y the y of the ray's origin
+	 * @param invX 1 / the x of the (unit) direction
+	 * @param invY 1 / the y of the (unit) direction
+	 * @param distance how far the ray goes
+	 * @param minX the left of the box
+	 * @param minY the bottom of the box
+	 * @param maxX the right of the box
+	 * @param maxY the top of the box
+	 * @return how far along the ray the box is entered (0 when starting inside), or -1 for a miss
+	 */
+	static float cast(float x, float y, float invX, float invY, float distance,
+			float minX, float minY, float maxX, float maxY){
+		float t1 = (minX - x) * invX, t2 = (maxX - x) * invX;
+		float near = Math.min(t1, t2), far = Math.max(t1, t2);
+		
+		t1 = (minY - y) * invY;
+		t2 = (maxY - y) * invY;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		
+		//NaN (a zero axis lined up with an edge) counts as a miss
+		if(!(near <= far) || far < 0 || near > distance)
+			return -1;
+		
+		return Math.max(0, near);
+	}
+	
+	/** Fill in a hit against a box
+	 * 
+	 * @param transform what was hit
+	 * @param x the x of the ray's origin
+	 * @param y the y of the ray's origin
+	 * @param dirX the x of the (unit) direction
+	 * @param dirY the y of the (unit) direction
+	 * @param distance how far along the ray the box was entered
+	 * @param minX the left of the box
+	 * @param minY the bottom of the box
+	 * @param maxX the right of the box
+	 * @param maxY the top of the box
+	 */
+	void set(Transform transform, float x, float y, float dirX, float dirY, float distance,
+			float minX, float minY, float maxX, float maxY){
+		this.transform = transform;
+		this.distance = distance;
+		this.x = x + dirX * distance;
+		this.y = y + dirY * distance;
+		
+		//the face the hit point lies closest to, against the ray
+		float left = Math.abs(this.x - minX), right = Math.abs(this.x - maxX);
+		float bottom = Math.abs(this.y - minY), top = Math.abs(this.y - maxY);
+		float closest = Math.min(Math.min(left, right), Math.min(bottom, top));
+		
+		normalX = normalY = 0;
+		if(closest == left && dirX > 0)
+			normalX = -1;
+		else if(closest == right && dirX < 0)
+			normalX = 1;
+		else if(closest == bottom && dirY > 0)
+			normalY = -1;
+		else if(closest == top && dirY < 0)
+			normalY = 1;
+	}
+}
@@ -0,0 +1,193 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: hits = new RayHits() -> broadphase.raycast(..., hits) -> for i < hits.size(): hits.getTransform(i)
+ *
+ * NOTES: Every hit of a cast, nearest first, meant to be reused so casting
+ * 		  allocates nothing once the buffer is big enough.
+ */
+public class RayHits {
+	//what was hit, how far along & where (with the face's normal)
+	private Transform[] transforms;
+	private float[] distances, xs, ys, normalXs, normalYs;
+	private int size = 0;
+	
+	//scratch hit the point & normal are worked out in
+	private RayHit scratch;
+	
+	public RayHits(){
+		this(16);
+	}
+	
+	public RayHits(int capacity){
+		transforms = new Transform[capacity];
+		distances = new float[capacity];
+		xs = new float[capacity];
+		ys = new float[capacity];
+		normalXs = new float[capacity];
+		normalYs = new float[capacity];
+		scratch = new RayHit();
+	}
+	
+	/**
+	 * Forget every hit
+	 */
+	public void clear(){
+		for(int i=0;i<size;i++)
+			transforms[i] = null;
+		size = 0;
+	}
+	
+	/** Get the amount of hits
+	 * 
+	 * @return the amount of hits
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/** Get what a hit hit
+	 * 
+	 * @param i the hit
+	 * @return the transform that was hit
+	 */
+	public Transform getTransform(int i){
+		return transforms[i];
+	}
+	
+	/** Get how far along the cast a hit is
+	 * 
+	 * @param i the hit
+	 * @return the distance of the hit
+	 */
+	public float getDistance(int i){
+		return distances[i];
+	}
+	
+	/** Get the x of a hit
+	 * 
+	 * @param i the hit
+	 * @return the x of the hit
+	 */
+	public float getX(int i){
+		return xs[i];
+	}
+	
+	/** Get the y of a hit
+	 * 
+	 * @param i the hit
+	 * @return the y of the hit
+	 */
+	public float getY(int i){
+		return ys[i];
+	}
+	
+	/** Get the x of the normal of the face a hit is on
+	 * 
+	 * @param i the hit
+	 * @return the x of the normal
+	 */
+	public float getNormalX(int i){
+		return normalXs[i];
+	}
+	
+	/** Get the y of the normal of the face a hit is on
+	 * 
+	 * @param i the hit
+	 * @return the y of the normal
+	 */
+	public float getNormalY(int i){
+		return normalYs[i];
+	}
+	
+	/** Copy a hit out
+	 * 
+	 * @param i the hit
+	 * @param dest the hit to write into
+	 * @return dest
+	 */
+	public RayHit get(int i, RayHit dest){
+		dest.transform = transforms[i];
+		dest.distance = distances[i];
+		dest.x = xs[i];
+		dest.y = ys[i];
+		dest.normalX = normalXs[i];
+		dest.normalY = normalYs[i];
+		return dest;
+	}
+	
+	/** Keep a hit against a box
+	 * 
+	 * @param transform what was hit
+	 * @param x the x of the cast's origin
+	 * @param y the y of the cast's origin
+	 * @param dirX the x of the (unit) direction
+	 * @param dirY the y of the (unit) direction
+	 * @param distance how far along the cast the box was entered
+	 * @param minX the left of the box
+	 * @param minY the bottom of the box
+	 * @param maxX the right of the box
+	 * @param maxY the top of the box
+	 */
+	void add(Transform transform, float x, float y, float dirX, float dirY, float distance,
+			float minX, float minY, float maxX, float maxY){
+		if(size == transforms.length)
+			grow(size * 2);
+		
+		scratch.set(transform, x, y, dirX, dirY, distance, minX, minY, maxX, maxY);
+		transforms[size] = transform;
+		distances[size] = distance;
+		xs[size] = scratch.x;
+		ys[size] = scratch.y;
+		normalXs[size] = scratch.normalX;
+		normalYs[size] = scratch.normalY;
+		size++;
+		
+		scratch.transform = null;
+	}
+	
+	/**
+	 * Put the hits in order, nearest first (insertion sort, casts only find a few)
+	 */
+	void sort(){
+		for(int i=1;i<size;i++){
+			Transform transform = transforms[i];
+			float distance = distances[i], x = xs[i], y = ys[i], normalX = normalXs[i], normalY = normalYs[i];
+			
+			int j = i - 1;
+			while(j >= 0 && distances[j] > distance){
+				transforms[j + 1] = transforms[j];
+				distances[j + 1] = distances[j];
+				xs[j + 1] = xs[j];
+				ys[j + 1] = ys[j];
+				normalXs[j + 1] = normalXs[j];
+				normalYs[j + 1] = normalYs[j];
+				j--;
+			}
+			
+			transforms[j + 1] = transform;
+			distances[j + 1] = distance;
+			xs[j + 1] = x;
+			ys[j + 1] = y;
+			normalXs[j + 1] = normalX;
+			normalYs[j + 1] = normalY;
+		}
+	}
+	
+	/** Grow the arrays
+	 * 
+	 * @param capacity the new amount of hits
+	 */
+	private void grow(int capacity){
+		transforms = Arrays.copyOf(transforms, capacity);
+		distances = Arrays.copyOf(distances, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		normalXs = Arrays.copyOf(normalXs, capacity);
+		normalYs = Arrays.copyOf(normalYs, capacity);
+	}
+}
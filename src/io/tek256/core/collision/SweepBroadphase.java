@@ -0,0 +1,528 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import io.tek256.core.runtime.Transform;
+import io.tek256.core.trace.EngineEvents.BroadphaseEvent;
+
+/**
+ * USAGE: add(transform) -> update(delta) every step -> pairs / query() / raycast()
+ *
+ * NOTES: Sweep & prune broadphase, for levels where most things only move a
+ * 		  little each step. The min & max of every box are kept sorted on both
+ * 		  axes, and re-sorted each step with an insertion sort, which is close
+ * 		  to O(n) when the order barely changes. Pairs are never searched for:
+ * 		  they're added when a min passes a max (and the boxes overlap on the
+ * 		  other axis) & removed when a max passes a min, so a step only costs
+ * 		  the amount of endpoints that swapped. The pairs are kept in a hash
+ * 		  map (`LongIntMap`, shared with the contact cache) so they're only
+ * 		  ever reported once. Boxes only pair up when each one's category is
+ * 		  in the other's mask, and a step where any category or mask changed
+ * 		  rebuilds the pairs from the sorted x axis.
+ * 		  Queries walk the x axis & raycasts test every box, so prefer the
+ * 		  grid or tree for those.
+ */
+public class SweepBroadphase implements Broadphase {
+	//endpoint flag, set for a max (endpoint = box << 1 | MAX)
+	private static final int MAX = 1;
+	
+	//the boxes, packed
+	private Transform[] transforms;
+	private int count = 0;
+	
+	//the index of each transform, for constant time duplicate checks & removal
+	private IdentityHashMap<Transform, Integer> lookup;
+	
+	//bounds of each box as of the last step
+	private float[] minX, minY, maxX, maxY;
+	
+	//collision category & mask of each box as of the last step
+	private int[] categories, masks;
+	
+	//endpoints of each axis (sorted) & their values
+	private int[] endX, endY;
+	private float[] valX, valY;
+	
+	//overlapping pairs, 2 box indices per pair (lower index first)
+	private int[] pairs;
+	private int pairCount = 0;
+	
+	//pair index of each pair's key
+	private LongIntMap indices;
+	
+	public SweepBroadphase(){
+		lookup = new IdentityHashMap<>();
+		
+		int capacity = 64;
+		transforms = new Transform[capacity];
+		minX = new float[capacity];
+		minY = new float[capacity];
+		maxX = new float[capacity];
+		maxY = new float[capacity];
+		categories = new int[capacity];
+		masks = new int[capacity];
+		
+		endX = new int[capacity * 2];
+		endY = new int[capacity * 2];
+		valX = new float[capacity * 2];
+		valY = new float[capacity * 2];
+		
+		pairs = new int[capacity * 2];
+		indices = new LongIntMap(capacity);
+	}
+	
+	@Override
+	public void add(Transform transform){
+		//already tracked
+		if(lookup.containsKey(transform))
+			return;
+		
+		if(count == transforms.length)
+			grow(count * 2);
+		
+		int box = count++;
+		transforms[box] = transform;
+		lookup.put(transform, box);
+		bounds(box);
+		
+		//put the endpoints at the end & sort them in, which adds the box's pairs
+		int end = box * 2;
+		endX[end] = box << 1;
+		endX[end + 1] = (box << 1) | MAX;
+		valX[end] = minX[box];
+		valX[end + 1] = maxX[box];
+		endY[end] = box << 1;
+		endY[end + 1] = (box << 1) | MAX;
+		valY[end] = minY[box];
+		valY[end + 1] = maxY[box];
+		
+		sort(endX, valX, end);
+		sort(endY, valY, end);
+	}
+	
+	@Override
+	public void remove(Transform transform){
+		Integer index = lookup.remove(transform);
+		if(index == null)
+			return;
+		
+		int box = index;
+		int last = --count;
+		
+		//drop the box's endpoints, renaming the last box's to the freed spot
+		removeEnds(endX, valX, box, last);
+		removeEnds(endY, valY, box, last);
+		
+		//same for the pairs
+		int kept = 0;
+		for(int i=0;i<pairCount;i++){
+			int a = pairs[i * 2], b = pairs[i * 2 + 1];
+			if(a == box || b == box)
+				continue;
+			
+			if(a == last)
+				a = box;
+			if(b == last)
+				b = box;
+			
+			pairs[kept * 2] = Math.min(a, b);
+			pairs[kept * 2 + 1] = Math.max(a, b);
+			kept++;
+		}
+		pairCount = kept;
+		
+		//the pairs were renamed, key them again
+		indices.clear();
+		for(int i=0;i<pairCount;i++)
+			indices.put(key(pairs[i * 2], pairs[i * 2 + 1]), i);
+		
+		//move the last box into the freed spot
+		if(box != last){
+			transforms[box] = transforms[last];
+			minX[box] = minX[last];
+			minY[box] = minY[last];
+			maxX[box] = maxX[last];
+			maxY[box] = maxY[last];
+			categories[box] = categories[last];
+			masks[box] = masks[last];
+			
+			lookup.put(transforms[box], box);
+		}
+		transforms[last] = null;
+	}
+	
+	@Override
+	public void update(long delta){
+		BroadphaseEvent event = BroadphaseEvent.open();
+		
+		for(int i=0;i<count;i++){
+			Transform transform = transforms[i];
+			if(transform.getVelocityX() != 0 || transform.getVelocityY() != 0)
+				transform.updatePosition(delta);
+		}
+		
+		findPairs();
+		
+		event.boxes = count;
+		event.pairs = pairCount;
+		event.finish();
+	}
+	
+	@Override
+	public void findPairs(){
+		boolean refilter = false;
+		for(int i=0;i<count;i++)
+			refilter |= bounds(i);
+		
+		//refresh the endpoint values, then let the swaps update the pairs
+		int ends = count * 2;
+		for(int i=0;i<ends;i++){
+			int box = endX[i] >> 1;
+			valX[i] = ((endX[i] & MAX) != 0) ? maxX[box] : minX[box];
+			
+			box = endY[i] >> 1;
+			valY[i] = ((endY[i] & MAX) != 0) ? maxY[box] : minY[box];
+		}
+		
+		sort(endX, valX, 1);
+		sort(endY, valY, 1);
+		
+		//pairs kept or skipped under the old bits can't be trusted
+		if(refilter)
+			rebuildPairs();
+	}
+	
+	@Override
+	public int query(float left, float bottom, float right, float top, List<Transform> results){
+		int found = 0;
+		
+		//every box starting left of the rectangle's right, in order
+		int ends = count * 2;
+		for(int i=0;i<ends && valX[i] <= right;i++){
+			if((endX[i] & MAX) != 0)
+				continue;
+			
+			int box = endX[i] >> 1;
+			if(left <= maxX[box] && minY[box] <= top && bottom <= maxY[box]){
+				results.add(transforms[box]);
+				found++;
+			}
+		}
+		return found;
+	}
+	
+	@Override
+	public boolean cast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHit hit, RayHits hits){
+		if(hits != null)
+			hits.clear();
+		
+		float length = (float)Math.sqrt(dirX * dirX + dirY * dirY);
+		if(length == 0)
+			return false;
+		
+		dirX /= length;
+		dirY /= length;
+		float invX = 1f / dirX, invY = 1f / dirY;
+		
+		int best = -1;
+		float nearest = distance;
+		for(int i=0;i<count;i++){
+			if((categories[i] & layers) == 0)
+				continue;
+			
+			float t = RayHit.cast(x, y, invX, invY, nearest,
+					minX[i] - halfW, minY[i] - halfH, maxX[i] + halfW, maxY[i] + halfH);
+			if(t < 0)
+				continue;
+			
+			if(hits != null)
+				hits.add(transforms[i], x, y, dirX, dirY, t,
+						minX[i] - halfW, minY[i] - halfH, maxX[i] + halfW, maxY[i] + halfH);
+			
+			if(best == -1 || t < nearest){
+				best = i;
+				if(hits == null)
+					nearest = t;
+			}
+		}
+		
+		return finish(best, nearest, x, y, halfW, halfH, dirX, dirY, hit, hits);
+	}
+	
+	@Override
+	public int getPairCount(){
+		return pairCount;
+	}
+	
+	@Override
+	public Transform getPairA(int pair){
+		return transforms[pairs[pair * 2]];
+	}
+	
+	@Override
+	public Transform getPairB(int pair){
+		return transforms[pairs[pair * 2 + 1]];
+	}
+	
+	@Override
+	public int getPairIndexA(int pair){
+		return pairs[pair * 2];
+	}
+	
+	@Override
+	public int getPairIndexB(int pair){
+		return pairs[pair * 2 + 1];
+	}
+	
+	@Override
+	public int getCount(){
+		return count;
+	}
+	
+	@Override
+	public Transform get(int index){
+		return transforms[index];
+	}
+	
+	/** Fill in the results of a cast
+	 *
+	 * @param best the nearest box hit (-1 for none)
+	 * @param nearest how far along the cast the nearest box is
+	 * @param x the x of the cast's origin
+	 * @param y the y of the cast's origin
+	 * @param halfW half the width of the cast box
+	 * @param halfH half the height of the cast box
+	 * @param dirX the x of the (unit) direction
+	 * @param dirY the y of the (unit) direction
+	 * @param hit filled with the nearest hit (or null)
+	 * @param hits every hit (or null)
+	 * @return if anything was hit
+	 */
+	private boolean finish(int best, float nearest, float x, float y, float halfW, float halfH,
+			float dirX, float dirY, RayHit hit, RayHits hits){
+		if(best == -1)
+			return false;
+		
+		if(hits != null)
+			hits.sort();
+		
+		if(hit != null){
+			if(hits != null)
+				hits.get(0, hit);
+			else
+				hit.set(transforms[best], x, y, dirX, dirY, nearest,
+						minX[best] - halfW, minY[best] - halfH, maxX[best] + halfW, maxY[best] + halfH);
+		}
+		return true;
+	}
+	
+	/** Read a box's bounds, category & mask from its transform
+	 *
+	 * @param box the box
+	 * @return if the category or mask changed
+	 */
+	private boolean bounds(int box){
+		Transform transform = transforms[box];
+		minX[box] = transform.getLeft();
+		minY[box] = transform.getBottom();
+		maxX[box] = transform.getRight();
+		maxY[box] = transform.getTop();
+		
+		int category = transform.getCategory(), mask = transform.getMask();
+		if(categories[box] == category && masks[box] == mask)
+			return false;
+		
+		categories[box] = category;
+		masks[box] = mask;
+		return true;
+	}
+	
+	/**
+	 * Find every pair again from the sorted x axis (each box against the boxes starting inside it)
+	 */
+	private void rebuildPairs(){
+		pairCount = 0;
+		indices.clear();
+		
+		int ends = count * 2;
+		for(int i=0;i<ends;i++){
+			if((endX[i] & MAX) != 0)
+				continue;
+			
+			int a = endX[i] >> 1;
+			if(masks[a] == 0)
+				continue;
+			
+			for(int j=i + 1;j<ends && valX[j] <= maxX[a];j++){
+				if((endX[j] & MAX) != 0)
+					continue;
+				
+				int b = endX[j] >> 1;
+				if(overlaps(a, b))
+					addPair(a, b);
+			}
+		}
+	}
+	
+	/** Insertion sort an axis, adding & removing pairs as endpoints pass each other
+	 *
+	 * @param ends the endpoints of the axis
+	 * @param vals the values of the endpoints
+	 * @param from the first endpoint that may be out of order
+	 */
+	private void sort(int[] ends, float[] vals, int from){
+		int size = count * 2;
+		for(int i=from;i<size;i++){
+			int end = ends[i];
+			float val = vals[i];
+			
+			int j = i - 1;
+			while(j >= 0 && before(val, end, vals[j], ends[j])){
+				int other = ends[j];
+				
+				if((end & MAX) == 0 && (other & MAX) != 0){
+					//a min passed a max, they might overlap now
+					if(overlaps(end >> 1, other >> 1))
+						addPair(end >> 1, other >> 1);
+				}else if((end & MAX) != 0 && (other & MAX) == 0){
+					//a max passed a min, they can't overlap anymore
+					removePair(end >> 1, other >> 1);
+				}
+				
+				ends[j + 1] = other;
+				vals[j + 1] = vals[j];
+				j--;
+			}
+			
+			ends[j + 1] = end;
+			vals[j + 1] = val;
+		}
+	}
+	
+	/** Get if an endpoint sorts before another (mins before maxes on ties, as touching boxes overlap)
+	 *
+	 * @param val the value of the endpoint
+	 * @param end the endpoint
+	 * @param otherVal the value of the other endpoint
+	 * @param other the other endpoint
+	 * @return if the endpoint goes first
+	 */
+	private boolean before(float val, int end, float otherVal, int other){
+		return val < otherVal || (val == otherVal && (end & MAX) < (other & MAX));
+	}
+	
+	/** Get if 2 boxes overlap & care about each other (each one's category is in the other's mask)
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @return if they overlap & can collide
+	 */
+	private boolean overlaps(int a, int b){
+		return a != b && (categories[a] & masks[b]) != 0 && (categories[b] & masks[a]) != 0 && minX[a] <= maxX[b] && minX[b] <= maxX[a] && minY[a] <= maxY[b] && minY[b] <= maxY[a];
+	}
+	
+	/** Remove a box's endpoints from an axis, renaming the last box's endpoints to the box
+	 *
+	 * @param ends the endpoints of the axis
+	 * @param vals the values of the endpoints
+	 * @param box the box being removed
+	 * @param last the last box
+	 */
+	private void removeEnds(int[] ends, float[] vals, int box, int last){
+		int size = (count + 1) * 2;
+		int kept = 0;
+		for(int i=0;i<size;i++){
+			int end = ends[i];
+			if((end >> 1) == box)
+				continue;
+			
+			if((end >> 1) == last)
+				end = (box << 1) | (end & MAX);
+			
+			ends[kept] = end;
+			vals[kept] = vals[i];
+			kept++;
+		}
+	}
+	
+	/** Get the key of a pair
+	 *
+	 * @param a the lower box
+	 * @param b the higher box
+	 * @return the packed boxes
+	 */
+	private long key(int a, int b){
+		return ((long)a << 32) | b;
+	}
+	
+	/** Add a pair if it isn't already kept
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 */
+	private void addPair(int a, int b){
+		if(a > b){
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		
+		//already kept, otherwise it goes on the end
+		if(indices.putIfAbsent(key(a, b), pairCount) != LongIntMap.NONE)
+			return;
+		
+		if(pairCount * 2 == pairs.length)
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		
+		pairs[pairCount * 2] = a;
+		pairs[pairCount * 2 + 1] = b;
+		pairCount++;
+	}
+	
+	/** Remove a pair if it's kept
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 */
+	private void removePair(int a, int b){
+		if(a > b){
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		
+		int pair = indices.remove(key(a, b));
+		if(pair == LongIntMap.NONE)
+			return;
+		
+		//move the last pair into the freed spot
+		int last = --pairCount;
+		if(pair != last){
+			pairs[pair * 2] = pairs[last * 2];
+			pairs[pair * 2 + 1] = pairs[last * 2 + 1];
+			indices.put(key(pairs[pair * 2], pairs[pair * 2 + 1]), pair);
+		}
+	}
+	
+	/** Grow the per box arrays
+	 *
+	 * @param capacity the new amount of boxes
+	 */
+	private void grow(int capacity){
+		transforms = Arrays.copyOf(transforms, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		categories = Arrays.copyOf(categories, capacity);
+		masks = Arrays.copyOf(masks, capacity);
+		
+		endX = Arrays.copyOf(endX, capacity * 2);
+		endY = Arrays.copyOf(endY, capacity * 2);
+		valX = Arrays.copyOf(valX, capacity * 2);
+		valY = Arrays.copyOf(valY, capacity * 2);
+	}
+}
@@ -0,0 +1,475 @@
+package io.tek256.core.collision;
+
+import java.util.IdentityHashMap;
+
+import io.tek256.core.runtime.Transform;
+
+/**
+ * USAGE: add(levelObject) for the static geometry -> move(body, delta) / step(broadphase, delta) every step
+ *
+ * NOTES: Static, tile snapped geometry baked into a bitmap of solid tiles
+ * 		  (one bit per tile), so it never has to be in a broadphase. Moving
+ * 		  boxes are collided against it by looking up the tiles they cross,
+ * 		  one axis at a time, so the cost only depends on how far a box moves
+ * 		  & how big it is, never on the size of the level (and nothing can
+ * 		  tunnel through a tile, every tile crossed is checked). The grid is
+ * 		  lined up with the first object baked unless an origin is given, and
+ * 		  objects that don't line up with it (or collide with nothing, mask 0)
+ * 		  aren't baked. The bitmap grows to fit whatever is baked. Each tile
+ * 		  also counts the baked objects covering it & the map remembers the
+ * 		  tiles each object covered, so removing an object clears exactly
+ * 		  the tiles nothing else covers.
+ */
+public class TileMap {
+	//sides of a box that hit a tile in a move
+	public static final int LEFT = 1, RIGHT = 2, BOTTOM = 4, TOP = 8;
+	
+	//how close to a tile edge counts as on it
+	public static final float EPSILON = 0.001f;
+	
+	private final float tileSize;
+	
+	//where tile (0, 0) starts & if that's been decided yet
+	private float originX = 0, originY = 0;
+	private boolean lined = false;
+	
+	//the tiles the bitmap covers
+	private int minX = 0, minY = 0, columns = 0, rows = 0;
+	
+	//the bitmap, row by row, `stride` longs per row
+	private long[] bits = new long[0];
+	private int stride = 0;
+	
+	//how many baked objects cover each tile, row by row, `columns` per row
+	private short[] counts = new short[0];
+	
+	//the tiles each baked object covers (left, bottom, right, top), to undo exactly that
+	private IdentityHashMap<Transform, int[]> baked = new IdentityHashMap<>();
+	
+	//amount of solid tiles
+	private int solid = 0;
+	
+	public TileMap(float tileSize){
+		this.tileSize = tileSize;
+	}
+	
+	/** Create a tile map with a fixed grid
+	 *
+	 * @param tileSize the size of a tile
+	 * @param originX the x where tile (0, 0) starts
+	 * @param originY the y where tile (0, 0) starts
+	 */
+	public TileMap(float tileSize, float originX, float originY){
+		this(tileSize);
+		this.originX = originX;
+		this.originY = originY;
+		lined = true;
+	}
+	
+	/** Bake a static object's tiles into the map
+	 *
+	 * @param transform the object
+	 * @return if it was baked (false when it doesn't line up with the grid, collides with nothing or was already baked)
+	 */
+	public boolean add(Transform transform){
+		//decor, nothing would ever hit it
+		if(transform.getMask() == 0 || baked.containsKey(transform))
+			return false;
+		
+		//line the grid up with the first object
+		if(!lined){
+			originX = transform.getLeft() % tileSize;
+			originY = transform.getBottom() % tileSize;
+			lined = true;
+		}
+		
+		int left = edge(transform.getLeft(), originX), right = edge(transform.getRight(), originX);
+		int bottom = edge(transform.getBottom(), originY), top = edge(transform.getTop(), originY);
+		if(left == Integer.MIN_VALUE || right == Integer.MIN_VALUE || bottom == Integer.MIN_VALUE
+				|| top == Integer.MIN_VALUE || right <= left || top <= bottom)
+			return false;
+		
+		fit(left, bottom, right - 1, top - 1);
+		for(int y=bottom;y<top;y++)
+			for(int x=left;x<right;x++)
+				cover(x, y);
+		
+		baked.put(transform, new int[]{ left, bottom, right, top });
+		return true;
+	}
+	
+	/** Clear a baked object's tiles from the map, the tiles other baked objects cover stay solid
+	 *  Note: the tiles it covered when baked, wherever it is now
+	 *
+	 * @param transform the object
+	 * @return if it was baked (and was cleared)
+	 */
+	public boolean remove(Transform transform){
+		int[] tiles = baked.remove(transform);
+		if(tiles == null)
+			return false;
+		
+		for(int y=tiles[1];y<tiles[3];y++)
+			for(int x=tiles[0];x<tiles[2];x++)
+				uncover(x, y);
+		return true;
+	}
+	
+	/** Move a box by its velocity, stopping it at any solid tile it runs into
+	 *
+	 * @param transform the box
+	 * @param delta time since the last step
+	 * @return the sides that hit a tile (`LEFT`, `RIGHT`, `BOTTOM`, `TOP`)
+	 */
+	public int move(Transform transform, long delta){
+		float velX = transform.getVelocityX(), velY = transform.getVelocityY();
+		if(velX == 0 && velY == 0)
+			return 0;
+		
+		float x = transform.getX(), y = transform.getY();
+		float halfW = transform.getWidth() / 2f, halfH = transform.getHeight() / 2f;
+		float dx = velX * delta, dy = velY * delta;
+		int hit = 0;
+		
+		//across first
+		if(dx != 0 && solid > 0){
+			int low = tileY(y - halfH + EPSILON), high = tileY(y + halfH - EPSILON);
+			
+			if(dx > 0){
+				float edge = x + halfW;
+				int last = (int)Math.ceil((edge + dx - originX) / tileSize) - 1;
+				int first = (int)Math.ceil((edge - EPSILON - originX) / tileSize);
+				for(int c=Math.max(first, minX);c<=Math.min(last, minX + columns - 1);c++){
+					if(column(c, low, high)){
+						dx = originX + c * tileSize - edge;
+						hit |= RIGHT;
+						break;
+					}
+				}
+			}else{
+				float edge = x - halfW;
+				int last = tileX(edge + dx);
+				int first = tileX(edge + EPSILON) - 1;
+				for(int c=Math.min(first, minX + columns - 1);c>=Math.max(last, minX);c--){
+					if(column(c, low, high)){
+						dx = originX + (c + 1) * tileSize - edge;
+						hit |= LEFT;
+						break;
+					}
+				}
+			}
+		}
+		x += dx;
+		
+		//then up & down, from where the box ended up across
+		if(dy != 0 && solid > 0){
+			int low = tileX(x - halfW + EPSILON), high = tileX(x + halfW - EPSILON);
+			
+			if(dy > 0){
+				float edge = y + halfH;
+				int last = (int)Math.ceil((edge + dy - originY) / tileSize) - 1;
+				int first = (int)Math.ceil((edge - EPSILON - originY) / tileSize);
+				for(int r=Math.max(first, minY);r<=Math.min(last, minY + rows - 1);r++){
+					if(row(r, low, high)){
+						dy = originY + r * tileSize - edge;
+						hit |= TOP;
+						break;
+					}
+				}
+			}else{
+				float edge = y - halfH;
+				int last = tileY(edge + dy);
+				int first = tileY(edge + EPSILON) - 1;
+				for(int r=Math.min(first, minY + rows - 1);r>=Math.max(last, minY);r--){
+					if(row(r, low, high)){
+						dy = originY + (r + 1) * tileSize - edge;
+						hit |= BOTTOM;
+						break;
+					}
+				}
+			}
+		}
+		y += dy;
+		
+		//move the normal way (so the last position is kept), then pull back to the tiles
+		transform.updatePosition(delta);
+		transform.translate(x - transform.getX(), y - transform.getY());
+		
+		if((hit & (LEFT | RIGHT)) != 0)
+			transform.setVelocityX(0);
+		if((hit & (BOTTOM | TOP)) != 0)
+			transform.setVelocityY(0);
+		
+		return hit;
+	}
+	
+	/** Move every box of a broadphase against the tiles & find the pairs
+	 *  Note: use instead of `broadphase.update(delta)` when the level's geometry is in the map
+	 *
+	 * @param broadphase the broadphase of the moving boxes
+	 * @param delta time since the last step
+	 */
+	public void step(Broadphase broadphase, long delta){
+		int count = broadphase.getCount();
+		for(int i=0;i<count;i++)
+			move(broadphase.get(i), delta);
+		
+		broadphase.findPairs();
+	}
+	
+	/** Get if any solid tile overlaps a rectangle
+	 *
+	 * @param left the left of the rectangle
+	 * @param bottom the bottom of the rectangle
+	 * @param right the right of the rectangle
+	 * @param top the top of the rectangle
+	 * @return if a solid tile overlaps it
+	 */
+	public boolean overlaps(float left, float bottom, float right, float top){
+		int low = tileX(left + EPSILON), high = tileX(right - EPSILON);
+		int end = Math.min(tileY(top - EPSILON), minY + rows - 1);
+		for(int y=Math.max(tileY(bottom + EPSILON), minY);y<=end;y++)
+			if(row(y, low, high))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Clear every tile (the grid lines up with the next object baked again)
+	 */
+	public void clear(){
+		bits = new long[0];
+		counts = new short[0];
+		baked.clear();
+		minX = minY = columns = rows = stride = 0;
+		solid = 0;
+		lined = false;
+	}
+	
+	/** Get if the tile at a point is solid
+	 *
+	 * @param x the x of the point
+	 * @param y the y of the point
+	 * @return if the tile is solid
+	 */
+	public boolean isSolid(float x, float y){
+		return isSolid(tileX(x), tileY(y));
+	}
+	
+	/** Get if a tile is solid
+	 *
+	 * @param x the column of the tile
+	 * @param y the row of the tile
+	 * @return if the tile is solid
+	 */
+	public boolean isSolid(int x, int y){
+		int column = x - minX, row = y - minY;
+		if(column < 0 || row < 0 || column >= columns || row >= rows)
+			return false;
+		
+		return (bits[row * stride + (column >> 6)] & (1L << column)) != 0;
+	}
+	
+	/** Set if a tile is solid (growing the map to fit it)
+	 *  Note: overrides what's baked, clearing a tile clears it for every object covering it
+	 *
+	 * @param x the column of the tile
+	 * @param y the row of the tile
+	 * @param solid if the tile is solid
+	 */
+	public void setSolid(int x, int y, boolean solid){
+		if(solid){
+			if(!isSolid(x, y))
+				cover(x, y);
+			return;
+		}
+		
+		if(!isSolid(x, y))
+			return;
+		
+		int column = x - minX, row = y - minY;
+		counts[row * columns + column] = 1;
+		uncover(x, y);
+	}
+	
+	/** Add an object covering a tile, making it solid (growing the map to fit it)
+	 *
+	 * @param x the column of the tile
+	 * @param y the row of the tile
+	 */
+	private void cover(int x, int y){
+		fit(x, y, x, y);
+		
+		int column = x - minX, row = y - minY;
+		int tile = row * columns + column;
+		if(counts[tile]++ == 0){
+			bits[row * stride + (column >> 6)] |= 1L << column;
+			solid++;
+		}
+	}
+	
+	/** Take an object covering a tile away, clearing the tile when nothing covers it anymore
+	 *
+	 * @param x the column of the tile
+	 * @param y the row of the tile
+	 */
+	private void uncover(int x, int y){
+		int column = x - minX, row = y - minY;
+		if(column < 0 || row < 0 || column >= columns || row >= rows)
+			return;
+		
+		int tile = row * columns + column;
+		if(counts[tile] == 0 || --counts[tile] > 0)
+			return;
+		
+		bits[row * stride + (column >> 6)] &= ~(1L << column);
+		solid--;
+	}
+	
+	/** Get the column of the tile at an x
+	 *
+	 * @param x the x
+	 * @return the column
+	 */
+	public int tileX(float x){
+		return (int)Math.floor((x - originX) / tileSize);
+	}
+	
+	/** Get the row of the tile at a y
+	 *
+	 * @param y the y
+	 * @return the row
+	 */
+	public int tileY(float y){
+		return (int)Math.floor((y - originY) / tileSize);
+	}
+	
+	/** Get the size of a tile
+	 *
+	 * @return the size of a tile
+	 */
+	public float getTileSize(){
+		return tileSize;
+	}
+	
+	/** Get the amount of solid tiles
+	 *
+	 * @return the amount of solid tiles
+	 */
+	public int getSolidCount(){
+		return solid;
+	}
+	
+	/** Get the tile edge a position lies on
+	 *
+	 * @param position the position
+	 * @param origin where tile 0 starts on the axis
+	 * @return the edge, or `Integer.MIN_VALUE` when it's not on one
+	 */
+	private int edge(float position, float origin){
+		float tiles = (position - origin) / tileSize;
+		int edge = Math.round(tiles);
+		if(Math.abs(tiles - edge) * tileSize > EPSILON)
+			return Integer.MIN_VALUE;
+		return edge;
+	}
+	
+	/** Get if any tile of a column is solid
+	 *
+	 * @param x the column
+	 * @param low the lowest row
+	 * @param high the highest row
+	 * @return if a tile is solid
+	 */
+	private boolean column(int x, int low, int high){
+		int column = x - minX;
+		if(column < 0 || column >= columns)
+			return false;
+		
+		long bit = 1L << column;
+		int word = column >> 6;
+		for(int y=Math.max(low - minY, 0);y<=Math.min(high - minY, rows - 1);y++)
+			if((bits[y * stride + word] & bit) != 0)
+				return true;
+		return false;
+	}
+	
+	/** Get if any tile of a row is solid
+	 *
+	 * @param y the row
+	 * @param low the lowest column
+	 * @param high the highest column
+	 * @return if a tile is solid
+	 */
+	private boolean row(int y, int low, int high){
+		int row = y - minY;
+		if(row < 0 || row >= rows)
+			return false;
+		
+		int from = Math.max(low - minX, 0), to = Math.min(high - minX, columns - 1);
+		if(from > to)
+			return false;
+		
+		//whole words at a time
+		int base = row * stride;
+		for(int word=from >> 6;word<=to >> 6;word++){
+			long mask = -1L;
+			if(word == from >> 6)
+				mask &= -1L << from;
+			if(word == to >> 6)
+				mask &= -1L >>> (63 - (to & 63));
+			
+			if((bits[base + word] & mask) != 0)
+				return true;
+		}
+		return false;
+	}
+	
+	/** Grow the bitmap to cover some tiles
+	 *
+	 * @param left the lowest column
+	 * @param bottom the lowest row
+	 * @param right the highest column
+	 * @param top the highest row
+	 */
+	private void fit(int left, int bottom, int right, int top){
+		if(columns > 0 && left >= minX && bottom >= minY && right < minX + columns && top < minY + rows)
+			return;
+		
+		int newMinX = (columns == 0) ? left : Math.min(left, minX);
+		int newMinY = (rows == 0) ? bottom : Math.min(bottom, minY);
+		int newColumns = ((columns == 0) ? right : Math.max(right, minX + columns - 1)) - newMinX + 1;
+		int newRows = ((rows == 0) ? top : Math.max(top, minY + rows - 1)) - newMinY + 1;
+		int newStride = (newColumns + 63) >> 6;
+		
+		long[] old = bits;
+		short[] oldCounts = counts;
+		int oldMinX = minX, oldMinY = minY, oldColumns = columns, oldRows = rows, oldStride = stride;
+		
+		bits = new long[newRows * newStride];
+		counts = new short[newRows * newColumns];
+		minX = newMinX;
+		minY = newMinY;
+		columns = newColumns;
+		rows = newRows;
+		stride = newStride;
+		
+		//copy the solid tiles over one bit at a time
+		for(int row=0;row<oldRows;row++){
+			for(int word=0;word<oldStride;word++){
+				long value = old[row * oldStride + word];
+				while(value != 0){
+					int column = (word << 6) + Long.numberOfTrailingZeros(value);
+					value &= value - 1;
+					
+					int x = oldMinX + column - minX, y = oldMinY + row - minY;
+					bits[y * stride + (x >> 6)] |= 1L << x;
+				}
+			}
+			
+			//the counts a row at a time
+			System.arraycopy(oldCounts, row * oldColumns, counts,
+					(oldMinY + row - minY) * columns + (oldMinX - minX), oldColumns);
+		}
+	}
+}
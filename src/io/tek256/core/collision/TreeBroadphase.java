@@ -0,0 +1,808 @@
+package io.tek256.core.collision;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import io.tek256.core.runtime.Transform;
+import io.tek256.core.trace.EngineEvents.BroadphaseEvent;
+
+/**
+ * USAGE: add(transform) -> update(delta) every step -> pairs / query() / raycast()
+ *
+ * NOTES: Dynamic AABB tree broadphase, for levels where object sizes vary
+ * 		  wildly. Every box is a leaf holding a fat copy of its bounds (grown
+ * 		  by `MARGIN` & the way it's moving), so the tree is only touched when
+ * 		  a box leaves its fat bounds. Leaves are placed by the smallest
+ * 		  perimeter increase and the tree is kept balanced with rotations on
+ * 		  the way back up, so inserts, removals, moves & per box queries are
+ * 		  all O(log n). Nodes live in flat arrays with a free list, and the
+ * 		  world isn't bounded like the grid's. Every node also keeps all the
+ * 		  collision categories & masks below it, so finding a box's pairs
+ * 		  skips whole subtrees it doesn't care about (or that don't care
+ * 		  about it).
+ */
+public class TreeBroadphase implements Broadphase {
+	//how far a leaf's bounds are grown past its box
+	public static final float MARGIN = 4f;
+	
+	//how many steps of movement a moving box's bounds are grown by
+	public static final float DISPLACEMENT = 2f;
+	
+	//no node
+	private static final int NONE = -1;
+	
+	//fat bounds of each node
+	private float[] nodeMinX, nodeMinY, nodeMaxX, nodeMaxY;
+	
+	//tree links of each node (a free node's parent is the next free node)
+	private int[] parent, child1, child2;
+	
+	//height of each node (leaves are 0, free nodes are -1)
+	private int[] height;
+	
+	//the box of each leaf (NONE for branches)
+	private int[] nodeBox;
+	
+	//every collision category & every mask of the boxes below each node
+	private int[] nodeCategories, nodeMasks;
+	
+	private int root = NONE, freeList = NONE;
+	
+	//the boxes, packed
+	private Transform[] transforms;
+	private int count = 0;
+	
+	//the index of each transform, for constant time duplicate checks & removal
+	private IdentityHashMap<Transform, Integer> lookup;
+	
+	//the leaf of each box
+	private int[] leaf;
+	
+	//bounds of each box as of the last step
+	private float[] minX, minY, maxX, maxY;
+	
+	//collision category & mask of each box as of the last step
+	private int[] categories, masks;
+	
+	//traversal stack, shared by every walk of the tree
+	private int[] stack;
+	
+	//overlapping pairs of the last step, 2 box indices per pair
+	private int[] pairs;
+	private int pairCount = 0;
+	
+	public TreeBroadphase(){
+		lookup = new IdentityHashMap<>();
+		
+		int capacity = 64;
+		transforms = new Transform[capacity];
+		leaf = new int[capacity];
+		minX = new float[capacity];
+		minY = new float[capacity];
+		maxX = new float[capacity];
+		maxY = new float[capacity];
+		categories = new int[capacity];
+		masks = new int[capacity];
+		
+		nodeMinX = new float[0];
+		nodeMinY = new float[0];
+		nodeMaxX = new float[0];
+		nodeMaxY = new float[0];
+		parent = new int[0];
+		child1 = new int[0];
+		child2 = new int[0];
+		height = new int[0];
+		nodeBox = new int[0];
+		nodeCategories = new int[0];
+		nodeMasks = new int[0];
+		growNodes(capacity * 2);
+		
+		stack = new int[64];
+		pairs = new int[capacity * 2];
+	}
+	
+	@Override
+	public void add(Transform transform){
+		//already tracked
+		if(lookup.containsKey(transform))
+			return;
+		
+		if(count == transforms.length)
+			grow(count * 2);
+		
+		int box = count++;
+		transforms[box] = transform;
+		lookup.put(transform, box);
+		
+		bounds(box);
+		
+		int node = allocateNode();
+		nodeBox[node] = box;
+		leaf[box] = node;
+		fatten(node, box, 0, 0);
+		insertLeaf(node);
+	}
+	
+	@Override
+	public void remove(Transform transform){
+		Integer index = lookup.remove(transform);
+		if(index == null)
+			return;
+		
+		int box = index;
+		removeLeaf(leaf[box]);
+		freeNode(leaf[box]);
+		
+		//move the last box into the freed spot
+		int last = --count;
+		if(box != last){
+			transforms[box] = transforms[last];
+			leaf[box] = leaf[last];
+			minX[box] = minX[last];
+			minY[box] = minY[last];
+			maxX[box] = maxX[last];
+			maxY[box] = maxY[last];
+			categories[box] = categories[last];
+			masks[box] = masks[last];
+			
+			nodeBox[leaf[box]] = box;
+			lookup.put(transforms[box], box);
+		}
+		transforms[last] = null;
+		pairCount = 0;
+	}
+	
+	@Override
+	public void update(long delta){
+		BroadphaseEvent event = BroadphaseEvent.open();
+		
+		for(int i=0;i<count;i++){
+			Transform transform = transforms[i];
+			if(transform.getVelocityX() != 0 || transform.getVelocityY() != 0)
+				transform.updatePosition(delta);
+		}
+		
+		findPairs();
+		
+		event.boxes = count;
+		event.pairs = pairCount;
+		event.finish();
+	}
+	
+	@Override
+	public void findPairs(){
+		//move the leaves of boxes that left their fat bounds
+		for(int i=0;i<count;i++){
+			float lastX = minX[i], lastY = minY[i];
+			int node = leaf[i];
+			
+			//categories or masks changed, fix the bits on the way up
+			if(bounds(i))
+				refilter(node, i);
+			
+			if(nodeMinX[node] <= minX[i] && nodeMinY[node] <= minY[i] &&
+					maxX[i] <= nodeMaxX[node] && maxY[i] <= nodeMaxY[node])
+				continue;
+			
+			removeLeaf(node);
+			fatten(node, i, minX[i] - lastX, minY[i] - lastY);
+			insertLeaf(node);
+		}
+		
+		//query the tree with every box, only keeping pairs with higher boxes
+		pairCount = 0;
+		for(int a=0;a<count;a++){
+			//cares about nothing, or nothing cares about it
+			if(masks[a] == 0 || categories[a] == 0)
+				continue;
+			
+			int top = 0;
+			stack[top++] = root;
+			
+			while(top > 0){
+				int node = stack[--top];
+				if(node == NONE || !overlaps(node, minX[a], minY[a], maxX[a], maxY[a]))
+					continue;
+				
+				//nothing below cares about the box or the other way round
+				if((nodeCategories[node] & masks[a]) == 0 || (nodeMasks[node] & categories[a]) == 0)
+					continue;
+				
+				if(child1[node] == NONE){
+					int b = nodeBox[node];
+					if(b > a && interested(a, b) && minX[a] <= maxX[b] && minX[b] <= maxX[a] && minY[a] <= maxY[b] && minY[b] <= maxY[a])
+						addPair(a, b);
+					continue;
+				}
+				
+				top = push(top, child1[node], child2[node]);
+			}
+		}
+	}
+	
+	@Override
+	public int query(float left, float bottom, float right, float top, List<Transform> results){
+		int found = 0;
+		
+		int size = 0;
+		stack[size++] = root;
+		while(size > 0){
+			int node = stack[--size];
+			if(node == NONE || !overlaps(node, left, bottom, right, top))
+				continue;
+			
+			if(child1[node] == NONE){
+				int box = nodeBox[node];
+				if(minX[box] <= right && left <= maxX[box] && minY[box] <= top && bottom <= maxY[box]){
+					results.add(transforms[box]);
+					found++;
+				}
+				continue;
+			}
+			
+			size = push(size, child1[node], child2[node]);
+		}
+		return found;
+	}
+	
+	@Override
+	public boolean cast(float x, float y, float halfW, float halfH, float dirX, float dirY,
+			float distance, int layers, RayHit hit, RayHits hits){
+		if(hits != null)
+			hits.clear();
+		
+		float length = (float)Math.sqrt(dirX * dirX + dirY * dirY);
+		if(length == 0)
+			return false;
+		
+		dirX /= length;
+		dirY /= length;
+		float invX = 1f / dirX, invY = 1f / dirY;
+		
+		int best = -1;
+		float nearest = distance;
+		
+		int size = 0;
+		stack[size++] = root;
+		while(size > 0){
+			int node = stack[--size];
+			
+			//skip anything the cast misses, or only reaches past the nearest hit
+			if(node == NONE || RayHit.cast(x, y, invX, invY, nearest, nodeMinX[node] - halfW, nodeMinY[node] - halfH,
+					nodeMaxX[node] + halfW, nodeMaxY[node] + halfH) < 0)
+				continue;
+			
+			if(child1[node] == NONE){
+				int box = nodeBox[node];
+				if((categories[box] & layers) == 0)
+					continue;
+				
+				float t = RayHit.cast(x, y, invX, invY, nearest,
+						minX[box] - halfW, minY[box] - halfH, maxX[box] + halfW, maxY[box] + halfH);
+				if(t < 0)
+					continue;
+				
+				if(hits != null)
+					hits.add(transforms[box], x, y, dirX, dirY, t,
+							minX[box] - halfW, minY[box] - halfH, maxX[box] + halfW, maxY[box] + halfH);
+				
+				if(best == -1 || t < nearest){
+					best = box;
+					if(hits == null)
+						nearest = t;
+				}
+				continue;
+			}
+			
+			size = push(size, child1[node], child2[node]);
+		}
+		
+		return finish(best, nearest, x, y, halfW, halfH, dirX, dirY, hit, hits);
+	}
+	
+	@Override
+	public int getPairCount(){
+		return pairCount;
+	}
+	
+	@Override
+	public Transform getPairA(int pair){
+		return transforms[pairs[pair * 2]];
+	}
+	
+	@Override
+	public Transform getPairB(int pair){
+		return transforms[pairs[pair * 2 + 1]];
+	}
+	
+	@Override
+	public int getPairIndexA(int pair){
+		return pairs[pair * 2];
+	}
+	
+	@Override
+	public int getPairIndexB(int pair){
+		return pairs[pair * 2 + 1];
+	}
+	
+	@Override
+	public int getCount(){
+		return count;
+	}
+	
+	@Override
+	public Transform get(int index){
+		return transforms[index];
+	}
+	
+	/** Get the height of the tree (how balanced it is, ~log2 of the boxes)
+	 *
+	 * @return the height of the tree
+	 */
+	public int getHeight(){
+		return (root == NONE) ? 0 : height[root];
+	}
+	
+	/** Fill in the results of a cast
+	 *
+	 * @param best the nearest box hit (-1 for none)
+	 * @param nearest how far along the cast the nearest box is
+	 * @param x the x of the cast's origin
+	 * @param y the y of the cast's origin
+	 * @param halfW half the width of the cast box
+	 * @param halfH half the height of the cast box
+	 * @param dirX the x of the (unit) direction
+	 * @param dirY the y of the (unit) direction
+	 * @param hit filled with the nearest hit (or null)
+	 * @param hits every hit (or null)
+	 * @return if anything was hit
+	 */
+	private boolean finish(int best, float nearest, float x, float y, float halfW, float halfH,
+			float dirX, float dirY, RayHit hit, RayHits hits){
+		if(best == -1)
+			return false;
+		
+		if(hits != null)
+			hits.sort();
+		
+		if(hit != null){
+			if(hits != null)
+				hits.get(0, hit);
+			else
+				hit.set(transforms[best], x, y, dirX, dirY, nearest,
+						minX[best] - halfW, minY[best] - halfH, maxX[best] + halfW, maxY[best] + halfH);
+		}
+		return true;
+	}
+	
+	/** Read a box's bounds, category & mask from its transform
+	 *
+	 * @param box the box
+	 * @return if the category or mask changed
+	 */
+	private boolean bounds(int box){
+		Transform transform = transforms[box];
+		minX[box] = transform.getLeft();
+		minY[box] = transform.getBottom();
+		maxX[box] = transform.getRight();
+		maxY[box] = transform.getTop();
+		
+		int category = transform.getCategory(), mask = transform.getMask();
+		if(categories[box] == category && masks[box] == mask)
+			return false;
+		
+		categories[box] = category;
+		masks[box] = mask;
+		return true;
+	}
+	
+	/** Set a leaf's category & mask from its box, then redo the bits of every node above it
+	 *
+	 * @param node the leaf
+	 * @param box the box
+	 */
+	private void refilter(int node, int box){
+		nodeCategories[node] = categories[box];
+		nodeMasks[node] = masks[box];
+		
+		for(int index=parent[node];index!=NONE;index=parent[index]){
+			int c1 = child1[index], c2 = child2[index];
+			nodeCategories[index] = nodeCategories[c1] | nodeCategories[c2];
+			nodeMasks[index] = nodeMasks[c1] | nodeMasks[c2];
+		}
+	}
+	
+	/** Get if 2 boxes care about each other (each one's category is in the other's mask)
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 * @return if they can collide
+	 */
+	private boolean interested(int a, int b){
+		return (categories[a] & masks[b]) != 0 && (categories[b] & masks[a]) != 0;
+	}
+	
+	/** Set a leaf's fat bounds from its box, grown in the direction it's moving
+	 *
+	 * @param node the leaf
+	 * @param box the box
+	 * @param dx how far the box moved on x since the last step
+	 * @param dy how far the box moved on y since the last step
+	 */
+	private void fatten(int node, int box, float dx, float dy){
+		nodeMinX[node] = minX[box] - MARGIN;
+		nodeMinY[node] = minY[box] - MARGIN;
+		nodeMaxX[node] = maxX[box] + MARGIN;
+		nodeMaxY[node] = maxY[box] + MARGIN;
+		nodeCategories[node] = categories[box];
+		nodeMasks[node] = masks[box];
+		
+		dx *= DISPLACEMENT;
+		dy *= DISPLACEMENT;
+		
+		if(dx < 0)
+			nodeMinX[node] += dx;
+		else
+			nodeMaxX[node] += dx;
+		
+		if(dy < 0)
+			nodeMinY[node] += dy;
+		else
+			nodeMaxY[node] += dy;
+	}
+	
+	/** Place a leaf where it grows the tree the least
+	 *
+	 * @param node the leaf
+	 */
+	private void insertLeaf(int node){
+		if(root == NONE){
+			root = node;
+			parent[node] = NONE;
+			return;
+		}
+		
+		//find the best sibling, by the perimeter it'd add
+		float lx0 = nodeMinX[node], ly0 = nodeMinY[node], lx1 = nodeMaxX[node], ly1 = nodeMaxY[node];
+		int index = root;
+		while(child1[index] != NONE){
+			int c1 = child1[index], c2 = child2[index];
+			
+			float area = perimeter(index);
+			float combined = unionPerimeter(index, lx0, ly0, lx1, ly1);
+			
+			//cost of a new parent for this node & the leaf
+			float cost = 2f * combined;
+			
+			//cost of pushing the leaf further down
+			float inheritance = 2f * (combined - area);
+			
+			float cost1 = unionPerimeter(c1, lx0, ly0, lx1, ly1) + inheritance;
+			if(child1[c1] != NONE)
+				cost1 -= perimeter(c1);
+			
+			float cost2 = unionPerimeter(c2, lx0, ly0, lx1, ly1) + inheritance;
+			if(child1[c2] != NONE)
+				cost2 -= perimeter(c2);
+			
+			if(cost < cost1 && cost < cost2)
+				break;
+			
+			index = (cost1 < cost2) ? c1 : c2;
+		}
+		
+		int sibling = index;
+		
+		//make a new parent for the sibling & the leaf
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		union(newParent, sibling, node);
+		height[newParent] = height[sibling] + 1;
+		
+		if(oldParent != NONE){
+			if(child1[oldParent] == sibling)
+				child1[oldParent] = newParent;
+			else
+				child2[oldParent] = newParent;
+		}else{
+			root = newParent;
+		}
+		
+		child1[newParent] = sibling;
+		child2[newParent] = node;
+		parent[sibling] = newParent;
+		parent[node] = newParent;
+		
+		//fix the heights & bounds on the way back up
+		refit(parent[node]);
+	}
+	
+	/** Take a leaf out of the tree (the node itself isn't freed)
+	 *
+	 * @param node the leaf
+	 */
+	private void removeLeaf(int node){
+		if(node == root){
+			root = NONE;
+			return;
+		}
+		
+		int oldParent = parent[node];
+		int grandParent = parent[oldParent];
+		int sibling = (child1[oldParent] == node) ? child2[oldParent] : child1[oldParent];
+		
+		//the sibling takes the parent's place
+		if(grandParent != NONE){
+			if(child1[grandParent] == oldParent)
+				child1[grandParent] = sibling;
+			else
+				child2[grandParent] = sibling;
+			parent[sibling] = grandParent;
+			freeNode(oldParent);
+			
+			refit(grandParent);
+		}else{
+			root = sibling;
+			parent[sibling] = NONE;
+			freeNode(oldParent);
+		}
+	}
+	
+	/** Balance & refit every node from a node up to the root
+	 *
+	 * @param index the lowest node that changed
+	 */
+	private void refit(int index){
+		while(index != NONE){
+			index = balance(index);
+			
+			int c1 = child1[index], c2 = child2[index];
+			height[index] = 1 + Math.max(height[c1], height[c2]);
+			union(index, c1, c2);
+			
+			index = parent[index];
+		}
+	}
+	
+	/** Rotate a node's taller child up when its children's heights differ by more than 1
+	 *
+	 * @param a the node
+	 * @return the node now in its place
+	 */
+	private int balance(int a){
+		if(child1[a] == NONE || height[a] < 2)
+			return a;
+		
+		int b = child1[a], c = child2[a];
+		int difference = height[c] - height[b];
+		
+		//rotate c up
+		if(difference > 1){
+			int f = child1[c], g = child2[c];
+			
+			child1[c] = a;
+			parent[c] = parent[a];
+			parent[a] = c;
+			replaceChild(parent[c], a, c);
+			
+			if(height[f] > height[g]){
+				child2[c] = f;
+				child2[a] = g;
+				parent[g] = a;
+				union(a, b, g);
+				union(c, a, f);
+				height[a] = 1 + Math.max(height[b], height[g]);
+				height[c] = 1 + Math.max(height[a], height[f]);
+			}else{
+				child2[c] = g;
+				child2[a] = f;
+				parent[f] = a;
+				union(a, b, f);
+				union(c, a, g);
+				height[a] = 1 + Math.max(height[b], height[f]);
+				height[c] = 1 + Math.max(height[a], height[g]);
+			}
+			return c;
+		}
+		
+		//rotate b up
+		if(difference < -1){
+			int d = child1[b], e = child2[b];
+			
+			child1[b] = a;
+			parent[b] = parent[a];
+			parent[a] = b;
+			replaceChild(parent[b], a, b);
+			
+			if(height[d] > height[e]){
+				child2[b] = d;
+				child1[a] = e;
+				parent[e] = a;
+				union(a, c, e);
+				union(b, a, d);
+				height[a] = 1 + Math.max(height[c], height[e]);
+				height[b] = 1 + Math.max(height[a], height[d]);
+			}else{
+				child2[b] = e;
+				child1[a] = d;
+				parent[d] = a;
+				union(a, c, d);
+				union(b, a, e);
+				height[a] = 1 + Math.max(height[c], height[d]);
+				height[b] = 1 + Math.max(height[a], height[e]);
+			}
+			return b;
+		}
+		
+		return a;
+	}
+	
+	/** Point a parent (or the root) at a new child
+	 *
+	 * @param node the parent, or NONE for the root
+	 * @param from the old child
+	 * @param to the new child
+	 */
+	private void replaceChild(int node, int from, int to){
+		if(node == NONE)
+			root = to;
+		else if(child1[node] == from)
+			child1[node] = to;
+		else
+			child2[node] = to;
+	}
+	
+	/** Set a node's bounds (& bits) to cover 2 other nodes
+	 *
+	 * @param node the node to set
+	 * @param a the first node
+	 * @param b the second node
+	 */
+	private void union(int node, int a, int b){
+		nodeMinX[node] = Math.min(nodeMinX[a], nodeMinX[b]);
+		nodeMinY[node] = Math.min(nodeMinY[a], nodeMinY[b]);
+		nodeMaxX[node] = Math.max(nodeMaxX[a], nodeMaxX[b]);
+		nodeMaxY[node] = Math.max(nodeMaxY[a], nodeMaxY[b]);
+		nodeCategories[node] = nodeCategories[a] | nodeCategories[b];
+		nodeMasks[node] = nodeMasks[a] | nodeMasks[b];
+	}
+	
+	/** Get the perimeter of a node's bounds
+	 *
+	 * @param node the node
+	 * @return the perimeter
+	 */
+	private float perimeter(int node){
+		return 2f * ((nodeMaxX[node] - nodeMinX[node]) + (nodeMaxY[node] - nodeMinY[node]));
+	}
+	
+	/** Get the perimeter of a node's bounds grown to cover a box
+	 *
+	 * @param node the node
+	 * @param x0 the left of the box
+	 * @param y0 the bottom of the box
+	 * @param x1 the right of the box
+	 * @param y1 the top of the box
+	 * @return the perimeter
+	 */
+	private float unionPerimeter(int node, float x0, float y0, float x1, float y1){
+		float w = Math.max(nodeMaxX[node], x1) - Math.min(nodeMinX[node], x0);
+		float h = Math.max(nodeMaxY[node], y1) - Math.min(nodeMinY[node], y0);
+		return 2f * (w + h);
+	}
+	
+	/** Get if a node's bounds overlap a box
+	 *
+	 * @param node the node
+	 * @param x0 the left of the box
+	 * @param y0 the bottom of the box
+	 * @param x1 the right of the box
+	 * @param y1 the top of the box
+	 * @return if they overlap
+	 */
+	private boolean overlaps(int node, float x0, float y0, float x1, float y1){
+		return nodeMinX[node] <= x1 && x0 <= nodeMaxX[node] && nodeMinY[node] <= y1 && y0 <= nodeMaxY[node];
+	}
+	
+	/** Push 2 nodes on the traversal stack
+	 *
+	 * @param size the size of the stack
+	 * @param a the first node
+	 * @param b the second node
+	 * @return the new size of the stack
+	 */
+	private int push(int size, int a, int b){
+		if(size + 2 > stack.length)
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		
+		stack[size++] = a;
+		stack[size++] = b;
+		return size;
+	}
+	
+	/** Take a node off the free list, growing the node arrays if needed
+	 *
+	 * @return the node
+	 */
+	private int allocateNode(){
+		if(freeList == NONE)
+			growNodes(parent.length * 2);
+		
+		int node = freeList;
+		freeList = parent[node];
+		
+		parent[node] = NONE;
+		child1[node] = NONE;
+		child2[node] = NONE;
+		height[node] = 0;
+		nodeBox[node] = NONE;
+		return node;
+	}
+	
+	/** Put a node back on the free list
+	 *
+	 * @param node the node
+	 */
+	private void freeNode(int node){
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+	}
+	
+	/** Grow the node arrays, chaining the new nodes onto the free list
+	 *
+	 * @param capacity the new amount of nodes
+	 */
+	private void growNodes(int capacity){
+		int old = parent.length;
+		
+		nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+		nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+		nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+		nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		child1 = Arrays.copyOf(child1, capacity);
+		child2 = Arrays.copyOf(child2, capacity);
+		height = Arrays.copyOf(height, capacity);
+		nodeBox = Arrays.copyOf(nodeBox, capacity);
+		nodeCategories = Arrays.copyOf(nodeCategories, capacity);
+		nodeMasks = Arrays.copyOf(nodeMasks, capacity);
+		
+		for(int i=capacity - 1;i>=old;i--){
+			parent[i] = freeList;
+			height[i] = -1;
+			freeList = i;
+		}
+	}
+	
+	/** Keep an overlapping pair
+	 *
+	 * @param a the first box
+	 * @param b the second box
+	 */
+	private void addPair(int a, int b){
+		if(pairCount * 2 == pairs.length)
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		
+		pairs[pairCount * 2] = a;
+		pairs[pairCount * 2 + 1] = b;
+		pairCount++;
+	}
+	
+	/** Grow the per box arrays
+	 *
+	 * @param capacity the new amount of boxes
+	 */
+	private void grow(int capacity){
+		transforms = Arrays.copyOf(transforms, capacity);
+		leaf = Arrays.copyOf(leaf, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		categories = Arrays.copyOf(categories, capacity);
+		masks = Arrays.copyOf(masks, capacity);
+	}
+}
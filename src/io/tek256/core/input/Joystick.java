@@ -26,6 +26,11 @@ public class Joystick {
 	private byte[] buttons;
 	private byte[] buttonsLastFrame;
 	
+	//values polled from glfw, waiting for the next latch (buttons tapped since then count as down)
+	private float[] polledAxes;
+	private byte[] polledButtons;
+	private byte[] tapped;
+	
 	public Joystick(int id, JoystickType type, int axisCount, int buttonCount){
 		this.id = id;
 		this.type = type;
@@ -33,6 +38,9 @@ public class Joystick {
 		this.axesLastFrame = new float[axisCount];
 		this.buttons = new byte[buttonCount];
 		this.buttonsLastFrame = new byte[buttonCount];
+		this.polledAxes = new float[axisCount];
+		this.polledButtons = new byte[buttonCount];
+		this.tapped = new byte[buttonCount];
 	}
 	
 	/** Get the ID of the joystick
@@ -47,15 +55,37 @@ public class Joystick {
 	 * Update the values of the joystick
 	 */
 	public void update(){
-		this.buttonsLastFrame = this.buttons.clone();
-		this.axesLastFrame = this.axes.clone();
-		
+		poll();
+		latch();
+	}
+	
+	/**
+	 * Read the joystick's values from glfw, without changing the values being read until `latch()`
+	 * Note: glfw has to be polled on the main (GL) thread
+	 */
+	public synchronized void poll(){
 		FloatBuffer abuf = GLFW.glfwGetJoystickAxes(this.id);
 		ByteBuffer bbuf = GLFW.glfwGetJoystickButtons(this.id);
 		for(int i=0;i<abuf.capacity();i++)
-			this.axes[i] = abuf.get(i);
-		for(int i=0;i<bbuf.capacity();i++)
-			this.buttons[i] = bbuf.get(i);
+			this.polledAxes[i] = abuf.get(i);
+		for(int i=0;i<bbuf.capacity();i++){
+			this.polledButtons[i] = bbuf.get(i);
+			this.tapped[i] |= this.polledButtons[i];
+		}
+	}
+	
+	/**
+	 * Make the last polled values the current ones, the current ones become last frame's
+	 */
+	public synchronized void latch(){
+		System.arraycopy(this.buttons, 0, this.buttonsLastFrame, 0, this.buttons.length);
+		System.arraycopy(this.axes, 0, this.axesLastFrame, 0, this.axes.length);
+		
+		System.arraycopy(this.polledAxes, 0, this.axes, 0, this.axes.length);
+		for(int i=0;i<this.buttons.length;i++){
+			this.buttons[i] = (byte)(this.polledButtons[i] | this.tapped[i]);
+			this.tapped[i] = 0;
+		}
 	}
 	
 	/** 
@@ -244,7 +274,7 @@ public class Joystick {
 		int buttonCount = bbuf.capacity();
 		
 		//add the controller to the static array for usage
-		connected.add(new Joystick(joy, type, axisCount, buttonCount));
+		addJoystick(new Joystick(joy, type, axisCount, buttonCount));
 	}
 	
 	/**
@@ -281,7 +311,9 @@ public class Joystick {
 	 * @return the amount of joysticks/controllers connected 
 	 */
 	public static int size(){
-		return connected.size();
+		synchronized(connected){
+			return connected.size();
+		}
 	}
 	
 	
@@ -291,15 +323,39 @@ public class Joystick {
 	 * @return jostick at index
 	 */
 	public static Joystick get(int index){
-		return connected.get(index);
+		synchronized(connected){
+			return connected.get(index);
+		}
 	}
 	
 	/**
 	 * Update all connected joysticks
 	 */
 	public static void updateAll(){
-		for(Joystick joy : connected)
-			joy.update();
+		synchronized(connected){
+			for(Joystick joy : connected)
+				joy.update();
+		}
+	}
+	
+	/**
+	 * Poll all connected joysticks from glfw (the main thread's half of `updateAll()`)
+	 */
+	public static void pollAll(){
+		synchronized(connected){
+			for(Joystick joy : connected)
+				joy.poll();
+		}
+	}
+	
+	/**
+	 * Latch all connected joysticks' polled values (the simulation's half of `updateAll()`)
+	 */
+	public static void latchAll(){
+		synchronized(connected){
+			for(Joystick joy : connected)
+				joy.latch();
+		}
 	}
 	
 	/** Add a joystick to the connected devices
@@ -307,7 +363,9 @@ public class Joystick {
 	 * @param joystick add an already created joystick
 	 */
 	public static void addJoystick(Joystick joystick){
-		connected.add(joystick);
+		synchronized(connected){
+			connected.add(joystick);
+		}
 	}
 	
 	/** Remove a connected joystick by object reference
@@ -315,9 +373,9 @@ public class Joystick {
 	 * @param joystick remove a joystick by object
 	 */
 	public static void removeJoystick(Joystick joystick){
-		if(!connected.contains(joystick))
-			return;
-		connected.remove(joystick);
+		synchronized(connected){
+			connected.remove(joystick);
+		}
 	}
 	
 	/** Remove a connected joystick by integer id
@@ -325,10 +383,9 @@ public class Joystick {
 	 * @param id id reference of the joystick
 	 */
 	public static void removeJoystick(int id){
-		connected.forEach((joy) -> {
-			if(joy.id == id) 
-				connected.remove(joy);
-		});
+		synchronized(connected){
+			connected.removeIf((joy) -> joy.id == id);
+		}
 	}
 	
 	public static void destroy(){
@@ -338,6 +395,10 @@ public class Joystick {
 			
 			joystick.buttons = null;
 			joystick.buttonsLastFrame = null;
+			
+			joystick.polledAxes = null;
+			joystick.polledButtons = null;
+			joystick.tapped = null;
 		}
 		
 		connected.clear();
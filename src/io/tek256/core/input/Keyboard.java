@@ -148,6 +148,8 @@ public class Keyboard {
 	private static ArrayList<Integer> eventsThisFrame;
 	//list of events for the last frame
 	private static ArrayList<Integer> eventsLastFrame;
+	//list of keys pressed since the last update (so a tap between updates still clicks)
+	private static ArrayList<Integer> pressedSinceUpdate;
 	//list of buttons
 	private static HashMap<String,Button> buttons;
 	
@@ -155,14 +157,17 @@ public class Keyboard {
 		events = new ArrayList<>();
 		eventsThisFrame = new ArrayList<>();
 		eventsLastFrame = new ArrayList<>();
+		pressedSinceUpdate = new ArrayList<>();
 		
 		buttons = new HashMap<>();
 	}
 	
 	/**
 	 * update the keyboard values for frame reference
+	 * Note: the key callbacks & the updates can be on different threads (see `GameEngine.threaded`),
+	 * the current events are only touched while holding the class's lock
 	 */
-	public static void update(){
+	public static synchronized void update(){
 		//clear last frame
 		eventsLastFrame.clear();
 		//add this frame (new last frame)
@@ -175,6 +180,12 @@ public class Keyboard {
 		eventsThisFrame.clear();
 		//add events this frame from the current event list
 		eventsThisFrame.addAll(events);
+		
+		//keys pressed & released again since the last update count as down for this one
+		for(Integer key : pressedSinceUpdate)
+			if(!eventsThisFrame.contains(key))
+				eventsThisFrame.add(key);
+		pressedSinceUpdate.clear();
 	}
 	
 	/** Add a button to the button map
@@ -237,10 +248,11 @@ public class Keyboard {
 	 * @param key integer of the key
 	 * @param pressed if the key is pressed
 	 */
-	public static void setKey(int key, boolean pressed){
-		if(pressed && !events.contains(key))
+	public static synchronized void setKey(int key, boolean pressed){
+		if(pressed && !events.contains(key)){
 			events.add(key);
-		else if(!pressed && events.contains(key))
+			pressedSinceUpdate.add(key);
+		}else if(!pressed && events.contains(key))
 			events.remove((Integer)key);
 	}
 	
@@ -249,7 +261,7 @@ public class Keyboard {
 	 * @param key integer representation of the key
 	 * @return if the key is pressed
 	 */
-	public static boolean isPressed(int key){
+	public static synchronized boolean isPressed(int key){
 		return events.contains(key);
 	}
 	
@@ -341,7 +353,7 @@ public class Keyboard {
 	 * 
 	 * @return the amount of keys down
 	 */
-	public static int getKeysDownCount(){
+	public static synchronized int getKeysDownCount(){
 		return events.size();
 	}
 	
@@ -381,6 +393,8 @@ public class Keyboard {
 		eventsLastFrame.clear();
 		eventsLastFrame = null;
 		
+		pressedSinceUpdate.clear();
+		
 		buttons.clear();
 	}
 	
@@ -28,15 +28,25 @@ public class Mouse {
 	private static ArrayList<Integer> eventsThisFrame = new ArrayList<>();
 	private static ArrayList<Integer> eventsLastFrame = new ArrayList<>();
 	
-	public static void update(){
+	//buttons pressed since the last update (so a click between updates isn't lost)
+	private static ArrayList<Integer> pressedSinceUpdate = new ArrayList<>();
+	
+	//the button & cursor callbacks can be on another thread than the updates (see `GameEngine.threaded`),
+	//so the current state is only touched while holding the class's lock
+	public static synchronized void update(){
 		eventsLastFrame.clear();
 		eventsLastFrame.addAll(eventsThisFrame);
 		
 		eventsThisFrame.clear();
 		eventsThisFrame.addAll(events);
+		
+		for(Integer button : pressedSinceUpdate)
+			if(!eventsThisFrame.contains(button))
+				eventsThisFrame.add(button);
+		pressedSinceUpdate.clear();
 	}
 	
-	public static boolean isPressed(int button){
+	public static synchronized boolean isPressed(int button){
 		return events.contains((Integer)button);
 	}
 	
@@ -77,19 +87,19 @@ public class Mouse {
 		return position;
 	}
 	
-	public static float getDX(){
+	public static synchronized float getDX(){
 		float df = (float)d.x;
 		d.x = 0;
 		return df;
 	}
 	
-	public static float getDY(){
+	public static synchronized float getDY(){
 		float df = (float)d.y;
 		d.y = 0f;
 		return df;
 	}
 	
-	public static Vector2d getDelta(){
+	public static synchronized Vector2d getDelta(){
 		Vector2d t = d;
 		d.set(0,0);
 		return t;
@@ -100,7 +110,7 @@ public class Mouse {
 	}
 	
 	@SuppressWarnings("cast")
-	public static ArrayList<String> getFormattedEvents(){
+	public static synchronized ArrayList<String> getFormattedEvents(){
 		ArrayList<String> formattedEvents = new ArrayList<>();
 		for(int e : events){
 			StringBuilder prefix = new StringBuilder();
@@ -122,14 +132,15 @@ public class Mouse {
 		entered = enter;
 	}
 	
-	public static void setButton(int button, boolean pressed){
-		if(pressed && !events.contains(button))
+	public static synchronized void setButton(int button, boolean pressed){
+		if(pressed && !events.contains(button)){
 			events.add(button);
-		else if(!pressed && events.contains(button))
+			pressedSinceUpdate.add(button);
+		}else if(!pressed && events.contains(button))
 			events.remove((Integer)button);
 	}
 	
-	public static void setPosition(double x, double y){
+	public static synchronized void setPosition(double x, double y){
 		previous.x = position.x;
 		previous.y = position.y;
 		position.x = x;
@@ -38,7 +38,7 @@ public class GameObject extends Transform{
 
 	@Override
 	public void collidedWith(Transform transform) {
-		System.out.println("WOW");
+		
 	}
 
 }
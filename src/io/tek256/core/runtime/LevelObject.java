@@ -52,6 +52,12 @@ public class LevelObject extends Transform{
 	
 	@Override
 	public void collidedWith(Transform transform){
-		System.out.println("WOAH");
+		
+	}
+	
+	@Override
+	public float getInverseMass(){
+		//level geometry doesn't get pushed around
+		return 0f;
 	}
 }
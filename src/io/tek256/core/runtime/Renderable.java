@@ -54,6 +54,9 @@ public class Renderable {
 	
 	private boolean flipX = false, flipY = false;
 	
+	//the draw layer, higher layers are drawn over lower layers
+	private int layer = 0;
+	
 	/** Create a renderable with the list of animations the object will use
 	 * 
 	 * @param animations list of animations the renderable will use 
@@ -98,6 +101,7 @@ public class Renderable {
 		this.textureRepeat = renderable.textureRepeat;
 		this.shader = renderable.shader;
 		this.currentAnimation = renderable.currentAnimation;
+		this.layer = renderable.layer;
 	}
 
 	/** Update the object with the time between frames
@@ -319,6 +323,19 @@ public class Renderable {
 		return texture;
 	}
 	
+	/** Get the texture bound for the current frame
+	 *  Note: sub textures are escaped to their sheet's texture
+	 * 
+	 * @return the texture bound for the current frame
+	 */
+	public Texture getSheetTexture(){
+		Texture current = getTexture();
+		//escape any sub textures
+		if(current != null && current.isSubTexture())
+			return current.getSheet().getTexture();
+		return current;
+	}
+	
 	/** Check if the renderable is usign animation frames
 	 * 
 	 * @return if the renderable is using animation frames
@@ -393,4 +410,20 @@ public class Renderable {
 	public boolean isFlipY(){
 		return flipY;
 	}
+	
+	/** Set the draw layer, higher layers are drawn over lower layers
+	 * 
+	 * @param layer the draw layer (0 - 127)
+	 */
+	public void setLayer(int layer){
+		this.layer = layer;
+	}
+	
+	/** Get the draw layer
+	 * 
+	 * @return the draw layer
+	 */
+	public int getLayer(){
+		return layer;
+	}
 }
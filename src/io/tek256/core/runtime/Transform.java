@@ -1,133 +1,117 @@
 package io.tek256.core.runtime;
 
-import org.joml.Matrix4f;
+import org.joml.Matrix3x2f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
 public abstract class Transform {
+	//collision category every transform starts in
+	public static final int DEFAULT_CATEGORY = 1;
+	
+	//every collision category, for casts & masks
+	public static final int ALL_CATEGORIES = -1;
+	
 	private static int UNIQUE_TRANSFORMS = 0;
+	private static int UNIQUE_INSTANCES = 0;
 	
 	//prefab id
 	private int id = 0;
 	
-	//for rendering (model matrix)
-	private Matrix4f mat;
-
-	//current state
-	private Vector3f position;
-	private Vector2f size, velocity; //scale / motion /s ec
-	private float angle;
+	//id of this instance (prefab copies share `id`), for keying contact pairs
+	private final int instance = ++UNIQUE_INSTANCES;
+	
+	//collision category bits (what the transform is, for casts & filtering)
+	private int category = DEFAULT_CATEGORY;
+	
+	//collision mask bits (the categories the transform collides with)
+	private int mask = ALL_CATEGORIES;
 	
-	//tracking variables for the matrix
-	private Vector3f lastPosition;
-	private Vector2f lastSize;
-	private float lastAngle;
+	//where the state lives (see `TransformStore`)
+	TransformStore store;
+	int slot;
 	
 	public Transform(){
-		position = new Vector3f();
-		lastPosition = new Vector3f();
-		
-		size = new Vector2f();
-		lastSize = new Vector2f();
-		
-		velocity = new Vector2f();
-		
-		angle = 0f;
-		lastAngle = 0f;
+		store = TransformStore.loose();
+		slot = store.alloc(this);
 		
 		UNIQUE_TRANSFORMS ++;
 		id = UNIQUE_TRANSFORMS;
-		
-		mat = new Matrix4f();
 	}
 	
 	public Transform(Vector3f position){
-		this.position = new Vector3f(position);
-		this.lastPosition = new Vector3f(position);
-		
-		this.size = new Vector2f();
-		this.lastSize = new Vector2f();
+		this();
 		
-		velocity = new Vector2f();
-		
-		angle = 0f;
-		lastAngle = 0f;
-
-		UNIQUE_TRANSFORMS ++;
-		id = UNIQUE_TRANSFORMS;
-		
-		mat = new Matrix4f();
+		store.x[slot] = store.lastX[slot] = position.x;
+		store.y[slot] = store.lastY[slot] = position.y;
+		store.z[slot] = store.lastZ[slot] = position.z;
 	}
 	
 	public Transform(Vector3f position, Vector2f size){
-		this.position = new Vector3f(position);
-		this.lastPosition = new Vector3f(position);
-		
-		this.size = new Vector2f(size);
-		this.lastSize = new Vector2f(lastSize);
-		
-		velocity = new Vector2f();
-		
-		angle = 0f;
-		lastAngle = 0f;
-
-		UNIQUE_TRANSFORMS ++;
-		id = UNIQUE_TRANSFORMS;
+		this(position);
 		
-		mat = new Matrix4f();
+		store.width[slot] = store.lastWidth[slot] = size.x;
+		store.height[slot] = store.lastHeight[slot] = size.y;
 	}
 	
 	public Transform(Vector3f position, Vector2f size, float angle){
-		this.position = new Vector3f(position);
-		this.lastPosition = new Vector3f(position);
-		
-		this.size = new Vector2f(size);
-		this.lastSize = new Vector2f(size);
-		
-		velocity = new Vector2f();
-		
-		this.angle = angle;
-		this.lastAngle = angle;
-
-		UNIQUE_TRANSFORMS ++;
-		id = UNIQUE_TRANSFORMS;
+		this(position, size);
 		
-		mat = new Matrix4f();
+		store.angle[slot] = store.lastAngle[slot] = angle;
 	}
 	
 	public Transform(Transform transform, Vector2f vector2f){
-		this.position = new Vector3f(transform.position);
-		this.lastPosition = new Vector3f(transform.lastPosition);
-		
-		this.size = new Vector2f(transform.size);
-		this.lastSize = new Vector2f(transform.lastSize);
-		
-		velocity = new Vector2f();
-		
-		this.angle = transform.angle;
-		this.lastAngle = transform.lastAngle;
-		
-		this.position.x = vector2f.x;
-		this.position.y = vector2f.y;
+		store = TransformStore.loose();
+		slot = store.alloc(this);
+		
+		TransformStore from = transform.store;
+		int i = transform.slot;
+		
+		store.x[slot] = vector2f.x;
+		store.y[slot] = vector2f.y;
+		store.z[slot] = from.z[i];
+		store.width[slot] = from.width[i];
+		store.height[slot] = from.height[i];
+		store.angle[slot] = from.angle[i];
+		
+		store.lastX[slot] = from.lastX[i];
+		store.lastY[slot] = from.lastY[i];
+		store.lastZ[slot] = from.lastZ[i];
+		store.lastWidth[slot] = from.lastWidth[i];
+		store.lastHeight[slot] = from.lastHeight[i];
+		store.lastAngle[slot] = from.lastAngle[i];
 		
 		id = transform.id;
-		
-		mat = new Matrix4f();
+		category = transform.category;
+		mask = transform.mask;
 	}
 	
 	public void updatePosition(long delta){
-		lastPosition.set(position);
+		store.lastX[slot] = store.x[slot];
+		store.lastY[slot] = store.y[slot];
+		store.lastZ[slot] = store.z[slot];
+		
+		//nothing moves without velocity
+		if(store.velX[slot] == 0 && store.velY[slot] == 0)
+			return;
 		
-		position.x += velocity.x * delta;
-		position.y += velocity.y * delta;
+		store.x[slot] += store.velX[slot] * delta;
+		store.y[slot] += store.velY[slot] * delta;
+		
+		store.dirty[slot] = true;
 	}
 	
 	public void update(long delta){
-		if(!position.equals(lastPosition) || 
-				!size.equals(lastSize) || angle != lastAngle){
+		TransformStore s = store;
+		int i = slot;
+		
+		if(s.x[i] != s.lastX[i] || s.y[i] != s.lastY[i] || s.z[i] != s.lastZ[i] ||
+				s.width[i] != s.lastWidth[i] || s.height[i] != s.lastHeight[i] || s.angle[i] != s.lastAngle[i]){
 			//something changed
-			lastPosition.set(position);
-			lastSize.set(size);
+			s.lastX[i] = s.x[i];
+			s.lastY[i] = s.y[i];
+			s.lastZ[i] = s.z[i];
+			s.lastWidth[i] = s.width[i];
+			s.lastHeight[i] = s.height[i];
 		}
 		
 		Update(delta);
@@ -135,77 +119,165 @@ public abstract class Transform {
 	
 	public abstract void collidedWith(Transform transform);
 	
+	/** Called on the first step the transform touches another (see `Narrowphase`)
+	 *
+	 * @param transform the other transform
+	 */
+	public void onCollisionEnter(Transform transform){
+		
+	}
+	
+	/** Called on every following step the transform keeps touching another
+	 *
+	 * @param transform the other transform
+	 */
+	public void onCollisionStay(Transform transform){
+		
+	}
+	
+	/** Called on the first step the transform stops touching another (or either one left the broadphase)
+	 *
+	 * @param transform the other transform
+	 */
+	public void onCollisionExit(Transform transform){
+		
+	}
+	
+	/** Get the id of this instance, unique across every transform (prefab copies share their prefab's id)
+	 *
+	 * @return the instance id
+	 */
+	public int getInstanceId(){
+		return instance;
+	}
+	
+	/** Set the collision category bits of the transform
+	 *  Note: broadphases pick changes up on their next step
+	 *
+	 * @param category the category bits (usually a single bit)
+	 */
+	public void setCategory(int category){
+		this.category = category;
+	}
+	
+	/** Get the collision category bits of the transform
+	 *
+	 * @return the category bits
+	 */
+	public int getCategory(){
+		return category;
+	}
+	
+	/** Set the collision mask bits of the transform (the categories it collides with)
+	 *  Note: broadphases pick changes up on their next step
+	 *
+	 * @param mask the mask bits (0 collides with nothing)
+	 */
+	public void setMask(int mask){
+		this.mask = mask;
+	}
+	
+	/** Get the collision mask bits of the transform
+	 *
+	 * @return the mask bits
+	 */
+	public int getMask(){
+		return mask;
+	}
+	
+	/** Get if the transform & another care about each other (each one's category is in the other's mask)
+	 *
+	 * @param other the other transform
+	 * @return if they can collide
+	 */
+	public boolean collidesWith(Transform other){
+		return (category & other.mask) != 0 && (other.category & mask) != 0;
+	}
+	
+	/** Get how easily collisions push the transform around (0 never moves, 1 is the default)
+	 *
+	 * @return the inverse of the transform's mass
+	 */
+	public float getInverseMass(){
+		return 1f;
+	}
+	
 	public abstract void Update(long delta);
 	
 	public void setVelocity(float x, float y){
-		velocity.set(x,y);
+		store.velX[slot] = x;
+		store.velY[slot] = y;
 	}
 	
 	public void setVelocity(Vector2f velocity){
-		this.velocity.set(velocity);
+		setVelocity(velocity.x, velocity.y);
 	}
 	
 	public void setVelocityX(float x){
-		velocity.x = x;
+		store.velX[slot] = x;
 	}
 	
 	public void setVelocityY(float y){
-		velocity.y = y;
+		store.velY[slot] = y;
 	}
 	
+	/** Get a copy of the velocity
+	 *  Note: changing the copy doesn't change the transform, use `setVelocity()`
+	 *
+	 * @return a copy of the velocity
+	 */
 	public Vector2f getVelocity(){
-		return velocity;
+		return new Vector2f(store.velX[slot], store.velY[slot]);
 	}
 	
 	public float getVelocityX(){
-		return velocity.x;
+		return store.velX[slot];
 	}
 	
 	public float getVelocityY(){
-		return velocity.y;
+		return store.velY[slot];
 	}
 	
 	public void setPosition(float x, float y){
-		lastPosition.x = position.x;
-		lastPosition.y = position.y;
+		store.lastX[slot] = store.x[slot];
+		store.lastY[slot] = store.y[slot];
 		
-		position.x = x;
-		position.y = y;
+		store.x[slot] = x;
+		store.y[slot] = y;
+		store.dirty[slot] = true;
 	}
 	
 	public void setPosition(Vector2f vec){
-		lastPosition.x = position.x;
-		lastPosition.y = position.y;
-		
-		position.x = vec.x;
-		position.y = vec.y;
+		setPosition(vec.x, vec.y);
 	}
 	
 	public void setPosition(float x, float y, float z){
-		lastPosition.set(position);
+		store.lastZ[slot] = store.z[slot];
+		store.z[slot] = z;
 		
-		position.set(x,y,z);
+		setPosition(x, y);
 	}
 	
 	public void setPosition(Vector3f vec){
-		lastPosition.set(position);
-		
-		position.set(vec);
+		setPosition(vec.x, vec.y, vec.z);
 	}
 	
 	public void setX(float x){
-		lastPosition.x = position.x;
-		position.x = x;
+		store.lastX[slot] = store.x[slot];
+		store.x[slot] = x;
+		store.dirty[slot] = true;
 	}
 	
 	public void setY(float y){
-		lastPosition.y = position.y;
-		position.y = y;
+		store.lastY[slot] = store.y[slot];
+		store.y[slot] = y;
+		store.dirty[slot] = true;
 	}
 	
 	public void setZ(float z){
-		lastPosition.z = position.z;
-		position.z = z;
+		store.lastZ[slot] = store.z[slot];
+		store.z[slot] = z;
+		store.dirty[slot] = true;
 	}
 	
 	public void move(Vector2f vec){
@@ -213,111 +285,198 @@ public abstract class Transform {
 	}
 	
 	public void move(float x, float y){
-		lastPosition.x = position.x;
-		lastPosition.y = position.y;
-		
-		position.x += x;
-		position.y += y;
+		setPosition(store.x[slot] + x, store.y[slot] + y);
+	}
+	
+	/**
+	 * Drop the current step's motion, so frames draw the transform where it is
+	 * instead of blending from the start of the step (after teleporting it)
+	 */
+	public void settle(){
+		store.stepX[slot] = store.x[slot];
+		store.stepY[slot] = store.y[slot];
+	}
+	
+	/** Move without touching the last position
+	 *  Note: for collision response, so the step's motion still interpolates from where it started
+	 *
+	 * @param x the x to move by
+	 * @param y the y to move by
+	 */
+	public void translate(float x, float y){
+		store.x[slot] += x;
+		store.y[slot] += y;
+		store.dirty[slot] = true;
 	}
 	
 	public float getX(){
-		return position.x;
+		return store.x[slot];
 	}
 	
 	public float getY(){
-		return position.y;
+		return store.y[slot];
 	}
 	
 	public float getZ(){
-		return position.z;
+		return store.z[slot];
+	}
+	
+	/** Get the x position at the start of the current step
+	 *
+	 * @return the x position frames blend from
+	 */
+	public float getStepX(){
+		return store.stepX[slot];
+	}
+	
+	/** Get the y position at the start of the current step
+	 *
+	 * @return the y position frames blend from
+	 */
+	public float getStepY(){
+		return store.stepY[slot];
 	}
 	
 	public float getLeft(){
-		return position.x - (size.x / 2f);
+		return store.x[slot] - (store.width[slot] / 2f);
 	}
 	
 	public float getRight(){
-		return position.x + (size.x / 2f);
+		return store.x[slot] + (store.width[slot] / 2f);
 	}
 	
 	public float getBottom(){
-		return position.y - (size.y / 2f);
+		return store.y[slot] - (store.height[slot] / 2f);
 	}
 	
 	public float getTop(){
-		return position.y + (size.y / 2f);
+		return store.y[slot] + (store.height[slot] / 2f);
 	}
 	
+	/** Get a copy of the position
+	 *  Note: changing the copy doesn't move the transform, use `setPosition()`
+	 *
+	 * @return a copy of the position
+	 */
 	public Vector3f getPosition(){
-		return position;
+		return new Vector3f(store.x[slot], store.y[slot], store.z[slot]);
 	}
 	
 	public float getWidth(){
-		return size.x;
+		return store.width[slot];
 	}
 	
 	public float getHeight(){
-		return size.y;
+		return store.height[slot];
 	}
 	
 	public void setSize(float width, float height){
-		lastSize.set(size);
-		size.set(width, height);
+		store.lastWidth[slot] = store.width[slot];
+		store.lastHeight[slot] = store.height[slot];
+		
+		store.width[slot] = width;
+		store.height[slot] = height;
+		store.dirty[slot] = true;
 	}
 	
 	public void setSize(Vector2f vec){
-		lastSize.set(size);
-		size.set(vec);
+		setSize(vec.x, vec.y);
 	}
 	
 	public void setWidth(float width){
-		lastSize.x = size.x;
-		size.x = width;
+		store.lastWidth[slot] = store.width[slot];
+		store.width[slot] = width;
+		store.dirty[slot] = true;
 	}
 	
 	public void setHeight(float height){
-		lastSize.y = size.y;
-		size.y = height;
+		store.lastHeight[slot] = store.height[slot];
+		store.height[slot] = height;
+		store.dirty[slot] = true;
 	}
 	
+	/** Get a copy of the size
+	 *  Note: changing the copy doesn't resize the transform, use `setSize()`
+	 *
+	 * @return a copy of the size
+	 */
 	public Vector2f getSize(){
-		return size;
+		return new Vector2f(store.width[slot], store.height[slot]);
 	}
 	
 	public void setAngle(float angle){
-		lastAngle = this.angle;
-		this.angle = angle;
+		store.lastAngle[slot] = store.angle[slot];
+		store.angle[slot] = angle;
+		store.dirty[slot] = true;
 	}
 	
 	public float getAngle(){
-		return angle;
+		return store.angle[slot];
 	}
 	
 	public void updateMatrix(){
-		mat.identity();
-		
-		mat.translate(position.x, position.y, -position.z);
-		mat.rotateZ(angle);
-		mat.scale(size.x, size.y, 1f);
+		//translate * rotate * scale, written straight into the store
+		store.build(slot);
+	}
+	
+	/** Get if the matrix is out of date
+	 *
+	 * @return if the matrix is out of date
+	 */
+	public boolean isDirty(){
+		return store.dirty[slot];
+	}
+	
+	/**
+	 * Flag the matrix as out of date
+	 */
+	public void markDirty(){
+		store.dirty[slot] = true;
+	}
+	
+	/** Get the 2D model matrix
+	 *
+	 * @param dest the matrix to write into
+	 * @return dest
+	 */
+	public Matrix3x2f getMat(Matrix3x2f dest){
+		float[] mat = store.mat;
+		int m = slot * TransformStore.MAT_SIZE;
 		
-		lastPosition.set(position);
-		lastSize.set(size);
-		lastAngle = angle;
+		return dest.set(mat[m], mat[m + 1], mat[m + 2], mat[m + 3], mat[m + 4], mat[m + 5]);
+	}
+	
+	/** Get the store holding the transform's state
+	 *
+	 * @return the store holding the transform's state
+	 */
+	public TransformStore getStore(){
+		return store;
 	}
 	
-	public Matrix4f getMat(){
-		return mat;
+	/** Get the slot of the transform in its store
+	 *  Note: slots move when other transforms leave the store
+	 *
+	 * @return the slot of the transform
+	 */
+	public int getSlot(){
+		return slot;
 	}
 	
 	public float getPosChange(){
-		return position.distance(lastPosition);
+		float dx = store.x[slot] - store.lastX[slot];
+		float dy = store.y[slot] - store.lastY[slot];
+		float dz = store.z[slot] - store.lastZ[slot];
+		return (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
 	}
 	
 	public float getSizeChange(){
-		return size.distance(lastSize);
+		float dw = store.width[slot] - store.lastWidth[slot];
+		float dh = store.height[slot] - store.lastHeight[slot];
+		return (float)Math.sqrt(dw * dw + dh * dh);
 	}
 	
 	public float getAngleChange(){
-		return Math.abs(angle - lastAngle);
+		return Math.abs(store.angle[slot] - store.lastAngle[slot]);
 	}
 }
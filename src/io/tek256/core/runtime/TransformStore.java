@@ -0,0 +1,365 @@
+package io.tek256.core.runtime;
+
+import java.util.Arrays;
+
+/**
+ * USAGE: attach(transform) -> beginStep() -> integrate(delta) / updateMatrices() -> detach(transform)
+ *
+ * NOTES: Structure of arrays storage for transforms. Every transform's state
+ * 		  (position, size, angle, velocity, dirty flag & 2D matrix) lives in
+ * 		  flat primitive arrays indexed by the transform's slot, the `Transform`
+ * 		  itself is only a handle (store + slot). A transform that isn't in a
+ * 		  scene keeps a private store of one slot, attaching it to a scene's
+ * 		  store copies it over so the scene's per frame loops only walk
+ * 		  packed arrays. Slots are kept packed, removing one moves the last
+ * 		  slot into its place. The private stores come from a small pool,
+ * 		  attaching hands the emptied one back, so creating or detaching a
+ * 		  transform only allocates a store when the pool is empty (a shared
+ * 		  store would keep every detached transform alive). The position at
+ * 		  the start of each step is kept apart from the last state (which
+ * 		  matrix builds overwrite), so frames can blend from it.
+ */
+public class TransformStore {
+	//default amount of slots
+	public static final int DEFAULT_SIZE = 256;
+	
+	//floats per matrix (m00, m01, m10, m11, m20, m21)
+	static final int MAT_SIZE = 6;
+	
+	//most spare private stores kept
+	private static final int POOL_SIZE = 256;
+	
+	//spare private stores (empty)
+	private static final TransformStore[] pool = new TransformStore[POOL_SIZE];
+	private static int pooled = 0;
+	
+	//current state
+	float[] x, y, z, width, height, angle, velX, velY;
+	
+	//state as of the last matrix build / update
+	float[] lastX, lastY, lastZ, lastWidth, lastHeight, lastAngle;
+	
+	//position at the start of the current step (see `beginStep()`)
+	float[] stepX, stepY;
+	
+	//2D model matrices, `MAT_SIZE` floats per slot
+	float[] mat;
+	
+	//if the matrix of a slot is out of date
+	boolean[] dirty;
+	
+	//the handle of each slot
+	private Transform[] owners;
+	
+	//amount of slots in use
+	private int size = 0;
+	
+	//if this is a transform's private store (from `loose()`)
+	private boolean loose = false;
+	
+	public TransformStore(){
+		this(DEFAULT_SIZE);
+	}
+	
+	public TransformStore(int capacity){
+		capacity = Math.max(1, capacity);
+		
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		width = new float[capacity];
+		height = new float[capacity];
+		angle = new float[capacity];
+		velX = new float[capacity];
+		velY = new float[capacity];
+		
+		lastX = new float[capacity];
+		lastY = new float[capacity];
+		lastZ = new float[capacity];
+		lastWidth = new float[capacity];
+		lastHeight = new float[capacity];
+		lastAngle = new float[capacity];
+		
+		stepX = new float[capacity];
+		stepY = new float[capacity];
+		
+		mat = new float[capacity * MAT_SIZE];
+		dirty = new boolean[capacity];
+		
+		owners = new Transform[capacity];
+	}
+	
+	/** Take a free slot for a transform
+	 *
+	 * @param owner the transform using the slot
+	 * @return the slot
+	 */
+	int alloc(Transform owner){
+		if(size == owners.length)
+			grow(owners.length * 2);
+		
+		int slot = size++;
+		owners[slot] = owner;
+		
+		//a new slot has an identity matrix until it's built
+		int m = slot * MAT_SIZE;
+		mat[m] = 1f;
+		mat[m + 3] = 1f;
+		dirty[slot] = true;
+		
+		return slot;
+	}
+	
+	/** Move a transform into this store
+	 *
+	 * @param transform the transform to move in
+	 */
+	public void attach(Transform transform){
+		TransformStore from = transform.store;
+		if(from == this)
+			return;
+		
+		int slot = alloc(transform);
+		copy(from, transform.slot, this, slot);
+		from.release(transform.slot);
+		
+		//a transform joining mid step has no motion to blend yet
+		stepX[slot] = x[slot];
+		stepY[slot] = y[slot];
+		
+		transform.store = this;
+		transform.slot = slot;
+		
+		if(from.loose)
+			recycle(from);
+	}
+	
+	/** Move a transform out of this store into its own private store
+	 *
+	 * @param transform the transform to move out
+	 */
+	public void detach(Transform transform){
+		if(transform.store != this)
+			return;
+		
+		TransformStore own = loose();
+		int slot = own.alloc(transform);
+		copy(this, transform.slot, own, slot);
+		release(transform.slot);
+		
+		transform.store = own;
+		transform.slot = slot;
+	}
+	
+	/** Make sure the store can hold an amount of slots without growing
+	 * 
+	 * @param capacity the amount of slots needed
+	 */
+	public void ensureCapacity(int capacity){
+		if(capacity > owners.length)
+			grow(Math.max(capacity, owners.length * 2));
+	}
+	
+	/**
+	 * Move every transform out of this store
+	 */
+	public void detachAll(){
+		while(size > 0)
+			detach(owners[size - 1]);
+	}
+	
+	/**
+	 * Mark the start of a step, frames until the next step blend from the positions as of now
+	 */
+	public void beginStep(){
+		System.arraycopy(x, 0, stepX, 0, size);
+		System.arraycopy(y, 0, stepY, 0, size);
+	}
+	
+	/** Move the position of every slot by its velocity
+	 *
+	 * @param delta time since the last integration
+	 */
+	public void integrate(long delta){
+		for(int i=0;i<size;i++){
+			lastX[i] = x[i];
+			lastY[i] = y[i];
+			lastZ[i] = z[i];
+			
+			//nothing moves without velocity
+			if(velX[i] == 0 && velY[i] == 0)
+				continue;
+			
+			x[i] += velX[i] * delta;
+			y[i] += velY[i] * delta;
+			dirty[i] = true;
+		}
+	}
+	
+	/**
+	 * Rebuild the matrix of every dirty slot
+	 */
+	public void updateMatrices(){
+		for(int i=0;i<size;i++){
+			if(dirty[i])
+				build(i);
+		}
+	}
+	
+	/** Build the matrix of a slot (translate * rotate * scale)
+	 *
+	 * @param slot the slot to build
+	 */
+	void build(int slot){
+		float a = angle[slot];
+		float sin = (a == 0) ? 0f : (float)Math.sin(a);
+		float cos = (a == 0) ? 1f : (float)Math.cos(a);
+		
+		int m = slot * MAT_SIZE;
+		mat[m] = cos * width[slot];
+		mat[m + 1] = sin * width[slot];
+		mat[m + 2] = -sin * height[slot];
+		mat[m + 3] = cos * height[slot];
+		mat[m + 4] = x[slot];
+		mat[m + 5] = y[slot];
+		
+		//the matrix is in sync with the state now
+		lastX[slot] = x[slot];
+		lastY[slot] = y[slot];
+		lastZ[slot] = z[slot];
+		lastWidth[slot] = width[slot];
+		lastHeight[slot] = height[slot];
+		lastAngle[slot] = a;
+		
+		dirty[slot] = false;
+	}
+	
+	/** Get the amount of slots in use
+	 *
+	 * @return the amount of slots in use
+	 */
+	public int size(){
+		return size;
+	}
+	
+	/** Get the transform in a slot
+	 *
+	 * @param slot the slot
+	 * @return the transform in the slot
+	 */
+	public Transform get(int slot){
+		return owners[slot];
+	}
+	
+	/** Get an empty private store (one slot) for a transform outside of any scene, from the pool if there's a spare one
+	 *
+	 * @return the store
+	 */
+	static synchronized TransformStore loose(){
+		if(pooled == 0){
+			TransformStore store = new TransformStore(1);
+			store.loose = true;
+			return store;
+		}
+		
+		TransformStore store = pool[--pooled];
+		pool[pooled] = null;
+		return store;
+	}
+	
+	/** Hand an emptied private store back to the pool, zeroing its slot for the next transform
+	 *
+	 * @param store the store
+	 */
+	private static synchronized void recycle(TransformStore store){
+		if(pooled == POOL_SIZE)
+			return;
+		
+		store.x[0] = store.y[0] = store.z[0] = 0;
+		store.width[0] = store.height[0] = store.angle[0] = 0;
+		store.velX[0] = store.velY[0] = 0;
+		store.lastX[0] = store.lastY[0] = store.lastZ[0] = 0;
+		store.lastWidth[0] = store.lastHeight[0] = store.lastAngle[0] = 0;
+		store.stepX[0] = store.stepY[0] = 0;
+		Arrays.fill(store.mat, 0, MAT_SIZE, 0);
+		
+		pool[pooled++] = store;
+	}
+	
+	/** Free a slot, the last slot is moved into its place
+	 *
+	 * @param slot the slot to free
+	 */
+	private void release(int slot){
+		int last = --size;
+		
+		if(slot != last){
+			copy(this, last, this, slot);
+			owners[slot] = owners[last];
+			owners[slot].slot = slot;
+		}
+		
+		owners[last] = null;
+	}
+	
+	/** Copy the state of one slot into another
+	 *
+	 * @param from the store to copy from
+	 * @param src the slot to copy from
+	 * @param to the store to copy to
+	 * @param dst the slot to copy to
+	 */
+	private static void copy(TransformStore from, int src, TransformStore to, int dst){
+		to.x[dst] = from.x[src];
+		to.y[dst] = from.y[src];
+		to.z[dst] = from.z[src];
+		to.width[dst] = from.width[src];
+		to.height[dst] = from.height[src];
+		to.angle[dst] = from.angle[src];
+		to.velX[dst] = from.velX[src];
+		to.velY[dst] = from.velY[src];
+		
+		to.lastX[dst] = from.lastX[src];
+		to.lastY[dst] = from.lastY[src];
+		to.lastZ[dst] = from.lastZ[src];
+		to.lastWidth[dst] = from.lastWidth[src];
+		to.lastHeight[dst] = from.lastHeight[src];
+		to.lastAngle[dst] = from.lastAngle[src];
+		
+		to.stepX[dst] = from.stepX[src];
+		to.stepY[dst] = from.stepY[src];
+		
+		System.arraycopy(from.mat, src * MAT_SIZE, to.mat, dst * MAT_SIZE, MAT_SIZE);
+		to.dirty[dst] = from.dirty[src];
+	}
+	
+	/** Grow the arrays
+	 * 
+	 * @param capacity the new amount of slots
+	 */
+	private void grow(int capacity){
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		z = Arrays.copyOf(z, capacity);
+		width = Arrays.copyOf(width, capacity);
+		height = Arrays.copyOf(height, capacity);
+		angle = Arrays.copyOf(angle, capacity);
+		velX = Arrays.copyOf(velX, capacity);
+		velY = Arrays.copyOf(velY, capacity);
+		
+		lastX = Arrays.copyOf(lastX, capacity);
+		lastY = Arrays.copyOf(lastY, capacity);
+		lastZ = Arrays.copyOf(lastZ, capacity);
+		lastWidth = Arrays.copyOf(lastWidth, capacity);
+		lastHeight = Arrays.copyOf(lastHeight, capacity);
+		lastAngle = Arrays.copyOf(lastAngle, capacity);
+		
+		stepX = Arrays.copyOf(stepX, capacity);
+		stepY = Arrays.copyOf(stepY, capacity);
+		
+		mat = Arrays.copyOf(mat, capacity * MAT_SIZE);
+		dirty = Arrays.copyOf(dirty, capacity);
+		
+		owners = Arrays.copyOf(owners, capacity);
+	}
+}
@@ -0,0 +1,194 @@
+package io.tek256.core.trace;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * USAGE: ChromeTrace.start("trace.json") -> play -> ChromeTrace.stop()
+ * 		  then open the file in chrome://tracing or ui.perfetto.dev
+ *
+ * NOTES: Writes the engine's events as chrome `trace_event` complete spans
+ * 		  (JSON array format), one row per thread. Only one trace records at
+ * 		  a time. Writes are buffered & synchronized, the simulation & GL
+ * 		  threads can both record into the same trace.
+ */
+public class ChromeTrace {
+	//the trace recording right now
+	private static volatile ChromeTrace current = null;
+	
+	//hex digits of the control character escapes
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	private BufferedWriter writer;
+	
+	//where the trace is written
+	private String path;
+	
+	//when the trace started, timestamps are relative to it
+	private long origin;
+	
+	//if an event was written yet (for the separators)
+	private boolean first = true;
+	
+	private ChromeTrace(String path) throws IOException {
+		this.path = path;
+		
+		writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+		writer.write("[\n");
+		
+		origin = System.nanoTime();
+	}
+	
+	/** Start recording a trace, stopping the current one (if any)
+	 * 
+	 * @param path the file to write the trace to
+	 * @return if the trace started
+	 */
+	public static synchronized boolean start(String path){
+		stop();
+		
+		try{
+			current = new ChromeTrace(path);
+			return true;
+		}catch(IOException e){
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Finish the current trace & close its file
+	 */
+	public static synchronized void stop(){
+		ChromeTrace trace = current;
+		if(trace == null)
+			return;
+		
+		current = null;
+		trace.close();
+	}
+	
+	/** Get if a trace is recording
+	 * 
+	 * @return if a trace is recording
+	 */
+	public static boolean isRecording(){
+		return current != null;
+	}
+	
+	/** Get the trace recording right now
+	 * 
+	 * @return the trace, or null when not recording
+	 */
+	public static ChromeTrace current(){
+		return current;
+	}
+	
+	/** Write a complete span to the current trace (if any)
+	 * 
+	 * @param name the name of the span
+	 * @param category the category of the span
+	 * @param start when the span started (`System.nanoTime()`)
+	 * @param end when the span ended (`System.nanoTime()`)
+	 * @param detail extra detail shown with the span, or null
+	 */
+	public static void record(String name, String category, long start, long end, String detail){
+		ChromeTrace trace = current;
+		if(trace != null)
+			trace.complete(name, category, start, end, detail);
+	}
+	
+	/** Write a complete span
+	 * 
+	 * @param name the name of the span
+	 * @param category the category of the span
+	 * @param start when the span started (`System.nanoTime()`)
+	 * @param end when the span ended (`System.nanoTime()`)
+	 * @param detail extra detail shown with the span, or null
+	 */
+	public synchronized void complete(String name, String category, long start, long end, String detail){
+		//closed while the event was running
+		if(writer == null)
+			return;
+		
+		StringBuilder event = new StringBuilder(128);
+		event.append(first ? "" : ",\n");
+		event.append("{\"name\":\"");
+		escape(event, name);
+		event.append("\",\"cat\":\"");
+		escape(event, category);
+		event.append("\",\"ph\":\"X\",\"ts\":").append(micros(Math.max(0, start - origin)))
+			.append(",\"dur\":").append(micros(end - start))
+			.append(",\"pid\":1,\"tid\":").append(Thread.currentThread().getId());
+		
+		if(detail != null){
+			event.append(",\"args\":{\"detail\":\"");
+			escape(event, detail);
+			event.append("\"}");
+		}
+		
+		event.append('}');
+		first = false;
+		
+		try{
+			writer.write(event.toString());
+		}catch(IOException e){
+			e.printStackTrace();
+			close();
+		}
+	}
+	
+	/** Get the file the trace is written to
+	 * 
+	 * @return the path of the trace
+	 */
+	public String getPath(){
+		return path;
+	}
+	
+	/**
+	 * End the JSON array & close the file
+	 */
+	private synchronized void close(){
+		if(writer == null)
+			return;
+		
+		try{
+			writer.write("\n]\n");
+			writer.close();
+		}catch(IOException e){
+			e.printStackTrace();
+		}
+		writer = null;
+	}
+	
+	/** Convert nanoseconds to the trace's microseconds
+	 * 
+	 * @param nanos the time in nanoseconds
+	 * @return the time in microseconds (3 decimals)
+	 */
+	private static String micros(long nanos){
+		return (nanos / 1000) + "." + String.format("%03d", nanos % 1000);
+	}
+	
+	/** Append a string escaped for JSON (quotes, backslashes & control characters)
+	 * 
+	 * @param out where to append the text
+	 * @param text the text to escape
+	 */
+	private static void escape(StringBuilder out, String text){
+		for(int i=0;i<text.length();i++){
+			char c = text.charAt(i);
+			
+			if(c == '"' || c == '\\'){
+				out.append('\\').append(c);
+			}else if(c < 0x20){
+				//control characters aren't allowed raw in a JSON string
+				out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+			}else{
+				out.append(c);
+			}
+		}
+	}
+}
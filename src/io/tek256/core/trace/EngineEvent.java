@@ -0,0 +1,75 @@
+package io.tek256.core.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.StackTrace;
+
+/**
+ * USAGE: event = FrameEvent.open() -> the work -> set fields -> event.finish()
+ *
+ * NOTES: Base of the engine's timeline events. Every event is a JDK Flight
+ * 		  Recorder event (record with `-XX:StartFlightRecording` or JMC) and,
+ * 		  while a `ChromeTrace` is recording, also a `trace_event` span.
+ * 		  With neither recording the events cost next to nothing: `open()`
+ * 		  hands back a shared inert event instead of allocating one (the hot
+ * 		  paths run too rarely for the JIT to reliably drop the allocation),
+ * 		  and checking costs a couple of volatile reads.
+ */
+@Category({"Bear Quest", "Engine"})
+@StackTrace(false)
+public abstract class EngineEvent extends Event {
+	//when the event started, only kept while a chrome trace is recording
+	private transient long traceStart = 0;
+	
+	//if the event was started (the shared inert events never are)
+	private transient boolean live = false;
+	
+	/**
+	 * Start timing the event
+	 */
+	public void start(){
+		live = true;
+		if(ChromeTrace.isRecording())
+			traceStart = System.nanoTime();
+		begin();
+	}
+	
+	/**
+	 * Stop timing the event & record it
+	 */
+	public void finish(){
+		//the shared inert event records nothing
+		if(!live)
+			return;
+		live = false;
+		
+		end();
+		commit();
+		
+		//events started before the trace did are dropped
+		if(traceStart != 0)
+			ChromeTrace.record(getTraceName(), getTraceCategory(), traceStart, System.nanoTime(), getDetail());
+	}
+	
+	/** Get the name of the event's span in a chrome trace
+	 * 
+	 * @return the span's name
+	 */
+	protected abstract String getTraceName();
+	
+	/** Get the category of the event's span in a chrome trace
+	 * 
+	 * @return the span's category
+	 */
+	protected String getTraceCategory(){
+		return "engine";
+	}
+	
+	/** Get extra detail for the event's span in a chrome trace (the asset path etc.)
+	 * 
+	 * @return the detail, or null for none
+	 */
+	protected String getDetail(){
+		return null;
+	}
+}
@@ -0,0 +1,269 @@
+package io.tek256.core.trace;
+
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * NOTES: The engine's timeline events, see `EngineEvent` for how they're recorded.
+ */
+public final class EngineEvents {
+	//the JFR type of each event, looked up on first use
+	//Note: kept out of the event classes, JFR doesn't allow them static state
+	private static final ClassValue<EventType> TYPES = new ClassValue<EventType>(){
+		@Override
+		protected EventType computeValue(Class<?> event){
+			return EventType.getEventType(event.asSubclass(EngineEvent.class));
+		}
+	};
+	
+	//shared inert events, handed out when nothing is recording
+	private static final FrameEvent NO_FRAME = new FrameEvent();
+	private static final UpdateEvent NO_UPDATE = new UpdateEvent();
+	private static final RenderEvent NO_RENDER = new RenderEvent();
+	private static final TextureLoadEvent NO_TEXTURE_LOAD = new TextureLoadEvent();
+	private static final ShaderCompileEvent NO_SHADER_COMPILE = new ShaderCompileEvent();
+	private static final SoundDecodeEvent NO_SOUND_DECODE = new SoundDecodeEvent();
+	private static final BroadphaseEvent NO_BROADPHASE = new BroadphaseEvent();
+	
+	private EngineEvents(){}
+	
+	/** Get if anything would record an event type
+	 * 
+	 * @param event the event class
+	 * @return if JFR or a chrome trace is recording the type
+	 */
+	static boolean isRecording(Class<? extends EngineEvent> event){
+		return TYPES.get(event).isEnabled() || ChromeTrace.isRecording();
+	}
+	
+	@Name("io.tek256.Frame")
+	@Label("Frame")
+	@Description("A whole pass of the engine's loop")
+	public static class FrameEvent extends EngineEvent {
+		/** Start a frame event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static FrameEvent open(){
+			if(!isRecording(FrameEvent.class))
+				return NO_FRAME;
+			
+			FrameEvent event = new FrameEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Updates")
+		public int updates;
+		
+		@Override
+		protected String getTraceName(){
+			return "frame";
+		}
+	}
+	
+	@Name("io.tek256.Update")
+	@Label("Update")
+	@Description("A single simulation step (scene & game update)")
+	public static class UpdateEvent extends EngineEvent {
+		/** Start a update event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static UpdateEvent open(){
+			if(!isRecording(UpdateEvent.class))
+				return NO_UPDATE;
+			
+			UpdateEvent event = new UpdateEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Tick")
+		public long tick;
+		
+		@Override
+		protected String getTraceName(){
+			return "update";
+		}
+	}
+	
+	@Name("io.tek256.Render")
+	@Label("Render")
+	@Description("Drawing & presenting a frame")
+	public static class RenderEvent extends EngineEvent {
+		/** Start a render event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static RenderEvent open(){
+			if(!isRecording(RenderEvent.class))
+				return NO_RENDER;
+			
+			RenderEvent event = new RenderEvent();
+			event.start();
+			return event;
+		}
+		
+		@Override
+		protected String getTraceName(){
+			return "render";
+		}
+	}
+	
+	@Name("io.tek256.TextureLoad")
+	@Label("Texture Load")
+	@Description("Decoding & uploading a texture")
+	public static class TextureLoadEvent extends EngineEvent {
+		/** Start a texture load event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static TextureLoadEvent open(){
+			if(!isRecording(TextureLoadEvent.class))
+				return NO_TEXTURE_LOAD;
+			
+			TextureLoadEvent event = new TextureLoadEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Width")
+		public int width;
+		
+		@Label("Height")
+		public int height;
+		
+		@Override
+		protected String getTraceName(){
+			return "texture load";
+		}
+		
+		@Override
+		protected String getTraceCategory(){
+			return "asset";
+		}
+		
+		@Override
+		protected String getDetail(){
+			return path;
+		}
+	}
+	
+	@Name("io.tek256.ShaderCompile")
+	@Label("Shader Compile")
+	@Description("Compiling a single shader stage")
+	public static class ShaderCompileEvent extends EngineEvent {
+		/** Start a shader compile event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static ShaderCompileEvent open(){
+			if(!isRecording(ShaderCompileEvent.class))
+				return NO_SHADER_COMPILE;
+			
+			ShaderCompileEvent event = new ShaderCompileEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Success")
+		public boolean success;
+		
+		@Override
+		protected String getTraceName(){
+			return "shader compile";
+		}
+		
+		@Override
+		protected String getTraceCategory(){
+			return "asset";
+		}
+		
+		@Override
+		protected String getDetail(){
+			return path;
+		}
+	}
+	
+	@Name("io.tek256.SoundDecode")
+	@Label("Sound Decode")
+	@Description("Decoding a vorbis file into an OpenAL buffer")
+	public static class SoundDecodeEvent extends EngineEvent {
+		/** Start a sound decode event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static SoundDecodeEvent open(){
+			if(!isRecording(SoundDecodeEvent.class))
+				return NO_SOUND_DECODE;
+			
+			SoundDecodeEvent event = new SoundDecodeEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Path")
+		public String path;
+		
+		@Label("Samples")
+		public int samples;
+		
+		@Override
+		protected String getTraceName(){
+			return "sound decode";
+		}
+		
+		@Override
+		protected String getTraceCategory(){
+			return "asset";
+		}
+		
+		@Override
+		protected String getDetail(){
+			return path;
+		}
+	}
+	
+	@Name("io.tek256.BroadphaseStep")
+	@Label("Broadphase Step")
+	@Description("Moving the boxes & finding the pairs of a broadphase")
+	public static class BroadphaseEvent extends EngineEvent {
+		/** Start a broadphase event, or get the shared inert one when nothing records it
+		 * 
+		 * @return the event
+		 */
+		public static BroadphaseEvent open(){
+			if(!isRecording(BroadphaseEvent.class))
+				return NO_BROADPHASE;
+			
+			BroadphaseEvent event = new BroadphaseEvent();
+			event.start();
+			return event;
+		}
+		
+		@Label("Boxes")
+		public int boxes;
+		
+		@Label("Pairs")
+		public int pairs;
+		
+		@Override
+		protected String getTraceName(){
+			return "broadphase";
+		}
+		
+		@Override
+		protected String getTraceCategory(){
+			return "collision";
+		}
+	}
+}
@@ -116,4 +116,37 @@ public class Camera {
 	public Vector2f getSize(){
 		return size;
 	}
+	
+	/** Get the left edge of the view in world space
+	 *  Note: the view spans from the position to position + size
+	 * 
+	 * @return the left edge of the view
+	 */
+	public float getLeft(){
+		return position.x;
+	}
+	
+	/** Get the right edge of the view in world space
+	 * 
+	 * @return the right edge of the view
+	 */
+	public float getRight(){
+		return position.x + size.x;
+	}
+	
+	/** Get the bottom edge of the view in world space
+	 * 
+	 * @return the bottom edge of the view
+	 */
+	public float getBottom(){
+		return position.y;
+	}
+	
+	/** Get the top edge of the view in world space
+	 * 
+	 * @return the top edge of the view
+	 */
+	public float getTop(){
+		return position.y + size.y;
+	}
 }
@@ -127,6 +127,14 @@ public class Quad {
 		exitRender();
 	}
 	
+	/** Get the vertex array of the quad
+	 * 
+	 * @return the vertex array of the quad
+	 */
+	public int getVao(){
+		return vao;
+	}
+	
 	/** Get the width of the quad
 	 * 
 	 * @return the width of the quad
@@ -14,13 +14,18 @@ import org.joml.*;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL21;
 
 import io.tek256.ResourceLoader;
 import io.tek256.core.GameEngine;
+import io.tek256.core.trace.EngineEvents.ShaderCompileEvent;
 
 public class Shader {
 	private static HashMap<String,Shader> shaders;
 	
+	//the shader currently in use
+	private static Shader current = null;
+	
 	static{
 		shaders = new HashMap<>();
 	}
@@ -32,7 +37,7 @@ public class Shader {
 	
 	private HashMap<String,Integer> uniforms;
 	
-	private FloatBuffer buffer;
+	private FloatBuffer buffer, buffer2D;
 	
 	
 	public Shader(String name, String vertex, String fragment){
@@ -75,6 +80,8 @@ public class Shader {
 		
 		//create a buffer for 4x4 matrices
 		buffer = BufferUtils.createFloatBuffer(16);
+		//and one for 2D (3x2) matrices
+		buffer2D = BufferUtils.createFloatBuffer(6);
 	}
 	
 	public Shader(String vertex, String fragment){
@@ -115,6 +122,8 @@ public class Shader {
 		
 		//create a buffer for 4x4 matrices
 		buffer = BufferUtils.createFloatBuffer(16);
+		//and one for 2D (3x2) matrices
+		buffer2D = BufferUtils.createFloatBuffer(6);
 		
 	}
 	
@@ -125,6 +134,8 @@ public class Shader {
 	 * @return a shader id
 	 */
 	private int createShader(int type, String path){
+		ShaderCompileEvent event = ShaderCompileEvent.open();
+		
 		//create the shader id
 		int id = glCreateShader(type);
 		
@@ -135,12 +146,17 @@ public class Shader {
 		glCompileShader(id);
 		
 		//check for compilation issues, if present, output them
-		if(glGetShaderi(id, GL_COMPILE_STATUS) == GL11.GL_FALSE){
+		boolean success = glGetShaderi(id, GL_COMPILE_STATUS) != GL11.GL_FALSE;
+		if(!success){
 			System.err.println(glGetShaderInfoLog(id, 1024));
 			//don't leak the shader
 			glDeleteShader(id);
 		}
 		
+		event.path = path;
+		event.success = success;
+		event.finish();
+		
 		return id;
 	}
 	
@@ -153,6 +169,15 @@ public class Shader {
 		GL20.glUniformMatrix4fv(getUniform(uniform), false, mat.get(buffer));
 	}
 	
+	/** Set a 2D matrix uniform (mat3x2)
+	 * 
+	 * @param uniform name of a uniform
+	 * @param mat matrix to set
+	 */
+	public void set(String uniform, Matrix3x2f mat){
+		GL21.glUniformMatrix3x2fv(getUniform(uniform), false, mat.get(buffer2D));
+	}
+	
 	/** Set a vec3 uniform
 	 * 
 	 * @param uniform name of a uniform
@@ -316,10 +341,10 @@ public class Shader {
 	 * Unbind other shaders
 	 */
 	protected void unbindOthers(){
-		for(Shader shader : shaders.values()){
-			if(shader != this)
-				shader.setUnbound();
-		}
+		//only the current shader can be bound, so no need to walk the map
+		if(current != null && current != this)
+			current.setUnbound();
+		current = this;
 	}
 	
 	/**
@@ -327,8 +352,9 @@ public class Shader {
 	 */
 	public static void unbind(){
 		glUseProgram(0);
-		for(Shader shader : shaders.values()){
-			shader.setUnbound();
+		if(current != null){
+			current.setUnbound();
+			current = null;
 		}
 	}
 	
@@ -374,7 +400,8 @@ public class Shader {
 			//get name (strip file extension)
 			String name = file.getName().substring(0, file.getName().lastIndexOf("."));
 			
-			for(String[] attribs : matches){
+			for(int i=0;i<matches.size();i++){
+				String[] attribs = matches.get(i);
 				if(attribs[0].toLowerCase().equals(name.toLowerCase())){
 					//if the included shader isn't a duplicate
 					if(!attribs[1].toLowerCase().equals(file.getPath())){
@@ -393,12 +420,9 @@ public class Shader {
 							temp[2] = attribs[1];
 						}
 						
-						//remove old shader attributes
-						matches.remove(attribs);
-						//update the array
-						attribs = temp;
-						//add the complete attributes
-						matches.add(attribs);
+						//replace the old shader attributes with the complete ones
+						//(in place, so the list isn't modified while iterating)
+						matches.set(i, temp);
 					}
 				}
 			}
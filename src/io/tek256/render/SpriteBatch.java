@@ -0,0 +1,340 @@
+package io.tek256.render;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.joml.Matrix3x2f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+
+/**
+ * USAGE: begin(shader, camera) -> draw(...) for each sprite -> end()
+ *
+ * NOTES: Sprites are transformed into world space on the cpu and streamed
+ * 		  into a single vertex buffer. Any sprites that share a shader and
+ * 		  a (sheet) texture are drawn with one glDrawElements call, the batch
+ * 		  only flushes when the texture changes or the buffer is full.
+ * 		  The shader is fed identity / pass through uniforms so the
+ * 		  default shader contract still works without a model matrix.
+ */
+public class SpriteBatch implements SpriteRenderer {
+	//default amount of sprites per flush
+	public static final int DEFAULT_SIZE = 4096;
+
+	//floats per vertex (x,y,z,u,v)
+	private static final int VERTEX_SIZE = 5;
+	//vertices per sprite
+	private static final int SPRITE_VERTICES = 4;
+	//indices per sprite
+	private static final int SPRITE_INDICES = 6;
+
+	//the unit quad corners (same layout as `Quad`)
+	private static final float[] CORNERS = new float[]{
+		-0.5f, -0.5f, //bottom left
+		-0.5f,  0.5f, //top left
+		 0.5f,  0.5f, //top right
+		 0.5f, -0.5f, //bottom right
+	};
+
+	//the texture coords are flipped (same layout as `Quad`)
+	private static final float[] TEXCOORDS = new float[]{
+		0,1, //bottom left
+		0,0, //top left
+		1,0, //top right
+		1,1, //bottom right
+	};
+
+	//shared identity matrix for the model uniform
+	private static final Matrix4f IDENTITY = new Matrix4f();
+
+	private int vao,vbo,vboi;
+
+	//max sprites before a forced flush
+	private int capacity;
+
+	//the streamed vertex data
+	private FloatBuffer vertices;
+
+	//amount of sprites waiting to be drawn
+	private int count = 0;
+
+	//current state of the batch
+	private Shader shader;
+	private Texture texture;
+	private boolean drawing = false;
+
+	//counters for the current frame
+	private int draws = 0, sprites = 0;
+	//counters of the last finished frame
+	private int lastDraws = 0, lastSprites = 0;
+
+	public SpriteBatch(){
+		this(DEFAULT_SIZE);
+	}
+
+	public SpriteBatch(int capacity){
+		this.capacity = capacity;
+
+		//create the vertex array
+		vao = glGenVertexArrays();
+		glBindVertexArray(vao);
+
+		vbo = glGenBuffers();
+		vboi = glGenBuffers();
+
+		//allocate the streamed vertex buffer on the cpu side
+		vertices = BufferUtils.createFloatBuffer(capacity * SPRITE_VERTICES * VERTEX_SIZE);
+
+		//allocate the buffer on the gpu side, contents are streamed in later
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		glBufferData(GL_ARRAY_BUFFER, vertices.capacity() * 4, GL_STREAM_DRAW);
+
+		//position (x,y,z)
+		glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_SIZE * 4, 0);
+		//texture coord (u,v)
+		glVertexAttribPointer(1, 2, GL_FLOAT, false, VERTEX_SIZE * 4, 3 * 4);
+
+		//the indices never change, so they're built once
+		IntBuffer indices = BufferUtils.createIntBuffer(capacity * SPRITE_INDICES);
+		for(int i=0;i<capacity;i++){
+			int offset = i * SPRITE_VERTICES;
+			//first triangle
+			indices.put(offset).put(offset + 1).put(offset + 2);
+			//second triangle
+			indices.put(offset + 2).put(offset + 3).put(offset);
+		}
+		indices.flip();
+
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboi);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+		//make sure no array buffers are still bound
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		//unbind the vertex array
+		glBindVertexArray(0);
+	}
+
+	/** Start batching for a shader
+	 *
+	 * @param shader the shader to draw with
+	 * @param camera the camera to draw from
+	 */
+	@Override
+	public void begin(Shader shader, Camera camera){
+		begin(shader, camera.getProjection(), camera.getView());
+	}
+
+	/** Start batching for a shader with the camera's matrices
+	 *
+	 * @param shader the shader to draw with
+	 * @param projection the projection matrix of the camera
+	 * @param view the view matrix of the camera
+	 */
+	@Override
+	public void begin(Shader shader, Matrix4f projection, Matrix4f view){
+		if(drawing)
+			end();
+
+		this.shader = shader;
+		texture = null;
+		drawing = true;
+
+		shader.bind();
+
+		//setup the camera variables
+		shader.set("PROJECTION_MAT", projection);
+		shader.set("VIEW_MAT", view);
+
+		//vertices are already in world space with final texture coords
+		shader.set("MODEL_MAT", IDENTITY);
+		shader.set("SUB_TEXTURE", 0);
+		shader.set("FLIP_X", 0);
+		shader.set("FLIP_Y", 0);
+		shader.set("TEXTURE_OFFSET", Vector2f.ZERO);
+		shader.set("TEXTURE_REPEAT", Vector2f.ONE);
+	}
+
+	/** Add a sprite to the batch
+	 *
+	 * @param tex the texture (or sub texture) of the sprite
+	 * @param mat the 2D model matrix of the sprite
+	 * @param z the depth of the sprite
+	 * @param repeat the texture repeat of the sprite
+	 * @param flipX if the texture should be flipped horizontally
+	 * @param flipY if the texture should be flipped vertically
+	 */
+	@Override
+	public void draw(Texture tex, Matrix3x2f mat, float z, Vector2f repeat, boolean flipX, boolean flipY){
+		//escape any sub textures, the sheet is what gets bound
+		Texture base = (tex.isSubTexture()) ? tex.getSheet().getTexture() : tex;
+
+		//a texture switch or a full buffer means we have to draw what we have
+		if(base != texture || count == capacity){
+			flush();
+			texture = base;
+		}
+
+		//setup the texture coord transform (see default.vs)
+		float scaleU, scaleV, offsetU = 0f, offsetV = 0f;
+		if(tex.isSubTexture()){
+			Vector2f sheetSize = base.getSize();
+			Vector2f subSize = tex.getSheet().getSubSize();
+			Vector2f offset = tex.getOffset();
+
+			offsetU = offset.x / sheetSize.x;
+			offsetV = offset.y / sheetSize.y;
+			scaleU = subSize.x / sheetSize.x;
+			scaleV = subSize.y / sheetSize.y;
+		}else{
+			scaleU = 1f / repeat.x;
+			scaleV = 1f / repeat.y;
+		}
+
+		for(int i=0;i<SPRITE_VERTICES;i++){
+			float x = CORNERS[i * 2];
+			float y = CORNERS[i * 2 + 1];
+
+			float u = TEXCOORDS[i * 2];
+			float v = TEXCOORDS[i * 2 + 1];
+
+			//mirror the texture coords if requested
+			if(flipX)
+				u = 1 - u;
+			if(flipY)
+				v = 1 - v;
+
+			//model matrix * vertex position
+			vertices.put(mat.m00 * x + mat.m10 * y + mat.m20);
+			vertices.put(mat.m01 * x + mat.m11 * y + mat.m21);
+			vertices.put(-z);
+
+			vertices.put(offsetU + scaleU * u);
+			vertices.put(offsetV + scaleV * v);
+		}
+
+		count++;
+	}
+
+	/**
+	 * Draw everything that's been batched so far
+	 */
+	public void flush(){
+		if(count == 0)
+			return;
+
+		vertices.flip();
+
+		texture.bind();
+
+		glBindVertexArray(vao);
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		//orphan the old storage so we don't stall on the last draw
+		glBufferData(GL_ARRAY_BUFFER, vertices.capacity() * 4, GL_STREAM_DRAW);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+		glEnableVertexAttribArray(0);
+		glEnableVertexAttribArray(1);
+
+		glDrawElements(GL_TRIANGLES, count * SPRITE_INDICES, GL_UNSIGNED_INT, 0);
+
+		glDisableVertexAttribArray(0);
+		glDisableVertexAttribArray(1);
+		glBindVertexArray(0);
+
+		//update the counters
+		draws++;
+		sprites += count;
+
+		//reset the batch
+		vertices.clear();
+		count = 0;
+	}
+
+	/**
+	 * Finish batching for the current shader
+	 */
+	@Override
+	public void end(){
+		if(!drawing)
+			return;
+
+		flush();
+
+		Texture.unbind();
+		Shader.unbind();
+
+		shader = null;
+		texture = null;
+		drawing = false;
+	}
+
+	/**
+	 * Finish the frame's counters, call once per frame
+	 */
+	@Override
+	public void resetStats(){
+		lastDraws = draws;
+		lastSprites = sprites;
+
+		draws = 0;
+		sprites = 0;
+	}
+
+	/** Get the amount of draw calls in the last frame
+	 *
+	 * @return the amount of draw calls in the last frame
+	 */
+	@Override
+	public int getDrawCalls(){
+		return lastDraws;
+	}
+
+	/** Get the amount of sprites drawn in the last frame
+	 *
+	 * @return the amount of sprites drawn in the last frame
+	 */
+	@Override
+	public int getSpriteCount(){
+		return lastSprites;
+	}
+
+	/** Get the average amount of sprites per draw call in the last frame
+	 *
+	 * @return the average amount of sprites per draw call
+	 */
+	public float getSpritesPerDraw(){
+		return (lastDraws == 0) ? 0 : (float)lastSprites / lastDraws;
+	}
+
+	/** Get the max amount of sprites per draw call
+	 *
+	 * @return the max amount of sprites per draw call
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/** Get the shader currently being batched
+	 *
+	 * @return the shader currently being batched
+	 */
+	public Shader getShader(){
+		return shader;
+	}
+
+	/**
+	 * Destroy the buffers
+	 */
+	public void destroy(){
+		glDeleteBuffers(vbo);
+		glDeleteBuffers(vboi);
+		glDeleteVertexArrays(vao);
+	}
+}
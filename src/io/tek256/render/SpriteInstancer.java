@@ -0,0 +1,267 @@
+package io.tek256.render;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix3x2f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.lwjgl.BufferUtils;
+
+/**
+ * USAGE: begin(shader, camera) -> draw(...) for each sprite -> end()
+ *
+ * NOTES: Instanced counterpart to `SpriteBatch` for objects that move every
+ * 		  frame. Only the per instance attributes (2D transform, texture offset,
+ * 		  texture repeat & flip flags) are uploaded, the unit `Quad` is reused
+ * 		  for the geometry and each (sheet) texture is drawn with a single
+ * 		  glDrawElementsInstanced call. Needs a shader that reads the instance
+ * 		  attributes (see `instanced.vs`).
+ */
+public class SpriteInstancer implements SpriteRenderer {
+	//default amount of instances per flush
+	public static final int DEFAULT_SIZE = 4096;
+
+	//name of the shader that reads the instance attributes
+	public static final String SHADER = "instanced";
+
+	//floats per instance
+	private static final int INSTANCE_SIZE = 16;
+
+	//the quad that gets instanced
+	private Quad quad;
+
+	//the per instance buffer
+	private int vbo;
+
+	//max instances before a forced flush
+	private int capacity;
+
+	//the streamed instance data
+	private FloatBuffer instances;
+
+	//amount of instances waiting to be drawn
+	private int count = 0;
+
+	//current state of the instancer
+	private Shader shader;
+	private Texture texture;
+	private boolean drawing = false;
+
+	//counters for the current frame
+	private int draws = 0, sprites = 0;
+	//counters of the last finished frame
+	private int lastDraws = 0, lastSprites = 0;
+
+	public SpriteInstancer(Quad quad){
+		this(quad, DEFAULT_SIZE);
+	}
+
+	public SpriteInstancer(Quad quad, int capacity){
+		this.quad = quad;
+		this.capacity = capacity;
+
+		//allocate the instance data on the cpu side
+		instances = BufferUtils.createFloatBuffer(capacity * INSTANCE_SIZE);
+
+		vbo = glGenBuffers();
+
+		//attach the instance buffer to the quad's vertex array
+		glBindVertexArray(quad.getVao());
+
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		glBufferData(GL_ARRAY_BUFFER, instances.capacity() * 4, GL_STREAM_DRAW);
+
+		//model rotation / scale (m00, m01, m10, m11)
+		instanceAttrib(2, 0);
+		//model translation & depth (m20, m21, -z, unused)
+		instanceAttrib(3, 4);
+		//texture offset & texture repeat
+		instanceAttrib(4, 8);
+		//flip x, flip y, sub texture, unused
+		instanceAttrib(5, 12);
+
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		glBindVertexArray(0);
+	}
+
+	/** Setup a vec4 attribute that advances once per instance
+	 *
+	 * @param index the attribute location
+	 * @param offset the offset in floats into the instance
+	 */
+	private void instanceAttrib(int index, int offset){
+		glVertexAttribPointer(index, 4, GL_FLOAT, false, INSTANCE_SIZE * 4, offset * 4);
+		glVertexAttribDivisor(index, 1);
+		//the default shader doesn't read these, so they can stay enabled
+		glEnableVertexAttribArray(index);
+	}
+
+	/** Start instancing for a shader
+	 *
+	 * @param shader the shader to draw with (must read the instance attributes)
+	 * @param camera the camera to draw from
+	 */
+	@Override
+	public void begin(Shader shader, Camera camera){
+		begin(shader, camera.getProjection(), camera.getView());
+	}
+
+	/** Start instancing for a shader with the camera's matrices
+	 *
+	 * @param shader the shader to draw with
+	 * @param projection the projection matrix of the camera
+	 * @param view the view matrix of the camera
+	 */
+	@Override
+	public void begin(Shader shader, Matrix4f projection, Matrix4f view){
+		if(drawing)
+			end();
+
+		this.shader = shader;
+		texture = null;
+		drawing = true;
+
+		shader.bind();
+
+		//setup the camera variables
+		shader.set("PROJECTION_MAT", projection);
+		shader.set("VIEW_MAT", view);
+	}
+
+	/** Add a sprite instance
+	 *
+	 * @param tex the texture (or sub texture) of the sprite
+	 * @param mat the 2D model matrix of the sprite
+	 * @param z the depth of the sprite
+	 * @param repeat the texture repeat of the sprite
+	 * @param flipX if the texture should be flipped horizontally
+	 * @param flipY if the texture should be flipped vertically
+	 */
+	@Override
+	public void draw(Texture tex, Matrix3x2f mat, float z, Vector2f repeat, boolean flipX, boolean flipY){
+		//escape any sub textures, the sheet is what gets bound
+		Texture base = (tex.isSubTexture()) ? tex.getSheet().getTexture() : tex;
+
+		//a texture switch or a full buffer means we have to draw what we have
+		if(base != texture || count == capacity){
+			flush();
+			texture = base;
+		}
+
+		Vector2f offset = tex.getOffset();
+
+		instances.put(mat.m00).put(mat.m01).put(mat.m10).put(mat.m11);
+		instances.put(mat.m20).put(mat.m21).put(-z).put(0f);
+		instances.put(offset.x).put(offset.y).put(repeat.x).put(repeat.y);
+		instances.put(flipX ? 1f : 0f).put(flipY ? 1f : 0f)
+			.put(tex.isSubTexture() ? 1f : 0f).put(0f);
+
+		count++;
+	}
+
+	/**
+	 * Draw every instance that's been added so far
+	 */
+	public void flush(){
+		if(count == 0)
+			return;
+
+		instances.flip();
+
+		texture.bind();
+
+		//the sheet sizes are shared by every instance of the texture
+		if(texture.isSheet()){
+			shader.set("TEXTURE_SIZE", texture.getSize());
+			shader.set("SUB_SIZE", texture.getSheet().getSubSize());
+		}
+
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		//orphan the old storage so we don't stall on the last draw
+		glBufferData(GL_ARRAY_BUFFER, instances.capacity() * 4, GL_STREAM_DRAW);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, instances);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+		quad.prepRender();
+		glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, count);
+		quad.exitRender();
+
+		//update the counters
+		draws++;
+		sprites += count;
+
+		//reset the instances
+		instances.clear();
+		count = 0;
+	}
+
+	/**
+	 * Finish instancing for the current shader
+	 */
+	@Override
+	public void end(){
+		if(!drawing)
+			return;
+
+		flush();
+
+		Texture.unbind();
+		Shader.unbind();
+
+		shader = null;
+		texture = null;
+		drawing = false;
+	}
+
+	/**
+	 * Finish the frame's counters, call once per frame
+	 */
+	@Override
+	public void resetStats(){
+		lastDraws = draws;
+		lastSprites = sprites;
+
+		draws = 0;
+		sprites = 0;
+	}
+
+	/** Get the amount of draw calls in the last frame
+	 *
+	 * @return the amount of draw calls in the last frame
+	 */
+	@Override
+	public int getDrawCalls(){
+		return lastDraws;
+	}
+
+	/** Get the amount of instances drawn in the last frame
+	 *
+	 * @return the amount of instances drawn in the last frame
+	 */
+	@Override
+	public int getSpriteCount(){
+		return lastSprites;
+	}
+
+	/** Get the average amount of instances per draw call in the last frame
+	 *
+	 * @return the average amount of instances per draw call
+	 */
+	public float getSpritesPerDraw(){
+		return (lastDraws == 0) ? 0 : (float)lastSprites / lastDraws;
+	}
+
+	/**
+	 * Destroy the instance buffer
+	 */
+	public void destroy(){
+		glDeleteBuffers(vbo);
+	}
+}
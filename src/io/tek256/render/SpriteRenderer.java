@@ -0,0 +1,23 @@
+package io.tek256.render;
+
+import org.joml.Matrix3x2f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+
+/**
+ * Shared calls of the sprite draw paths (`SpriteBatch` & `SpriteInstancer`)
+ */
+public interface SpriteRenderer {
+	public void begin(Shader shader, Camera camera);
+	
+	public void begin(Shader shader, Matrix4f projection, Matrix4f view);
+	
+	public void draw(Texture tex, Matrix3x2f mat, float z, Vector2f repeat, boolean flipX, boolean flipY);
+	
+	public void end();
+	
+	public void resetStats();
+	
+	public int getDrawCalls();
+	public int getSpriteCount();
+}
@@ -18,6 +18,7 @@ import de.matthiasmann.twl.utils.PNGDecoder;
 import de.matthiasmann.twl.utils.PNGDecoder.Format;
 import io.tek256.ResourceLoader;
 import io.tek256.core.GameEngine;
+import io.tek256.core.trace.EngineEvents.TextureLoadEvent;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.*;
@@ -57,6 +58,8 @@ public class Texture {
 	private Vector2f offset;
 	
 	public Texture(String path){
+		TextureLoadEvent event = TextureLoadEvent.open();
+		
 		try{
 			//get the raw file as an input stream
 			InputStream in = ResourceLoader.getFileStream(path);
@@ -89,6 +92,29 @@ public class Texture {
 		}catch(IOException e){
 			e.printStackTrace();
 		}
+		
+		event.path = path;
+		event.width = width;
+		event.height = height;
+		event.finish();
+	}
+	
+	/** Create a texture without decoding or uploading anything (headless, tools, benchmarks)
+	 *  Note: the texture has no GL id, it only stands in for an image of the given size
+	 * 
+	 * @param path the path the texture is known by
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 */
+	public Texture(String path, int width, int height){
+		this.path = path;
+		this.width = width;
+		this.height = height;
+		
+		size = new Vector2f(width, height);
+		
+		//place the texture in the map so sheets can find it
+		textureMap.put(path, this);
 	}
 	
 	public void buffer(ByteBuffer buffer){
@@ -0,0 +1,610 @@
+/*
+ * (C) Copyright 2015 Richard Greenlees
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+
+ */
+package org.joml;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.FloatBuffer;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+
+/**
+ * Contains the definition of a 3x2 matrix of floats, and associated functions to transform
+ * it. The matrix is column-major to match OpenGL's interpretation, and it looks like this:
+ * <p>
+ *      m00  m10  m20<br>
+ *      m01  m11  m21<br>
+ * <p>
+ * It describes a 2D affine transformation: the first two columns hold the rotation / scale
+ * and the last column holds the translation. The implied third row is always <tt>0 0 1</tt>.
+ */
+public class Matrix3x2f implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    public float m00, m01;
+    public float m10, m11;
+    public float m20, m21;
+
+    /**
+     * Create a new {@link Matrix3x2f} and set it to {@link #identity() identity}.
+     */
+    public Matrix3x2f() {
+        m00 = 1.0f;
+        m11 = 1.0f;
+    }
+
+    /**
+     * Create a new {@link Matrix3x2f} and make it a copy of the given matrix.
+     *
+     * @param mat
+     *          the {@link Matrix3x2f} to copy the values from
+     */
+    public Matrix3x2f(Matrix3x2f mat) {
+        set(mat);
+    }
+
+    /**
+     * Create a new 3x2 matrix using the supplied float values. The order of the parameter is column-major,
+     * so the first two parameters specify the two elements of the first column.
+     *
+     * @param m00
+     *          the value of m00
+     * @param m01
+     *          the value of m01
+     * @param m10
+     *          the value of m10
+     * @param m11
+     *          the value of m11
+     * @param m20
+     *          the value of m20
+     * @param m21
+     *          the value of m21
+     */
+    public Matrix3x2f(float m00, float m01,
+                      float m10, float m11,
+                      float m20, float m21) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m20 = m20;
+        this.m21 = m21;
+    }
+
+    /**
+     * Set the elements of this matrix to the ones in <code>m</code>.
+     *
+     * @param m
+     *          the matrix to copy the elements from
+     * @return this
+     */
+    public Matrix3x2f set(Matrix3x2f m) {
+        m00 = m.m00;
+        m01 = m.m01;
+        m10 = m.m10;
+        m11 = m.m11;
+        m20 = m.m20;
+        m21 = m.m21;
+        return this;
+    }
+
+    /**
+     * Set the values within this matrix to the supplied float values. The result looks like this:
+     * <p>
+     * m00, m10, m20<br>
+     * m01, m11, m21<br>
+     *
+     * @param m00
+     *          the new value of m00
+     * @param m01
+     *          the new value of m01
+     * @param m10
+     *          the new value of m10
+     * @param m11
+     *          the new value of m11
+     * @param m20
+     *          the new value of m20
+     * @param m21
+     *          the new value of m21
+     * @return this
+     */
+    public Matrix3x2f set(float m00, float m01,
+                          float m10, float m11,
+                          float m20, float m21) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m20 = m20;
+        this.m21 = m21;
+        return this;
+    }
+
+    /**
+     * Set this matrix to the identity.
+     *
+     * @return this
+     */
+    public Matrix3x2f identity() {
+        m00 = 1.0f;
+        m01 = 0.0f;
+        m10 = 0.0f;
+        m11 = 1.0f;
+        m20 = 0.0f;
+        m21 = 0.0f;
+        return this;
+    }
+
+    /**
+     * Multiply this matrix by the supplied <code>right</code> matrix and store the result in <code>dest</code>.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>R</code> the <code>right</code> matrix,
+     * then the new matrix will be <code>M * R</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * R * v</code>, the
+     * transformation of the right matrix will be applied first!
+     *
+     * @param right
+     *          the right operand of the matrix multiplication
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Matrix3x2f mul(Matrix3x2f right, Matrix3x2f dest) {
+        dest.set(m00 * right.m00 + m10 * right.m01,
+                 m01 * right.m00 + m11 * right.m01,
+                 m00 * right.m10 + m10 * right.m11,
+                 m01 * right.m10 + m11 * right.m11,
+                 m00 * right.m20 + m10 * right.m21 + m20,
+                 m01 * right.m20 + m11 * right.m21 + m21);
+        return dest;
+    }
+
+    /**
+     * Multiply this matrix by the supplied <code>right</code> matrix and store the result in <code>this</code>.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>R</code> the <code>right</code> matrix,
+     * then the new matrix will be <code>M * R</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * R * v</code>, the
+     * transformation of the right matrix will be applied first!
+     *
+     * @param right
+     *          the right operand of the matrix multiplication
+     * @return this
+     */
+    public Matrix3x2f mul(Matrix3x2f right) {
+        return mul(right, this);
+    }
+
+    /**
+     * Set this matrix to be a simple translation matrix.
+     *
+     * @param x
+     *          the offset to translate in x
+     * @param y
+     *          the offset to translate in y
+     * @return this
+     */
+    public Matrix3x2f translation(float x, float y) {
+        m00 = 1.0f;
+        m01 = 0.0f;
+        m10 = 0.0f;
+        m11 = 1.0f;
+        m20 = x;
+        m21 = y;
+        return this;
+    }
+
+    /**
+     * Apply a translation to this matrix by translating by the given number of units in x and y and store the result
+     * in <code>dest</code>.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>T</code> the translation
+     * matrix, then the new matrix will be <code>M * T</code>. So when
+     * transforming a vector <code>v</code> with the new matrix by using
+     * <code>M * T * v</code>, the translation will be applied first!
+     *
+     * @param x
+     *          the offset to translate in x
+     * @param y
+     *          the offset to translate in y
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Matrix3x2f translate(float x, float y, Matrix3x2f dest) {
+        dest.m00 = m00;
+        dest.m01 = m01;
+        dest.m10 = m10;
+        dest.m11 = m11;
+        dest.m20 = m00 * x + m10 * y + m20;
+        dest.m21 = m01 * x + m11 * y + m21;
+        return dest;
+    }
+
+    /**
+     * Apply a translation to this matrix by translating by the given number of units in x and y.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>T</code> the translation
+     * matrix, then the new matrix will be <code>M * T</code>. So when
+     * transforming a vector <code>v</code> with the new matrix by using
+     * <code>M * T * v</code>, the translation will be applied first!
+     *
+     * @param x
+     *          the offset to translate in x
+     * @param y
+     *          the offset to translate in y
+     * @return this
+     */
+    public Matrix3x2f translate(float x, float y) {
+        return translate(x, y, this);
+    }
+
+    /**
+     * Apply rotation to this matrix by rotating the given amount of radians and store the result in <code>dest</code>.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>R</code> the rotation matrix,
+     * then the new matrix will be <code>M * R</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * R * v</code>
+     * , the rotation will be applied first!
+     *
+     * @param ang
+     *          the angle in radians
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Matrix3x2f rotate(float ang, Matrix3x2f dest) {
+        float cos = (float) Math.cos(ang);
+        float sin = (float) Math.sin(ang);
+
+        // add temporaries for dependent values
+        float nm00 = m00 * cos + m10 * sin;
+        float nm01 = m01 * cos + m11 * sin;
+        // set non-dependent values directly
+        dest.m10 = m10 * cos - m00 * sin;
+        dest.m11 = m11 * cos - m01 * sin;
+        // set other values
+        dest.m00 = nm00;
+        dest.m01 = nm01;
+        dest.m20 = m20;
+        dest.m21 = m21;
+        return dest;
+    }
+
+    /**
+     * Apply rotation to this matrix by rotating the given amount of radians.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>R</code> the rotation matrix,
+     * then the new matrix will be <code>M * R</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * R * v</code>
+     * , the rotation will be applied first!
+     *
+     * @param ang
+     *          the angle in radians
+     * @return this
+     */
+    public Matrix3x2f rotate(float ang) {
+        return rotate(ang, this);
+    }
+
+    /**
+     * Apply scaling to this matrix by scaling the base axes by the given x and
+     * y factors and store the result in <code>dest</code>.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>S</code> the scaling matrix,
+     * then the new matrix will be <code>M * S</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * S * v</code>
+     * , the scaling will be applied first!
+     *
+     * @param x
+     *          the factor of the x component
+     * @param y
+     *          the factor of the y component
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Matrix3x2f scale(float x, float y, Matrix3x2f dest) {
+        dest.m00 = m00 * x;
+        dest.m01 = m01 * x;
+        dest.m10 = m10 * y;
+        dest.m11 = m11 * y;
+        dest.m20 = m20;
+        dest.m21 = m21;
+        return dest;
+    }
+
+    /**
+     * Apply scaling to this matrix by scaling the base axes by the given x and
+     * y factors.
+     * <p>
+     * If <code>M</code> is <code>this</code> matrix and <code>S</code> the scaling matrix,
+     * then the new matrix will be <code>M * S</code>. So when transforming a
+     * vector <code>v</code> with the new matrix by using <code>M * S * v</code>
+     * , the scaling will be applied first!
+     *
+     * @param x
+     *          the factor of the x component
+     * @param y
+     *          the factor of the y component
+     * @return this
+     */
+    public Matrix3x2f scale(float x, float y) {
+        return scale(x, y, this);
+    }
+
+    /**
+     * Set <code>this</code> matrix to <tt>T * R * S</tt>, where <tt>T</tt> is a translation by the given <tt>(tx, ty)</tt>,
+     * <tt>R</tt> is a rotation by <code>ang</code> radians and <tt>S</tt> is a scaling by the given <tt>(sx, sy)</tt>.
+     * <p>
+     * When transforming a vector by the resulting matrix the scaling transformation will be applied first, then the rotation and
+     * at last the translation.
+     * <p>
+     * This method is equivalent to calling: <tt>translation(tx, ty).rotate(ang).scale(sx, sy)</tt>
+     *
+     * @see #translation(float, float)
+     * @see #rotate(float)
+     * @see #scale(float, float)
+     *
+     * @param tx
+     *          the number of units by which to translate the x-component
+     * @param ty
+     *          the number of units by which to translate the y-component
+     * @param ang
+     *          the angle in radians
+     * @param sx
+     *          the scaling factor for the x-axis
+     * @param sy
+     *          the scaling factor for the y-axis
+     * @return this
+     */
+    public Matrix3x2f translationRotateScale(float tx, float ty, float ang, float sx, float sy) {
+        float sin = ang == 0.0f ? 0.0f : (float) Math.sin(ang);
+        float cos = ang == 0.0f ? 1.0f : (float) Math.cos(ang);
+        m00 = cos * sx;
+        m01 = sin * sx;
+        m10 = -sin * sy;
+        m11 = cos * sy;
+        m20 = tx;
+        m21 = ty;
+        return this;
+    }
+
+    /**
+     * Transform/multiply the given 2D-vector, as if it was a 3D-vector with z=1, by
+     * this matrix and store the result in that vector.
+     * <p>
+     * The given 2D-vector is treated as a 3D-vector with its z-component being 1.0, so it
+     * will represent a position/location in 2D-space rather than a direction.
+     *
+     * @param v
+     *          the vector to transform and to hold the final result
+     * @return v
+     */
+    public Vector2f transformPosition(Vector2f v) {
+        return transformPosition(v.x, v.y, v);
+    }
+
+    /**
+     * Transform/multiply the given 2D-vector, as if it was a 3D-vector with z=1, by
+     * this matrix and store the result in <code>dest</code>.
+     * <p>
+     * The given 2D-vector is treated as a 3D-vector with its z-component being 1.0, so it
+     * will represent a position/location in 2D-space rather than a direction.
+     *
+     * @param v
+     *          the vector to transform
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Vector2f transformPosition(Vector2f v, Vector2f dest) {
+        return transformPosition(v.x, v.y, dest);
+    }
+
+    /**
+     * Transform/multiply the given 2D-vector <tt>(x, y)</tt>, as if it was a 3D-vector with z=1, by
+     * this matrix and store the result in <code>dest</code>.
+     *
+     * @param x
+     *          the x component of the vector to transform
+     * @param y
+     *          the y component of the vector to transform
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Vector2f transformPosition(float x, float y, Vector2f dest) {
+        dest.set(m00 * x + m10 * y + m20,
+                 m01 * x + m11 * y + m21);
+        return dest;
+    }
+
+    /**
+     * Transform/multiply the given 2D-vector, as if it was a 3D-vector with z=0, by
+     * this matrix and store the result in that vector.
+     * <p>
+     * The given 2D-vector is treated as a 3D-vector with its z-component being <tt>0.0</tt>, so it
+     * will represent a direction in 2D-space rather than a position. This method will therefore
+     * not take the translation part of the matrix into account.
+     *
+     * @param v
+     *          the vector to transform and to hold the final result
+     * @return v
+     */
+    public Vector2f transformDirection(Vector2f v) {
+        v.set(m00 * v.x + m10 * v.y,
+              m01 * v.x + m11 * v.y);
+        return v;
+    }
+
+    /**
+     * Store this matrix in column-major order into the supplied {@link FloatBuffer} at the current
+     * buffer {@link FloatBuffer#position() position}, which is the layout of a GLSL <tt>mat3x2</tt>.
+     * <p>
+     * This method will not increment the position of the given FloatBuffer.
+     *
+     * @see #get(int, FloatBuffer)
+     *
+     * @param buffer
+     *            will receive the values of this matrix in column-major order at its current position
+     * @return the passed in buffer
+     */
+    public FloatBuffer get(FloatBuffer buffer) {
+        return get(buffer.position(), buffer);
+    }
+
+    /**
+     * Store this matrix in column-major order into the supplied {@link FloatBuffer} starting at the specified
+     * absolute buffer position/index.
+     * <p>
+     * This method will not increment the position of the given FloatBuffer.
+     *
+     * @param index
+     *            the absolute position into the FloatBuffer
+     * @param buffer
+     *            will receive the values of this matrix in column-major order
+     * @return the passed in buffer
+     */
+    public FloatBuffer get(int index, FloatBuffer buffer) {
+        buffer.put(index,     m00);
+        buffer.put(index + 1, m01);
+        buffer.put(index + 2, m10);
+        buffer.put(index + 3, m11);
+        buffer.put(index + 4, m20);
+        buffer.put(index + 5, m21);
+        return buffer;
+    }
+
+    /**
+     * Store this matrix as an equivalent 4x4 matrix into <code>dest</code>, with the given <code>z</code>
+     * as the translation along the z axis.
+     *
+     * @param z
+     *          the z translation
+     * @param dest
+     *          will hold the result
+     * @return dest
+     */
+    public Matrix4f get4x4(float z, Matrix4f dest) {
+        dest.m00 = m00;
+        dest.m01 = m01;
+        dest.m02 = 0.0f;
+        dest.m03 = 0.0f;
+        dest.m10 = m10;
+        dest.m11 = m11;
+        dest.m12 = 0.0f;
+        dest.m13 = 0.0f;
+        dest.m20 = 0.0f;
+        dest.m21 = 0.0f;
+        dest.m22 = 1.0f;
+        dest.m23 = 0.0f;
+        dest.m30 = m20;
+        dest.m31 = m21;
+        dest.m32 = z;
+        dest.m33 = 1.0f;
+        return dest;
+    }
+
+    /**
+     * Return a string representation of this matrix.
+     * <p>
+     * This method creates a new {@link DecimalFormat} on every invocation with the format string "<tt>  0.000E0; -</tt>".
+     *
+     * @return the string representation
+     */
+    public String toString() {
+        DecimalFormat formatter = new DecimalFormat("  0.000E0; -"); //$NON-NLS-1$
+        return toString(formatter).replaceAll("E(\\d+)", "E+$1"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Return a string representation of this matrix by formatting the matrix elements with the given {@link NumberFormat}.
+     *
+     * @param formatter
+     *          the {@link NumberFormat} used to format the matrix values with
+     * @return the string representation
+     */
+    public String toString(NumberFormat formatter) {
+        return formatter.format(m00) + formatter.format(m10) + formatter.format(m20) + "\n" //$NON-NLS-1$
+             + formatter.format(m01) + formatter.format(m11) + formatter.format(m21) + "\n"; //$NON-NLS-1$
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeFloat(m00);
+        out.writeFloat(m01);
+        out.writeFloat(m10);
+        out.writeFloat(m11);
+        out.writeFloat(m20);
+        out.writeFloat(m21);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException,
+            ClassNotFoundException {
+        m00 = in.readFloat();
+        m01 = in.readFloat();
+        m10 = in.readFloat();
+        m11 = in.readFloat();
+        m20 = in.readFloat();
+        m21 = in.readFloat();
+    }
+
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Float.floatToIntBits(m00);
+        result = prime * result + Float.floatToIntBits(m01);
+        result = prime * result + Float.floatToIntBits(m10);
+        result = prime * result + Float.floatToIntBits(m11);
+        result = prime * result + Float.floatToIntBits(m20);
+        result = prime * result + Float.floatToIntBits(m21);
+        return result;
+    }
+
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        Matrix3x2f other = (Matrix3x2f) obj;
+        if (Float.floatToIntBits(m00) != Float.floatToIntBits(other.m00))
+            return false;
+        if (Float.floatToIntBits(m01) != Float.floatToIntBits(other.m01))
+            return false;
+        if (Float.floatToIntBits(m10) != Float.floatToIntBits(other.m10))
+            return false;
+        if (Float.floatToIntBits(m11) != Float.floatToIntBits(other.m11))
+            return false;
+        if (Float.floatToIntBits(m20) != Float.floatToIntBits(other.m20))
+            return false;
+        if (Float.floatToIntBits(m21) != Float.floatToIntBits(other.m21))
+            return false;
+        return true;
+    }
+
+}